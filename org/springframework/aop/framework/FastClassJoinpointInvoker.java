@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Invokes joinpoints through CGLIB-generated FastClass invokers instead of
+ * reflection, avoiding the overhead of <code>Method.invoke</code>.
+ * Used by JdkDynamicAopProxy if "fastJoinpointInvocation" has been activated;
+ * CGLIB proxies use their MethodProxy for the same purpose.
+ *
+ * <p>Resolved invokers are cached per proxied method, along with the target
+ * class that they have been resolved for. Methods that cannot be invoked
+ * through a FastClass (non-public methods or target classes) and targets
+ * that fail FastClass generation will be invoked via reflection.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see ProxyConfig#setFastJoinpointInvocation
+ * @see net.sf.cglib.reflect.FastClass
+ */
+final class FastClassJoinpointInvoker {
+
+	private static final Log logger = LogFactory.getLog(FastClassJoinpointInvoker.class);
+
+	/** Resolved FastMethodHolders, keyed by proxied Method */
+	private final Map fastMethodCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+
+	/**
+	 * Invoke the given method on the given target, through a FastClass if possible.
+	 * @param target the target object
+	 * @param method the proxied method to invoke
+	 * @param args the arguments for the method
+	 * @throws Throwable if thrown by the target method
+	 */
+	public Object invokeJoinpoint(Object target, Method method, Object[] args) throws Throwable {
+		FastMethod fastMethod = getFastMethod(target, method);
+		if (fastMethod == null) {
+			return AopUtils.invokeJoinpointUsingReflection(target, method, args);
+		}
+		try {
+			return fastMethod.invoke(target, args);
+		}
+		catch (InvocationTargetException ex) {
+			// Invoked method threw a checked exception.
+			// We must rethrow it. The client won't see the interceptor.
+			throw ex.getTargetException();
+		}
+	}
+
+	/**
+	 * Obtain the FastMethod for the given target and method.
+	 * @return the FastMethod, or <code>null</code> if reflection needs to be used
+	 */
+	private FastMethod getFastMethod(Object target, Method method) {
+		if (target == null) {
+			return null;
+		}
+		Class targetClass = target.getClass();
+		FastMethodHolder holder = (FastMethodHolder) this.fastMethodCache.get(method);
+		if (holder == null || holder.targetClass != targetClass) {
+			holder = new FastMethodHolder(targetClass, resolveFastMethod(targetClass, method));
+			this.fastMethodCache.put(method, holder);
+		}
+		return holder.fastMethod;
+	}
+
+	/**
+	 * Generate a FastClass for the given target class, if possible,
+	 * and determine the FastMethod for the given proxied method.
+	 * @return the FastMethod, or <code>null</code> if reflection needs to be used
+	 */
+	private FastMethod resolveFastMethod(Class targetClass, Method method) {
+		Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+		if (!Modifier.isPublic(targetClass.getModifiers()) || !Modifier.isPublic(specificMethod.getModifiers())) {
+			return null;
+		}
+		try {
+			return FastClass.create(targetClass).getMethod(specificMethod);
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate FastClass for [" + targetClass.getName() +
+						"] - falling back to reflective invocation of method [" + method + "]", ex);
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Holder for a resolved FastMethod (or <code>null</code>
+	 * for reflective invocation), along with its target class.
+	 */
+	private static class FastMethodHolder {
+
+		public final Class targetClass;
+
+		public final FastMethod fastMethod;
+
+		public FastMethodHolder(Class targetClass, FastMethod fastMethod) {
+			this.targetClass = targetClass;
+			this.fastMethod = fastMethod;
+		}
+	}
+
+}
@@ -25,42 +25,51 @@ import org.springframework.core.CollectionFactory;
 /**
  * AdvisorChainFactory implementation that caches by method.
  *
- <p>Uses IdentityHashMap on JDK 1.4+ or Commons Collections 3.x IdentityMap
- * * (if available), which skip expensive <code>Method.hashCode()</code> calls.
- * Falls back to standard HashMap on plain JDK 1.3.
+ * <p>Uses a concurrent map on JDK 1.5+, which allows for lock-free lookups
+ * of cached advisor chains on every proxy invocation. Falls back to a
+ * synchronized HashMap on older JDKs.
+ *
+ * <p>The cache is replaced as a whole when the advice changes, so that
+ * chains calculated concurrently against the previous configuration
+ * will never end up in the new cache.
  *
  * @author Rod Johnson
  * @author Juergen Hoeller
- * @see org.springframework.core.CollectionFactory#createIdentityMapIfPossible
- * @see java.lang.reflect.Method#hashCode()
+ * @see org.springframework.core.CollectionFactory#createConcurrentMapIfPossible
  */
 public final class HashMapCachingAdvisorChainFactory implements AdvisorChainFactory {
 
 	/** Cache with Method key and List value */
-	private final Map methodCache = CollectionFactory.createIdentityMapIfPossible(32);
+	private volatile Map methodCache = createMethodCache();
 
 
 	public List getInterceptorsAndDynamicInterceptionAdvice(
 			Advised config, Object proxy, Method method, Class targetClass) {
 
-		synchronized (this.methodCache) {
-			List cached = (List) this.methodCache.get(method);
-			if (cached == null) {
-				cached = AdvisorChainFactoryUtils.calculateInterceptorsAndDynamicInterceptionAdvice(
-						config, proxy, method, targetClass);
-				this.methodCache.put(method, cached);
-			}
-			return cached;
+		Map cache = this.methodCache;
+		List cached = (List) cache.get(method);
+		if (cached == null) {
+			// Calculating the same chain twice is harmless: no need to lock here.
+			cached = AdvisorChainFactoryUtils.calculateInterceptorsAndDynamicInterceptionAdvice(
+					config, proxy, method, targetClass);
+			cache.put(method, cached);
 		}
+		return cached;
 	}
 
 	public void activated(AdvisedSupport advisedSupport) {
 	}
 
 	public void adviceChanged(AdvisedSupport advisedSupport) {
-		synchronized (this.methodCache) {
-			this.methodCache.clear();
-		}
+		this.methodCache = createMethodCache();
+	}
+
+
+	/**
+	 * Create a new (empty) cache for advisor chains.
+	 */
+	private static Map createMethodCache() {
+		return CollectionFactory.createConcurrentMapIfPossible(32);
 	}
 
 }
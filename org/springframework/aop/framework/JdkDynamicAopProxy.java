@@ -69,9 +69,18 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	/** We use a static Log to avoid serialization issues */
 	private static Log logger = LogFactory.getLog(JdkDynamicAopProxy.class);
 
+	/** Whether the CGLIB2 FastClass facility is available on the classpath */
+	private static final boolean fastClassAvailable = ClassUtils.isPresent("net.sf.cglib.reflect.FastClass");
+
 	/** Config used to configure this proxy */
 	private AdvisedSupport advised;
 
+	/**
+	 * Invoker for target methods if "fastJoinpointInvocation" is active, else <code>null</code>.
+	 * Not serialized: a deserialized proxy falls back to reflective invocation.
+	 */
+	private transient FastClassJoinpointInvoker fastJoinpointInvoker;
+
 	/**
 	 * Is the {@link #equals} method defined on the proxied interfaces?
 	 */
@@ -97,6 +106,9 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			throw new AopConfigException("Cannot create AopProxy with no advisors and no target source");
 		}
 		this.advised = config;
+		if (config.isFastJoinpointInvocation() && fastClassAvailable) {
+			this.fastJoinpointInvoker = new FastClassJoinpointInvoker();
+		}
 	}
 	
 
@@ -196,15 +208,26 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// We can skip creating a MethodInvocation: just invoke the target directly
 				// Note that the final invoker must be an InvokerInterceptor so we know it does
 				// nothing but a reflective operation on the target, and no hot swapping or fancy proxying
-				retVal = AopUtils.invokeJoinpointUsingReflection(target, method, args);
+				if (this.fastJoinpointInvoker != null) {
+					retVal = this.fastJoinpointInvoker.invokeJoinpoint(target, method, args);
+				}
+				else {
+					retVal = AopUtils.invokeJoinpointUsingReflection(target, method, args);
+				}
 			}
 			else {
 				// We need to create a method invocation...
 				// invocation = advised.getMethodInvocationFactory().getMethodInvocation(
 				//		 proxy, method, targetClass, target, args, chain, advised);
 
-				invocation = new ReflectiveMethodInvocation(
-						proxy, target, method, args, targetClass, chain);
+				if (this.fastJoinpointInvoker != null) {
+					invocation = new FastJoinpointMethodInvocation(
+							proxy, target, method, args, targetClass, chain, this.fastJoinpointInvoker);
+				}
+				else {
+					invocation = new ReflectiveMethodInvocation(
+							proxy, target, method, args, targetClass, chain);
+				}
 
 				// proceed to the joinpoint through the interceptor chain
 				retVal = invocation.proceed();
@@ -273,4 +296,24 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		return AopProxyUtils.equalsInProxy(this.advised, aopr2.advised);
 	}
 
+
+	/**
+	 * MethodInvocation that invokes the joinpoint through the proxy's
+	 * FastClassJoinpointInvoker rather than through reflection.
+	 */
+	private static class FastJoinpointMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final FastClassJoinpointInvoker joinpointInvoker;
+
+		public FastJoinpointMethodInvocation(Object proxy, Object target, Method method, Object[] arguments,
+				Class targetClass, List interceptorsAndDynamicMethodMatchers, FastClassJoinpointInvoker joinpointInvoker) {
+			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers);
+			this.joinpointInvoker = joinpointInvoker;
+		}
+
+		protected Object invokeJoinpoint() throws Throwable {
+			return this.joinpointInvoker.invokeJoinpoint(this.target, this.method, this.arguments);
+		}
+	}
+
 }
@@ -55,6 +55,8 @@ public class ProxyConfig implements Serializable {
 	
 	private boolean opaque = false;
 
+	private boolean fastJoinpointInvocation = false;
+
 	/**
 	 * Should proxies obtained from this configuration expose
 	 * the AOP proxy for the AopContext class to retrieve for targets?
@@ -189,6 +191,30 @@ public class ProxyConfig implements Serializable {
 	}
 
 
+	/**
+	 * Set whether JDK dynamic proxies should invoke target methods through
+	 * CGLIB-generated FastClass invokers rather than through reflection.
+	 * Default is "false".
+	 * <p>This trades a one-time class generation cost per target class for
+	 * cheaper invocations, which pays off for frequently called target methods.
+	 * Requires CGLIB2 on the classpath; ignored else. Only applies to public
+	 * methods of public target classes, using reflection for any other methods.
+	 * <p>CGLIB proxies always invoke public target methods through their
+	 * CGLIB MethodProxy, so this setting does not affect them.
+	 */
+	public void setFastJoinpointInvocation(boolean fastJoinpointInvocation) {
+		this.fastJoinpointInvocation = fastJoinpointInvocation;
+	}
+
+	/**
+	 * Return whether JDK dynamic proxies should invoke target methods
+	 * through CGLIB-generated FastClass invokers.
+	 */
+	public boolean isFastJoinpointInvocation() {
+		return this.fastJoinpointInvocation;
+	}
+
+
 	/**
 	 * Copy configuration from the other config object.
 	 * @param other object to copy configuration from
@@ -199,6 +225,7 @@ public class ProxyConfig implements Serializable {
 		this.exposeProxy = other.exposeProxy;
 		this.frozen = other.frozen;
 		this.opaque = other.opaque;
+		this.fastJoinpointInvocation = other.fastJoinpointInvocation;
 		this.aopProxyFactory = other.aopProxyFactory;
 	}
 
@@ -209,6 +236,7 @@ public class ProxyConfig implements Serializable {
 		sb.append("exposeProxy=" + this.exposeProxy + "; ");
 		sb.append("opaque=" + this.opaque + "; ");
 		sb.append("frozen=" + this.frozen + "; ");
+		sb.append("fastJoinpointInvocation=" + this.fastJoinpointInvocation + "; ");
 		sb.append("aopProxyFactory [" + this.aopProxyFactory + "]");
 		return sb.toString();
 	}
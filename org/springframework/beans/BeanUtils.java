@@ -311,6 +311,25 @@ public abstract class BeanUtils {
 		return cr.getPropertyDescriptor(propertyName);
 	}
 
+	/**
+	 * Return the number of class introspection requests that could not be
+	 * served from Spring's introspection results cache so far.
+	 * <p>Statistics are approximate, as they are not updated under a lock.
+	 * @see #getPropertyDescriptors
+	 * @see BeanWrapperImpl
+	 */
+	public static long getIntrospectionCacheMissCount() {
+		return CachedIntrospectionResults.getMissCount();
+	}
+
+	/**
+	 * Return the total time spent on JavaBeans introspection of classes
+	 * for Spring's introspection results cache so far, in milliseconds.
+	 */
+	public static long getIntrospectionTimeMillis() {
+		return CachedIntrospectionResults.getIntrospectionTimeMillis();
+	}
+
 	/**
 	 * Find a JavaBeans <code>PropertyDescriptor</code> for the given method,
 	 * with the method either being the read method or the write method for
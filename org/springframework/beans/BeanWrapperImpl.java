@@ -263,8 +263,9 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 */
 	protected PropertyDescriptor getPropertyDescriptorInternal(String propertyName) throws BeansException {
 		Assert.state(this.object != null, "BeanWrapper does not hold a bean instance");
-		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
-		return nestedBw.cachedIntrospectionResults.getPropertyDescriptor(getFinalPath(nestedBw, propertyName));
+		ParsedPropertyPath parsedPath = getParsedPropertyPath(propertyName);
+		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(parsedPath);
+		return nestedBw.cachedIntrospectionResults.getPropertyDescriptor(parsedPath.finalPath);
 	}
 
 	public boolean isReadableProperty(String propertyName) {
@@ -368,16 +369,46 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	//---------------------------------------------------------------------
 
 	/**
-	 * Get the last component of the path. Also works if not nested.
-	 * @param bw BeanWrapper to work on
-	 * @param nestedPath property path we know is nested
-	 * @return last component of the path (the property on the target bean)
+	 * Return the parsed representation of the given property path,
+	 * reusing a previously parsed path for the wrapped class if available.
+	 * @param propertyPath property path, which may be nested
+	 * @return the parsed property path
+	 * @see CachedIntrospectionResults#getParsedPropertyPath
 	 */
-	private String getFinalPath(BeanWrapper bw, String nestedPath) {
-		if (bw == this) {
-			return nestedPath;
+	private ParsedPropertyPath getParsedPropertyPath(String propertyPath) {
+		ParsedPropertyPath parsedPath =
+				(ParsedPropertyPath) this.cachedIntrospectionResults.getParsedPropertyPath(propertyPath);
+		if (parsedPath == null) {
+			parsedPath = parsePropertyPath(propertyPath, this.cachedIntrospectionResults.getBeanClass());
+			this.cachedIntrospectionResults.addParsedPropertyPath(propertyPath, parsedPath);
 		}
-		return nestedPath.substring(PropertyAccessorUtils.getLastNestedPropertySeparatorIndex(nestedPath) + 1);
+		return parsedPath;
+	}
+
+	/**
+	 * Split the given property path into its nested property components
+	 * and the final property, parsing the name tokens for each of them.
+	 * @param propertyPath property path, which may be nested
+	 * @param ownerClass the class whose introspection results the parsed
+	 * path is going to be cached in
+	 * @return the parsed property path
+	 */
+	private ParsedPropertyPath parsePropertyPath(String propertyPath, Class ownerClass) {
+		List nestedTokens = new ArrayList(2);
+		String finalPath = propertyPath;
+		int pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(finalPath);
+		while (pos > -1) {
+			PropertyTokenHolder tokens = getPropertyNameTokens(finalPath.substring(0, pos));
+			tokens.ownerClass = ownerClass;
+			nestedTokens.add(tokens);
+			finalPath = finalPath.substring(pos + 1);
+			pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(finalPath);
+		}
+		PropertyTokenHolder finalTokens = getPropertyNameTokens(finalPath);
+		finalTokens.ownerClass = ownerClass;
+		return new ParsedPropertyPath(
+				(PropertyTokenHolder[]) nestedTokens.toArray(new PropertyTokenHolder[nestedTokens.size()]),
+				finalPath, finalTokens);
 	}
 
 	/**
@@ -386,17 +417,49 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * @return a BeanWrapper for the target bean
 	 */
 	protected BeanWrapperImpl getBeanWrapperForPropertyPath(String propertyPath) throws BeansException {
-		int pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(propertyPath);
-		// handle nested properties recursively
-		if (pos > -1) {
-			String nestedProperty = propertyPath.substring(0, pos);
-			String nestedPath = propertyPath.substring(pos + 1);
-			BeanWrapperImpl nestedBw = getNestedBeanWrapper(nestedProperty);
-			return nestedBw.getBeanWrapperForPropertyPath(nestedPath);
+		return getBeanWrapperForPropertyPath(getParsedPropertyPath(propertyPath));
+	}
+
+	/**
+	 * Return the PropertyDescriptor for the given (non-nested) property tokens,
+	 * reusing the descriptor resolved on a previous access through the same
+	 * tokens if it has been resolved against the same introspection results.
+	 * <p>Descriptors are only kept in the tokens if the wrapped class is
+	 * cache-safe for the class that owns the tokens (that is, the parsed
+	 * path that they belong to), so that the owner's cached introspection
+	 * results do not hold on to a class from a child ClassLoader. Subclasses
+	 * that override {@link #getPropertyDescriptorInternal} never reuse
+	 * descriptors, always resolving them through that method.
+	 * @param tokens the parsed tokens of a property on the wrapped object
+	 * @return the PropertyDescriptor, or <code>null</code> if not found
+	 */
+	private PropertyDescriptor getResolvedPropertyDescriptor(PropertyTokenHolder tokens) {
+		boolean reusable = (getClass() == BeanWrapperImpl.class && tokens.ownerClass != null);
+		if (reusable) {
+			ResolvedPropertyDescriptor resolved = tokens.resolvedDescriptor;
+			if (resolved != null && resolved.introspectionResults == this.cachedIntrospectionResults) {
+				return resolved.descriptor;
+			}
 		}
-		else {
-			return this;
+		PropertyDescriptor pd = getPropertyDescriptorInternal(tokens.actualName);
+		if (pd != null && reusable && CachedIntrospectionResults.isCacheSafe(
+				this.cachedIntrospectionResults.getBeanClass(), tokens.ownerClass.getClassLoader())) {
+			tokens.resolvedDescriptor = new ResolvedPropertyDescriptor(this.cachedIntrospectionResults, pd);
 		}
+		return pd;
+	}
+
+	/**
+	 * Navigate to return a BeanWrapper for the given parsed property path.
+	 * @param parsedPath the parsed property path, which may be nested
+	 * @return a BeanWrapper for the target bean
+	 */
+	private BeanWrapperImpl getBeanWrapperForPropertyPath(ParsedPropertyPath parsedPath) throws BeansException {
+		BeanWrapperImpl nestedBw = this;
+		for (int i = 0; i < parsedPath.nestedTokens.length; i++) {
+			nestedBw = nestedBw.getNestedBeanWrapper(parsedPath.nestedTokens[i]);
+		}
+		return nestedBw;
 	}
 
 	/**
@@ -404,15 +467,14 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * Create a new one if not found in the cache.
 	 * <p>Note: Caching nested BeanWrappers is necessary now,
 	 * to keep registered custom editors for nested properties.
-	 * @param nestedProperty property to create the BeanWrapper for
+	 * @param tokens the parsed tokens of the property to create the BeanWrapper for
 	 * @return the BeanWrapper instance, either cached or newly created
 	 */
-	private BeanWrapperImpl getNestedBeanWrapper(String nestedProperty) throws BeansException {
+	private BeanWrapperImpl getNestedBeanWrapper(PropertyTokenHolder tokens) throws BeansException {
 		if (this.nestedBeanWrappers == null) {
 			this.nestedBeanWrappers = new HashMap();
 		}
 		// Get Value of bean property-
-		PropertyTokenHolder tokens = getPropertyNameTokens(nestedProperty);
 		String canonicalName = tokens.canonicalName;
 		Object propertyValue = getPropertyValue(tokens);
 		if (propertyValue == null) {
@@ -497,15 +559,15 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	//---------------------------------------------------------------------
 
 	public Object getPropertyValue(String propertyName) throws BeansException {
-		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
-		PropertyTokenHolder tokens = getPropertyNameTokens(getFinalPath(nestedBw, propertyName));
-		return nestedBw.getPropertyValue(tokens);
+		ParsedPropertyPath parsedPath = getParsedPropertyPath(propertyName);
+		BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(parsedPath);
+		return nestedBw.getPropertyValue(parsedPath.finalTokens);
 	}
 
 	private Object getPropertyValue(PropertyTokenHolder tokens) throws BeansException {
 		String propertyName = tokens.canonicalName;
 		String actualName = tokens.actualName;
-		PropertyDescriptor pd = getPropertyDescriptorInternal(tokens.actualName);
+		PropertyDescriptor pd = getResolvedPropertyDescriptor(tokens);
 		if (pd == null || pd.getReadMethod() == null) {
 			throw new NotReadablePropertyException(getRootClass(), this.nestedPath + propertyName);
 		}
@@ -595,16 +657,16 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	}
 
 	public void setPropertyValue(String propertyName, Object value) throws BeansException {
+		ParsedPropertyPath parsedPath = getParsedPropertyPath(propertyName);
 		BeanWrapperImpl nestedBw = null;
 		try {
-			nestedBw = getBeanWrapperForPropertyPath(propertyName);
+			nestedBw = getBeanWrapperForPropertyPath(parsedPath);
 		}
 		catch (NotReadablePropertyException ex) {
 			throw new NotWritablePropertyException(getRootClass(), this.nestedPath + propertyName,
 					"Nested property in path '" + propertyName + "' does not exist", ex);
 		}
-		PropertyTokenHolder tokens = getPropertyNameTokens(getFinalPath(nestedBw, propertyName));
-		nestedBw.setPropertyValue(tokens, value);
+		nestedBw.setPropertyValue(parsedPath.finalTokens, value);
 	}
 
 	private void setPropertyValue(PropertyTokenHolder tokens, Object newValue) throws BeansException {
@@ -744,7 +806,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		}
 
 		else {
-			PropertyDescriptor pd = getPropertyDescriptorInternal(propertyName);
+			PropertyDescriptor pd = getResolvedPropertyDescriptor(tokens);
 			if (pd == null || pd.getWriteMethod() == null) {
 				PropertyMatches matches = PropertyMatches.forProperty(propertyName, getRootClass());
 				throw new NotWritablePropertyException(
@@ -833,6 +895,60 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		private String actualName;
 
 		private String[] keys;
+
+		/**
+		 * The class whose introspection results hold these tokens (as part of
+		 * a parsed property path), or <code>null</code> if not cached at all.
+		 */
+		private Class ownerClass;
+
+		/**
+		 * PropertyDescriptor (with its read and write Method) resolved on the last
+		 * access through these tokens. Replaced as a whole, so it is safe to share
+		 * across threads without synchronization.
+		 */
+		private volatile ResolvedPropertyDescriptor resolvedDescriptor;
+	}
+
+
+	/**
+	 * PropertyDescriptor resolved for a specific set of introspection results,
+	 * that is, for a specific bean class.
+	 */
+	private static class ResolvedPropertyDescriptor {
+
+		private final CachedIntrospectionResults introspectionResults;
+
+		private final PropertyDescriptor descriptor;
+
+		private ResolvedPropertyDescriptor(CachedIntrospectionResults introspectionResults, PropertyDescriptor descriptor) {
+			this.introspectionResults = introspectionResults;
+			this.descriptor = descriptor;
+		}
+	}
+
+
+	/**
+	 * Parsed form of a (potentially nested) property path.
+	 * Immutable apart from the descriptors resolved per path segment,
+	 * so instances can be shared via CachedIntrospectionResults.
+	 */
+	private static class ParsedPropertyPath {
+
+		/** Tokens of the nested properties to navigate through (may be empty) */
+		private final PropertyTokenHolder[] nestedTokens;
+
+		/** The last component of the path (the property on the target bean) */
+		private final String finalPath;
+
+		/** Tokens of the last component of the path */
+		private final PropertyTokenHolder finalTokens;
+
+		private ParsedPropertyPath(PropertyTokenHolder[] nestedTokens, String finalPath, PropertyTokenHolder finalTokens) {
+			this.nestedTokens = nestedTokens;
+			this.finalPath = finalPath;
+			this.finalTokens = finalTokens;
+		}
 	}
 
 }
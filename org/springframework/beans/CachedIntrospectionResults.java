@@ -30,6 +30,8 @@ import java.util.WeakHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.CollectionFactory;
+
 /**
  * Class to cache PropertyDescriptor information for a Java class.
  * Package-visible; not for use by application code.
@@ -55,11 +57,50 @@ final class CachedIntrospectionResults {
 	private static final Log logger = LogFactory.getLog(CachedIntrospectionResults.class);
 
 	/**
-	 * Map keyed by class containing CachedIntrospectionResults.
-	 * Needs to be a WeakHashMap with WeakReferences as values to allow
-	 * for proper garbage collection in case of multiple class loaders.
+	 * Map keyed by class containing CachedIntrospectionResults,
+	 * for cache-safe classes only (see {@link #isCacheSafe}).
+	 * Those classes cannot outlive this class, so we can hold them strongly
+	 * in a concurrent map that allows for lock-free reads.
+	 */
+	private static final Map strongClassCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/**
+	 * Number of segments of the weak class cache. Must be a power of two.
+	 */
+	private static final int WEAK_CLASS_CACHE_SEGMENTS = 16;
+
+	/**
+	 * Maps keyed by class containing CachedIntrospectionResults,
+	 * for classes that are not cache-safe. Need to be WeakHashMaps with
+	 * WeakReferences as values to allow for proper garbage collection
+	 * in case of multiple class loaders.
+	 * <p>There is no concurrent weak-keyed map on the JDKs that we support,
+	 * so the cache is split into segments, each guarded by its own monitor:
+	 * concurrent lookups for different classes rarely contend on the same lock.
+	 */
+	private static final Map[] weakClassCache = new Map[WEAK_CLASS_CACHE_SEGMENTS];
+
+	static {
+		for (int i = 0; i < weakClassCache.length; i++) {
+			weakClassCache[i] = Collections.synchronizedMap(new WeakHashMap());
+		}
+	}
+
+	/*
+	 * Cache statistics, only updated when a class actually needs to be introspected,
+	 * keeping cache hits free of shared writes. Deliberately not synchronized:
+	 * counts may occasionally miss an update under concurrent access.
+	 */
+	private static volatile long missCount = 0;
+
+	private static volatile long introspectionTimeMillis = 0;
+
+	/**
+	 * Maximum number of parsed property paths to cache per class.
+	 * Property paths may originate from request parameter names,
+	 * so we need to guard against an unbounded number of distinct paths.
 	 */
-	private static final Map classCache = Collections.synchronizedMap(new WeakHashMap());
+	private static final int PARSED_PROPERTY_PATH_CACHE_LIMIT = 256;
 
 
 	/**
@@ -69,27 +110,28 @@ final class CachedIntrospectionResults {
 	 * @param beanClass the bean class to analyze
 	 */
 	public static CachedIntrospectionResults forClass(Class beanClass) throws BeansException {
-		CachedIntrospectionResults results = null;
-		Object value = classCache.get(beanClass);
-		if (value instanceof Reference) {
-			Reference ref = (Reference) value;
-			results = (CachedIntrospectionResults) ref.get();
-		}
-		else {
-			results = (CachedIntrospectionResults) value;
+		CachedIntrospectionResults results = (CachedIntrospectionResults) strongClassCache.get(beanClass);
+		if (results == null) {
+			Reference ref = (Reference) getWeakClassCache(beanClass).get(beanClass);
+			if (ref != null) {
+				results = (CachedIntrospectionResults) ref.get();
+			}
 		}
 		if (results == null) {
+			missCount++;
+			long startTime = System.currentTimeMillis();
 			// can throw BeansException
 			results = new CachedIntrospectionResults(beanClass);
+			introspectionTimeMillis += System.currentTimeMillis() - startTime;
 			boolean cacheSafe = isCacheSafe(beanClass);
 			if (logger.isDebugEnabled()) {
 				logger.debug("Class [" + beanClass.getName() + "] is " + (!cacheSafe ? "not " : "") + "cache-safe");
 			}
 			if (cacheSafe) {
-				classCache.put(beanClass, results);
+				strongClassCache.put(beanClass, results);
 			}
 			else {
-				classCache.put(beanClass, new WeakReference(results));
+				getWeakClassCache(beanClass).put(beanClass, new WeakReference(results));
 			}
 		}
 		else {
@@ -100,6 +142,30 @@ final class CachedIntrospectionResults {
 		return results;
 	}
 
+	/**
+	 * Return the segment of the weak class cache for the given class.
+	 */
+	private static Map getWeakClassCache(Class beanClass) {
+		int hash = beanClass.hashCode();
+		hash ^= (hash >>> 16);
+		return weakClassCache[hash & (WEAK_CLASS_CACHE_SEGMENTS - 1)];
+	}
+
+	/**
+	 * Return the number of <code>forClass</code> calls that required
+	 * introspection of the given class.
+	 */
+	static long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Return the total time spent introspecting classes, in milliseconds.
+	 */
+	static long getIntrospectionTimeMillis() {
+		return introspectionTimeMillis;
+	}
+
 	/**
 	 * Check whether the given class is cache-safe,
 	 * i.e. whether it is loaded by the same class loader as the
@@ -110,7 +176,20 @@ final class CachedIntrospectionResults {
 	 * @return whether the given class is thread-safe
 	 */
 	private static boolean isCacheSafe(Class clazz) {
-		ClassLoader cur = CachedIntrospectionResults.class.getClassLoader();
+		return isCacheSafe(clazz, CachedIntrospectionResults.class.getClassLoader());
+	}
+
+	/**
+	 * Check whether the given class is cache-safe in the given context,
+	 * i.e. whether it is loaded by the given class loader or a parent of it.
+	 * @param clazz the class to analyze
+	 * @param classLoader the class loader to potentially cache metadata in
+	 * (<code>null</code> indicating the bootstrap class loader)
+	 * @return whether the given class can be held strongly by structures
+	 * that belong to the given class loader
+	 */
+	static boolean isCacheSafe(Class clazz, ClassLoader classLoader) {
+		ClassLoader cur = classLoader;
 		ClassLoader target = clazz.getClassLoader();
 		if (target == null || cur == target) {
 			return true;
@@ -130,6 +209,9 @@ final class CachedIntrospectionResults {
 	/** Property descriptors keyed by property name */
 	private final Map propertyDescriptorCache;
 
+	/** Parsed property paths keyed by property path, as built by BeanWrapperImpl */
+	private final Map parsedPropertyPathCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
 
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
@@ -188,4 +270,27 @@ final class CachedIntrospectionResults {
 		return (PropertyDescriptor) this.propertyDescriptorCache.get(propertyName);
 	}
 
+	/**
+	 * Return a previously parsed representation of the given property path.
+	 * <p>The parsed form is opaque to this class; it is built and interpreted
+	 * by BeanWrapperImpl, which avoids re-tokenizing paths on every access.
+	 * @param propertyPath the property path, relative to the bean class
+	 * @return the parsed property path, or <code>null</code> if none cached
+	 */
+	public Object getParsedPropertyPath(String propertyPath) {
+		return this.parsedPropertyPathCache.get(propertyPath);
+	}
+
+	/**
+	 * Cache the parsed representation of the given property path,
+	 * as long as the per-class cache limit has not been reached yet.
+	 * @param propertyPath the property path, relative to the bean class
+	 * @param parsedPath the parsed property path (must be immutable)
+	 */
+	public void addParsedPropertyPath(String propertyPath, Object parsedPath) {
+		if (this.parsedPropertyPathCache.size() < PARSED_PROPERTY_PATH_CACHE_LIMIT) {
+			this.parsedPropertyPathCache.put(propertyPath, parsedPath);
+		}
+	}
+
 }
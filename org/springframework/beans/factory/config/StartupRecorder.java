@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.config;
+
+/**
+ * Callback interface for recording the steps of an application startup,
+ * such as the phases of an application context refresh and the creation
+ * of individual beans.
+ *
+ * <p>Steps are started and ended by the same thread and may be nested:
+ * for example, the creation of a bean will usually happen within the
+ * singleton pre-instantiation phase, and the creation of other beans
+ * that it refers to will happen within its own creation step.
+ *
+ * <p>Bean factories and application contexts only call a StartupRecorder
+ * if one has been specified, so there is no overhead by default.
+ * Implementations should keep the overhead of recording itself low,
+ * since they will be called for every bean that gets created.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see org.springframework.beans.factory.support.AbstractBeanFactory#setStartupRecorder
+ * @see org.springframework.beans.factory.support.TimelineStartupRecorder
+ */
+public interface StartupRecorder {
+
+	/** Step name for an entire application context refresh */
+	String CONTEXT_REFRESH = "context.refresh";
+
+	/** Step name for loading the bean definitions of an application context */
+	String LOAD_BEAN_DEFINITIONS = "context.beanDefinitions.load";
+
+	/** Step name for invoking BeanFactoryPostProcessors */
+	String INVOKE_BEAN_FACTORY_POST_PROCESSORS = "context.beanFactoryPostProcessors.invoke";
+
+	/** Step name for registering BeanPostProcessors */
+	String REGISTER_BEAN_POST_PROCESSORS = "context.beanPostProcessors.register";
+
+	/** Step name for pre-instantiating singletons */
+	String PRE_INSTANTIATE_SINGLETONS = "context.singletons.preInstantiate";
+
+	/** Step name for the creation of a bean, with the bean name as detail */
+	String CREATE_BEAN = "bean.create";
+
+	/** Step name for the invocation of a bean's init methods, with the bean name as detail */
+	String INIT_BEAN = "bean.init";
+
+
+	/**
+	 * Record the start of the given step in the current thread.
+	 * @param name the name of the step (for example, one of the constants
+	 * defined in this interface)
+	 * @param detail further detail about the step, for example the name of the bean
+	 * (may be <code>null</code>)
+	 * @return a handle for the step, to be passed to {@link #endStep}
+	 * (may be <code>null</code> if not needed by the implementation)
+	 */
+	Object startStep(String name, String detail);
+
+	/**
+	 * Record the end of the given step in the current thread.
+	 * <p>Steps will usually be ended in reverse order of starting them. However,
+	 * if a step failed with an exception, the steps nested within it might not
+	 * have been ended explicitly.
+	 * @param step the handle returned by {@link #startStep}
+	 */
+	void endStep(Object step);
+
+}
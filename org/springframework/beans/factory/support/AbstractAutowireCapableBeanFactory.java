@@ -53,6 +53,7 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.StartupRecorder;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
@@ -322,13 +323,38 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	/**
 	 * Central method of this class: creates a bean instance,
 	 * populates the bean instance, applies post-processors, etc.
+	 * <p>Notifies the StartupRecorder (if any) of the creation step,
+	 * delegating to {@link #doCreateBean} for the actual work.
+	 * @see #doCreateBean
+	 * @see #setStartupRecorder
+	 */
+	protected Object createBean(String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args)
+			throws BeanCreationException {
+
+		StartupRecorder startupRecorder = getStartupRecorder();
+		if (startupRecorder == null) {
+			return doCreateBean(beanName, mergedBeanDefinition, args);
+		}
+		Object step = startupRecorder.startStep(StartupRecorder.CREATE_BEAN, beanName);
+		try {
+			return doCreateBean(beanName, mergedBeanDefinition, args);
+		}
+		finally {
+			startupRecorder.endStep(step);
+		}
+	}
+
+	/**
+	 * Actually create the specified bean: creates a bean instance,
+	 * populates the bean instance, applies post-processors, etc.
 	 * <p>Differentiates between default bean instantiation, use of a
 	 * factory method, and autowiring a constructor.
+	 * @see #createBean
 	 * @see #instantiateBean
 	 * @see #instantiateUsingFactoryMethod
 	 * @see #autowireConstructor
 	 */
-	protected Object createBean(String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args)
+	protected Object doCreateBean(String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args)
 			throws BeanCreationException {
 
 		// Guarantee initialization of beans that the current one depends on.
@@ -389,7 +415,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 					logger.debug("Eagerly caching bean '" + beanName +
 							"' to allow for resolving potential circular references");
 				}
-				addSingleton(beanName, bean);
+				addEarlySingleton(beanName, bean);
 			}
 
 			// Initialize the bean instance.
@@ -492,6 +518,63 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		}
 	}
 
+	/**
+	 * Obtain a FactoryBean instance for checking its object type: either the
+	 * cached instance or a plain instance created for this purpose, without
+	 * bean properties applied yet (and then cached for full creation later on).
+	 * @param beanName the name of the bean
+	 * @param mbd the merged bean definition for the bean
+	 * @return the FactoryBean instance, or <code>null</code> if the bean
+	 * is currently in creation
+	 */
+	private FactoryBean getSingletonFactoryBeanForTypeCheck(String beanName, RootBeanDefinition mbd) {
+		FactoryBean fb = null;
+		BeanWrapper bw = null;
+		synchronized (this.factoryBeanInstanceCache) {
+			bw = (BeanWrapper) this.factoryBeanInstanceCache.get(beanName);
+		}
+		if (bw != null) {
+			fb = (FactoryBean) bw.getWrappedInstance();
+		}
+		else {
+			// Mark this bean as currently in creation, even if just partially.
+			// Skip the check if the bean is already in creation (by any thread).
+			if (!beforePartialSingletonCreation(beanName)) {
+				return null;
+			}
+			Object instance = null;
+			try {
+				// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
+				Class beanClass = resolveBeanClass(mbd, beanName);
+				if (beanClass != null && !mbd.isSynthetic()) {
+					Object bean = applyBeanPostProcessorsBeforeInstantiation(beanClass, beanName);
+					if (bean != null) {
+						instance = applyBeanPostProcessorsAfterInitialization(bean, beanName);
+					}
+				}
+				if (instance == null) {
+					bw = createBeanInstance(beanName, mbd, null);
+					instance = bw.getWrappedInstance();
+				}
+				if (!(instance instanceof FactoryBean)) {
+					throw new BeanCreationException(beanName,
+							"Bean instance of type [" + instance.getClass() + "] is not a FactoryBean");
+				}
+				fb = (FactoryBean) instance;
+				if (bw != null) {
+					synchronized (this.factoryBeanInstanceCache) {
+						this.factoryBeanInstanceCache.put(beanName, bw);
+					}
+				}
+			}
+			finally {
+				// Finished partial creation of this bean.
+				afterPartialSingletonCreation(beanName);
+			}
+		}
+		return fb;
+	}
+
 	/**
 	 * This implementation checks the FactoryBean's <code>getObjectType</code> method
 	 * on a plain instance of the FactoryBean, without bean properties applied yet.
@@ -504,48 +587,18 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected Class getTypeForFactoryBean(String beanName, RootBeanDefinition mergedBeanDefinition) {
 		if (mergedBeanDefinition.isSingleton()) {
 			FactoryBean fb = null;
-
-			synchronized (this.factoryBeanInstanceCache) {
-				BeanWrapper bw = (BeanWrapper) this.factoryBeanInstanceCache.get(beanName);
-				if (bw != null) {
-					fb = (FactoryBean) bw.getWrappedInstance();
-				}
-				else {
-					if (isSingletonCurrentlyInCreation(beanName)) {
-						return null;
-					}
-					Object instance = null;
-					try {
-						// Mark this bean as currently in creation, even if just partially.
-						beforeSingletonCreation(beanName);
-						// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
-						Class beanClass = resolveBeanClass(mergedBeanDefinition, beanName);
-						if (beanClass != null && !mergedBeanDefinition.isSynthetic()) {
-							Object bean = applyBeanPostProcessorsBeforeInstantiation(beanClass, beanName);
-							if (bean != null) {
-								instance = applyBeanPostProcessorsAfterInitialization(bean, beanName);
-							}
-						}
-						if (instance == null) {
-							bw = createBeanInstance(beanName, mergedBeanDefinition, null);
-							instance = bw.getWrappedInstance();
-						}
-					}
-					finally {
-						// Finished partial creation of this bean.
-						afterSingletonCreation(beanName);
-					}
-					if (!(instance instanceof FactoryBean)) {
-						throw new BeanCreationException(beanName,
-								"Bean instance of type [" + instance.getClass() + "] is not a FactoryBean");
-					}
-					fb = (FactoryBean) instance;
-					if (bw != null) {
-						this.factoryBeanInstanceCache.put(beanName, bw);
-					}
+			if (isConcurrentSingletonCreation()) {
+				fb = getSingletonFactoryBeanForTypeCheck(beanName, mergedBeanDefinition);
+			}
+			else {
+				// Serial singleton creation: hold the cache monitor for the entire check.
+				synchronized (this.factoryBeanInstanceCache) {
+					fb = getSingletonFactoryBeanForTypeCheck(beanName, mergedBeanDefinition);
 				}
 			}
-
+			if (fb == null) {
+				return null;
+			}
 			try {
 				Class type = fb.getObjectType();
 				if (type != null) {
@@ -1050,16 +1103,30 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected void invokeInitMethods(String beanName, Object bean, RootBeanDefinition mergedBeanDefinition)
 			throws Throwable {
 
-		if (bean instanceof InitializingBean) {
-			if (logger.isDebugEnabled()) {
-				logger.debug("Invoking afterPropertiesSet() on bean with name '" + beanName + "'");
-			}
-			((InitializingBean) bean).afterPropertiesSet();
+		boolean hasInitMethod = (mergedBeanDefinition != null && mergedBeanDefinition.getInitMethodName() != null);
+		if (!(bean instanceof InitializingBean) && !hasInitMethod) {
+			return;
 		}
 
-		if (mergedBeanDefinition != null && mergedBeanDefinition.getInitMethodName() != null) {
-			invokeCustomInitMethod(
-					beanName, bean, mergedBeanDefinition.getInitMethodName(), mergedBeanDefinition.isEnforceInitMethod());
+		StartupRecorder startupRecorder = getStartupRecorder();
+		Object step = (startupRecorder != null ? startupRecorder.startStep(StartupRecorder.INIT_BEAN, beanName) : null);
+		try {
+			if (bean instanceof InitializingBean) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Invoking afterPropertiesSet() on bean with name '" + beanName + "'");
+				}
+				((InitializingBean) bean).afterPropertiesSet();
+			}
+
+			if (hasInitMethod) {
+				invokeCustomInitMethod(
+						beanName, bean, mergedBeanDefinition.getInitMethodName(), mergedBeanDefinition.isEnforceInitMethod());
+			}
+		}
+		finally {
+			if (startupRecorder != null) {
+				startupRecorder.endStep(step);
+			}
 		}
 	}
 
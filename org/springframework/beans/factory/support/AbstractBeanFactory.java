@@ -52,6 +52,7 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
 import org.springframework.beans.factory.config.Scope;
+import org.springframework.beans.factory.config.StartupRecorder;
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
 import org.springframework.core.CollectionFactory;
 import org.springframework.core.MethodParameter;
@@ -101,6 +102,9 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 	/** Whether to cache bean metadata or rather reobtain it for every access */
 	private boolean cacheBeanMetadata = true;
 
+	/** StartupRecorder to notify of bean creation steps, if any */
+	private StartupRecorder startupRecorder;
+
 	/** Custom PropertyEditors to apply to the beans of this factory */
 	private final Map customEditors = new HashMap();
 
@@ -122,6 +126,20 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 	/** Map from bean name to merged RootBeanDefinition */
 	private final Map mergedBeanDefinitions = new HashMap();
 
+	/**
+	 * Map from parent bean name to Set of names of child beans with cached
+	 * merged bean definitions, guarded by the merged bean definition cache
+	 */
+	private final Map mergedChildBeanNames = new HashMap();
+
+	/**
+	 * Statistics for the merged bean definition cache, guarded by the cache itself.
+	 * Volatile for unsynchronized reads by the statistics accessors.
+	 */
+	private volatile long mergedBeanDefinitionHitCount = 0;
+
+	private volatile long mergedBeanDefinitionMissCount = 0;
+
 	/** Names of beans that have already been created at least once */
 	private final Set alreadyCreated = Collections.synchronizedSet(new HashSet());
 
@@ -185,8 +203,14 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 
 		// Eagerly check singleton cache for manually registered singletons.
 		Object sharedInstance = getSingleton(beanName);
+		boolean singletonInCreation = isSingletonCurrentlyInCreation(beanName);
+		if (singletonInCreation) {
+			// Possibly in creation by another thread: wait for it to complete.
+			sharedInstance = getSingletonOnceCreated(beanName);
+			singletonInCreation = isSingletonCurrentlyInCreation(beanName);
+		}
 		if (sharedInstance != null) {
-			if (isSingletonCurrentlyInCreation(beanName)) {
+			if (singletonInCreation) {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Returning eagerly cached instance of singleton bean '" + beanName +
 							"' that is not fully initialized yet - a consequence of a circular reference");
@@ -209,7 +233,7 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 		else {
 			// Fail if we're already creating this bean instance:
 			// We're assumably within a circular reference.
-			if (isCurrentlyInCreation(beanName)) {
+			if (singletonInCreation || isPrototypeCurrentlyInCreation(beanName)) {
 				throw new BeanCurrentlyInCreationException(beanName);
 			}
 
@@ -534,6 +558,24 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 		return cacheBeanMetadata;
 	}
 
+	/**
+	 * Set a StartupRecorder to notify of the creation and initialization
+	 * of each bean in this factory. Default is none.
+	 * @see org.springframework.beans.factory.config.StartupRecorder#CREATE_BEAN
+	 * @see org.springframework.beans.factory.config.StartupRecorder#INIT_BEAN
+	 * @see TimelineStartupRecorder
+	 */
+	public void setStartupRecorder(StartupRecorder startupRecorder) {
+		this.startupRecorder = startupRecorder;
+	}
+
+	/**
+	 * Return the StartupRecorder to notify of bean creation steps, if any.
+	 */
+	public StartupRecorder getStartupRecorder() {
+		return startupRecorder;
+	}
+
 	public void addPropertyEditorRegistrar(PropertyEditorRegistrar registrar) {
 		Assert.notNull(registrar, "PropertyEditorRegistrar must not be null");
 		this.propertyEditorRegistrars.add(registrar);
@@ -620,6 +662,7 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 			this.hasDestructionAwareBeanPostProcessors = this.hasDestructionAwareBeanPostProcessors ||
 					otherAbstractFactory.hasDestructionAwareBeanPostProcessors;
 			this.scopes.putAll(otherAbstractFactory.scopes);
+			this.startupRecorder = otherAbstractFactory.startupRecorder;
 		}
 	}
 
@@ -899,65 +942,158 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 			throws BeanDefinitionStoreException {
 
 		synchronized (this.mergedBeanDefinitions) {
-			RootBeanDefinition mbd = (RootBeanDefinition) this.mergedBeanDefinitions.get(beanName);
-			if (mbd == null) {
+			RootBeanDefinition mbd = null;
 
-				if (bd instanceof RootBeanDefinition) {
-					// Use copy of given root bean definition.
-					mbd = new RootBeanDefinition((RootBeanDefinition) bd);
-				}
+			// Only top-level beans can be served from the cache.
+			if (containingBd == null) {
+				mbd = (RootBeanDefinition) this.mergedBeanDefinitions.get(beanName);
+			}
+			if (mbd != null) {
+				this.mergedBeanDefinitionHitCount++;
+				return mbd;
+			}
 
-				else if (bd instanceof ChildBeanDefinition) {
-					// Child bean definition: needs to be merged with parent.
-					ChildBeanDefinition cbd = (ChildBeanDefinition) bd;
-					RootBeanDefinition pbd = null;
-					try {
-						if (!beanName.equals(cbd.getParentName())) {
-							pbd = getMergedBeanDefinition(cbd.getParentName(), true);
-						}
-						else {
-							if (getParentBeanFactory() instanceof AbstractBeanFactory) {
-								AbstractBeanFactory parentFactory = (AbstractBeanFactory) getParentBeanFactory();
-								pbd = parentFactory.getMergedBeanDefinition(cbd.getParentName(), true);
-							}
-							else {
-								throw new NoSuchBeanDefinitionException(cbd.getParentName(),
-										"Parent name '" + cbd.getParentName() + "' is equal to bean name '" + beanName +
-										"': cannot be resolved without an AbstractBeanFactory parent");
-							}
-						}
-					}
-					catch (NoSuchBeanDefinitionException ex) {
-						throw new BeanDefinitionStoreException(cbd.getResourceDescription(), beanName,
-								"Could not resolve parent bean definition '" + cbd.getParentName() + "'", ex);
+			this.mergedBeanDefinitionMissCount++;
+			mbd = doGetMergedBeanDefinition(beanName, bd, containingBd);
+
+			// Only cache the merged bean definition if we're already about to create an
+			// instance of the bean, or at least have already created an instance before,
+			// or if the bean factory's configuration is known to be final.
+			if (containingBd == null && isCacheBeanMetadata() && isBeanEligibleForMetadataCaching(beanName)) {
+				this.mergedBeanDefinitions.put(beanName, mbd);
+				if (bd instanceof ChildBeanDefinition) {
+					// Track the child, to be cleared along with its parent definition.
+					String parentName = transformedBeanName(((ChildBeanDefinition) bd).getParentName());
+					Set childNames = (Set) this.mergedChildBeanNames.get(parentName);
+					if (childNames == null) {
+						childNames = new HashSet();
+						this.mergedChildBeanNames.put(parentName, childNames);
 					}
-
-					// Deep copy with overridden values.
-					mbd = new RootBeanDefinition(pbd);
-					mbd.overrideFrom(cbd);
+					childNames.add(beanName);
 				}
+			}
+			return mbd;
+		}
+	}
+
+	/**
+	 * Actually merge the given bean definition with its parent, if any.
+	 * Called with the merged bean definition cache locked.
+	 * @param beanName the name of the bean definition
+	 * @param bd the original bean definition (Root/ChildBeanDefinition)
+	 * @param containingBd the containing bean definition in case of inner bean,
+	 * or <code>null</code> in case of a top-level bean
+	 * @return a (potentially merged) RootBeanDefinition for the given bean
+	 * @throws BeanDefinitionStoreException in case of an invalid bean definition
+	 */
+	private RootBeanDefinition doGetMergedBeanDefinition(
+			String beanName, BeanDefinition bd, BeanDefinition containingBd)
+			throws BeanDefinitionStoreException {
+
+		RootBeanDefinition mbd = null;
+
+		if (bd instanceof RootBeanDefinition) {
+			// Use copy of given root bean definition.
+			mbd = new RootBeanDefinition((RootBeanDefinition) bd);
+		}
 
+		else if (bd instanceof ChildBeanDefinition) {
+			// Child bean definition: needs to be merged with parent.
+			ChildBeanDefinition cbd = (ChildBeanDefinition) bd;
+			RootBeanDefinition pbd = null;
+			try {
+				if (!beanName.equals(cbd.getParentName())) {
+					pbd = getMergedBeanDefinition(cbd.getParentName(), true);
+				}
 				else {
-					throw new BeanDefinitionStoreException(bd.getResourceDescription(), beanName,
-							"Definition is neither a RootBeanDefinition nor a ChildBeanDefinition: " + bd);
+					if (getParentBeanFactory() instanceof AbstractBeanFactory) {
+						AbstractBeanFactory parentFactory = (AbstractBeanFactory) getParentBeanFactory();
+						pbd = parentFactory.getMergedBeanDefinition(cbd.getParentName(), true);
+					}
+					else {
+						throw new NoSuchBeanDefinitionException(cbd.getParentName(),
+								"Parent name '" + cbd.getParentName() + "' is equal to bean name '" + beanName +
+								"': cannot be resolved without an AbstractBeanFactory parent");
+					}
 				}
+			}
+			catch (NoSuchBeanDefinitionException ex) {
+				throw new BeanDefinitionStoreException(cbd.getResourceDescription(), beanName,
+						"Could not resolve parent bean definition '" + cbd.getParentName() + "'", ex);
+			}
 
-				// A bean contained in a non-singleton bean cannot be a singleton itself.
-				// Let's correct this on the fly here, since this might be the result of
-				// parent-child merging for the outer bean, in which case the original inner bean
-				// definition will not have inherited the merged outer bean's singleton status.
-				if (containingBd != null && !containingBd.isSingleton() && mbd.isSingleton()) {
-					mbd.setSingleton(false);
-				}
+			// Deep copy with overridden values.
+			mbd = new RootBeanDefinition(pbd);
+			mbd.overrideFrom(cbd);
+		}
 
-				// Only cache the merged bean definition if we're already about to create an
-				// instance of the bean, or at least have already created an instance before.
-				if (containingBd == null && isCacheBeanMetadata() && this.alreadyCreated.contains(beanName)) {
-					this.mergedBeanDefinitions.put(beanName, mbd);
+		else {
+			throw new BeanDefinitionStoreException(bd.getResourceDescription(), beanName,
+					"Definition is neither a RootBeanDefinition nor a ChildBeanDefinition: " + bd);
+		}
+
+		// A bean contained in a non-singleton bean cannot be a singleton itself.
+		// Let's correct this on the fly here, since this might be the result of
+		// parent-child merging for the outer bean, in which case the original inner bean
+		// definition will not have inherited the merged outer bean's singleton status.
+		if (containingBd != null && !containingBd.isSingleton() && mbd.isSingleton()) {
+			mbd.setSingleton(false);
+		}
+
+		return mbd;
+	}
+
+	/**
+	 * Determine whether the merged bean definition for the specified bean
+	 * may be cached.
+	 * <p>The default implementation only caches merged bean definitions for beans
+	 * that are about to be created or have already been created at least once,
+	 * since the definitions of other beans might still be modified, for example
+	 * by BeanFactoryPostProcessors. Subclasses may relax this once the bean
+	 * definitions are known to be final.
+	 * @param beanName the name of the bean
+	 * @return whether the merged bean definition may be cached
+	 * @see #isCacheBeanMetadata()
+	 */
+	protected boolean isBeanEligibleForMetadataCaching(String beanName) {
+		return this.alreadyCreated.contains(beanName);
+	}
+
+	/**
+	 * Return the number of merged bean definition requests that
+	 * could be served from the cache.
+	 */
+	public long getMergedBeanDefinitionHitCount() {
+		return this.mergedBeanDefinitionHitCount;
+	}
+
+	/**
+	 * Return the number of merged bean definition requests that
+	 * required merging the bean definition, including inner beans
+	 * and parent bean definitions.
+	 */
+	public long getMergedBeanDefinitionMissCount() {
+		return this.mergedBeanDefinitionMissCount;
+	}
+
+	/**
+	 * Remove the merged bean definition for the specified bean, if cached,
+	 * along with the constructor or factory method resolved for it.
+	 * <p>Also removes the merged bean definitions of the bean's children
+	 * (and their children in turn), since those have been derived from
+	 * the specified bean's definition. The definitions will be merged
+	 * again on next access.
+	 * @param beanName the name of the bean
+	 */
+	protected void clearMergedBeanDefinition(String beanName) {
+		synchronized (this.mergedBeanDefinitions) {
+			this.mergedBeanDefinitions.remove(beanName);
+			Set childNames = (Set) this.mergedChildBeanNames.remove(beanName);
+			if (childNames != null) {
+				for (Iterator it = childNames.iterator(); it.hasNext();) {
+					clearMergedBeanDefinition((String) it.next());
 				}
 			}
-
-			return mbd;
 		}
 	}
 
@@ -1137,9 +1273,23 @@ public abstract class AbstractBeanFactory extends DefaultSingletonBeanRegistry i
 				if (shared && factory.isSingleton()) {
 					synchronized (this.factoryBeanObjectCache) {
 						object = this.factoryBeanObjectCache.get(beanName);
-						if (object == null) {
-							object = getObjectFromFactoryBean(factory, beanName, mbd);
-							this.factoryBeanObjectCache.put(beanName, object);
+					}
+					if (object == null) {
+						// Do not hold the cache monitor while calling the FactoryBean:
+						// It may need to wait for other singletons, which in turn may
+						// need the cache monitor for their own FactoryBean lookups.
+						object = getObjectFromFactoryBean(factory, beanName, mbd);
+						synchronized (this.factoryBeanObjectCache) {
+							// A singleton FactoryBean returns the same object on every call,
+							// but post-processing may have led to a different exposed object:
+							// The first one registered wins.
+							Object alreadyThere = this.factoryBeanObjectCache.get(beanName);
+							if (alreadyThere != null) {
+								object = alreadyThere;
+							}
+							else {
+								this.factoryBeanObjectCache.put(beanName, object);
+							}
 						}
 					}
 				}
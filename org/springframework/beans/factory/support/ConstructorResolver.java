@@ -35,7 +35,9 @@ import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.UnsatisfiedDependencyException;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.TypedStringValue;
 import org.springframework.core.MethodParameter;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.ReflectionUtils;
 
 /**
@@ -92,65 +94,91 @@ abstract class ConstructorResolver {
 		BeanWrapperImpl bw = new BeanWrapperImpl();
 		this.beanFactory.initBeanWrapper(bw);
 
-		int minNrOfArgs = 0;
-		if (cargs != null) {
-			minNrOfArgs = resolveConstructorArguments(beanName, mergedBeanDefinition, cargs, resolvedValues);
-		}
-
-		Constructor[] candidates = mergedBeanDefinition.getBeanClass().getDeclaredConstructors();
-		AutowireUtils.sortConstructors(candidates);
-
 		Constructor constructorToUse = null;
 		Object[] argsToUse = null;
-		int minTypeDiffWeight = Integer.MAX_VALUE;
 
-		for (int i = 0; i < candidates.length; i++) {
-			Constructor constructor = candidates[i];
+		// Shortcut for re-creating the same bean, e.g. a prototype:
+		// reuse the constructor (and possibly the arguments) resolved before.
+		synchronized (mergedBeanDefinition.constructorArgumentLock) {
+			if (mergedBeanDefinition.resolvedConstructorOrFactoryMethod instanceof Constructor) {
+				constructorToUse = (Constructor) mergedBeanDefinition.resolvedConstructorOrFactoryMethod;
+				argsToUse = mergedBeanDefinition.resolvedConstructorArguments;
+			}
+		}
 
-			if (constructorToUse != null &&
-					constructorToUse.getParameterTypes().length > constructor.getParameterTypes().length) {
-				// Already found greedy constructor that can be satisfied ->
-				// do not look any further, there are only less greedy constructors left.
-				break;
+		if (constructorToUse != null) {
+			if (argsToUse == null) {
+				if (cargs != null) {
+					resolveConstructorArguments(beanName, mergedBeanDefinition, cargs, resolvedValues);
+				}
+				argsToUse = createArgumentArray(beanName, mergedBeanDefinition, resolvedValues, bw,
+						constructorToUse.getParameterTypes(), constructorToUse).arguments;
 			}
-			if (constructor.getParameterTypes().length < minNrOfArgs) {
-				throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
-						minNrOfArgs + " constructor arguments specified but no matching constructor found in bean '" +
-						beanName + "' " +
-						"(hint: specify index and/or type arguments for simple parameters to avoid type ambiguities)");
+		}
+
+		else {
+			int minNrOfArgs = 0;
+			if (cargs != null) {
+				minNrOfArgs = resolveConstructorArguments(beanName, mergedBeanDefinition, cargs, resolvedValues);
 			}
 
-			// Try to resolve arguments for current constructor.
-			try {
-				Class[] paramTypes = constructor.getParameterTypes();
-				ArgumentsHolder args = createArgumentArray(
-						beanName, mergedBeanDefinition, resolvedValues, bw, paramTypes, constructor);
-
-				int typeDiffWeight = args.getTypeDifferenceWeight(paramTypes);
-				// Choose this constructor if it represents the closest match.
-				if (typeDiffWeight < minTypeDiffWeight) {
-					constructorToUse = constructor;
-					argsToUse = args.arguments;
-					minTypeDiffWeight = typeDiffWeight;
+			Constructor[] candidates = mergedBeanDefinition.getBeanClass().getDeclaredConstructors();
+			AutowireUtils.sortConstructors(candidates);
+
+			ArgumentsHolder argsHolderToUse = null;
+			int minTypeDiffWeight = Integer.MAX_VALUE;
+
+			for (int i = 0; i < candidates.length; i++) {
+				Constructor constructor = candidates[i];
+
+				if (constructorToUse != null &&
+						constructorToUse.getParameterTypes().length > constructor.getParameterTypes().length) {
+					// Already found greedy constructor that can be satisfied ->
+					// do not look any further, there are only less greedy constructors left.
+					break;
 				}
-			}
-			catch (UnsatisfiedDependencyException ex) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("Ignoring constructor [" + constructor + "] of bean '" + beanName +
-							"': " + ex.getMessage());
+				if (constructor.getParameterTypes().length < minNrOfArgs) {
+					throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
+							minNrOfArgs + " constructor arguments specified but no matching constructor found in bean '" +
+							beanName + "' " +
+							"(hint: specify index and/or type arguments for simple parameters to avoid type ambiguities)");
 				}
-				if (i == candidates.length - 1 && constructorToUse == null) {
-					throw ex;
+
+				// Try to resolve arguments for current constructor.
+				try {
+					Class[] paramTypes = constructor.getParameterTypes();
+					ArgumentsHolder args = createArgumentArray(
+							beanName, mergedBeanDefinition, resolvedValues, bw, paramTypes, constructor);
+
+					int typeDiffWeight = args.getTypeDifferenceWeight(paramTypes);
+					// Choose this constructor if it represents the closest match.
+					if (typeDiffWeight < minTypeDiffWeight) {
+						constructorToUse = constructor;
+						argsHolderToUse = args;
+						minTypeDiffWeight = typeDiffWeight;
+					}
 				}
-				else {
-					// Swallow and try next constructor.
+				catch (UnsatisfiedDependencyException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Ignoring constructor [" + constructor + "] of bean '" + beanName +
+								"': " + ex.getMessage());
+					}
+					if (i == candidates.length - 1 && constructorToUse == null) {
+						throw ex;
+					}
+					else {
+						// Swallow and try next constructor.
+					}
 				}
 			}
-		}
 
-		if (constructorToUse == null) {
-			throw new BeanCreationException(
-					mergedBeanDefinition.getResourceDescription(), beanName, "Could not resolve matching constructor");
+			if (constructorToUse == null) {
+				throw new BeanCreationException(
+						mergedBeanDefinition.getResourceDescription(), beanName, "Could not resolve matching constructor");
+			}
+
+			argsToUse = argsHolderToUse.arguments;
+			cacheResolution(mergedBeanDefinition, constructorToUse, argsHolderToUse);
 		}
 
 		Object beanInstance = this.instantiationStrategy.instantiate(
@@ -181,20 +209,6 @@ abstract class ConstructorResolver {
 			String beanName, RootBeanDefinition mergedBeanDefinition, Object[] explicitArgs)
 			throws BeansException {
 
-		ConstructorArgumentValues cargs = mergedBeanDefinition.getConstructorArgumentValues();
-		ConstructorArgumentValues resolvedValues = null;
-
-		int minNrOfArgs = 0;
-		if (explicitArgs == null) {
-			// We don't have arguments passed in programmatically, so we need to resolve the
-			// arguments specified in the constructor arguments held in the bean definition.
-			resolvedValues = new ConstructorArgumentValues();
-			minNrOfArgs = resolveConstructorArguments(beanName, mergedBeanDefinition, cargs, resolvedValues);
-		}
-		else {
-			minNrOfArgs = explicitArgs.length;
-		}
-
 		boolean isStatic = true;
 		Class factoryClass = null;
 		Object factoryBean = null;
@@ -212,68 +226,113 @@ abstract class ConstructorResolver {
 		BeanWrapperImpl bw = new BeanWrapperImpl();
 		this.beanFactory.initBeanWrapper(bw);
 
-		// Try all methods with this name to see if they match the given arguments.
-		Method[] candidates = ReflectionUtils.getAllDeclaredMethods(factoryClass);
-
+		ConstructorArgumentValues cargs = mergedBeanDefinition.getConstructorArgumentValues();
 		Method factoryMethodToUse = null;
 		Object[] argsToUse = null;
-		int minTypeDiffWeight = Integer.MAX_VALUE;
 
-		for (int i = 0; i < candidates.length; i++) {
-			Method factoryMethod = candidates[i];
+		// Shortcut for re-creating the same bean, e.g. a prototype: reuse the factory
+		// method (and possibly the arguments) resolved before. Not applicable to
+		// explicit arguments, which might match a different overloaded method.
+		if (explicitArgs == null) {
+			synchronized (mergedBeanDefinition.constructorArgumentLock) {
+				if (mergedBeanDefinition.resolvedConstructorOrFactoryMethod instanceof Method) {
+					factoryMethodToUse = (Method) mergedBeanDefinition.resolvedConstructorOrFactoryMethod;
+					argsToUse = mergedBeanDefinition.resolvedConstructorArguments;
+				}
+			}
+		}
+
+		if (factoryMethodToUse != null) {
+			if (argsToUse == null) {
+				ConstructorArgumentValues resolvedValues = new ConstructorArgumentValues();
+				resolveConstructorArguments(beanName, mergedBeanDefinition, cargs, resolvedValues);
+				argsToUse = createArgumentArray(beanName, mergedBeanDefinition, resolvedValues, bw,
+						factoryMethodToUse.getParameterTypes(), factoryMethodToUse).arguments;
+			}
+		}
+
+		else {
+			ConstructorArgumentValues resolvedValues = null;
+
+			int minNrOfArgs = 0;
+			if (explicitArgs == null) {
+				// We don't have arguments passed in programmatically, so we need to resolve the
+				// arguments specified in the constructor arguments held in the bean definition.
+				resolvedValues = new ConstructorArgumentValues();
+				minNrOfArgs = resolveConstructorArguments(beanName, mergedBeanDefinition, cargs, resolvedValues);
+			}
+			else {
+				minNrOfArgs = explicitArgs.length;
+			}
+
+			// Try all methods with this name to see if they match the given arguments.
+			Method[] candidates = ReflectionUtils.getAllDeclaredMethods(factoryClass);
 
-			if (Modifier.isStatic(factoryMethod.getModifiers()) == isStatic &&
-					factoryMethod.getName().equals(mergedBeanDefinition.getFactoryMethodName()) &&
-					factoryMethod.getParameterTypes().length >= minNrOfArgs) {
+			ArgumentsHolder argsHolderToUse = null;
+			int minTypeDiffWeight = Integer.MAX_VALUE;
 
-				Class[] paramTypes = factoryMethod.getParameterTypes();
-				ArgumentsHolder args = null;
+			for (int i = 0; i < candidates.length; i++) {
+				Method factoryMethod = candidates[i];
 
-				if (resolvedValues != null) {
-					// Resolved contructor arguments: type conversion and/or autowiring necessary.
-					try {
-						args = createArgumentArray(
-								beanName, mergedBeanDefinition, resolvedValues, bw, paramTypes, factoryMethod);
-					}
-					catch (UnsatisfiedDependencyException ex) {
-						if (logger.isDebugEnabled()) {
-							logger.debug("Ignoring factory method [" + factoryMethod + "] of bean '" + beanName +
-									"': " + ex.getMessage());
+				if (Modifier.isStatic(factoryMethod.getModifiers()) == isStatic &&
+						factoryMethod.getName().equals(mergedBeanDefinition.getFactoryMethodName()) &&
+						factoryMethod.getParameterTypes().length >= minNrOfArgs) {
+
+					Class[] paramTypes = factoryMethod.getParameterTypes();
+					ArgumentsHolder args = null;
+
+					if (resolvedValues != null) {
+						// Resolved contructor arguments: type conversion and/or autowiring necessary.
+						try {
+							args = createArgumentArray(
+									beanName, mergedBeanDefinition, resolvedValues, bw, paramTypes, factoryMethod);
 						}
-						if (i == candidates.length - 1 && factoryMethodToUse == null) {
-							throw ex;
+						catch (UnsatisfiedDependencyException ex) {
+							if (logger.isDebugEnabled()) {
+								logger.debug("Ignoring factory method [" + factoryMethod + "] of bean '" + beanName +
+										"': " + ex.getMessage());
+							}
+							if (i == candidates.length - 1 && factoryMethodToUse == null) {
+								throw ex;
+							}
+							else {
+								// Swallow and try next overloaded factory method.
+								continue;
+							}
 						}
-						else {
-							// Swallow and try next overloaded factory method.
+					}
+
+					else {
+						// Explicit arguments given -> arguments length must match exactly.
+						if (paramTypes.length != explicitArgs.length) {
 							continue;
 						}
+						args = new ArgumentsHolder(explicitArgs);
 					}
-				}
 
-				else {
-					// Explicit arguments given -> arguments length must match exactly.
-					if (paramTypes.length != explicitArgs.length) {
-						continue;
+					int typeDiffWeight = args.getTypeDifferenceWeight(paramTypes);
+					// Choose this constructor if it represents the closest match.
+					if (typeDiffWeight < minTypeDiffWeight) {
+						factoryMethodToUse = factoryMethod;
+						argsHolderToUse = args;
+						minTypeDiffWeight = typeDiffWeight;
 					}
-					args = new ArgumentsHolder(explicitArgs);
 				}
+			}
 
-				int typeDiffWeight = args.getTypeDifferenceWeight(paramTypes);
-				// Choose this constructor if it represents the closest match.
-				if (typeDiffWeight < minTypeDiffWeight) {
-					factoryMethodToUse = factoryMethod;
-					argsToUse = args.arguments;
-					minTypeDiffWeight = typeDiffWeight;
-				}
+			if (factoryMethodToUse == null) {
+				throw new BeanDefinitionStoreException("No matching factory method found: " +
+						(mergedBeanDefinition.getFactoryBeanName() != null ?
+						 "factory bean '" + mergedBeanDefinition.getFactoryBeanName() + "'; " : "") +
+						"factory method '" + mergedBeanDefinition.getFactoryMethodName() + "'");
+			}
+
+			argsToUse = argsHolderToUse.arguments;
+			if (explicitArgs == null) {
+				cacheResolution(mergedBeanDefinition, factoryMethodToUse, argsHolderToUse);
 			}
 		}
-		
-		if (factoryMethodToUse == null) {
-			throw new BeanDefinitionStoreException("No matching factory method found: " +
-					(mergedBeanDefinition.getFactoryBeanName() != null ?
-					 "factory bean '" + mergedBeanDefinition.getFactoryBeanName() + "'; " : "") +
-					"factory method '" + mergedBeanDefinition.getFactoryMethodName() + "'");
-		}
+
 		if (!factoryMethodToUse.isAccessible()) {
 			factoryMethodToUse.setAccessible(true);
 		}
@@ -398,6 +457,7 @@ abstract class ConstructorResolver {
 				Object autowiredBean = entry.getValue();
 				args.rawArguments[index] = autowiredBean;
 				args.arguments[index] = autowiredBean;
+				args.autowired = true;
 				if (mergedBeanDefinition.isSingleton()) {
 					this.beanFactory.registerDependentBean(autowiredBeanName, beanName);
 				}
@@ -410,6 +470,69 @@ abstract class ConstructorResolver {
 		return args;
 	}
 
+	/**
+	 * Cache the given constructor or factory method in the bean definition,
+	 * for reuse when creating further instances of the same bean.
+	 * <p>The arguments will only be cached as well if they do not depend on
+	 * other beans and are immutable, hence can be safely shared between instances.
+	 * Otherwise, they will be resolved again for every instance, against the
+	 * cached constructor or factory method only.
+	 */
+	private void cacheResolution(
+			RootBeanDefinition mergedBeanDefinition, Object constructorOrFactoryMethod, ArgumentsHolder args) {
+
+		Object[] argsToCache = null;
+		if (!args.autowired && isStaticArgumentValues(mergedBeanDefinition.getConstructorArgumentValues()) &&
+				isImmutableArguments(args.arguments)) {
+			argsToCache = args.arguments;
+		}
+		synchronized (mergedBeanDefinition.constructorArgumentLock) {
+			mergedBeanDefinition.resolvedConstructorOrFactoryMethod = constructorOrFactoryMethod;
+			mergedBeanDefinition.resolvedConstructorArguments = argsToCache;
+		}
+	}
+
+	/**
+	 * Determine whether the given constructor argument values are static values
+	 * as opposed to references to other beans, inner beans or managed collections,
+	 * which need to be resolved for every instance.
+	 */
+	private boolean isStaticArgumentValues(ConstructorArgumentValues cargs) {
+		if (cargs == null) {
+			return true;
+		}
+		for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext();) {
+			if (!isStaticValue(((ConstructorArgumentValues.ValueHolder) it.next()).getValue())) {
+				return false;
+			}
+		}
+		for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext();) {
+			if (!isStaticValue(((ConstructorArgumentValues.ValueHolder) it.next()).getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isStaticValue(Object value) {
+		return (value == null || value instanceof TypedStringValue || value instanceof String ||
+				ClassUtils.isPrimitiveOrWrapper(value.getClass()));
+	}
+
+	/**
+	 * Determine whether the given converted arguments are all of immutable types.
+	 */
+	private boolean isImmutableArguments(Object[] args) {
+		for (int i = 0; i < args.length; i++) {
+			Object arg = args[i];
+			if (arg != null && !(arg instanceof String || arg instanceof Class ||
+					ClassUtils.isPrimitiveOrWrapper(arg.getClass()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 
 	/**
 	 * Find bean instances that match the required type.
@@ -435,6 +558,8 @@ abstract class ConstructorResolver {
 
 		public Object arguments[];
 
+		public boolean autowired = false;
+
 		public ArgumentsHolder(int size) {
 			this.rawArguments = new Object[size];
 			this.arguments = new Object[size];
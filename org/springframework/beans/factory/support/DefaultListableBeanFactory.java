@@ -36,6 +36,7 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.core.CollectionFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -71,12 +72,24 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether to allow eager class loading even for lazy-init beans */
 	private boolean allowEagerClassLoading = true;
 
+	/** Number of threads to use for pre-instantiating singletons */
+	private int preInstantiationConcurrency = 1;
+
+	/** Whether bean definition metadata may be cached for all beans */
+	private volatile boolean configurationFrozen = false;
+
 	/** Map of bean definition objects, keyed by bean name */
 	private final Map beanDefinitionMap = new HashMap();
 
 	/** List of bean definition names, in registration order */
 	private final List beanDefinitionNames = new ArrayList();
 
+	/** Map from BeanNamesForTypeKey to String array of matching bean names */
+	private final Map beanNamesForTypeCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/** Version of the bean names for type cache, incremented on every invalidation */
+	private volatile int beanNamesForTypeCacheVersion = 0;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -116,6 +129,36 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		this.allowEagerClassLoading = allowEagerClassLoading;
 	}
 
+	/**
+	 * Set the number of threads to use for pre-instantiating singletons.
+	 * <p>Default is 1, pre-instantiating all singletons serially in the calling
+	 * thread, in registration order. Specify a higher number to create independent
+	 * singletons in parallel, according to a dependency graph determined from
+	 * the bean definitions. Beans that refer to each other will still be created
+	 * within the same thread, resolving circular references like in the serial case;
+	 * autowired beans will be created serially after the parallel phase.
+	 * <p>Note that parallel pre-instantiation requires the singleton beans
+	 * (and their initialization methods) to be safe for creation by an arbitrary
+	 * thread. Bean dependencies that are not expressed in the bean definitions
+	 * (for example, <code>getBean</code> calls from within initialization methods)
+	 * will make the creating thread wait for the other bean; a circular
+	 * dependency of that kind across threads will lead to a
+	 * BeanCurrentlyInCreationException.
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setPreInstantiationConcurrency(int preInstantiationConcurrency) {
+		Assert.isTrue(preInstantiationConcurrency > 0, "preInstantiationConcurrency must be at least 1");
+		this.preInstantiationConcurrency = preInstantiationConcurrency;
+		setConcurrentSingletonCreation(preInstantiationConcurrency > 1);
+	}
+
+	/**
+	 * Return the number of threads to use for pre-instantiating singletons.
+	 */
+	public int getPreInstantiationConcurrency() {
+		return this.preInstantiationConcurrency;
+	}
+
 
 	public void copyConfigurationFrom(ConfigurableBeanFactory otherFactory) {
 		super.copyConfigurationFrom(otherFactory);
@@ -123,6 +166,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			DefaultListableBeanFactory otherListableFactory = (DefaultListableBeanFactory) otherFactory;
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
+			setPreInstantiationConcurrency(otherListableFactory.preInstantiationConcurrency);
 		}
 	}
 
@@ -147,7 +191,41 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return getBeanNamesForType(type, true, true);
 	}
 
+	/**
+	 * Once the configuration has been frozen, the matching bean names for each
+	 * type (and combination of flags) will be cached, until a bean definition,
+	 * alias or singleton gets registered or a singleton instance gets created
+	 * or removed - since any of those might change the type of a bean.
+	 * <p>Returns a copy of the cached array, in order to allow for modifications
+	 * by the caller.
+	 * @see #freezeConfiguration()
+	 */
 	public String[] getBeanNamesForType(Class type, boolean includePrototypes, boolean allowEagerInit) {
+		if (!this.configurationFrozen) {
+			return doGetBeanNamesForType(type, includePrototypes, allowEagerInit);
+		}
+		Object cacheKey = new BeanNamesForTypeKey(type, includePrototypes, allowEagerInit);
+		String[] beanNames = (String[]) this.beanNamesForTypeCache.get(cacheKey);
+		if (beanNames == null) {
+			int cacheVersion = this.beanNamesForTypeCacheVersion;
+			beanNames = doGetBeanNamesForType(type, includePrototypes, allowEagerInit);
+			synchronized (this.beanNamesForTypeCache) {
+				// Do not cache the result if the cache has been invalidated in the meantime,
+				// for example through the creation of a FactoryBean in the course of the type check.
+				if (cacheVersion == this.beanNamesForTypeCacheVersion) {
+					this.beanNamesForTypeCache.put(cacheKey, beanNames);
+				}
+			}
+		}
+		return (String[]) beanNames.clone();
+	}
+
+	/**
+	 * Actually determine the names of the beans matching the given type,
+	 * checking all bean definitions as well as manually registered singletons.
+	 * @see #getBeanNamesForType(Class, boolean, boolean)
+	 */
+	private String[] doGetBeanNamesForType(Class type, boolean includePrototypes, boolean allowEagerInit) {
 		List result = new ArrayList();
 
 		// Check all bean definitions.
@@ -256,22 +334,71 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	// Implementation of ConfigurableListableBeanFactory interface
 	//---------------------------------------------------------------------
 
+	/**
+	 * Freeze all bean definitions, signalling that the registered bean definitions
+	 * will not be modified or post-processed any further.
+	 * <p>This allows the factory to aggressively cache merged bean definitions
+	 * for all beans, including beans that have not been created yet - for example,
+	 * when checking the types of all beans in <code>getBeanNamesForType</code>.
+	 * Registering a further bean definition is still possible but will drop
+	 * the affected merged bean definitions.
+	 * <p>Called by AbstractApplicationContext after post-processing
+	 * the bean factory, right before pre-instantiating singletons.
+	 * @see #isBeanEligibleForMetadataCaching
+	 */
+	public void freezeConfiguration() {
+		this.configurationFrozen = true;
+	}
+
+	/**
+	 * Return whether this factory's bean definitions are frozen,
+	 * i.e. are not supposed to be modified or post-processed any further.
+	 */
+	public boolean isConfigurationFrozen() {
+		return this.configurationFrozen;
+	}
+
+	/**
+	 * Considers all beans as eligible for metadata caching
+	 * if the factory's configuration has been marked as frozen.
+	 * @see #freezeConfiguration()
+	 */
+	protected boolean isBeanEligibleForMetadataCaching(String beanName) {
+		return (this.configurationFrozen || super.isBeanEligibleForMetadataCaching(beanName));
+	}
+
 	public void preInstantiateSingletons() throws BeansException {
 		if (logger.isInfoEnabled()) {
 			logger.info("Pre-instantiating singletons in factory [" + this + "]");
 		}
-		for (Iterator it = this.beanDefinitionNames.iterator(); it.hasNext();) {
-			String beanName = (String) it.next();
-			if (!containsSingleton(beanName) && containsBeanDefinition(beanName)) {
-				RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
-				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-					Class beanClass = resolveBeanClass(bd, beanName);
-					if (beanClass != null && FactoryBean.class.isAssignableFrom(beanClass)) {
-						getBean(FACTORY_BEAN_PREFIX + beanName);
-					}
-					else {
-						getBean(beanName);
-					}
+		if (this.preInstantiationConcurrency > 1) {
+			new ParallelSingletonPreInstantiator(this, this.preInstantiationConcurrency).preInstantiateSingletons();
+		}
+		String[] beanNames = getBeanDefinitionNames();
+		for (int i = 0; i < beanNames.length; i++) {
+			preInstantiateSingleton(beanNames[i]);
+		}
+	}
+
+	/**
+	 * Pre-instantiate the specified singleton, if not created yet.
+	 * Does not do anything for abstract, prototype or lazy-init beans.
+	 * <p>In case of a FactoryBean, just the FactoryBean instance itself
+	 * will be created, not the object that it exposes.
+	 * @param beanName the name of the bean
+	 * @throws BeansException if the singleton could not be created
+	 * @see #preInstantiateSingletons()
+	 */
+	protected void preInstantiateSingleton(String beanName) throws BeansException {
+		if (!containsSingleton(beanName) && containsBeanDefinition(beanName)) {
+			RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				Class beanClass = resolveBeanClass(bd, beanName);
+				if (beanClass != null && FactoryBean.class.isAssignableFrom(beanClass)) {
+					getBean(FACTORY_BEAN_PREFIX + beanName);
+				}
+				else {
+					getBean(beanName);
 				}
 			}
 		}
@@ -317,6 +444,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 		this.beanDefinitionMap.put(beanName, beanDefinition);
 
+		// Remove stale merged bean definitions, including resolved constructors, if any.
+		clearMergedBeanDefinition(beanName);
+		clearBeanNamesForTypeCache();
+
 		// Remove corresponding bean from singleton cache, if any.
 		// Shouldn't usually be necessary, rather just meant for overriding
 		// a context's default beans (e.g. the default StaticMessageSource
@@ -325,6 +456,101 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	public void registerAlias(String beanName, String alias) throws BeanDefinitionStoreException {
+		super.registerAlias(beanName, alias);
+		clearBeanNamesForTypeCache();
+	}
+
+
+	//---------------------------------------------------------------------
+	// Overridden singleton management methods
+	//---------------------------------------------------------------------
+
+	/**
+	 * This implementation only invalidates the cached bean names for the types
+	 * that the new singleton might match or might no longer match. Only a
+	 * FactoryBean or a bean whose type could not be determined upfront
+	 * (such as a bean created through a factory method) invalidates all
+	 * cached bean names, since it might affect lookups for any type.
+	 */
+	protected void addSingleton(String beanName, Object sharedBean) {
+		super.addSingleton(beanName, sharedBean);
+		if (sharedBean instanceof FactoryBean || !isBeanTypeResolvable(beanName)) {
+			clearBeanNamesForTypeCache();
+		}
+		else {
+			clearBeanNamesForTypeCache(beanName, sharedBean);
+		}
+	}
+
+	protected void removeSingleton(String beanName) {
+		super.removeSingleton(beanName);
+		clearBeanNamesForTypeCache();
+	}
+
+	public void destroySingletons() {
+		super.destroySingletons();
+		clearBeanNamesForTypeCache();
+	}
+
+	/**
+	 * Invalidate the cached bean names for type lookups.
+	 */
+	private void clearBeanNamesForTypeCache() {
+		synchronized (this.beanNamesForTypeCache) {
+			if (!this.beanNamesForTypeCache.isEmpty()) {
+				this.beanNamesForTypeCache.clear();
+			}
+			this.beanNamesForTypeCacheVersion++;
+		}
+	}
+
+	/**
+	 * Invalidate the cached bean names for the types that the given singleton
+	 * is an instance of, as well as all cached bean names that include the bean:
+	 * Those are the only lookups that the singleton might change the result of.
+	 * @param beanName the name of the singleton
+	 * @param singleton the singleton instance (may be <code>null</code>)
+	 */
+	private void clearBeanNamesForTypeCache(String beanName, Object singleton) {
+		synchronized (this.beanNamesForTypeCache) {
+			for (Iterator it = this.beanNamesForTypeCache.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				Class type = ((BeanNamesForTypeKey) entry.getKey()).type;
+				if (type == null || type.isInstance(singleton) ||
+						containsBeanName((String[]) entry.getValue(), beanName)) {
+					it.remove();
+				}
+			}
+			this.beanNamesForTypeCacheVersion++;
+		}
+	}
+
+	/**
+	 * Determine whether the type of the given bean can be determined
+	 * from its merged bean definition: that is, whether it has a resolved
+	 * bean class and no factory method. Manually registered singletons count
+	 * as resolvable, since they are matched by instance anyway.
+	 * @param beanName the name of the bean
+	 */
+	private boolean isBeanTypeResolvable(String beanName) {
+		if (!containsBeanDefinition(beanName)) {
+			return true;
+		}
+		RootBeanDefinition mbd = getMergedBeanDefinition(beanName, false);
+		return (mbd.hasBeanClass() && mbd.getFactoryMethodName() == null);
+	}
+
+	private static boolean containsBeanName(String[] beanNames, String beanName) {
+		for (int i = 0; i < beanNames.length; i++) {
+			if (beanNames[i].equals(beanName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
 	//---------------------------------------------------------------------
 	// Implementation of superclass abstract methods
 	//---------------------------------------------------------------------
@@ -368,4 +594,41 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return sb.toString();
 	}
 
+
+	/**
+	 * Cache key for a bean names for type lookup.
+	 */
+	private static class BeanNamesForTypeKey {
+
+		private final Class type;
+
+		private final boolean includePrototypes;
+
+		private final boolean allowEagerInit;
+
+		public BeanNamesForTypeKey(Class type, boolean includePrototypes, boolean allowEagerInit) {
+			this.type = type;
+			this.includePrototypes = includePrototypes;
+			this.allowEagerInit = allowEagerInit;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof BeanNamesForTypeKey)) {
+				return false;
+			}
+			BeanNamesForTypeKey otherKey = (BeanNamesForTypeKey) other;
+			return (ObjectUtils.nullSafeEquals(this.type, otherKey.type) &&
+					this.includePrototypes == otherKey.includePrototypes &&
+					this.allowEagerInit == otherKey.allowEagerInit);
+		}
+
+		public int hashCode() {
+			return (ObjectUtils.nullSafeHashCode(this.type) * 4 +
+					(this.includePrototypes ? 2 : 0) + (this.allowEagerInit ? 1 : 0));
+		}
+	}
+
 }
@@ -26,7 +26,9 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCreationNotAllowedException;
+import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
@@ -67,12 +69,51 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 	/** Logger available to subclasses */
 	protected final Log logger = LogFactory.getLog(getClass());
 
-	/** Cache of singletons: bean name --> bean instance */
-	private final Map singletonCache = CollectionFactory.createLinkedMapIfPossible(16);
+	/**
+	 * Internal marker for a null singleton object:
+	 * used as marker value for concurrent Maps (which don't support null values).
+	 */
+	private static final Object NULL_OBJECT = new Object();
+
+
+	/**
+	 * Cache of fully initialized singletons: bean name --> bean instance.
+	 * Concurrent on JDK 1.5+, allowing for lock-free reads of registered singletons.
+	 */
+	private final Map singletonCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/**
+	 * Cache of early singleton references for resolving circular references:
+	 * bean name --> raw bean instance. Guarded by the singleton cache monitor;
+	 * only exposed to the thread that is creating the respective singleton.
+	 */
+	private final Map earlySingletonObjects = new HashMap();
+
+	/**
+	 * Set of registered singletons, containing the bean names in registration order.
+	 * Guarded by the singleton cache monitor, which is only held for modifications.
+	 */
+	private final Set registeredSingletons = CollectionFactory.createLinkedSetIfPossible(16);
 
 	/** Names of beans that are currently in creation */
 	private final Set singletonsCurrentlyInCreation = Collections.synchronizedSet(new HashSet());
 
+	/**
+	 * Threads that are currently creating singletons: bean name --> Thread.
+	 * Modified under the singleton cache monitor; concurrent on JDK 1.5+,
+	 * allowing for lock-free checks.
+	 */
+	private final Map singletonCreationThreads = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/**
+	 * Singletons that threads are waiting for, while being created by other threads:
+	 * Thread --> bean name. Guarded by the singleton cache monitor.
+	 */
+	private final Map awaitedSingletons = new HashMap();
+
+	/** Whether singletons may be created by multiple threads concurrently */
+	private boolean concurrentSingletonCreation = false;
+
 	/** Flag that indicates whether we're currently within destroySingletons */
 	private boolean singletonsCurrentlyInDestruction = false;
 
@@ -83,6 +124,31 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 	private final Map dependentBeanMap = new HashMap();
 
 
+	/**
+	 * Set whether singletons may be created by multiple threads concurrently.
+	 * <p>Default is "false": Singleton creation holds the singleton cache monitor,
+	 * so threads requesting singletons that have not been created yet are
+	 * serialized. Switch this to "true" to only hold the monitor for checking
+	 * and registering each singleton, with threads waiting for the creation of
+	 * a specific singleton by another thread only. This requires additional
+	 * bookkeeping for every singleton creation and for every early reference
+	 * lookup, so it should only be activated where it pays off, such as for
+	 * parallel pre-instantiation.
+	 * <p>Needs to be specified before any singletons get created.
+	 * @see DefaultListableBeanFactory#setPreInstantiationConcurrency
+	 */
+	protected void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+		this.concurrentSingletonCreation = concurrentSingletonCreation;
+	}
+
+	/**
+	 * Return whether singletons may be created by multiple threads concurrently.
+	 */
+	protected boolean isConcurrentSingletonCreation() {
+		return this.concurrentSingletonCreation;
+	}
+
+
 	public void registerSingleton(String beanName, Object sharedBean) throws IllegalStateException {
 		Assert.hasText(beanName, "Bean name must not be empty");
 		Assert.notNull(sharedBean, "Singleton object must not be null");
@@ -97,35 +163,119 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 	}
 
 	/**
-	 * Add the given singleton object to the singleton cache of this factory.
-	 * <p>To be called for eager registration of singletons, e.g. to be able to
-	 * resolve circular references.
+	 * Add the given fully initialized singleton object to the singleton cache
+	 * of this factory, replacing an early reference to it (if any).
 	 * @param beanName the name of the bean
 	 * @param sharedBean the singleton object
+	 * @see #addEarlySingleton
 	 */
 	protected void addSingleton(String beanName, Object sharedBean) {
 		Assert.hasText(beanName, "Bean name must not be empty");
 		synchronized (this.singletonCache) {
-			this.singletonCache.put(beanName, sharedBean);
+			this.singletonCache.put(beanName, (sharedBean != null ? sharedBean : NULL_OBJECT));
+			this.earlySingletonObjects.remove(beanName);
+			this.registeredSingletons.add(beanName);
 		}
 	}
 
+	/**
+	 * Add an early reference to the given singleton, which is currently in
+	 * creation by the current thread and not fully initialized yet.
+	 * <p>To be called for eager registration of singletons, e.g. to be able to
+	 * resolve circular references. The early reference will only be exposed
+	 * to the creating thread, until replaced through {@link #addSingleton}.
+	 * @param beanName the name of the bean
+	 * @param bean the raw singleton object
+	 */
+	protected void addEarlySingleton(String beanName, Object bean) {
+		Assert.hasText(beanName, "Bean name must not be empty");
+		synchronized (this.singletonCache) {
+			if (!this.singletonCache.containsKey(beanName)) {
+				this.earlySingletonObjects.put(beanName, (bean != null ? bean : NULL_OBJECT));
+			}
+		}
+	}
+
+	/**
+	 * This implementation does not acquire the singleton cache monitor for
+	 * fully initialized singletons, reading straight from the (concurrent)
+	 * singleton cache instead. Early references to singletons in creation are
+	 * only returned to the creating thread: Other threads will wait for the
+	 * creation to complete, or receive <code>null</code> with concurrent
+	 * singleton creation.
+	 */
 	public Object getSingleton(String beanName) {
+		Object sharedInstance = this.singletonCache.get(beanName);
+		if (sharedInstance == null && this.singletonsCurrentlyInCreation.contains(beanName)) {
+			sharedInstance = getEarlySingleton(beanName);
+		}
+		return (sharedInstance != NULL_OBJECT ? sharedInstance : null);
+	}
+
+	/**
+	 * Return the early reference to the given singleton, if any, provided
+	 * that it is visible to the current thread.
+	 * <p>Unless concurrent singleton creation is active, the singleton cache
+	 * monitor is held while creating a singleton: Acquiring it here blocks
+	 * until any other thread's creation process has finished.
+	 * @param beanName the name of the bean
+	 * @return the singleton object (fully initialized or early reference),
+	 * or <code>null</code> if none visible to the current thread
+	 */
+	private Object getEarlySingleton(String beanName) {
+		if (this.concurrentSingletonCreation && isSingletonCurrentlyInCreationByOtherThread(beanName)) {
+			// Do not expose an early reference to a singleton that
+			// is still being initialized by another thread.
+			return null;
+		}
 		synchronized (this.singletonCache) {
-			return this.singletonCache.get(beanName);
+			Object sharedInstance = this.singletonCache.get(beanName);
+			if (sharedInstance == null) {
+				sharedInstance = this.earlySingletonObjects.get(beanName);
+			}
+			return sharedInstance;
+		}
+	}
+
+	/**
+	 * Return the (raw) singleton object registered under the given name,
+	 * waiting for a creation process in another thread to complete first.
+	 * <p>Unless concurrent singleton creation is active, the singleton cache
+	 * monitor is held while creating a singleton: Acquiring it here blocks
+	 * until any other thread's creation process has finished, while circular
+	 * references within the creating thread receive the early reference.
+	 * @param beanName the name of the bean that is currently in creation
+	 * @return the registered singleton object, or <code>null</code> if none found
+	 * @see #isSingletonCurrentlyInCreation
+	 */
+	protected Object getSingletonOnceCreated(String beanName) {
+		if (this.concurrentSingletonCreation) {
+			return getSingleton(beanName);
+		}
+		synchronized (this.singletonCache) {
+			return getSingleton(beanName);
 		}
 	}
 
 	/**
 	 * Return the (raw) singleton object registered under the given name,
 	 * creating and registering a new one if none registered yet.
+	 * <p>By default, the singleton cache monitor is held while creating the
+	 * singleton. With concurrent singleton creation, it is only held for checking
+	 * and registering the singleton instead: see {@link #setConcurrentSingletonCreation}.
 	 * @param beanName the name of the bean
 	 * @return the registered singleton object
 	 */
 	public Object getSingleton(String beanName, ObjectFactory singletonFactory) {
+		if (this.concurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonCache) {
 			// Re-check singleton cache within synchronized block.
 			Object sharedInstance = this.singletonCache.get(beanName);
+			if (sharedInstance == NULL_OBJECT) {
+				return null;
+			}
 			if (sharedInstance == null) {
 				if (this.singletonsCurrentlyInDestruction) {
 					throw new BeanCreationNotAllowedException(beanName,
@@ -148,6 +298,111 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 		}
 	}
 
+	/**
+	 * Concurrent variant of {@link #getSingleton(String, ObjectFactory)}.
+	 * <p>The singleton cache monitor is only held for checking and registering
+	 * the singleton, not while creating it: Different singletons may be created
+	 * by different threads concurrently. A thread requesting a singleton that is
+	 * currently being created by another thread will wait for that creation
+	 * to complete, unless this would lead to a deadlock between the threads
+	 * (that is, a circular reference across threads).
+	 * @param beanName the name of the bean
+	 * @return the registered singleton object
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory singletonFactory) {
+		Thread currentThread = Thread.currentThread();
+		boolean newCreation = false;
+		synchronized (this.singletonCache) {
+			while (true) {
+				Thread creationThread = (Thread) this.singletonCreationThreads.get(beanName);
+				if (creationThread != null && creationThread != currentThread) {
+					awaitSingletonCreation(beanName, creationThread);
+					continue;
+				}
+				// Re-check singleton cache within synchronized block.
+				Object sharedInstance = this.singletonCache.get(beanName);
+				if (sharedInstance == NULL_OBJECT) {
+					return null;
+				}
+				if (sharedInstance != null) {
+					return sharedInstance;
+				}
+				if (this.singletonsCurrentlyInDestruction) {
+					throw new BeanCreationNotAllowedException(beanName,
+							"Singleton bean creation not allowed while the singletons of this factory are in destruction " +
+							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+				}
+				if (creationThread == null) {
+					this.singletonCreationThreads.put(beanName, currentThread);
+					newCreation = true;
+				}
+				// Else: circular reference within the current thread,
+				// to be detected by beforeSingletonCreation.
+				break;
+			}
+		}
+
+		try {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+			}
+			Object sharedInstance = null;
+			try {
+				beforeSingletonCreation(beanName);
+				sharedInstance = singletonFactory.getObject();
+			}
+			finally {
+				afterSingletonCreation(beanName);
+			}
+			addSingleton(beanName, sharedInstance);
+			return sharedInstance;
+		}
+		finally {
+			if (newCreation) {
+				releaseSingletonCreation(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the given singleton to be created by the given thread.
+	 * To be called with the singleton cache monitor held.
+	 * @param beanName the name of the bean
+	 * @param creationThread the thread that is currently creating the bean
+	 * @throws BeanCurrentlyInCreationException if the creating thread is
+	 * (directly or indirectly) waiting for the current thread
+	 */
+	private void awaitSingletonCreation(String beanName, Thread creationThread) {
+		Thread currentThread = Thread.currentThread();
+		Thread thread = creationThread;
+		for (int i = 0; thread != null && i <= this.awaitedSingletons.size(); i++) {
+			if (thread == currentThread) {
+				throw new BeanCurrentlyInCreationException(beanName,
+						"Requested bean is currently in creation by another thread that is waiting for " +
+						"a bean in creation by the current thread: Is there an unresolvable circular reference?");
+			}
+			String awaitedBeanName = (String) this.awaitedSingletons.get(thread);
+			thread = (awaitedBeanName != null ? (Thread) this.singletonCreationThreads.get(awaitedBeanName) : null);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Waiting for singleton bean '" + beanName + "' to be created by thread [" +
+					creationThread.getName() + "]");
+		}
+		this.awaitedSingletons.put(currentThread, beanName);
+		try {
+			this.singletonCache.wait();
+		}
+		catch (InterruptedException ex) {
+			// Re-interrupt current thread, to allow other threads to react.
+			currentThread.interrupt();
+			throw new BeanCreationException(beanName,
+					"Interrupted while waiting for singleton bean to be created by another thread");
+		}
+		finally {
+			this.awaitedSingletons.remove(currentThread);
+		}
+	}
+
 	/**
 	 * Remove the bean with the given name from the singleton cache of this factory.
 	 * <p>To be able to clean up eager registration of a singleton if creation failed.
@@ -157,25 +412,28 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 		Assert.hasText(beanName, "Bean name must not be empty");
 		synchronized (this.singletonCache) {
 			this.singletonCache.remove(beanName);
+			this.earlySingletonObjects.remove(beanName);
+			this.registeredSingletons.remove(beanName);
 		}
 	}
 
 	public boolean containsSingleton(String beanName) {
 		Assert.hasText(beanName, "Bean name must not be empty");
-		synchronized (this.singletonCache) {
-			return this.singletonCache.containsKey(beanName);
+		if (this.singletonCache.containsKey(beanName)) {
+			return true;
 		}
+		return (this.singletonsCurrentlyInCreation.contains(beanName) && getEarlySingleton(beanName) != null);
 	}
 
 	public String[] getSingletonNames() {
 		synchronized (this.singletonCache) {
-			return StringUtils.toStringArray(this.singletonCache.keySet());
+			return StringUtils.toStringArray(this.registeredSingletons);
 		}
 	}
 
 	public int getSingletonCount() {
 		synchronized (this.singletonCache) {
-			return this.singletonCache.size();
+			return this.registeredSingletons.size();
 		}
 	}
 
@@ -204,13 +462,91 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 		}
 	}
 
+	/**
+	 * Mark the specified singleton as currently in creation by the current thread,
+	 * for a partial creation step that does not register the singleton
+	 * (for example, for early type checks). With concurrent singleton creation,
+	 * other threads requesting the singleton will wait until
+	 * {@link #afterPartialSingletonCreation} has been called.
+	 * @param beanName the name of the singleton about to be partially created
+	 * @return <code>true</code> if the partial creation may proceed;
+	 * <code>false</code> if the singleton is currently in creation (by any thread)
+	 * @see #afterPartialSingletonCreation
+	 */
+	protected boolean beforePartialSingletonCreation(String beanName) {
+		if (!this.concurrentSingletonCreation) {
+			if (this.singletonsCurrentlyInCreation.contains(beanName)) {
+				return false;
+			}
+			beforeSingletonCreation(beanName);
+			return true;
+		}
+		synchronized (this.singletonCache) {
+			if (this.singletonCreationThreads.containsKey(beanName) ||
+					this.singletonsCurrentlyInCreation.contains(beanName)) {
+				return false;
+			}
+			this.singletonCreationThreads.put(beanName, Thread.currentThread());
+		}
+		try {
+			beforeSingletonCreation(beanName);
+			return true;
+		}
+		catch (RuntimeException ex) {
+			releaseSingletonCreation(beanName);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Mark the specified singleton as not in creation anymore,
+	 * after a partial creation step.
+	 * @param beanName the name of the singleton that has been partially created
+	 * @see #beforePartialSingletonCreation
+	 */
+	protected void afterPartialSingletonCreation(String beanName) {
+		try {
+			afterSingletonCreation(beanName);
+		}
+		finally {
+			if (this.concurrentSingletonCreation) {
+				releaseSingletonCreation(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Release the current thread's claim on the creation of the given singleton,
+	 * waking up any other threads that are waiting for the singleton.
+	 * @param beanName the name of the bean
+	 */
+	private void releaseSingletonCreation(String beanName) {
+		synchronized (this.singletonCache) {
+			this.singletonCreationThreads.remove(beanName);
+			this.singletonCache.notifyAll();
+		}
+	}
+
 	/**
 	 * Return whether the specified singleton bean is currently in creation
-	 * (within the entire factory).
+	 * (within the entire factory). With concurrent singleton creation, singletons
+	 * that are being created by another thread are not considered as in creation:
+	 * The current thread will wait for them to be fully initialized instead.
 	 * @param beanName the name of the bean
 	 */
 	public final boolean isSingletonCurrentlyInCreation(String beanName) {
-		return this.singletonsCurrentlyInCreation.contains(beanName);
+		return (this.singletonsCurrentlyInCreation.contains(beanName) &&
+				(!this.concurrentSingletonCreation || !isSingletonCurrentlyInCreationByOtherThread(beanName)));
+	}
+
+	/**
+	 * Return whether the specified singleton bean is currently in creation
+	 * by a thread other than the current thread.
+	 * @param beanName the name of the bean
+	 */
+	private boolean isSingletonCurrentlyInCreationByOtherThread(String beanName) {
+		Thread creationThread = (Thread) this.singletonCreationThreads.get(beanName);
+		return (creationThread != null && creationThread != Thread.currentThread());
 	}
 
 
@@ -282,6 +618,8 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
 		}
 		synchronized (this.singletonCache) {
 			this.singletonCache.clear();
+			this.earlySingletonObjects.clear();
+			this.registeredSingletons.clear();
 			this.singletonsCurrentlyInDestruction = false;
 		}
 	}
@@ -0,0 +1,548 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Helper class for pre-instantiating the singletons of a DefaultListableBeanFactory
+ * in parallel. Used by DefaultListableBeanFactory if a "preInstantiationConcurrency"
+ * greater than 1 has been specified.
+ *
+ * <p>Builds a dependency graph from the bean definitions ("depends-on", bean
+ * references in property values and constructor arguments, including inner beans
+ * and collections, as well as factory bean references) and from the dependencies
+ * registered with the factory so far. Beans that reference each other, directly or
+ * indirectly, are pre-instantiated together within the same thread, in registration
+ * order: Circular references are therefore resolved (or reported) exactly like in
+ * the serial case. Independent groups of beans are created by concurrent worker
+ * threads, as soon as all of the groups that they depend on have been created.
+ *
+ * <p>Beans that are autowired (as well as all beans that depend on them) have
+ * dependencies that cannot be determined upfront. Those are left for serial
+ * pre-instantiation, to be performed by the caller after this helper is done.
+ *
+ * <p>Logs the critical path of the parallel phase on completion: that is,
+ * the chain of dependent bean groups that took the longest time to create,
+ * effectively determining the time that the parallel phase took.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see DefaultListableBeanFactory#setPreInstantiationConcurrency
+ */
+class ParallelSingletonPreInstantiator {
+
+	private static final Log logger = LogFactory.getLog(ParallelSingletonPreInstantiator.class);
+
+	private final DefaultListableBeanFactory beanFactory;
+
+	private final int concurrency;
+
+	/** Graph nodes: bean name --> Node, in registration order */
+	private final Map nodes = CollectionFactory.createLinkedMapIfPossible(64);
+
+	/** Groups of beans to create together, with dependencies ahead of dependents */
+	private final List tasks = new ArrayList();
+
+	/** Monitor that guards the scheduling state below */
+	private final Object monitor = new Object();
+
+	private final LinkedList readyTasks = new LinkedList();
+
+	private int remainingTaskCount;
+
+	private Throwable failure;
+
+
+	/**
+	 * Create a new ParallelSingletonPreInstantiator for the given factory.
+	 * @param beanFactory the DefaultListableBeanFactory to work on
+	 * @param concurrency the number of worker threads to use
+	 */
+	public ParallelSingletonPreInstantiator(DefaultListableBeanFactory beanFactory, int concurrency) {
+		this.beanFactory = beanFactory;
+		this.concurrency = concurrency;
+	}
+
+
+	/**
+	 * Pre-instantiate all independent singletons of the factory in parallel,
+	 * and log the critical path on completion.
+	 * @throws BeansException if one of the singletons could not be created
+	 */
+	public void preInstantiateSingletons() throws BeansException {
+		long startTime = System.currentTimeMillis();
+		buildDependencyGraph();
+		determineTasks();
+		if (this.remainingTaskCount == 0) {
+			return;
+		}
+
+		int threadCount = Math.min(this.concurrency, this.remainingTaskCount);
+		Thread[] workers = new Thread[threadCount];
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		for (int i = 0; i < threadCount; i++) {
+			workers[i] = new Thread(new Worker(), "preInstantiation-" + (i + 1));
+			workers[i].setContextClassLoader(contextClassLoader);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		try {
+			for (int i = 0; i < threadCount; i++) {
+				workers[i].join();
+			}
+		}
+		catch (InterruptedException ex) {
+			synchronized (this.monitor) {
+				if (this.failure == null) {
+					this.failure = ex;
+				}
+				this.monitor.notifyAll();
+			}
+			// Re-interrupt current thread, to allow other threads to react.
+			Thread.currentThread().interrupt();
+		}
+
+		if (this.failure != null) {
+			if (this.failure instanceof RuntimeException) {
+				throw (RuntimeException) this.failure;
+			}
+			if (this.failure instanceof Error) {
+				throw (Error) this.failure;
+			}
+			throw new BeanCreationException("Parallel pre-instantiation of singletons interrupted", this.failure);
+		}
+		logCriticalPath(System.currentTimeMillis() - startTime);
+	}
+
+
+	//---------------------------------------------------------------------
+	// Building the dependency graph
+	//---------------------------------------------------------------------
+
+	/**
+	 * Build the graph of all bean definitions, with edges from beans
+	 * to the beans that they depend on.
+	 */
+	private void buildDependencyGraph() {
+		String[] beanNames = this.beanFactory.getBeanDefinitionNames();
+		for (int i = 0; i < beanNames.length; i++) {
+			addNode(beanNames[i]);
+		}
+		// Consider dependencies that have been registered at runtime already,
+		// for example for singletons created by BeanPostProcessor registration.
+		for (Iterator it = new ArrayList(this.nodes.values()).iterator(); it.hasNext();) {
+			Node node = (Node) it.next();
+			if (this.beanFactory.hasDependentBean(node.beanName)) {
+				Set dependentBeans = this.beanFactory.getDependentBeans(node.beanName);
+				for (Iterator it2 = dependentBeans.iterator(); it2.hasNext();) {
+					Node dependentNode = (Node) this.nodes.get(this.beanFactory.transformedBeanName((String) it2.next()));
+					if (dependentNode != null) {
+						dependentNode.dependencies.add(node);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add a node for the given bean to the graph, if not added yet,
+	 * including nodes for all the beans that it depends on.
+	 * @param beanName the canonical name of the bean
+	 * @return the node, or <code>null</code> if there is no local bean definition
+	 */
+	private Node addNode(String beanName) {
+		Node node = (Node) this.nodes.get(beanName);
+		if (node != null || !this.beanFactory.containsBeanDefinition(beanName)) {
+			return node;
+		}
+		RootBeanDefinition bd = this.beanFactory.getMergedBeanDefinition(beanName, false);
+		node = new Node(beanName);
+		this.nodes.put(beanName, node);
+
+		List dependencyNames = new ArrayList();
+		node.autowired = collectDependencies(bd, dependencyNames);
+		for (Iterator it = dependencyNames.iterator(); it.hasNext();) {
+			Node dependency = addNode(this.beanFactory.transformedBeanName((String) it.next()));
+			if (dependency != null && dependency != node) {
+				node.dependencies.add(dependency);
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Collect the names of all beans that the given bean definition refers to.
+	 * @param bd the bean definition to introspect
+	 * @param dependencyNames the List to add the bean names to
+	 * @return whether the bean definition (or one of its inner beans) is autowired,
+	 * with further dependencies that cannot be determined upfront
+	 */
+	private boolean collectDependencies(BeanDefinition bd, List dependencyNames) {
+		boolean autowired = false;
+		if (bd instanceof AbstractBeanDefinition) {
+			AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+			autowired = (abd.getResolvedAutowireMode() != AbstractBeanDefinition.AUTOWIRE_NO);
+			String[] dependsOn = abd.getDependsOn();
+			if (dependsOn != null) {
+				for (int i = 0; i < dependsOn.length; i++) {
+					dependencyNames.add(dependsOn[i]);
+				}
+			}
+			if (abd.getFactoryBeanName() != null) {
+				dependencyNames.add(abd.getFactoryBeanName());
+			}
+		}
+		PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+		for (int i = 0; i < pvs.length; i++) {
+			autowired |= collectDependencies(pvs[i].getValue(), dependencyNames);
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext();) {
+			ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
+			autowired |= collectDependencies(valueHolder.getValue(), dependencyNames);
+		}
+		for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext();) {
+			ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
+			autowired |= collectDependencies(valueHolder.getValue(), dependencyNames);
+		}
+		return autowired;
+	}
+
+	/**
+	 * Collect the names of all beans that the given property value refers to.
+	 * @param value the property value or constructor argument value to introspect
+	 * @param dependencyNames the List to add the bean names to
+	 * @return whether an inner bean contained in the value is autowired
+	 */
+	private boolean collectDependencies(Object value, List dependencyNames) {
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			if (!ref.isToParent()) {
+				dependencyNames.add(ref.getBeanName());
+			}
+			return false;
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			return collectDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), dependencyNames);
+		}
+		else if (value instanceof BeanDefinition) {
+			return collectDependencies((BeanDefinition) value, dependencyNames);
+		}
+		else if (value instanceof Collection) {
+			boolean autowired = false;
+			for (Iterator it = ((Collection) value).iterator(); it.hasNext();) {
+				autowired |= collectDependencies(it.next(), dependencyNames);
+			}
+			return autowired;
+		}
+		else if (value instanceof Map) {
+			boolean autowired = false;
+			for (Iterator it = ((Map) value).entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				autowired |= collectDependencies(entry.getKey(), dependencyNames);
+				autowired |= collectDependencies(entry.getValue(), dependencyNames);
+			}
+			return autowired;
+		}
+		return false;
+	}
+
+	/**
+	 * Determine the strongly connected components of the dependency graph
+	 * (Tarjan's algorithm): Each of them becomes a task, with the tasks
+	 * sorted such that dependencies come ahead of their dependents.
+	 */
+	private void determineTasks() {
+		int[] index = new int[1];
+		LinkedList stack = new LinkedList();
+		for (Iterator it = this.nodes.values().iterator(); it.hasNext();) {
+			Node node = (Node) it.next();
+			if (node.index < 0) {
+				determineTask(node, index, stack);
+			}
+		}
+
+		for (Iterator it = this.tasks.iterator(); it.hasNext();) {
+			Task task = (Task) it.next();
+			for (Iterator it2 = task.nodes.iterator(); it2.hasNext();) {
+				Node node = (Node) it2.next();
+				task.autowired |= node.autowired;
+				for (Iterator it3 = node.dependencies.iterator(); it3.hasNext();) {
+					Task dependency = ((Node) it3.next()).task;
+					if (dependency != task && !task.dependencies.contains(dependency)) {
+						task.dependencies.add(dependency);
+						dependency.dependents.add(task);
+						// Dependencies have been processed already: propagate autowiring.
+						task.autowired |= dependency.autowired;
+					}
+				}
+			}
+		}
+
+		for (Iterator it = this.tasks.iterator(); it.hasNext();) {
+			Task task = (Task) it.next();
+			if (!task.autowired) {
+				this.remainingTaskCount++;
+				task.pendingDependencyCount = task.dependencies.size();
+				if (task.pendingDependencyCount == 0) {
+					this.readyTasks.add(task);
+				}
+			}
+		}
+	}
+
+	private void determineTask(Node node, int[] index, LinkedList stack) {
+		node.index = index[0];
+		node.lowLink = index[0];
+		index[0]++;
+		stack.addFirst(node);
+		node.onStack = true;
+
+		for (Iterator it = node.dependencies.iterator(); it.hasNext();) {
+			Node dependency = (Node) it.next();
+			if (dependency.index < 0) {
+				determineTask(dependency, index, stack);
+				node.lowLink = Math.min(node.lowLink, dependency.lowLink);
+			}
+			else if (dependency.onStack) {
+				node.lowLink = Math.min(node.lowLink, dependency.index);
+			}
+		}
+
+		if (node.lowLink == node.index) {
+			Task task = new Task();
+			Node member = null;
+			do {
+				member = (Node) stack.removeFirst();
+				member.onStack = false;
+				member.task = task;
+				task.nodes.add(member);
+			}
+			while (member != node);
+			// Create the beans in registration order, as in the serial case.
+			task.sortNodes();
+			this.tasks.add(task);
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Executing the tasks
+	//---------------------------------------------------------------------
+
+	/**
+	 * Obtain the next task that is ready to be executed,
+	 * waiting for running tasks to complete if necessary.
+	 * @return the task, or <code>null</code> if there are no further tasks
+	 * to execute (or a task failed)
+	 */
+	private Task nextTask() {
+		synchronized (this.monitor) {
+			while (this.failure == null && this.readyTasks.isEmpty() && this.remainingTaskCount > 0) {
+				try {
+					this.monitor.wait();
+				}
+				catch (InterruptedException ex) {
+					this.failure = ex;
+					this.monitor.notifyAll();
+				}
+			}
+			if (this.failure != null || this.readyTasks.isEmpty()) {
+				return null;
+			}
+			return (Task) this.readyTasks.removeFirst();
+		}
+	}
+
+	/**
+	 * Create all beans within the given task.
+	 */
+	private void executeTask(Task task) {
+		task.startTime = System.currentTimeMillis();
+		try {
+			for (Iterator it = task.nodes.iterator(); it.hasNext();) {
+				this.beanFactory.preInstantiateSingleton(((Node) it.next()).beanName);
+			}
+		}
+		catch (Throwable ex) {
+			synchronized (this.monitor) {
+				if (this.failure == null) {
+					this.failure = ex;
+				}
+				this.monitor.notifyAll();
+			}
+			return;
+		}
+		task.endTime = System.currentTimeMillis();
+
+		synchronized (this.monitor) {
+			this.remainingTaskCount--;
+			for (Iterator it = task.dependents.iterator(); it.hasNext();) {
+				Task dependent = (Task) it.next();
+				if (!dependent.autowired && --dependent.pendingDependencyCount == 0) {
+					this.readyTasks.add(dependent);
+				}
+			}
+			this.monitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Determine the critical path through the executed tasks and log it.
+	 * @param totalTime the total time that the parallel phase took
+	 */
+	private void logCriticalPath(long totalTime) {
+		if (!logger.isInfoEnabled()) {
+			return;
+		}
+		Task last = null;
+		for (Iterator it = this.tasks.iterator(); it.hasNext();) {
+			Task task = (Task) it.next();
+			if (!task.autowired) {
+				for (Iterator it2 = task.dependencies.iterator(); it2.hasNext();) {
+					Task dependency = (Task) it2.next();
+					if (task.criticalPredecessor == null || dependency.pathTime > task.criticalPredecessor.pathTime) {
+						task.criticalPredecessor = dependency;
+					}
+				}
+				task.pathTime = (task.endTime - task.startTime) +
+						(task.criticalPredecessor != null ? task.criticalPredecessor.pathTime : 0);
+				if (last == null || task.pathTime > last.pathTime) {
+					last = task;
+				}
+			}
+		}
+		LinkedList path = new LinkedList();
+		for (Task task = last; task != null; task = task.criticalPredecessor) {
+			path.addFirst(task.toString());
+		}
+		logger.info("Pre-instantiated " + this.tasks.size() + " groups of singletons with " + this.concurrency +
+				" threads in " + totalTime + " ms; critical path (" + (last != null ? last.pathTime : 0) +
+				" ms): " + path);
+	}
+
+
+	/**
+	 * Node in the dependency graph, representing a single bean definition.
+	 */
+	private static class Node {
+
+		public final String beanName;
+
+		public final List dependencies = new ArrayList();
+
+		public boolean autowired;
+
+		public int index = -1;
+
+		public int lowLink;
+
+		public boolean onStack;
+
+		public Task task;
+
+		public Node(String beanName) {
+			this.beanName = beanName;
+		}
+	}
+
+
+	/**
+	 * Group of beans that depend on each other, to be created within the same thread.
+	 */
+	private class Task {
+
+		public final List nodes = new ArrayList(1);
+
+		public final List dependencies = new ArrayList();
+
+		public final List dependents = new ArrayList();
+
+		public boolean autowired;
+
+		public int pendingDependencyCount;
+
+		public long startTime;
+
+		public long endTime;
+
+		public long pathTime;
+
+		public Task criticalPredecessor;
+
+		public void sortNodes() {
+			if (this.nodes.size() > 1) {
+				List sorted = new ArrayList(this.nodes.size());
+				for (Iterator it = ParallelSingletonPreInstantiator.this.nodes.values().iterator(); it.hasNext();) {
+					Object node = it.next();
+					if (this.nodes.contains(node)) {
+						sorted.add(node);
+					}
+				}
+				this.nodes.clear();
+				this.nodes.addAll(sorted);
+			}
+		}
+
+		public String toString() {
+			StringBuffer sb = new StringBuffer();
+			for (Iterator it = this.nodes.iterator(); it.hasNext();) {
+				sb.append(((Node) it.next()).beanName);
+				if (it.hasNext()) {
+					sb.append(',');
+				}
+			}
+			sb.append(" (").append(this.endTime - this.startTime).append(" ms)");
+			return sb.toString();
+		}
+	}
+
+
+	/**
+	 * Worker that executes ready tasks until there are no further tasks.
+	 */
+	private class Worker implements Runnable {
+
+		public void run() {
+			Task task = nextTask();
+			while (task != null) {
+				executeTask(task);
+				task = nextTask();
+			}
+		}
+	}
+
+}
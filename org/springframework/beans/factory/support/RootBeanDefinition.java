@@ -34,6 +34,19 @@ import org.springframework.beans.factory.config.ConstructorArgumentValues;
  */
 public class RootBeanDefinition extends AbstractBeanDefinition {
 
+	/** Common lock for the two constructor fields below */
+	final Object constructorArgumentLock = new Object();
+
+	/** Package-visible field for caching the resolved constructor or factory method */
+	Object resolvedConstructorOrFactoryMethod;
+
+	/**
+	 * Package-visible field for caching fully resolved constructor arguments,
+	 * if they can be reused for every instance
+	 */
+	Object[] resolvedConstructorArguments;
+
+
 	/**
 	 * Create a new RootBeanDefinition, to be configured through its bean
 	 * properties and configuration methods.
@@ -150,6 +163,8 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 	/**
 	 * Create a new RootBeanDefinition as deep copy of the given
 	 * bean definition.
+	 * <p>Does not copy the resolved constructor or factory method
+	 * (if any), which will be determined again for the new definition.
 	 * @param original the original bean definition to copy from
 	 */
 	public RootBeanDefinition(RootBeanDefinition original) {
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.config.StartupRecorder;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.JdkVersion;
+
+/**
+ * StartupRecorder implementation that keeps a timeline of all recorded steps
+ * in memory, to be exported once the startup has finished.
+ *
+ * <p>The timeline can be written in two formats:
+ * <ul>
+ * <li>as JSON in the Trace Event Format, as understood by the "chrome://tracing"
+ * viewer and similar tools: see {@link #writeTraceEvents};
+ * <li>as folded stacks (one line per stack, with the time spent in that stack),
+ * as understood by <code>flamegraph.pl</code>: see {@link #writeFoldedStacks}.
+ * </ul>
+ *
+ * <p>Uses <code>System.nanoTime()</code> on JDK 1.5+ for accurate measurement
+ * of the individual steps, falling back to <code>System.currentTimeMillis()</code>
+ * on older JDKs.
+ *
+ * <p>Typical usage with an application context:
+ *
+ * <pre class="code">TimelineStartupRecorder recorder = new TimelineStartupRecorder();
+ * ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext(
+ *     new String[] {"applicationContext.xml"}, false);
+ * ctx.setStartupRecorder(recorder);
+ * ctx.refresh();
+ * recorder.exportTimeline(new File("startup.json"));</pre>
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see org.springframework.context.support.AbstractApplicationContext#setStartupRecorder
+ * @see AbstractBeanFactory#setStartupRecorder
+ */
+public class TimelineStartupRecorder implements StartupRecorder {
+
+	private static final boolean nanoTimeAvailable = JdkVersion.isAtLeastJava15();
+
+
+	/** Steps started by each thread that have not been ended yet */
+	private final ThreadLocal currentSteps = new ThreadLocal();
+
+	/** Completed steps, in order of completion */
+	private final List completedSteps = new ArrayList();
+
+	private final long startNanos = currentNanos();
+
+
+	public Object startStep(String name, String detail) {
+		LinkedList steps = (LinkedList) this.currentSteps.get();
+		if (steps == null) {
+			steps = new LinkedList();
+			this.currentSteps.set(steps);
+		}
+		Step step = new Step(name, detail, (Step) (steps.isEmpty() ? null : steps.getLast()));
+		steps.addLast(step);
+		step.startNanos = currentNanos();
+		return step;
+	}
+
+	public void endStep(Object step) {
+		long endNanos = currentNanos();
+		Step endedStep = (Step) step;
+		endedStep.endNanos = endNanos;
+		if (endedStep.parent != null) {
+			endedStep.parent.childNanos += (endNanos - endedStep.startNanos);
+		}
+		// Remove the step from the current thread's stack, including any
+		// nested steps that have not been ended due to an exception.
+		LinkedList steps = (LinkedList) this.currentSteps.get();
+		if (steps != null && steps.contains(endedStep)) {
+			while (steps.removeLast() != endedStep) {
+			}
+		}
+		synchronized (this.completedSteps) {
+			this.completedSteps.add(endedStep);
+		}
+	}
+
+	/**
+	 * Return the number of steps that have been recorded so far.
+	 */
+	public int getStepCount() {
+		synchronized (this.completedSteps) {
+			return this.completedSteps.size();
+		}
+	}
+
+	/**
+	 * Clear the timeline, discarding all steps that have been recorded so far.
+	 */
+	public void clear() {
+		synchronized (this.completedSteps) {
+			this.completedSteps.clear();
+		}
+	}
+
+
+	/**
+	 * Export the timeline to the given file, in UTF-8 encoding.
+	 * <p>Writes JSON in the Trace Event Format if the file name ends with ".json",
+	 * and folded stacks for <code>flamegraph.pl</code> else.
+	 * @param file the file to write to
+	 * @throws IOException if the file could not be written
+	 * @see #writeTraceEvents
+	 * @see #writeFoldedStacks
+	 */
+	public void exportTimeline(File file) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			if (file.getName().endsWith(".json")) {
+				writeTraceEvents(writer);
+			}
+			else {
+				writeFoldedStacks(writer);
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Write the timeline as JSON in the Trace Event Format, with one "complete" event
+	 * per step. Timestamps and durations are specified in microseconds.
+	 * @param writer the Writer to write to (will not be closed)
+	 * @throws IOException if thrown by the Writer
+	 */
+	public void writeTraceEvents(Writer writer) throws IOException {
+		List steps = getCompletedSteps();
+		Map threadIds = new HashMap();
+		writer.write("{\"traceEvents\":[");
+		for (int i = 0; i < steps.size(); i++) {
+			Step step = (Step) steps.get(i);
+			Integer threadId = (Integer) threadIds.get(step.threadName);
+			if (threadId == null) {
+				threadId = new Integer(threadIds.size() + 1);
+				threadIds.put(step.threadName, threadId);
+				writer.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + threadId +
+						",\"args\":{\"name\":");
+				writeJsonString(writer, step.threadName);
+				writer.write("}},");
+			}
+			writer.write("\n{\"name\":");
+			writeJsonString(writer, step.name);
+			writer.write(",\"cat\":\"startup\",\"ph\":\"X\",\"pid\":1,\"tid\":" + threadId +
+					",\"ts\":" + (step.startNanos - this.startNanos) / 1000 +
+					",\"dur\":" + (step.endNanos - step.startNanos) / 1000);
+			if (step.detail != null) {
+				writer.write(",\"args\":{\"detail\":");
+				writeJsonString(writer, step.detail);
+				writer.write("}");
+			}
+			writer.write("}");
+			if (i < steps.size() - 1) {
+				writer.write(",");
+			}
+		}
+		writer.write("\n]}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Write the timeline as folded stacks: one line per distinct stack of steps,
+	 * with the frames separated by semicolons, followed by the time spent in that
+	 * stack itself (excluding nested steps) in microseconds.
+	 * @param writer the Writer to write to (will not be closed)
+	 * @throws IOException if thrown by the Writer
+	 */
+	public void writeFoldedStacks(Writer writer) throws IOException {
+		Map stackTimes = CollectionFactory.createLinkedMapIfPossible(64);
+		for (Iterator it = getCompletedSteps().iterator(); it.hasNext();) {
+			Step step = (Step) it.next();
+			String stack = step.getStack();
+			long selfMicros = (step.endNanos - step.startNanos - step.childNanos) / 1000;
+			Long time = (Long) stackTimes.get(stack);
+			stackTimes.put(stack, new Long(time != null ? time.longValue() + selfMicros : selfMicros));
+		}
+		for (Iterator it = stackTimes.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+		}
+		writer.flush();
+	}
+
+
+	/**
+	 * Return a copy of the completed steps, sorted by start time.
+	 */
+	private List getCompletedSteps() {
+		List steps = null;
+		synchronized (this.completedSteps) {
+			steps = new ArrayList(this.completedSteps);
+		}
+		// Insertion sort: steps are mostly in start order already, except for nesting.
+		// Enclosing steps go first in case of the same start time.
+		for (int i = 1; i < steps.size(); i++) {
+			Step step = (Step) steps.get(i);
+			int j = i - 1;
+			while (j >= 0 && ((Step) steps.get(j)).isAfter(step)) {
+				steps.set(j + 1, steps.get(j));
+				j--;
+			}
+			steps.set(j + 1, step);
+		}
+		return steps;
+	}
+
+	private void writeJsonString(Writer writer, String str) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			}
+			else if (c < ' ') {
+				String hex = Integer.toHexString(c);
+				writer.write("\\u0000".substring(0, 6 - hex.length()) + hex);
+			}
+			else {
+				writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+
+	private static long currentNanos() {
+		return (nanoTimeAvailable ? Jdk15Timer.nanoTime() : System.currentTimeMillis() * 1000000);
+	}
+
+
+	/**
+	 * A single step within the timeline.
+	 */
+	private static class Step {
+
+		public final String name;
+
+		public final String detail;
+
+		public final Step parent;
+
+		public final String threadName = Thread.currentThread().getName();
+
+		public long startNanos;
+
+		public long endNanos;
+
+		/** Accumulated time of completed nested steps */
+		public long childNanos;
+
+		public Step(String name, String detail, Step parent) {
+			this.name = name;
+			this.detail = detail;
+			this.parent = parent;
+		}
+
+		/**
+		 * Determine whether this step needs to be sorted after the given step.
+		 */
+		public boolean isAfter(Step other) {
+			return (this.startNanos > other.startNanos ||
+					(this.startNanos == other.startNanos && this.endNanos < other.endNanos));
+		}
+
+		/**
+		 * Return the folded stack for this step, with the thread as root frame.
+		 */
+		public String getStack() {
+			String frame = (this.detail != null ? this.name + "(" + this.detail + ")" : this.name);
+			return (this.parent != null ? this.parent.getStack() : this.threadName.replace(';', ',')) +
+					";" + frame.replace(';', ',');
+		}
+	}
+
+
+	/**
+	 * Actual access to the JDK 1.5+ nanosecond timer.
+	 * In separate inner class to avoid runtime dependency on JDK 1.5+.
+	 */
+	private static abstract class Jdk15Timer {
+
+		private static long nanoTime() {
+			return System.nanoTime();
+		}
+	}
+
+}
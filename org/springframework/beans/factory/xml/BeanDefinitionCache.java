@@ -0,0 +1,788 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.ChildBeanDefinition;
+import org.springframework.beans.factory.support.LookupOverride;
+import org.springframework.beans.factory.support.ManagedList;
+import org.springframework.beans.factory.support.ManagedMap;
+import org.springframework.beans.factory.support.ManagedProperties;
+import org.springframework.beans.factory.support.ManagedSet;
+import org.springframework.beans.factory.support.MethodOverride;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.util.Assert;
+
+/**
+ * Cache for bean definitions loaded from XML files, storing the bean definitions
+ * and aliases registered for each resource in a compact binary file. Allows
+ * XmlBeanDefinitionReader to skip XML parsing and validation on subsequent
+ * startups, as long as the resource (and all resources that it imports)
+ * has not changed.
+ *
+ * <p>Each cache file is keyed by the URL of the top-level resource that has been
+ * loaded, and records the CRC32 checksums of that resource and of all imported
+ * resources. If any of those checksums does not match on a later startup, the
+ * cache entry will be ignored, with the resource getting parsed and the cache
+ * entry getting rewritten. Resources that cannot be resolved to a URL are
+ * never cached, and neither are resources that import a location pattern
+ * (since the set of matching resources may change without notice).
+ *
+ * <p>Neither are resources cached that look up bean definitions which they did
+ * not register themselves: for example, namespace elements that modify an
+ * existing definition in place (such as the auto-proxy creator escalated by
+ * the "aop" and "tx" namespaces), or top-level beans without id whose
+ * generated names depend on the bean definitions registered before.
+ * Replaying the recorded registrations would lose such dependencies.
+ *
+ * <p>Supports the standard bean definition metadata as produced by the "beans"
+ * namespace: root and child bean definitions with property values, constructor
+ * arguments, lookup methods, inner beans, bean references, typed String values
+ * and managed collections. If a resource produces any other kind of metadata
+ * (for example, through a custom namespace handler or a replaced method),
+ * it will simply be parsed on every startup.
+ *
+ * <p>Note that the cache does not track changes other than to the resources
+ * themselves: for example, different versions of namespace handlers on the
+ * class path. It should be cleared whenever the application is redeployed.
+ * Neither does it retain source objects (as extracted by a SourceExtractor)
+ * or reproduce the events sent to a ReaderEventListener when parsing.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see XmlBeanDefinitionReader#setBeanDefinitionCache
+ */
+public class BeanDefinitionCache {
+
+	private static final int MAGIC = 0x53424443;
+
+	private static final int VERSION = 1;
+
+	private static final String CACHE_FILE_PREFIX = "beans-";
+
+	private static final String CACHE_FILE_SUFFIX = ".cache";
+
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private static final byte TYPE_NULL = 0;
+
+	private static final byte TYPE_STRING = 1;
+
+	private static final byte TYPE_BOOLEAN = 2;
+
+	private static final byte TYPE_INTEGER = 3;
+
+	private static final byte TYPE_TYPED_STRING = 4;
+
+	private static final byte TYPE_BEAN_REFERENCE = 5;
+
+	private static final byte TYPE_BEAN_NAME_REFERENCE = 6;
+
+	private static final byte TYPE_BEAN_DEFINITION_HOLDER = 7;
+
+	private static final byte TYPE_BEAN_DEFINITION = 8;
+
+	private static final byte TYPE_LIST = 9;
+
+	private static final byte TYPE_SET = 10;
+
+	private static final byte TYPE_MAP = 11;
+
+	private static final byte TYPE_PROPERTIES = 12;
+
+	private static final byte REGISTRATION_BEAN_DEFINITION = 1;
+
+	private static final byte REGISTRATION_ALIAS = 2;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private File cacheDirectory;
+
+
+	/**
+	 * Create a new BeanDefinitionCache for the given directory.
+	 * @param cacheDirectory the directory to keep the cache files in
+	 * (will be created if it does not exist yet)
+	 */
+	public BeanDefinitionCache(File cacheDirectory) {
+		setCacheDirectory(cacheDirectory);
+	}
+
+
+	/**
+	 * Set the directory to keep the cache files in.
+	 * Will be created if it does not exist yet.
+	 */
+	public void setCacheDirectory(File cacheDirectory) {
+		Assert.notNull(cacheDirectory, "cacheDirectory must not be null");
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	/**
+	 * Return the directory that the cache files are kept in.
+	 */
+	public File getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * Remove all cache files from the cache directory.
+	 */
+	public void clear() {
+		File[] files = this.cacheDirectory.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				if (isCacheFile(files[i]) && !files[i].delete()) {
+					logger.warn("Could not delete bean definition cache file [" + files[i] + "]");
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Register the cached bean definitions for the given resource with the given
+	 * registry, provided that the resource and all the resources that it imports
+	 * are unchanged.
+	 * @param encodedResource the top-level resource to load bean definitions from
+	 * @param registry the registry to register the bean definitions with
+	 * @return the number of bean definitions registered, or -1 if there is
+	 * no valid cache entry for the resource
+	 * @throws BeanDefinitionStoreException if the registration failed
+	 */
+	int restoreBeanDefinitions(EncodedResource encodedResource, BeanDefinitionRegistry registry)
+			throws BeanDefinitionStoreException {
+
+		String key = getCacheKey(encodedResource);
+		if (key == null) {
+			return -1;
+		}
+		File cacheFile = getCacheFile(key);
+		if (!cacheFile.exists()) {
+			return -1;
+		}
+
+		List registrations = null;
+		try {
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new GZIPInputStream(new FileInputStream(cacheFile))));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(readString(in))) {
+					return -1;
+				}
+				int resourceCount = in.readInt();
+				for (int i = 0; i < resourceCount; i++) {
+					String url = readString(in);
+					long checksum = in.readLong();
+					if (checksum != calculateChecksum(new URL(url))) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("Ignoring bean definition cache for " + encodedResource.getResource() +
+									": resource [" + url + "] has changed");
+						}
+						return -1;
+					}
+				}
+				registrations = readRegistrations(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (Exception ex) {
+			logger.warn("Could not read bean definition cache file [" + cacheFile + "]", ex);
+			return -1;
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info("Loading cached bean definitions for " + encodedResource.getResource());
+		}
+		int countBefore = registry.getBeanDefinitionCount();
+		for (Iterator it = registrations.iterator(); it.hasNext();) {
+			Object registration = it.next();
+			if (registration instanceof BeanDefinitionHolder) {
+				BeanDefinitionHolder holder = (BeanDefinitionHolder) registration;
+				registry.registerBeanDefinition(holder.getBeanName(), holder.getBeanDefinition());
+			}
+			else {
+				RecordingBeanDefinitionRegistry.AliasRegistration alias =
+						(RecordingBeanDefinitionRegistry.AliasRegistration) registration;
+				registry.registerAlias(alias.getBeanName(), alias.getAlias());
+			}
+		}
+		return registry.getBeanDefinitionCount() - countBefore;
+	}
+
+	/**
+	 * Store the recorded bean definitions for the given resource in the cache.
+	 * Failures will be logged but otherwise ignored.
+	 * @param encodedResource the top-level resource that bean definitions have been loaded from
+	 * @param recording the recorded registrations and resources
+	 */
+	void storeBeanDefinitions(EncodedResource encodedResource, RecordingBeanDefinitionRegistry recording) {
+		String key = getCacheKey(encodedResource);
+		if (key == null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching bean definitions for " + encodedResource.getResource() +
+						": resource cannot be resolved to a URL");
+			}
+			return;
+		}
+		if (!recording.getLocationPatterns().isEmpty()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching bean definitions for " + encodedResource.getResource() +
+						": imports location patterns " + recording.getLocationPatterns());
+			}
+			return;
+		}
+		if (!recording.getExternalBeanNames().isEmpty() || recording.isRegistryEnumerated()) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching bean definitions for " + encodedResource.getResource() +
+						": depends on bean definitions that it did not register itself " +
+						(recording.isRegistryEnumerated() ? "(all bean definition names)" :
+						recording.getExternalBeanNames().toString()));
+			}
+			return;
+		}
+		File cacheFile = getCacheFile(key);
+		File tempFile = null;
+		try {
+			if (!this.cacheDirectory.exists() && !this.cacheDirectory.mkdirs()) {
+				throw new IOException("Could not create cache directory");
+			}
+			// Unique temporary file: other processes may write the same cache entry concurrently.
+			tempFile = File.createTempFile(CACHE_FILE_PREFIX, CACHE_FILE_SUFFIX + TEMP_FILE_SUFFIX, this.cacheDirectory);
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				writeString(out, key);
+				List resources = recording.getResources();
+				out.writeInt(resources.size());
+				for (Iterator it = resources.iterator(); it.hasNext();) {
+					URL url = ((Resource) it.next()).getURL();
+					writeString(out, url.toExternalForm());
+					out.writeLong(calculateChecksum(url));
+				}
+				writeRegistrations(out, recording.getRegistrations());
+			}
+			finally {
+				out.close();
+			}
+			if ((cacheFile.exists() && !cacheFile.delete()) || !tempFile.renameTo(cacheFile)) {
+				throw new IOException("Could not replace cache file");
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Cached bean definitions for " + encodedResource.getResource() + " in [" + cacheFile + "]");
+			}
+		}
+		catch (UnsupportedMetadataException ex) {
+			deleteTempFile(tempFile);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching bean definitions for " + encodedResource.getResource() + ": " + ex.getMessage());
+			}
+		}
+		catch (IOException ex) {
+			deleteTempFile(tempFile);
+			logger.warn("Could not write bean definition cache file [" + cacheFile + "]", ex);
+		}
+	}
+
+	private void deleteTempFile(File tempFile) {
+		if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+			logger.warn("Could not delete temporary bean definition cache file [" + tempFile + "]");
+		}
+	}
+
+	/**
+	 * Determine the cache key for the given resource: its URL plus the encoding, if any.
+	 * @return the cache key, or <code>null</code> if the resource cannot be resolved to a URL
+	 */
+	private String getCacheKey(EncodedResource encodedResource) {
+		try {
+			String url = encodedResource.getResource().getURL().toExternalForm();
+			return (encodedResource.getEncoding() != null ? url + ";" + encodedResource.getEncoding() : url);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+	private File getCacheFile(String key) {
+		CRC32 crc = new CRC32();
+		crc.update(key.getBytes());
+		return new File(this.cacheDirectory, CACHE_FILE_PREFIX + Long.toHexString(crc.getValue()) + CACHE_FILE_SUFFIX);
+	}
+
+	private boolean isCacheFile(File file) {
+		String name = file.getName();
+		return (name.startsWith(CACHE_FILE_PREFIX) &&
+				(name.endsWith(CACHE_FILE_SUFFIX) || name.endsWith(CACHE_FILE_SUFFIX + TEMP_FILE_SUFFIX)));
+	}
+
+	/**
+	 * Calculate the CRC32 checksum of the content at the given URL.
+	 */
+	private long calculateChecksum(URL url) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream is = url.openStream();
+		try {
+			byte[] buffer = new byte[4096];
+			int bytesRead = -1;
+			while ((bytesRead = is.read(buffer)) != -1) {
+				crc.update(buffer, 0, bytesRead);
+			}
+		}
+		finally {
+			is.close();
+		}
+		return crc.getValue();
+	}
+
+
+	//---------------------------------------------------------------------
+	// Writing the binary format
+	//---------------------------------------------------------------------
+
+	private void writeRegistrations(DataOutputStream out, List registrations) throws IOException {
+		out.writeInt(registrations.size());
+		for (Iterator it = registrations.iterator(); it.hasNext();) {
+			Object registration = it.next();
+			if (registration instanceof BeanDefinitionHolder) {
+				BeanDefinitionHolder holder = (BeanDefinitionHolder) registration;
+				out.writeByte(REGISTRATION_BEAN_DEFINITION);
+				writeString(out, holder.getBeanName());
+				writeBeanDefinition(out, holder.getBeanDefinition());
+			}
+			else {
+				RecordingBeanDefinitionRegistry.AliasRegistration alias =
+						(RecordingBeanDefinitionRegistry.AliasRegistration) registration;
+				out.writeByte(REGISTRATION_ALIAS);
+				writeString(out, alias.getBeanName());
+				writeString(out, alias.getAlias());
+			}
+		}
+	}
+
+	private void writeBeanDefinition(DataOutputStream out, BeanDefinition beanDefinition) throws IOException {
+		if (!(beanDefinition instanceof RootBeanDefinition || beanDefinition instanceof ChildBeanDefinition)) {
+			throw new UnsupportedMetadataException("bean definition of type [" + beanDefinition.getClass().getName() + "]");
+		}
+		AbstractBeanDefinition bd = (AbstractBeanDefinition) beanDefinition;
+		if (bd instanceof ChildBeanDefinition) {
+			out.writeBoolean(true);
+			writeString(out, ((ChildBeanDefinition) bd).getParentName());
+		}
+		else {
+			out.writeBoolean(false);
+		}
+		writeString(out, bd.getBeanClassName());
+		writeString(out, bd.getScope());
+		out.writeBoolean(bd.isAbstract());
+		out.writeBoolean(bd.isLazyInit());
+		out.writeBoolean(bd.isAutowireCandidate());
+		out.writeInt(bd.getAutowireMode());
+		out.writeInt(bd.getDependencyCheck());
+		writeStringArray(out, bd.getDependsOn());
+		writeString(out, bd.getFactoryBeanName());
+		writeString(out, bd.getFactoryMethodName());
+		writeString(out, bd.getInitMethodName());
+		out.writeBoolean(bd.isEnforceInitMethod());
+		writeString(out, bd.getDestroyMethodName());
+		out.writeBoolean(bd.isEnforceDestroyMethod());
+		out.writeBoolean(bd.isSynthetic());
+		writeString(out, bd.getResourceDescription());
+		out.writeInt(bd.getRole());
+
+		String[] attributeNames = bd.attributeNames();
+		out.writeInt(attributeNames.length);
+		for (int i = 0; i < attributeNames.length; i++) {
+			writeString(out, attributeNames[i]);
+			writeValue(out, bd.getAttribute(attributeNames[i]));
+		}
+
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		Map indexedArgumentValues = cargs.getIndexedArgumentValues();
+		out.writeInt(indexedArgumentValues.size());
+		for (Iterator it = indexedArgumentValues.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) entry.getValue();
+			out.writeInt(((Integer) entry.getKey()).intValue());
+			writeValue(out, valueHolder.getValue());
+			writeString(out, valueHolder.getType());
+		}
+		List genericArgumentValues = cargs.getGenericArgumentValues();
+		out.writeInt(genericArgumentValues.size());
+		for (Iterator it = genericArgumentValues.iterator(); it.hasNext();) {
+			ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
+			writeValue(out, valueHolder.getValue());
+			writeString(out, valueHolder.getType());
+		}
+
+		PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+		out.writeInt(pvs.length);
+		for (int i = 0; i < pvs.length; i++) {
+			writeString(out, pvs[i].getName());
+			writeValue(out, pvs[i].getValue());
+		}
+
+		Collection overrides = bd.getMethodOverrides().getOverrides();
+		out.writeInt(overrides.size());
+		for (Iterator it = overrides.iterator(); it.hasNext();) {
+			MethodOverride override = (MethodOverride) it.next();
+			if (!(override instanceof LookupOverride)) {
+				throw new UnsupportedMetadataException("method override of type [" + override.getClass().getName() + "]");
+			}
+			writeString(out, override.getMethodName());
+			writeString(out, ((LookupOverride) override).getBeanName());
+		}
+	}
+
+	private void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(TYPE_NULL);
+		}
+		else if (value instanceof String) {
+			out.writeByte(TYPE_STRING);
+			writeString(out, (String) value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(TYPE_BOOLEAN);
+			out.writeBoolean(((Boolean) value).booleanValue());
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(TYPE_INTEGER);
+			out.writeInt(((Integer) value).intValue());
+		}
+		else if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			out.writeByte(TYPE_TYPED_STRING);
+			writeString(out, typedValue.getValue());
+			writeString(out, typedValue.getTargetTypeName());
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			out.writeByte(TYPE_BEAN_REFERENCE);
+			writeString(out, ref.getBeanName());
+			out.writeBoolean(ref.isToParent());
+		}
+		else if (value instanceof RuntimeBeanNameReference) {
+			out.writeByte(TYPE_BEAN_NAME_REFERENCE);
+			writeString(out, ((RuntimeBeanNameReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			out.writeByte(TYPE_BEAN_DEFINITION_HOLDER);
+			writeString(out, holder.getBeanName());
+			writeStringArray(out, holder.getAliases());
+			writeBeanDefinition(out, holder.getBeanDefinition());
+		}
+		else if (value instanceof BeanDefinition) {
+			out.writeByte(TYPE_BEAN_DEFINITION);
+			writeBeanDefinition(out, (BeanDefinition) value);
+		}
+		else if (value instanceof ManagedList) {
+			ManagedList list = (ManagedList) value;
+			out.writeByte(TYPE_LIST);
+			out.writeBoolean(list.isMergeEnabled());
+			writeCollection(out, list);
+		}
+		else if (value instanceof ManagedSet) {
+			ManagedSet set = (ManagedSet) value;
+			out.writeByte(TYPE_SET);
+			out.writeBoolean(set.isMergeEnabled());
+			writeCollection(out, set);
+		}
+		else if (value instanceof ManagedMap) {
+			ManagedMap map = (ManagedMap) value;
+			out.writeByte(TYPE_MAP);
+			out.writeBoolean(map.isMergeEnabled());
+			writeMap(out, map);
+		}
+		else if (value instanceof ManagedProperties) {
+			ManagedProperties props = (ManagedProperties) value;
+			out.writeByte(TYPE_PROPERTIES);
+			out.writeBoolean(props.isMergeEnabled());
+			writeMap(out, props);
+		}
+		else {
+			throw new UnsupportedMetadataException("value of type [" + value.getClass().getName() + "]");
+		}
+	}
+
+	private void writeCollection(DataOutputStream out, Collection coll) throws IOException {
+		out.writeInt(coll.size());
+		for (Iterator it = coll.iterator(); it.hasNext();) {
+			writeValue(out, it.next());
+		}
+	}
+
+	private void writeMap(DataOutputStream out, Map map) throws IOException {
+		out.writeInt(map.size());
+		for (Iterator it = map.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			writeValue(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+	}
+
+	private void writeStringArray(DataOutputStream out, String[] array) throws IOException {
+		if (array == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(array.length);
+		for (int i = 0; i < array.length; i++) {
+			writeString(out, array[i]);
+		}
+	}
+
+	private void writeString(DataOutputStream out, String str) throws IOException {
+		if (str == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = str.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+
+	//---------------------------------------------------------------------
+	// Reading the binary format
+	//---------------------------------------------------------------------
+
+	private List readRegistrations(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		List registrations = new ArrayList(count);
+		for (int i = 0; i < count; i++) {
+			byte type = in.readByte();
+			if (type == REGISTRATION_BEAN_DEFINITION) {
+				String beanName = readString(in);
+				registrations.add(new BeanDefinitionHolder(readBeanDefinition(in), beanName));
+			}
+			else if (type == REGISTRATION_ALIAS) {
+				String beanName = readString(in);
+				registrations.add(new RecordingBeanDefinitionRegistry.AliasRegistration(beanName, readString(in)));
+			}
+			else {
+				throw new IOException("Corrupt cache file: unknown registration type " + type);
+			}
+		}
+		return registrations;
+	}
+
+	private AbstractBeanDefinition readBeanDefinition(DataInputStream in) throws IOException {
+		AbstractBeanDefinition bd = null;
+		if (in.readBoolean()) {
+			bd = new ChildBeanDefinition(readString(in));
+		}
+		else {
+			bd = new RootBeanDefinition();
+		}
+		String beanClassName = readString(in);
+		if (beanClassName != null) {
+			bd.setBeanClassName(beanClassName);
+		}
+		bd.setScope(readString(in));
+		bd.setAbstract(in.readBoolean());
+		bd.setLazyInit(in.readBoolean());
+		bd.setAutowireCandidate(in.readBoolean());
+		bd.setAutowireMode(in.readInt());
+		bd.setDependencyCheck(in.readInt());
+		bd.setDependsOn(readStringArray(in));
+		bd.setFactoryBeanName(readString(in));
+		bd.setFactoryMethodName(readString(in));
+		bd.setInitMethodName(readString(in));
+		bd.setEnforceInitMethod(in.readBoolean());
+		bd.setDestroyMethodName(readString(in));
+		bd.setEnforceDestroyMethod(in.readBoolean());
+		bd.setSynthetic(in.readBoolean());
+		bd.setResourceDescription(readString(in));
+		bd.setRole(in.readInt());
+
+		int attributeCount = in.readInt();
+		for (int i = 0; i < attributeCount; i++) {
+			String name = readString(in);
+			bd.setAttribute(name, readValue(in));
+		}
+
+		ConstructorArgumentValues cargs = new ConstructorArgumentValues();
+		int indexedCount = in.readInt();
+		for (int i = 0; i < indexedCount; i++) {
+			int index = in.readInt();
+			Object value = readValue(in);
+			cargs.addIndexedArgumentValue(index, value, readString(in));
+		}
+		int genericCount = in.readInt();
+		for (int i = 0; i < genericCount; i++) {
+			Object value = readValue(in);
+			cargs.addGenericArgumentValue(value, readString(in));
+		}
+		bd.setConstructorArgumentValues(cargs);
+
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		int pvCount = in.readInt();
+		for (int i = 0; i < pvCount; i++) {
+			String name = readString(in);
+			pvs.addPropertyValue(new PropertyValue(name, readValue(in)));
+		}
+		bd.setPropertyValues(pvs);
+
+		int overrideCount = in.readInt();
+		for (int i = 0; i < overrideCount; i++) {
+			String methodName = readString(in);
+			bd.getMethodOverrides().addOverride(new LookupOverride(methodName, readString(in)));
+		}
+		return bd;
+	}
+
+	private Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case TYPE_NULL:
+				return null;
+			case TYPE_STRING:
+				return readString(in);
+			case TYPE_BOOLEAN:
+				return (in.readBoolean() ? Boolean.TRUE : Boolean.FALSE);
+			case TYPE_INTEGER:
+				return new Integer(in.readInt());
+			case TYPE_TYPED_STRING:
+				String value = readString(in);
+				return new TypedStringValue(value, readString(in));
+			case TYPE_BEAN_REFERENCE:
+				String beanName = readString(in);
+				return new RuntimeBeanReference(beanName, in.readBoolean());
+			case TYPE_BEAN_NAME_REFERENCE:
+				return new RuntimeBeanNameReference(readString(in));
+			case TYPE_BEAN_DEFINITION_HOLDER:
+				String innerBeanName = readString(in);
+				String[] aliases = readStringArray(in);
+				return new BeanDefinitionHolder(readBeanDefinition(in), innerBeanName, aliases);
+			case TYPE_BEAN_DEFINITION:
+				return readBeanDefinition(in);
+			case TYPE_LIST:
+				ManagedList list = new ManagedList();
+				list.setMergeEnabled(in.readBoolean());
+				readCollection(in, list);
+				return list;
+			case TYPE_SET:
+				ManagedSet set = new ManagedSet();
+				set.setMergeEnabled(in.readBoolean());
+				readCollection(in, set);
+				return set;
+			case TYPE_MAP:
+				ManagedMap map = new ManagedMap();
+				map.setMergeEnabled(in.readBoolean());
+				readMap(in, map);
+				return map;
+			case TYPE_PROPERTIES:
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(in.readBoolean());
+				readMap(in, props);
+				return props;
+			default:
+				throw new IOException("Corrupt cache file: unknown value type " + type);
+		}
+	}
+
+	private void readCollection(DataInputStream in, Collection coll) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			coll.add(readValue(in));
+		}
+	}
+
+	private void readMap(DataInputStream in, Map map) throws IOException {
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			Object key = readValue(in);
+			map.put(key, readValue(in));
+		}
+	}
+
+	private String[] readStringArray(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] array = new String[length];
+		for (int i = 0; i < length; i++) {
+			array[i] = readString(in);
+		}
+		return array;
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+
+	/**
+	 * Exception thrown when encountering bean definition metadata
+	 * that cannot be stored in the cache.
+	 */
+	private static class UnsupportedMetadataException extends IOException {
+
+		public UnsupportedMetadataException(String msg) {
+			super("Unsupported bean definition metadata: " + msg);
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.io.Resource;
+
+/**
+ * BeanDefinitionRegistry decorator that records all registrations of bean
+ * definitions and aliases, along with the resources that they have been
+ * loaded from. Used by XmlBeanDefinitionReader to populate a BeanDefinitionCache.
+ *
+ * <p>Also records lookups of bean definitions that have not been registered
+ * through this registry, that is, that existed before or have been registered
+ * by other resources: Namespace handlers may modify such definitions in place
+ * (for example, escalating the auto-proxy creator), or generate bean names
+ * depending on them, neither of which can be replayed from the cache.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see BeanDefinitionCache
+ * @see XmlBeanDefinitionReader#setBeanDefinitionCache
+ */
+class RecordingBeanDefinitionRegistry implements BeanDefinitionRegistry {
+
+	private final BeanDefinitionRegistry targetRegistry;
+
+	private final List resources = new ArrayList();
+
+	private final List registrations = new ArrayList();
+
+	private final List locationPatterns = new ArrayList();
+
+	private final Set registeredBeanNames = new HashSet();
+
+	private final Set externalBeanNames = CollectionFactory.createLinkedSetIfPossible(4);
+
+	private boolean registryEnumerated = false;
+
+
+	/**
+	 * Create a new RecordingBeanDefinitionRegistry for the given target registry.
+	 * @param targetRegistry the registry to delegate to
+	 */
+	public RecordingBeanDefinitionRegistry(BeanDefinitionRegistry targetRegistry) {
+		this.targetRegistry = targetRegistry;
+	}
+
+
+	/**
+	 * Record that bean definitions are being loaded from the given resource.
+	 */
+	public void addResource(Resource resource) {
+		this.resources.add(resource);
+	}
+
+	/**
+	 * Return the resources that bean definitions have been loaded from,
+	 * in loading order.
+	 */
+	public List getResources() {
+		return this.resources;
+	}
+
+	/**
+	 * Record that bean definitions are being loaded from the given location pattern.
+	 */
+	public void addLocationPattern(String locationPattern) {
+		this.locationPatterns.add(locationPattern);
+	}
+
+	/**
+	 * Return the location patterns that bean definitions have been loaded from,
+	 * in loading order.
+	 */
+	public List getLocationPatterns() {
+		return this.locationPatterns;
+	}
+
+	/**
+	 * Return the names of bean definitions that have been looked up through
+	 * this registry but have not been registered through it, in lookup order.
+	 */
+	public Set getExternalBeanNames() {
+		return this.externalBeanNames;
+	}
+
+	/**
+	 * Return whether the names of all bean definitions in the target registry
+	 * have been retrieved through this registry.
+	 */
+	public boolean isRegistryEnumerated() {
+		return this.registryEnumerated;
+	}
+
+	/**
+	 * Return the recorded registrations, in registration order:
+	 * BeanDefinitionHolders for bean definitions (without aliases)
+	 * and AliasRegistrations for aliases.
+	 */
+	public List getRegistrations() {
+		return this.registrations;
+	}
+
+
+	public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition)
+			throws BeanDefinitionStoreException {
+
+		this.targetRegistry.registerBeanDefinition(beanName, beanDefinition);
+		this.registrations.add(new BeanDefinitionHolder(beanDefinition, beanName));
+		this.registeredBeanNames.add(beanName);
+	}
+
+	public BeanDefinition getBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+		recordLookup(beanName);
+		return this.targetRegistry.getBeanDefinition(beanName);
+	}
+
+	public boolean containsBeanDefinition(String beanName) {
+		recordLookup(beanName);
+		return this.targetRegistry.containsBeanDefinition(beanName);
+	}
+
+	public String[] getBeanDefinitionNames() {
+		this.registryEnumerated = true;
+		return this.targetRegistry.getBeanDefinitionNames();
+	}
+
+	public int getBeanDefinitionCount() {
+		return this.targetRegistry.getBeanDefinitionCount();
+	}
+
+	public void registerAlias(String beanName, String alias) throws BeanDefinitionStoreException {
+		this.targetRegistry.registerAlias(beanName, alias);
+		this.registrations.add(new AliasRegistration(beanName, alias));
+	}
+
+	public String[] getAliases(String beanName) {
+		recordLookup(beanName);
+		return this.targetRegistry.getAliases(beanName);
+	}
+
+	/**
+	 * Record a lookup of the given bean name, unless the bean definition
+	 * has been registered through this registry.
+	 */
+	private void recordLookup(String beanName) {
+		if (!this.registeredBeanNames.contains(beanName)) {
+			this.externalBeanNames.add(beanName);
+		}
+	}
+
+
+	/**
+	 * Recorded registration of an alias for a bean name.
+	 */
+	public static class AliasRegistration {
+
+		private final String beanName;
+
+		private final String alias;
+
+		public AliasRegistration(String beanName, String alias) {
+			this.beanName = beanName;
+			this.alias = alias;
+		}
+
+		public String getBeanName() {
+			return beanName;
+		}
+
+		public String getAlias() {
+			return alias;
+		}
+	}
+
+}
@@ -42,8 +42,11 @@ import org.springframework.core.Constants;
 import org.springframework.core.io.DescriptiveResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.PathMatcher;
 import org.springframework.util.xml.SimpleSaxErrorHandler;
 import org.springframework.util.xml.XmlValidationModeDetector;
 
@@ -153,6 +156,23 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	 */
 	private XmlValidationModeDetector validationModeDetector = new XmlValidationModeDetector();
 
+	/**
+	 * The {@link BeanDefinitionCache} to use for skipping the parsing of unchanged resources, if any.
+	 */
+	private BeanDefinitionCache beanDefinitionCache;
+
+	/**
+	 * Registry that records the registrations for the top-level resource being loaded
+	 * (if a {@link BeanDefinitionCache} is used).
+	 */
+	private RecordingBeanDefinitionRegistry recordingRegistry;
+
+	/**
+	 * PathMatcher for detecting location patterns among imported locations
+	 * (if a {@link BeanDefinitionCache} is used).
+	 */
+	private final PathMatcher locationPatternMatcher = new AntPathMatcher();
+
 
 	/**
 	 * Create new XmlBeanDefinitionReader for the given bean factory.
@@ -324,6 +344,34 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	}
 
 
+	/**
+	 * Specify a {@link BeanDefinitionCache} to use. Default is none.
+	 * <p>If specified, the bean definitions loaded from each top-level resource
+	 * (including all resources that it imports) will be stored in the cache,
+	 * and registered from the cache instead of parsing the XML file again
+	 * as long as none of those resources have changed.
+	 */
+	public void setBeanDefinitionCache(BeanDefinitionCache beanDefinitionCache) {
+		this.beanDefinitionCache = beanDefinitionCache;
+	}
+
+	/**
+	 * Return the {@link BeanDefinitionCache} to use, if any.
+	 */
+	public BeanDefinitionCache getBeanDefinitionCache() {
+		return beanDefinitionCache;
+	}
+
+	/**
+	 * Return the registry to register bean definitions with.
+	 * <p>While loading a resource with a {@link BeanDefinitionCache} in place,
+	 * returns a decorator that records all registrations for the cache.
+	 */
+	public BeanDefinitionRegistry getBeanFactory() {
+		return (this.recordingRegistry != null ? this.recordingRegistry : super.getBeanFactory());
+	}
+
+
 	/**
 	 * Load bean definitions from the specified XML file.
 	 * @param resource the resource descriptor for the XML file
@@ -343,6 +391,13 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	 */
 	public int loadBeanDefinitions(EncodedResource encodedResource) throws BeanDefinitionStoreException {
 		Assert.notNull(encodedResource, "EncodedResource must not be null");
+		if (this.beanDefinitionCache != null) {
+			if (this.recordingRegistry == null) {
+				return loadBeanDefinitionsWithCache(encodedResource);
+			}
+			// Part of a top-level resource (itself or an import): to be checked for changes in the cache.
+			this.recordingRegistry.addResource(encodedResource.getResource());
+		}
 		if (logger.isInfoEnabled()) {
 			logger.info("Loading XML bean definitions from " + encodedResource.getResource());
 		}
@@ -366,6 +421,47 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 	}
 
+	/**
+	 * This implementation records location patterns that are imported by a
+	 * top-level resource loaded with a {@link BeanDefinitionCache} in place:
+	 * The set of resources that match a pattern may change without any
+	 * of the loaded resources changing, so such a resource won't be cached.
+	 */
+	public int loadBeanDefinitions(String location) throws BeanDefinitionStoreException {
+		if (this.recordingRegistry != null && getResourceLoader() instanceof ResourcePatternResolver &&
+				(location.startsWith(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX) ||
+				this.locationPatternMatcher.isPattern(location))) {
+			this.recordingRegistry.addLocationPattern(location);
+		}
+		return super.loadBeanDefinitions(location);
+	}
+
+	/**
+	 * Load bean definitions for the given top-level resource from the
+	 * {@link BeanDefinitionCache}, if possible. Else, load them from the XML
+	 * file and all files that it imports, recording the registrations
+	 * and storing them in the cache.
+	 * @param encodedResource the resource descriptor for the XML file
+	 * @return the number of bean definitions found
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors
+	 */
+	private int loadBeanDefinitionsWithCache(EncodedResource encodedResource) throws BeanDefinitionStoreException {
+		int count = this.beanDefinitionCache.restoreBeanDefinitions(encodedResource, getBeanFactory());
+		if (count >= 0) {
+			return count;
+		}
+		RecordingBeanDefinitionRegistry recording = new RecordingBeanDefinitionRegistry(getBeanFactory());
+		this.recordingRegistry = recording;
+		try {
+			count = loadBeanDefinitions(encodedResource);
+		}
+		finally {
+			this.recordingRegistry = null;
+		}
+		this.beanDefinitionCache.storeBeanDefinitions(encodedResource, recording);
+		return count;
+	}
+
 	/**
 	 * Load bean definitions from the specified XML file.
 	 * @param inputSource the SAX InputSource to read from
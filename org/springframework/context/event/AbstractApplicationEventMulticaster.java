@@ -16,9 +16,15 @@
 
 package org.springframework.context.event;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.core.CollectionFactory;
 
@@ -45,6 +51,12 @@ import org.springframework.core.CollectionFactory;
  * listener multiple times). Those classes provide a thread-safe Iterator,
  * optimized for read-mostly usage - matching this use case nicely.
  *
+ * <p>The listeners that apply to a given event type can be determined through
+ * {@link #getApplicationListeners(ApplicationEvent)}, skipping
+ * {@link SmartApplicationListener SmartApplicationListeners} that do not
+ * support the event. The outcome is cached per event class and reset
+ * whenever listeners get added or removed.
+ *
  * <p>Implementing ApplicationEventMulticaster's actual <code>multicastEvent</code>
  * method is left to subclasses. SimpleApplicationEventMulticaster simply multicasts
  * all events to all registered listeners, invoking them in the calling thread.
@@ -61,6 +73,20 @@ public abstract class AbstractApplicationEventMulticaster implements Application
 	/** Collection of ApplicationListeners */
 	private Collection applicationListeners = CollectionFactory.createLinkedSetIfPossible(16);
 
+	/**
+	 * Cache of filtered ApplicationListener Lists, keyed by event class.
+	 * Replaced as a whole on listener modification, so that retrievals
+	 * in progress cannot populate the new cache with outdated results.
+	 */
+	private volatile Map listenerRetrievalCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/*
+	 * Number of listener retrievals that could not be served from the cache.
+	 * Only updated on a cache miss, keeping event dispatching free of shared writes.
+	 * Deliberately not synchronized: may occasionally miss an update.
+	 */
+	private volatile long listenerRetrievalMissCount = 0;
+
 
 	/**
 	 * Specify the collection class to use. Can be populated with a fully
@@ -91,19 +117,23 @@ public abstract class AbstractApplicationEventMulticaster implements Application
 		Collection newColl = (Collection) BeanUtils.instantiateClass(collectionClass);
 		newColl.addAll(this.applicationListeners);
 		this.applicationListeners = newColl;
+		resetListenerRetrievalCache();
 	}
 
 
 	public void addApplicationListener(ApplicationListener listener) {
 		this.applicationListeners.add(listener);
+		resetListenerRetrievalCache();
 	}
 
 	public void removeApplicationListener(ApplicationListener listener) {
 		this.applicationListeners.remove(listener);
+		resetListenerRetrievalCache();
 	}
 
 	public void removeAllListeners() {
 		this.applicationListeners.clear();
+		resetListenerRetrievalCache();
 	}
 
 	/**
@@ -118,4 +148,85 @@ public abstract class AbstractApplicationEventMulticaster implements Application
 		return applicationListeners;
 	}
 
+	/**
+	 * Return the ApplicationListeners that apply to the given event,
+	 * in registration order. Listeners that do not implement
+	 * SmartApplicationListener are always included.
+	 * <p>The outcome is cached per event class, as long as the event class
+	 * is cache-safe, i.e. loaded by the same class loader as this
+	 * multicaster or a parent of it.
+	 * @param event the event to be propagated
+	 * @return an unmodifiable List of ApplicationListeners
+	 * @see SmartApplicationListener#supportsEventType
+	 */
+	protected List getApplicationListeners(ApplicationEvent event) {
+		Class eventType = event.getClass();
+		Map cache = this.listenerRetrievalCache;
+		List listeners = (List) cache.get(eventType);
+		if (listeners == null) {
+			this.listenerRetrievalMissCount++;
+			listeners = retrieveApplicationListeners(eventType);
+			if (isCacheSafe(eventType)) {
+				cache.put(eventType, listeners);
+			}
+		}
+		return listeners;
+	}
+
+	/**
+	 * Return the number of listener retrievals that could not be served from
+	 * the cache: the first retrieval per event class after listeners have been
+	 * registered or removed, plus every retrieval for event classes that are
+	 * not cache-safe.
+	 * <p>Statistics are approximate, as they are not updated under a lock.
+	 * @see #getApplicationListeners(ApplicationEvent)
+	 */
+	public long getListenerRetrievalMissCount() {
+		return this.listenerRetrievalMissCount;
+	}
+
+	/**
+	 * Actually determine the ApplicationListeners for the given event type.
+	 * @param eventType the event class
+	 * @return an unmodifiable List of ApplicationListeners
+	 */
+	private List retrieveApplicationListeners(Class eventType) {
+		List listeners = new ArrayList(this.applicationListeners.size());
+		for (Iterator it = this.applicationListeners.iterator(); it.hasNext();) {
+			ApplicationListener listener = (ApplicationListener) it.next();
+			if (!(listener instanceof SmartApplicationListener) ||
+					((SmartApplicationListener) listener).supportsEventType(eventType)) {
+				listeners.add(listener);
+			}
+		}
+		return Collections.unmodifiableList(listeners);
+	}
+
+	/**
+	 * Check whether the given event class is loaded by the same class loader
+	 * as this multicaster or a parent of it, so that it may be held strongly.
+	 */
+	private boolean isCacheSafe(Class eventType) {
+		ClassLoader target = eventType.getClassLoader();
+		ClassLoader cur = getClass().getClassLoader();
+		if (target == null || cur == target) {
+			return true;
+		}
+		while (cur != null) {
+			cur = cur.getParent();
+			if (cur == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Discard all cached listener retrieval results,
+	 * to be called after any modification of the registered listeners.
+	 */
+	private void resetListenerRetrievalCache() {
+		this.listenerRetrievalCache = CollectionFactory.createConcurrentMapIfPossible(16);
+	}
+
 }
@@ -0,0 +1,739 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.Constants;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Asynchronous implementation of the ApplicationEventMulticaster interface,
+ * decoupling event publishers from listener execution through a bounded
+ * ring buffer of events.
+ *
+ * <p>A dedicated dispatcher thread drains the buffer in batches: A batch gets
+ * dispatched as soon as the {@link #setBatchSize "batchSize"} has been reached,
+ * or once the oldest buffered event has waited for the {@link #setLingerTime
+ * "lingerTime"}. Each batch is split up per listener, with each listener
+ * receiving all of its events from the batch in a single task, handed to the
+ * configured {@link #setTaskExecutor TaskExecutor}. This avoids handing every
+ * single listener invocation to a thread pool separately. All buffered events
+ * are delivered through the dispatcher thread, including on {@link #flush()}:
+ * With the default SyncTaskExecutor, each listener receives the buffered
+ * events in publication order, but not necessarily in an interleaved fashion
+ * with other listeners. With an asynchronous TaskExecutor, consecutive batches
+ * for the same listener may be processed concurrently.
+ *
+ * <p>If the buffer is full, the {@link #setOverflowPolicy "overflowPolicy"}
+ * determines whether the publisher blocks until space becomes available,
+ * whether the oldest buffered event gets dropped, or whether the publisher
+ * invokes the listeners itself. A listener that publishes an event from the
+ * dispatcher thread never blocks, since that would wait for itself: it invokes
+ * the listeners itself instead. Note that events delivered in the publisher's
+ * thread bypass the buffer, so they may reach listeners before events that
+ * have been buffered earlier. A task rejected by the TaskExecutor will be
+ * executed in the dispatcher thread. Exceptions thrown by listeners will be
+ * logged on all of those paths, never propagating to the publisher.
+ *
+ * <p>If the dispatcher thread gets interrupted, it stops after its current
+ * batch, keeping the remaining events buffered; it will be restarted on the
+ * next publication or flush.
+ *
+ * <p>On a ContextClosedEvent, all buffered events will be delivered before the
+ * ContextClosedEvent itself, and all listener tasks already handed to the
+ * TaskExecutor will be awaited, so that no events get lost on shutdown.
+ * Events published after this multicaster has been destroyed will be
+ * delivered synchronously in the calling thread.
+ *
+ * <p>To be defined as "applicationEventMulticaster" bean in an application
+ * context, replacing the default SimpleApplicationEventMulticaster.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see #setCapacity
+ * @see #setBatchSize
+ * @see #setLingerTime
+ * @see #setOverflowPolicy
+ * @see #flush()
+ * @see SimpleApplicationEventMulticaster
+ * @see org.springframework.context.support.AbstractApplicationContext#APPLICATION_EVENT_MULTICASTER_BEAN_NAME
+ */
+public class BatchingApplicationEventMulticaster extends AbstractApplicationEventMulticaster
+		implements InitializingBean, DisposableBean {
+
+	/**
+	 * Block the publisher until the dispatcher thread has made room in the buffer.
+	 * This is the default.
+	 */
+	public static final int OVERFLOW_BLOCK = 0;
+
+	/**
+	 * Drop the oldest buffered event to make room for the new event.
+	 */
+	public static final int OVERFLOW_DROP_OLDEST = 1;
+
+	/**
+	 * Invoke the listeners for the new event in the publisher's thread.
+	 */
+	public static final int OVERFLOW_CALLER_RUNS = 2;
+
+	/** Default capacity of the event buffer: 1024 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** Default maximum number of events per batch: 64 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/** Default time that buffered events wait for a batch to fill up: 10 ms */
+	public static final long DEFAULT_LINGER_TIME = 10;
+
+	/** Prefix for the overflow policy constants defined in this class */
+	private static final String PREFIX_OVERFLOW = "OVERFLOW_";
+
+
+	/** Constants instance for this class */
+	private static final Constants constants = new Constants(BatchingApplicationEventMulticaster.class);
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private long lingerTime = DEFAULT_LINGER_TIME;
+
+	private int overflowPolicy = OVERFLOW_BLOCK;
+
+	private TaskExecutor taskExecutor = new SyncTaskExecutor();
+
+	/** Monitor guarding the event buffer and dispatcher state */
+	private final Object monitor = new Object();
+
+	private ApplicationEvent[] buffer;
+
+	private int head = 0;
+
+	private int count = 0;
+
+	private long firstEventTime;
+
+	/** Number of events taken from the buffer so far: dispatched or dropped */
+	private long removedEventCount = 0;
+
+	/** Sequence number of the most recently started batch */
+	private long batchSequence = 0;
+
+	/** Sequence numbers (as Long) of the batches that are still in progress */
+	private final SortedSet batchesInProgress = new TreeSet();
+
+	private boolean flushRequested = false;
+
+	private boolean destroyed = false;
+
+	/** The dispatcher thread, or <code>null</code> if not running */
+	private Thread dispatcherThread;
+
+	/** Marks threads that are currently delivering events to a listener */
+	private final ThreadLocal delivering = new ThreadLocal();
+
+	/*
+	 * Publication statistics. Updated with the monitor held,
+	 * volatile for reading them without the monitor.
+	 */
+	private volatile long publishedEventCount = 0;
+
+	private volatile long droppedEventCount = 0;
+
+	private volatile long callerRunsCount = 0;
+
+	private volatile long batchCount = 0;
+
+
+	/**
+	 * Set the maximum number of events to buffer. Default is 1024.
+	 * <p>Needs to be specified before this multicaster gets initialized.
+	 */
+	public void setCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Return the maximum number of events to buffer.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Set the maximum number of events to dispatch in a single batch.
+	 * Default is 64.
+	 * <p>A batch will be dispatched as soon as this number of events
+	 * has been buffered, without waiting for the linger time.
+	 * @see #setLingerTime
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Return the maximum number of events to dispatch in a single batch.
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the time (in milliseconds) that buffered events will wait for further
+	 * events to fill up their batch. Default is 10 ms.
+	 * <p>A linger time of 0 dispatches whatever has been buffered right away,
+	 * only batching events that accumulate while the previous batch is dispatched.
+	 * @see #setBatchSize
+	 */
+	public void setLingerTime(long lingerTime) {
+		Assert.isTrue(lingerTime >= 0, "Linger time must not be negative");
+		this.lingerTime = lingerTime;
+	}
+
+	/**
+	 * Return the time (in milliseconds) that buffered events will wait
+	 * for further events to fill up their batch.
+	 */
+	public long getLingerTime() {
+		return this.lingerTime;
+	}
+
+	/**
+	 * Set the overflow policy by the name of the corresponding constant
+	 * in this class, e.g. "OVERFLOW_DROP_OLDEST".
+	 * @param constantName name of the constant
+	 * @exception IllegalArgumentException if the supplied value is not resolvable
+	 * to one of the <code>OVERFLOW_</code> constants or is <code>null</code>
+	 * @see #setOverflowPolicy
+	 */
+	public void setOverflowPolicyName(String constantName) throws IllegalArgumentException {
+		if (constantName == null || !constantName.startsWith(PREFIX_OVERFLOW)) {
+			throw new IllegalArgumentException("Only overflow policy constants allowed");
+		}
+		setOverflowPolicy(constants.asNumber(constantName).intValue());
+	}
+
+	/**
+	 * Set the policy to apply when the event buffer is full.
+	 * Default is OVERFLOW_BLOCK.
+	 * @exception IllegalArgumentException if the supplied value is not
+	 * one of the <code>OVERFLOW_</code> constants
+	 * @see #OVERFLOW_BLOCK
+	 * @see #OVERFLOW_DROP_OLDEST
+	 * @see #OVERFLOW_CALLER_RUNS
+	 */
+	public void setOverflowPolicy(int overflowPolicy) {
+		if (!constants.getValues(PREFIX_OVERFLOW).contains(new Integer(overflowPolicy))) {
+			throw new IllegalArgumentException("Only values of overflow policy constants allowed");
+		}
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Return the policy to apply when the event buffer is full.
+	 */
+	public int getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	/**
+	 * Set the TaskExecutor to execute the per-listener batches with.
+	 * <p>Default is a SyncTaskExecutor, executing all listeners in the
+	 * dispatcher thread, one after the other.
+	 * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = (taskExecutor != null ? taskExecutor : new SyncTaskExecutor());
+	}
+
+	/**
+	 * Return the current TaskExecutor for this multicaster.
+	 */
+	protected TaskExecutor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+
+	/**
+	 * Start the dispatcher thread.
+	 */
+	public void afterPropertiesSet() {
+		synchronized (this.monitor) {
+			startIfNecessary();
+		}
+	}
+
+	/**
+	 * Start the dispatcher thread, unless already running or destroyed.
+	 * Keeps any events that are still buffered from a previous dispatcher
+	 * thread that has been interrupted. To be called with the monitor held.
+	 */
+	private void startIfNecessary() {
+		if (this.dispatcherThread == null && !this.destroyed) {
+			if (this.buffer == null) {
+				this.buffer = new ApplicationEvent[this.capacity];
+			}
+			this.dispatcherThread = new Thread(new Dispatcher(), ClassUtils.getShortName(getClass()) + "-dispatcher");
+			this.dispatcherThread.setDaemon(true);
+			this.dispatcherThread.start();
+		}
+	}
+
+	/**
+	 * Return whether new events may be buffered.
+	 * To be called with the monitor held.
+	 */
+	private boolean isAccepting() {
+		return (this.dispatcherThread != null && !this.destroyed);
+	}
+
+
+	public void multicastEvent(ApplicationEvent event) {
+		if (event instanceof ContextClosedEvent) {
+			flush();
+			invokeListeners(event);
+			return;
+		}
+
+		boolean runInCaller = false;
+		synchronized (this.monitor) {
+			startIfNecessary();
+			if (this.overflowPolicy == OVERFLOW_BLOCK) {
+				// Never block the dispatcher thread: it would wait for itself to make room.
+				while (isAccepting() && this.count == this.buffer.length &&
+						Thread.currentThread() != this.dispatcherThread) {
+					try {
+						this.monitor.wait();
+					}
+					catch (InterruptedException ex) {
+						// Re-interrupt current thread, to allow other threads to react.
+						Thread.currentThread().interrupt();
+						break;
+					}
+					// Restart the dispatcher thread if it has been interrupted meanwhile.
+					startIfNecessary();
+				}
+			}
+			if (!isAccepting() || this.count == this.buffer.length) {
+				runInCaller = true;
+				if (isAccepting() && this.overflowPolicy == OVERFLOW_DROP_OLDEST) {
+					this.buffer[this.head] = null;
+					this.head = (this.head + 1) % this.buffer.length;
+					this.count--;
+					this.removedEventCount++;
+					this.droppedEventCount++;
+					runInCaller = false;
+				}
+			}
+			if (!runInCaller) {
+				if (this.count == 0) {
+					this.firstEventTime = System.currentTimeMillis();
+				}
+				this.buffer[(this.head + this.count) % this.buffer.length] = event;
+				this.count++;
+				if (this.count == 1 || this.count == this.batchSize) {
+					this.monitor.notifyAll();
+				}
+			}
+			else if (!this.destroyed) {
+				this.callerRunsCount++;
+			}
+			this.publishedEventCount++;
+		}
+
+		if (runInCaller) {
+			invokeListeners(event);
+		}
+	}
+
+	/**
+	 * Have the dispatcher thread deliver all currently buffered events right
+	 * away, and wait for their delivery to be completed, that is, for all
+	 * listener tasks of the corresponding batches to have finished.
+	 * <p>When called from a thread that is delivering events to a listener,
+	 * this method just triggers the delivery of the buffered events and
+	 * returns immediately, since the current listener task is part of one
+	 * of the batches in progress.
+	 * <p>If the dispatcher thread is not running anymore after destruction,
+	 * any remaining events will be delivered in the calling thread.
+	 * <p>Called automatically on ContextClosedEvent and on destruction.
+	 */
+	public void flush() {
+		ApplicationEvent[] events = null;
+		BatchTracker tracker = null;
+		synchronized (this.monitor) {
+			if (Thread.currentThread() == this.dispatcherThread || this.delivering.get() != null) {
+				// Cannot wait for the dispatcher thread from within event delivery.
+				if (this.count > 0) {
+					this.flushRequested = true;
+					this.monitor.notifyAll();
+				}
+				return;
+			}
+			long flushedEventCount = this.removedEventCount + this.count;
+			try {
+				while (this.removedEventCount < flushedEventCount) {
+					// Restart the dispatcher thread if it has been interrupted meanwhile.
+					startIfNecessary();
+					if (this.dispatcherThread == null) {
+						break;
+					}
+					this.flushRequested = true;
+					this.monitor.notifyAll();
+					this.monitor.wait();
+				}
+				// All batches up to this one contain events published before.
+				Long lastBatch = new Long(this.batchSequence);
+				while (!this.batchesInProgress.isEmpty() &&
+						((Long) this.batchesInProgress.first()).compareTo(lastBatch) <= 0) {
+					this.monitor.wait();
+				}
+			}
+			catch (InterruptedException ex) {
+				// Re-interrupt current thread, to allow other threads to react.
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (this.dispatcherThread == null && this.removedEventCount < flushedEventCount) {
+				// Dispatcher thread stopped after destruction: deliver remaining events here.
+				events = drainEvents((int) (flushedEventCount - this.removedEventCount));
+				tracker = startBatch();
+			}
+		}
+		if (events != null) {
+			dispatchBatch(events, false, tracker);
+		}
+	}
+
+	/**
+	 * Deliver all remaining events and stop the dispatcher thread.
+	 */
+	public void destroy() {
+		synchronized (this.monitor) {
+			this.destroyed = true;
+			this.monitor.notifyAll();
+		}
+		flush();
+	}
+
+
+	/**
+	 * Take the given number of events from the buffer.
+	 * To be called with the monitor held.
+	 */
+	private ApplicationEvent[] drainEvents(int number) {
+		ApplicationEvent[] events = new ApplicationEvent[number];
+		for (int i = 0; i < number; i++) {
+			events[i] = this.buffer[this.head];
+			this.buffer[this.head] = null;
+			this.head = (this.head + 1) % this.buffer.length;
+		}
+		this.count -= number;
+		this.removedEventCount += number;
+		// Wake up publishers waiting for space in the buffer, and flushing threads.
+		this.monitor.notifyAll();
+		return events;
+	}
+
+	/**
+	 * Start a new batch, counting it as in progress.
+	 * To be called with the monitor held.
+	 * @return the tracker for the new batch
+	 */
+	private BatchTracker startBatch() {
+		this.batchSequence++;
+		this.batchCount++;
+		Long sequence = new Long(this.batchSequence);
+		this.batchesInProgress.add(sequence);
+		return new BatchTracker(sequence);
+	}
+
+	/**
+	 * Dispatch the given batch of events, grouped per listener.
+	 * <p>The batch will be counted as completed once all of its listener
+	 * tasks have finished, which may be after this method returns.
+	 * @param events the events to dispatch
+	 * @param useExecutor whether to hand the per-listener batches to the
+	 * TaskExecutor (<code>true</code>) or to invoke them in the calling thread
+	 * @param tracker the tracker for the batch, as obtained from {@link #startBatch()}
+	 */
+	private void dispatchBatch(ApplicationEvent[] events, boolean useExecutor, BatchTracker tracker) {
+		try {
+			doDispatchBatch(events, useExecutor, tracker);
+		}
+		finally {
+			tracker.taskCompleted();
+		}
+	}
+
+	private void doDispatchBatch(ApplicationEvent[] events, boolean useExecutor, BatchTracker tracker) {
+		Map eventsPerListener = CollectionFactory.createLinkedMapIfPossible(16);
+		for (int i = 0; i < events.length; i++) {
+			List listeners = getApplicationListeners(events[i]);
+			for (int j = 0; j < listeners.size(); j++) {
+				Object listener = listeners.get(j);
+				List listenerEvents = (List) eventsPerListener.get(listener);
+				if (listenerEvents == null) {
+					listenerEvents = new ArrayList();
+					eventsPerListener.put(listener, listenerEvents);
+				}
+				listenerEvents.add(events[i]);
+			}
+		}
+		TaskExecutor executor = getTaskExecutor();
+		for (Iterator it = eventsPerListener.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			Runnable task = new ListenerBatchInvoker(
+					(ApplicationListener) entry.getKey(), (List) entry.getValue(), tracker);
+			tracker.taskStarted();
+			if (!useExecutor || executor.getClass() == SyncTaskExecutor.class) {
+				task.run();
+			}
+			else {
+				try {
+					executor.execute(task);
+				}
+				catch (TaskRejectedException ex) {
+					logger.debug("Listener batch rejected by TaskExecutor - executing in dispatcher thread", ex);
+					task.run();
+				}
+				catch (RuntimeException ex) {
+					// Task not handed over: will never complete by itself.
+					tracker.taskCompleted();
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invoke all listeners for the given event in the calling thread.
+	 */
+	private void invokeListeners(ApplicationEvent event) {
+		List listeners = getApplicationListeners(event);
+		for (int i = 0; i < listeners.size(); i++) {
+			invokeListener((ApplicationListener) listeners.get(i), event);
+		}
+	}
+
+	/**
+	 * Invoke the given listener for the given event. An exception thrown
+	 * by the listener will be logged, without affecting the delivery
+	 * of the event to other listeners or of other events.
+	 */
+	private void invokeListener(ApplicationListener listener, ApplicationEvent event) {
+		try {
+			listener.onApplicationEvent(event);
+		}
+		catch (Throwable ex) {
+			logger.error("ApplicationListener [" + listener + "] failed to process event [" + event + "]", ex);
+		}
+	}
+
+
+	/**
+	 * Return the total number of events published to this multicaster.
+	 */
+	public long getPublishedEventCount() {
+		return this.publishedEventCount;
+	}
+
+	/**
+	 * Return the number of events dropped because of a full buffer.
+	 * @see #OVERFLOW_DROP_OLDEST
+	 */
+	public long getDroppedEventCount() {
+		return this.droppedEventCount;
+	}
+
+	/**
+	 * Return the number of events delivered in the publisher's thread
+	 * because of a full buffer.
+	 * @see #OVERFLOW_CALLER_RUNS
+	 */
+	public long getCallerRunsCount() {
+		return this.callerRunsCount;
+	}
+
+	/**
+	 * Return the number of batches dispatched so far.
+	 */
+	public long getBatchCount() {
+		return this.batchCount;
+	}
+
+	/**
+	 * Return the number of events currently waiting in the buffer.
+	 */
+	public int getBufferedEventCount() {
+		synchronized (this.monitor) {
+			return this.count;
+		}
+	}
+
+
+	/**
+	 * Dispatcher loop, waiting for a batch to fill up or to linger long
+	 * enough (unless a flush has been requested), until this multicaster
+	 * gets destroyed and all buffered events have been dispatched.
+	 */
+	private class Dispatcher implements Runnable {
+
+		public void run() {
+			try {
+				while (true) {
+					ApplicationEvent[] events = null;
+					BatchTracker tracker = null;
+					synchronized (monitor) {
+						while (!destroyed && !flushRequested && count < batchSize) {
+							long waitTime = 0;
+							if (count > 0) {
+								waitTime = firstEventTime + lingerTime - System.currentTimeMillis();
+								if (waitTime <= 0) {
+									break;
+								}
+							}
+							monitor.wait(waitTime);
+						}
+						if (count == 0) {
+							flushRequested = false;
+							if (destroyed) {
+								return;
+							}
+							continue;
+						}
+						events = drainEvents(Math.min(count, batchSize));
+						tracker = startBatch();
+					}
+					try {
+						dispatchBatch(events, true, tracker);
+					}
+					catch (Throwable ex) {
+						logger.error("Failed to dispatch batch of application events", ex);
+					}
+				}
+			}
+			catch (InterruptedException ex) {
+				// Stop dispatching: remaining events stay buffered until restarted.
+				logger.debug("Event dispatcher thread interrupted - stopping");
+			}
+			finally {
+				synchronized (monitor) {
+					if (dispatcherThread == Thread.currentThread()) {
+						dispatcherThread = null;
+					}
+					// Wake up publishers and flushing threads, to restart the dispatcher if necessary.
+					monitor.notifyAll();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Tracks the listener tasks of a single batch, counting the batch as
+	 * completed once all of them have finished. Starts with one pending task
+	 * for the dispatching of the batch itself, so that the batch cannot be
+	 * completed before all of its tasks have been handed out.
+	 */
+	private class BatchTracker {
+
+		private final Long sequence;
+
+		/** Guarded by the multicaster's monitor */
+		private int pendingTasks = 1;
+
+		public BatchTracker(Long sequence) {
+			this.sequence = sequence;
+		}
+
+		public void taskStarted() {
+			synchronized (monitor) {
+				this.pendingTasks++;
+			}
+		}
+
+		public void taskCompleted() {
+			synchronized (monitor) {
+				this.pendingTasks--;
+				if (this.pendingTasks == 0) {
+					batchesInProgress.remove(this.sequence);
+					monitor.notifyAll();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Runnable that delivers a batch of events to a single listener.
+	 * An exception thrown by the listener will be logged, without
+	 * affecting the delivery of the remaining events.
+	 */
+	private class ListenerBatchInvoker implements Runnable {
+
+		private final ApplicationListener listener;
+
+		private final List events;
+
+		private final BatchTracker tracker;
+
+		public ListenerBatchInvoker(ApplicationListener listener, List events, BatchTracker tracker) {
+			this.listener = listener;
+			this.events = events;
+			this.tracker = tracker;
+		}
+
+		public void run() {
+			Object wasDelivering = delivering.get();
+			delivering.set(Boolean.TRUE);
+			try {
+				for (int i = 0; i < this.events.size(); i++) {
+					invokeListener(this.listener, (ApplicationEvent) this.events.get(i));
+				}
+			}
+			finally {
+				delivering.set(wasDelivering);
+				this.tracker.taskCompleted();
+			}
+		}
+	}
+
+}
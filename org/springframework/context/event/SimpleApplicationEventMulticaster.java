@@ -16,7 +16,7 @@
 
 package org.springframework.context.event;
 
-import java.util.Iterator;
+import java.util.List;
 
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
@@ -36,6 +36,17 @@ import org.springframework.core.task.TaskExecutor;
  * but adds minimal overhead. Specify an alternative TaskExecutor to have
  * listeners executed in different threads, for example from a thread pool.
  *
+ * <p>Listeners implementing {@link SmartApplicationListener} will only receive
+ * the event types that they declare support for. With the default
+ * SyncTaskExecutor (exactly that class, not a subclass), listeners are
+ * invoked directly, without wrapping each invocation in a Runnable.
+ *
+ * <p>Can optionally keep dispatch statistics, exposed as bean properties for
+ * monitoring purposes (for example through a JMX exporter): the number of
+ * multicast events and listener invocations, as well as the time spent
+ * dispatching. Note that for an asynchronous TaskExecutor, the dispatch time
+ * only covers handing the invocations over to the executor.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @see #setTaskExecutor
@@ -44,6 +55,19 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 
 	private TaskExecutor taskExecutor = new SyncTaskExecutor();
 
+	private volatile boolean trackDispatchStatistics = false;
+
+	/** Monitor guarding the dispatch statistics */
+	private final Object statisticsMonitor = new Object();
+
+	private long eventCount = 0;
+
+	private long listenerInvocationCount = 0;
+
+	private long totalDispatchTimeMillis = 0;
+
+	private long maxDispatchTimeMillis = 0;
+
 
 	/**
 	 * Set the TaskExecutor to execute application listeners with.
@@ -68,15 +92,133 @@ public class SimpleApplicationEventMulticaster extends AbstractApplicationEventM
 		return taskExecutor;
 	}
 
+	/**
+	 * Set whether to keep dispatch statistics: the number of multicast events
+	 * and listener invocations, as well as the time spent dispatching.
+	 * <p>Default is "false", not adding any overhead to event dispatching.
+	 * Switch this to "true" to measure the dispatch latency, at the expense
+	 * of taking the current time and acquiring a lock for every event.
+	 * @see #getEventCount()
+	 * @see #getAverageDispatchTimeMillis()
+	 * @see #getMaxDispatchTimeMillis()
+	 */
+	public void setTrackDispatchStatistics(boolean trackDispatchStatistics) {
+		this.trackDispatchStatistics = trackDispatchStatistics;
+	}
+
+	/**
+	 * Return whether to keep dispatch statistics.
+	 */
+	public boolean isTrackDispatchStatistics() {
+		return this.trackDispatchStatistics;
+	}
+
+
+	public void multicastEvent(ApplicationEvent event) {
+		if (!this.trackDispatchStatistics) {
+			invokeListeners(event);
+			return;
+		}
+		long startTime = System.currentTimeMillis();
+		int invocationCount = invokeListeners(event);
+		long dispatchTime = System.currentTimeMillis() - startTime;
+		synchronized (this.statisticsMonitor) {
+			this.eventCount++;
+			this.listenerInvocationCount += invocationCount;
+			this.totalDispatchTimeMillis += dispatchTime;
+			if (dispatchTime > this.maxDispatchTimeMillis) {
+				this.maxDispatchTimeMillis = dispatchTime;
+			}
+		}
+	}
+
+	/**
+	 * Invoke all listeners for the given event, through the TaskExecutor.
+	 * @param event the event to multicast
+	 * @return the number of listeners invoked (or handed to the TaskExecutor)
+	 */
+	private int invokeListeners(final ApplicationEvent event) {
+		List listeners = getApplicationListeners(event);
+		TaskExecutor executor = getTaskExecutor();
+		if (executor.getClass() == SyncTaskExecutor.class) {
+			// Plain SyncTaskExecutor: no need to go through the executor.
+			for (int i = 0; i < listeners.size(); i++) {
+				ApplicationListener listener = (ApplicationListener) listeners.get(i);
+				listener.onApplicationEvent(event);
+			}
+		}
+		else {
+			for (int i = 0; i < listeners.size(); i++) {
+				final ApplicationListener listener = (ApplicationListener) listeners.get(i);
+				executor.execute(new Runnable() {
+					public void run() {
+						listener.onApplicationEvent(event);
+					}
+				});
+			}
+		}
+		return listeners.size();
+	}
+
 
-	public void multicastEvent(final ApplicationEvent event) {
-		for (Iterator it = getApplicationListeners().iterator(); it.hasNext();) {
-			final ApplicationListener listener = (ApplicationListener) it.next();
-			getTaskExecutor().execute(new Runnable() {
-				public void run() {
-					listener.onApplicationEvent(event);
-				}
-			});
+	/**
+	 * Return the number of events multicast so far,
+	 * while tracking dispatch statistics.
+	 * @see #setTrackDispatchStatistics
+	 */
+	public long getEventCount() {
+		synchronized (this.statisticsMonitor) {
+			return this.eventCount;
+		}
+	}
+
+	/**
+	 * Return the number of listener invocations triggered so far,
+	 * while tracking dispatch statistics. Does not count listeners
+	 * that did not support the event type.
+	 */
+	public long getListenerInvocationCount() {
+		synchronized (this.statisticsMonitor) {
+			return this.listenerInvocationCount;
+		}
+	}
+
+	/**
+	 * Return the total time spent dispatching events, in milliseconds.
+	 */
+	public long getTotalDispatchTimeMillis() {
+		synchronized (this.statisticsMonitor) {
+			return this.totalDispatchTimeMillis;
+		}
+	}
+
+	/**
+	 * Return the average time spent dispatching a single event, in milliseconds.
+	 */
+	public double getAverageDispatchTimeMillis() {
+		synchronized (this.statisticsMonitor) {
+			return (this.eventCount > 0 ? (double) this.totalDispatchTimeMillis / this.eventCount : 0.0);
+		}
+	}
+
+	/**
+	 * Return the longest time spent dispatching a single event, in milliseconds.
+	 */
+	public long getMaxDispatchTimeMillis() {
+		synchronized (this.statisticsMonitor) {
+			return this.maxDispatchTimeMillis;
+		}
+	}
+
+	/**
+	 * Reset the dispatch statistics of this multicaster.
+	 */
+	public void resetStatistics() {
+		synchronized (this.statisticsMonitor) {
+			this.eventCount = 0;
+			this.listenerInvocationCount = 0;
+			this.totalDispatchTimeMillis = 0;
+			this.maxDispatchTimeMillis = 0;
 		}
 	}
 
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Extended variant of the standard ApplicationListener interface,
+ * declaring the types of events that the listener is interested in.
+ *
+ * <p>Allows an ApplicationEventMulticaster to skip the listener for
+ * all other events, instead of invoking it and leaving it up to the
+ * listener to perform the corresponding <code>instanceof</code> checks.
+ * The outcome of {@link #supportsEventType} is cached per event class,
+ * so it needs to be stable for any given event type.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see AbstractApplicationEventMulticaster#getApplicationListeners(org.springframework.context.ApplicationEvent)
+ */
+public interface SmartApplicationListener extends ApplicationListener {
+
+	/**
+	 * Determine whether this listener actually supports the given event type.
+	 * @param eventType the event class (a subclass of ApplicationEvent)
+	 * @return whether events of the given type should be delivered to this listener
+	 */
+	boolean supportsEventType(Class eventType);
+
+}
@@ -37,6 +37,9 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.StartupRecorder;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.support.ResourceEditorRegistrar;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -164,6 +167,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** Helper class used in event publishing */
 	private ApplicationEventMulticaster applicationEventMulticaster;
 
+	/** StartupRecorder to notify of refresh steps, if any */
+	private StartupRecorder startupRecorder;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -225,6 +231,30 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		return startupTime;
 	}
 
+	/**
+	 * Set a StartupRecorder to notify of the phases of a context refresh
+	 * (loading bean definitions, invoking BeanFactoryPostProcessors, registering
+	 * BeanPostProcessors, pre-instantiating singletons). Default is none.
+	 * <p>The StartupRecorder will also be passed on to the internal bean factory,
+	 * to be notified of the creation and initialization of each bean.
+	 * <p>The StartupRecorder only applies to the next refresh: It will be detached
+	 * from this context and its bean factory once the refresh has finished,
+	 * to not record (and hold on to) any steps at runtime, such as the creation
+	 * of lazy-init beans or prototypes.
+	 * @see org.springframework.beans.factory.support.TimelineStartupRecorder
+	 * @see org.springframework.beans.factory.support.AbstractBeanFactory#setStartupRecorder
+	 */
+	public void setStartupRecorder(StartupRecorder startupRecorder) {
+		this.startupRecorder = startupRecorder;
+	}
+
+	/**
+	 * Return the StartupRecorder to notify of refresh steps, if any.
+	 */
+	public StartupRecorder getStartupRecorder() {
+		return startupRecorder;
+	}
+
 	/**
 	 * Publish the given event to all listeners.
 	 * <p>Note: Listeners get initialized after the MessageSource, to be able
@@ -283,80 +313,136 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
 			this.startupTime = System.currentTimeMillis();
+			Object refreshStep = (this.startupRecorder != null ?
+					this.startupRecorder.startStep(StartupRecorder.CONTEXT_REFRESH, getDisplayName()) : null);
+			AbstractBeanFactory recordingBeanFactory = null;
 
-			synchronized (this.activeMonitor) {
-				this.active = true;
-			}
+			try {
+				synchronized (this.activeMonitor) {
+					this.active = true;
+				}
 
-			// Tell subclass to refresh the internal bean factory.
-			refreshBeanFactory();
-			ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+				// Tell subclass to refresh the internal bean factory.
+				Object step = startStep(StartupRecorder.LOAD_BEAN_DEFINITIONS);
+				refreshBeanFactory();
+				endStep(step);
+				ConfigurableListableBeanFactory beanFactory = getBeanFactory();
 
-			// Tell the internal bean factory to use the context's class loader.
-			beanFactory.setBeanClassLoader(getClassLoader());
+				// Tell the internal bean factory to use the context's class loader.
+				beanFactory.setBeanClassLoader(getClassLoader());
 
-			// Populate the bean factory with context-specific resource editors.
-			beanFactory.addPropertyEditorRegistrar(new ResourceEditorRegistrar(this));
+				// Pass the context's StartupRecorder on to the internal bean factory.
+				if (this.startupRecorder != null && beanFactory instanceof AbstractBeanFactory) {
+					recordingBeanFactory = (AbstractBeanFactory) beanFactory;
+					recordingBeanFactory.setStartupRecorder(this.startupRecorder);
+				}
 
-			// Configure the bean factory with context semantics.
-			beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
-			beanFactory.ignoreDependencyInterface(ResourceLoaderAware.class);
-			beanFactory.ignoreDependencyInterface(ApplicationEventPublisherAware.class);
-			beanFactory.ignoreDependencyInterface(MessageSourceAware.class);
-			beanFactory.ignoreDependencyInterface(ApplicationContextAware.class);
+				// Populate the bean factory with context-specific resource editors.
+				beanFactory.addPropertyEditorRegistrar(new ResourceEditorRegistrar(this));
 
-			// Allows post-processing of the bean factory in context subclasses.
-			postProcessBeanFactory(beanFactory);
+				// Configure the bean factory with context semantics.
+				beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
+				beanFactory.ignoreDependencyInterface(ResourceLoaderAware.class);
+				beanFactory.ignoreDependencyInterface(ApplicationEventPublisherAware.class);
+				beanFactory.ignoreDependencyInterface(MessageSourceAware.class);
+				beanFactory.ignoreDependencyInterface(ApplicationContextAware.class);
 
-			// Invoke factory processors registered with the context instance.
-			for (Iterator it = getBeanFactoryPostProcessors().iterator(); it.hasNext();) {
-				BeanFactoryPostProcessor factoryProcessor = (BeanFactoryPostProcessor) it.next();
-				factoryProcessor.postProcessBeanFactory(beanFactory);
-			}
+				// Allows post-processing of the bean factory in context subclasses.
+				postProcessBeanFactory(beanFactory);
 
-			if (logger.isInfoEnabled()) {
-				if (getBeanDefinitionCount() == 0) {
-					logger.info("No beans defined in application context [" + getDisplayName() + "]");
+				// Invoke factory processors registered with the context instance.
+				step = startStep(StartupRecorder.INVOKE_BEAN_FACTORY_POST_PROCESSORS);
+				for (Iterator it = getBeanFactoryPostProcessors().iterator(); it.hasNext();) {
+					BeanFactoryPostProcessor factoryProcessor = (BeanFactoryPostProcessor) it.next();
+					factoryProcessor.postProcessBeanFactory(beanFactory);
 				}
-				else {
-					logger.info(getBeanDefinitionCount() + " beans defined in application context [" + getDisplayName() + "]");
+				endStep(step);
+
+				if (logger.isInfoEnabled()) {
+					if (getBeanDefinitionCount() == 0) {
+						logger.info("No beans defined in application context [" + getDisplayName() + "]");
+					}
+					else {
+						logger.info(getBeanDefinitionCount() + " beans defined in application context [" + getDisplayName() + "]");
+					}
 				}
-			}
 
-			try {
-				// Invoke factory processors registered as beans in the context.
-				invokeBeanFactoryPostProcessors();
+				try {
+					// Invoke factory processors registered as beans in the context.
+					step = startStep(StartupRecorder.INVOKE_BEAN_FACTORY_POST_PROCESSORS);
+					invokeBeanFactoryPostProcessors();
+					endStep(step);
+
+					// Register bean processors that intercept bean creation.
+					step = startStep(StartupRecorder.REGISTER_BEAN_POST_PROCESSORS);
+					registerBeanPostProcessors();
+					endStep(step);
 
-				// Register bean processors that intercept bean creation.
-				registerBeanPostProcessors();
+					// Initialize message source for this context.
+					initMessageSource();
 
-				// Initialize message source for this context.
-				initMessageSource();
+					// Initialize event multicaster for this context.
+					initApplicationEventMulticaster();
 
-				// Initialize event multicaster for this context.
-				initApplicationEventMulticaster();
+					// Initialize other special beans in specific context subclasses.
+					onRefresh();
 
-				// Initialize other special beans in specific context subclasses.
-				onRefresh();
+					// Check for listener beans and register them.
+					registerListeners();
 
-				// Check for listener beans and register them.
-				registerListeners();
+					// Bean definitions are final now: allow for caching all merged bean definitions.
+					if (beanFactory instanceof DefaultListableBeanFactory) {
+						((DefaultListableBeanFactory) beanFactory).freezeConfiguration();
+					}
 
-				// Instantiate singletons this late to allow them to access the message source.
-				beanFactory.preInstantiateSingletons();
+					// Instantiate singletons this late to allow them to access the message source.
+					step = startStep(StartupRecorder.PRE_INSTANTIATE_SINGLETONS);
+					beanFactory.preInstantiateSingletons();
+					endStep(step);
+
+					// Last step: publish corresponding event.
+					publishEvent(new ContextRefreshedEvent(this));
+				}
 
-				// Last step: publish corresponding event.
-				publishEvent(new ContextRefreshedEvent(this));
+				catch (BeansException ex) {
+					// Destroy already created singletons to avoid dangling resources.
+					beanFactory.destroySingletons();
+					throw ex;
+				}
 			}
 
-			catch (BeansException ex) {
-				// Destroy already created singletons to avoid dangling resources.
-				beanFactory.destroySingletons();
-				throw ex;
+			finally {
+				// Also ends any nested steps that did not complete due to an exception.
+				endStep(refreshStep);
+
+				// Stop recording: The StartupRecorder only applies to this refresh.
+				if (recordingBeanFactory != null) {
+					recordingBeanFactory.setStartupRecorder(null);
+				}
+				this.startupRecorder = null;
 			}
 		}
 	}
 
+	/**
+	 * Notify the StartupRecorder (if any) of the start of the given refresh phase.
+	 * @param name the name of the step
+	 * @return the step handle, or <code>null</code> if there is no StartupRecorder
+	 */
+	private Object startStep(String name) {
+		return (this.startupRecorder != null ? this.startupRecorder.startStep(name, null) : null);
+	}
+
+	/**
+	 * Notify the StartupRecorder (if any) of the end of the given refresh step.
+	 * @param step the step handle returned by <code>startStep</code>
+	 */
+	private void endStep(Object step) {
+		if (this.startupRecorder != null) {
+			this.startupRecorder.endStep(step);
+		}
+	}
+
 	/**
 	 * Return the ResourcePatternResolver to use for resolving location patterns
 	 * into Resource instances. Default is PathMatchingResourcePatternResolver,
@@ -18,6 +18,7 @@ package org.springframework.core;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -30,9 +31,11 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.map.CaseInsensitiveMap;
 import org.apache.commons.collections.map.IdentityMap;
+import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.collections.map.LinkedMap;
 import org.apache.commons.collections.map.ListOrderedMap;
 import org.apache.commons.collections.set.ListOrderedSet;
@@ -58,16 +61,22 @@ import org.springframework.util.ClassUtils;
  * @see #createLinkedMapIfPossible
  * @see #createLinkedCaseInsensitiveMapIfPossible
  * @see #createIdentityMapIfPossible
+ * @see #createConcurrentMapIfPossible
  */
 public abstract class CollectionFactory {
 
 	private static final String COMMONS_COLLECTIONS_CLASS_NAME =
 			"org.apache.commons.collections.map.LinkedMap";
 
+	private static final String CONCURRENT_HASH_MAP_CLASS_NAME =
+			"java.util.concurrent.ConcurrentHashMap";
+
 	private static final Log logger = LogFactory.getLog(CollectionFactory.class);
 
 	private static boolean commonsCollections3xAvailable;
 
+	private static boolean concurrentCollectionsAvailable;
+
 
 	static {
 		// Check whether JDK 1.4+ collections and/or
@@ -81,6 +90,13 @@ public abstract class CollectionFactory {
 		} else {
 			commonsCollections3xAvailable = false;
 		}
+		// Check whether JDK 1.5+ concurrent collections are available.
+		if (ClassUtils.isPresent(CONCURRENT_HASH_MAP_CLASS_NAME)) {
+			concurrentCollectionsAvailable = true;
+			logger.info("JDK 1.5+ concurrent collections available");
+		} else {
+			concurrentCollectionsAvailable = false;
+		}
 	}
 
 
@@ -180,6 +196,55 @@ public abstract class CollectionFactory {
 		}
 	}
 
+	/**
+	 * Create a size-limited map with least-recently-used eviction if possible:
+	 * that is, if running on JDK >= 1.4 or if Commons Collections 3.x is available.
+	 * Prefers a JDK 1.4+ access-ordered LinkedHashMap to a Commons Collections 3.x
+	 * LRUMap. Falls back to a plain HashMap (not enforcing the limit) else.
+	 * <p>Note that even read access modifies the internal order of the returned
+	 * map: It needs to be externally synchronized for concurrent access.
+	 * @param maxSize the maximum number of entries to hold
+	 * @return the new map instance
+	 * @see java.util.LinkedHashMap#removeEldestEntry
+	 * @see org.apache.commons.collections.map.LRUMap
+	 */
+	public static Map createLruMapIfPossible(int maxSize) {
+		Assert.isTrue(maxSize > 0, "Maximum size must be greater than 0");
+		if (JdkVersion.isAtLeastJava14()) {
+			logger.debug("Creating access-ordered [java.util.LinkedHashMap]");
+			return Jdk14CollectionFactory.createLruLinkedHashMap(maxSize);
+		}
+		else if (commonsCollections3xAvailable) {
+			logger.debug("Creating [org.apache.commons.collections.map.LRUMap]");
+			return CommonsCollectionFactory.createLRUMap(maxSize);
+		}
+		else {
+			logger.debug("Falling back to [java.util.HashMap] for LRU map");
+			return new HashMap(maxSize);
+		}
+	}
+
+	/**
+	 * Create a concurrent map if possible: that is, if running on JDK >= 1.5.
+	 * Falls back to a synchronized HashMap else.
+	 * <p>The returned map allows for lock-free reads on JDK 1.5+.
+	 * Note that it does not support <code>null</code> keys or values there.
+	 * @param initialCapacity the initial capacity of the map
+	 * @return the new map instance
+	 * @see java.util.concurrent.ConcurrentHashMap
+	 * @see java.util.Collections#synchronizedMap
+	 */
+	public static Map createConcurrentMapIfPossible(int initialCapacity) {
+		if (concurrentCollectionsAvailable) {
+			logger.debug("Creating [java.util.concurrent.ConcurrentHashMap]");
+			return Jdk15CollectionFactory.createConcurrentHashMap(initialCapacity);
+		}
+		else {
+			logger.debug("Falling back to synchronized [java.util.HashMap] for concurrent map");
+			return Collections.synchronizedMap(new HashMap(initialCapacity));
+		}
+	}
+
 
 	/**
 	 * Create the most approximate collection for the given collection class.
@@ -243,6 +308,26 @@ public abstract class CollectionFactory {
 		private static Map createIdentityHashMap(int initialCapacity) {
 			return new IdentityHashMap(initialCapacity);
 		}
+
+		private static Map createLruLinkedHashMap(final int maxSize) {
+			return new LinkedHashMap(16, 0.75f, true) {
+				protected boolean removeEldestEntry(Map.Entry eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
+	}
+
+
+	/**
+	 * Actual creation of JDK 1.5+ concurrent Collections.
+	 * In separate inner class to avoid runtime dependency on JDK 1.5+.
+	 */
+	private static abstract class Jdk15CollectionFactory {
+
+		private static Map createConcurrentHashMap(int initialCapacity) {
+			return new ConcurrentHashMap(initialCapacity);
+		}
 	}
 
 
@@ -270,6 +355,10 @@ public abstract class CollectionFactory {
 			// Commons Collections does not support initial capacity of 0.
 			return new IdentityMap(initialCapacity == 0 ? 1 : initialCapacity);
 		}
+
+		private static Map createLRUMap(int maxSize) {
+			return new LRUMap(maxSize);
+		}
 	}
 
 }
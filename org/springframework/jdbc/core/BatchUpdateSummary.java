@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Statement;
+
+/**
+ * Aggregated result of a chunked batch update, as returned by JdbcTemplate's
+ * <code>batchUpdate</code> methods that take an Iterator of statement arguments.
+ * Sums up the row counts of all statements instead of keeping them one by one,
+ * and reports the throughput of the batch update.
+ *
+ * <p>Statements that the JDBC driver reports as successful without a row count
+ * (<code>Statement.SUCCESS_NO_INFO</code>) are counted separately.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see JdbcTemplate#batchUpdate(String, java.util.Iterator, int)
+ * @see JdbcTemplate#batchUpdate(String, java.util.Iterator, int, org.springframework.core.task.TaskExecutor, int)
+ */
+public class BatchUpdateSummary {
+
+	private final long startTime = System.currentTimeMillis();
+
+	private long endTime;
+
+	private long chunkCount;
+
+	private long statementCount;
+
+	private long rowsAffected;
+
+	private long successNoInfoCount;
+
+
+	/**
+	 * Create a new BatchUpdateSummary, starting the time measurement.
+	 */
+	BatchUpdateSummary() {
+	}
+
+	/**
+	 * Add the row counts of an executed chunk to this summary.
+	 * @param rowCounts the row counts returned by <code>executeBatch</code>
+	 */
+	synchronized void addChunk(int[] rowCounts) {
+		this.chunkCount++;
+		this.statementCount += rowCounts.length;
+		for (int i = 0; i < rowCounts.length; i++) {
+			if (rowCounts[i] >= 0) {
+				this.rowsAffected += rowCounts[i];
+			}
+			else if (rowCounts[i] == Statement.SUCCESS_NO_INFO) {
+				this.successNoInfoCount++;
+			}
+		}
+	}
+
+	/**
+	 * Mark the batch update as finished, stopping the time measurement.
+	 */
+	synchronized void finish() {
+		this.endTime = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Return the number of chunks (that is, JDBC batches) executed.
+	 */
+	public synchronized long getChunkCount() {
+		return this.chunkCount;
+	}
+
+	/**
+	 * Return the total number of statements executed.
+	 */
+	public synchronized long getStatementCount() {
+		return this.statementCount;
+	}
+
+	/**
+	 * Return the total number of rows affected, as reported by the JDBC driver.
+	 * Does not include statements reported as <code>SUCCESS_NO_INFO</code>.
+	 * @see #getSuccessNoInfoCount()
+	 */
+	public synchronized long getRowsAffected() {
+		return this.rowsAffected;
+	}
+
+	/**
+	 * Return the number of statements that the JDBC driver reported as
+	 * successful without an actual row count.
+	 * @see java.sql.Statement#SUCCESS_NO_INFO
+	 */
+	public synchronized long getSuccessNoInfoCount() {
+		return this.successNoInfoCount;
+	}
+
+	/**
+	 * Return the time taken by the batch update in milliseconds
+	 * (or the time elapsed so far if the batch update is still running).
+	 */
+	public synchronized long getElapsedTimeMillis() {
+		return (this.endTime != 0 ? this.endTime : System.currentTimeMillis()) - this.startTime;
+	}
+
+	/**
+	 * Return the throughput of the batch update in statements per second.
+	 */
+	public synchronized double getStatementsPerSecond() {
+		long elapsed = getElapsedTimeMillis();
+		return (elapsed > 0 ? this.statementCount * 1000.0 / elapsed : 0.0);
+	}
+
+
+	public synchronized String toString() {
+		return "BatchUpdateSummary: " + this.statementCount + " statements in " + this.chunkCount +
+				" chunks, " + this.rowsAffected + " rows affected, " + getElapsedTimeMillis() + " ms (" +
+				Math.round(getStatementsPerSecond()) + " statements/sec)";
+	}
+
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.CollectionFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * RowMapper implementation that converts a row into a new instance
+ * of the specified mapped target class. The mapped target class must be
+ * a top-level class and it must have a default or no-arg constructor.
+ *
+ * <p>Column values are mapped to JavaBean properties with matching names:
+ * A column "FIRST_NAME" or "FIRSTNAME" (in any case) will be mapped to a
+ * property "firstName", for example. Columns without a corresponding
+ * writable property will be ignored.
+ *
+ * <p>The mapping plan (which column to read how and which setter to call
+ * with the value) is determined once per distinct set of column names and
+ * cached, and reused for every row of the same ResultSet without accessing
+ * its meta data again. Each column will be read with the ResultSet getter
+ * that corresponds to the property type: for example, <code>getInt</code>
+ * for an <code>int</code> or <code>Integer</code> property, and
+ * <code>getTimestamp</code> for a <code>java.util.Date</code> property.
+ * Values of other property types, such as <code>char</code> or enums, will
+ * be read via <code>ResultSet.getObject</code> and converted to the property
+ * type through a {@link SimpleTypeConverter}, applying the default
+ * PropertyEditors.
+ * SQL NULL values will leave primitive properties at their default value.
+ *
+ * <p>A BeanPropertyRowMapper is thread-safe and intended to be shared:
+ * typically, as constant or as field of a DAO, for each mapped class.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see JdbcTemplate#query(String, Object[], RowMapper)
+ * @see org.springframework.jdbc.core.simple.ParameterizedBeanPropertyRowMapper
+ */
+public class BeanPropertyRowMapper implements RowMapper {
+
+	/** Map from primitive type to corresponding wrapper type */
+	private static final Map primitiveWrapperTypes = new HashMap(8);
+
+	static {
+		primitiveWrapperTypes.put(boolean.class, Boolean.class);
+		primitiveWrapperTypes.put(byte.class, Byte.class);
+		primitiveWrapperTypes.put(char.class, Character.class);
+		primitiveWrapperTypes.put(double.class, Double.class);
+		primitiveWrapperTypes.put(float.class, Float.class);
+		primitiveWrapperTypes.put(int.class, Integer.class);
+		primitiveWrapperTypes.put(long.class, Long.class);
+		primitiveWrapperTypes.put(short.class, Short.class);
+	}
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private Class mappedClass;
+
+	private Constructor mappedConstructor;
+
+	/** Map from lower-case property name (with and without underscores) to PropertyDescriptor */
+	private final Map mappedProperties = new HashMap();
+
+	/** Map from column name fingerprint to MappingPlan */
+	private final Map mappingPlans = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/** Per-thread MappingPlan for the ResultSet currently being mapped */
+	private final ThreadLocal currentPlan = new ThreadLocal();
+
+	/** Per-thread SimpleTypeConverter, since PropertyEditors are not thread-safe */
+	private final ThreadLocal typeConverter = new ThreadLocal();
+
+
+	/**
+	 * Create a new BeanPropertyRowMapper for bean-style configuration.
+	 * @see #setMappedClass
+	 */
+	public BeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new BeanPropertyRowMapper.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public BeanPropertyRowMapper(Class mappedClass) {
+		setMappedClass(mappedClass);
+	}
+
+
+	/**
+	 * Set the class that each row should be mapped to.
+	 */
+	public void setMappedClass(Class mappedClass) {
+		Assert.notNull(mappedClass, "Mapped class must not be null");
+		if (this.mappedClass != null && this.mappedClass != mappedClass) {
+			throw new InvalidDataAccessApiUsageException("The mapped class can not be reassigned to map to " +
+					mappedClass + " since it is already providing mapping for " + this.mappedClass);
+		}
+		try {
+			this.mappedConstructor = mappedClass.getDeclaredConstructor((Class[]) null);
+		}
+		catch (NoSuchMethodException ex) {
+			throw new InvalidDataAccessApiUsageException(
+					"Mapped class [" + mappedClass.getName() + "] does not have a no-arg constructor");
+		}
+		this.mappedClass = mappedClass;
+		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
+		for (int i = 0; i < pds.length; i++) {
+			PropertyDescriptor pd = pds[i];
+			if (pd.getWriteMethod() != null) {
+				this.mappedProperties.put(pd.getName().toLowerCase(), pd);
+				String underscoredName = underscoreName(pd.getName());
+				if (!this.mappedProperties.containsKey(underscoredName)) {
+					this.mappedProperties.put(underscoredName, pd);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the class that each row is mapped to.
+	 */
+	public final Class getMappedClass() {
+		return this.mappedClass;
+	}
+
+	/**
+	 * Convert a camel-case property name into a lower-case name
+	 * with underscores: for example, "firstName" into "first_name".
+	 */
+	private String underscoreName(String name) {
+		StringBuffer result = new StringBuffer(name.length() + 4);
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (Character.isUpperCase(c)) {
+				if (i > 0) {
+					result.append('_');
+				}
+				result.append(Character.toLowerCase(c));
+			}
+			else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+
+	/**
+	 * Map the current row of the given ResultSet to a new instance of the
+	 * mapped class, according to the mapping plan for the ResultSet's columns.
+	 */
+	public Object mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		Assert.state(this.mappedClass != null, "Mapped class was not specified");
+		MappingPlan plan = getMappingPlan(rs);
+		Object mappedObject = BeanUtils.instantiateClass(this.mappedConstructor, null);
+		for (int i = 0; i < plan.columnIndexes.length; i++) {
+			int columnIndex = plan.columnIndexes[i];
+			Object value = plan.readers[i].read(rs, columnIndex);
+			if (value == null) {
+				if (plan.primitive[i]) {
+					// Leave primitive property at its default value.
+					continue;
+				}
+			}
+			else if (plan.convertedTypes[i] != null && !plan.convertedTypes[i].isInstance(value)) {
+				try {
+					value = getTypeConverter().convertIfNecessary(value, plan.convertedTypes[i]);
+				}
+				catch (TypeMismatchException ex) {
+					throw new TypeMismatchDataAccessException("Cannot convert value [" + value + "] of column " +
+							columnIndex + " to type of property '" + plan.propertyNames[i] + "' of " +
+							this.mappedClass, ex);
+				}
+			}
+			try {
+				plan.writeMethods[i].invoke(mappedObject, new Object[] {value});
+			}
+			catch (IllegalArgumentException ex) {
+				throw new TypeMismatchDataAccessException("Cannot map value [" + value + "] of column " +
+						columnIndex + " to property '" + plan.propertyNames[i] + "' of " + this.mappedClass, ex);
+			}
+			catch (InvocationTargetException ex) {
+				throw new DataRetrievalFailureException("Setter for property '" + plan.propertyNames[i] +
+						"' of " + this.mappedClass + " threw exception", ex.getTargetException());
+			}
+			catch (IllegalAccessException ex) {
+				throw new DataRetrievalFailureException("Could not access setter for property '" +
+						plan.propertyNames[i] + "' of " + this.mappedClass, ex);
+			}
+		}
+		return mappedObject;
+	}
+
+	/**
+	 * Return the SimpleTypeConverter for the current thread,
+	 * creating it on first access.
+	 */
+	private SimpleTypeConverter getTypeConverter() {
+		SimpleTypeConverter converter = (SimpleTypeConverter) this.typeConverter.get();
+		if (converter == null) {
+			converter = new SimpleTypeConverter();
+			this.typeConverter.set(converter);
+		}
+		return converter;
+	}
+
+	/**
+	 * Determine the mapping plan for the given ResultSet: reusing the plan
+	 * for the ResultSet currently being mapped by this thread, or looking
+	 * up (or creating) the plan for the ResultSet's column names.
+	 */
+	private MappingPlan getMappingPlan(ResultSet rs) throws SQLException {
+		CurrentPlan current = (CurrentPlan) this.currentPlan.get();
+		if (current != null && current.resultSet.get() == rs) {
+			return current.plan;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columnNames = new String[columnCount];
+		StringBuffer fingerprint = new StringBuffer();
+		for (int i = 0; i < columnCount; i++) {
+			String columnName = rsmd.getColumnLabel(i + 1);
+			if (!StringUtils.hasLength(columnName)) {
+				columnName = rsmd.getColumnName(i + 1);
+			}
+			columnNames[i] = columnName;
+			fingerprint.append(columnName).append(',');
+		}
+		String key = fingerprint.toString();
+		MappingPlan plan = (MappingPlan) this.mappingPlans.get(key);
+		if (plan == null) {
+			plan = createMappingPlan(columnNames);
+			this.mappingPlans.put(key, plan);
+		}
+		this.currentPlan.set(new CurrentPlan(rs, plan));
+		return plan;
+	}
+
+	/**
+	 * Create a mapping plan for the given column names.
+	 */
+	private MappingPlan createMappingPlan(String[] columnNames) {
+		int[] columnIndexes = new int[columnNames.length];
+		PropertyDescriptor[] pds = new PropertyDescriptor[columnNames.length];
+		int mappedCount = 0;
+		for (int i = 0; i < columnNames.length; i++) {
+			String column = (columnNames[i] != null ? columnNames[i].toLowerCase() : "");
+			PropertyDescriptor pd = (PropertyDescriptor) this.mappedProperties.get(column);
+			if (pd == null) {
+				pd = (PropertyDescriptor) this.mappedProperties.get(StringUtils.deleteAny(column, "_"));
+			}
+			if (pd != null) {
+				columnIndexes[mappedCount] = i + 1;
+				pds[mappedCount] = pd;
+				mappedCount++;
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + columnNames[i] + "' in " + this.mappedClass);
+			}
+		}
+		MappingPlan plan = new MappingPlan(mappedCount);
+		for (int i = 0; i < mappedCount; i++) {
+			Class propertyType = pds[i].getPropertyType();
+			plan.columnIndexes[i] = columnIndexes[i];
+			plan.propertyNames[i] = pds[i].getName();
+			plan.writeMethods[i] = pds[i].getWriteMethod();
+			if (!Modifier.isPublic(plan.writeMethods[i].getDeclaringClass().getModifiers())) {
+				plan.writeMethods[i].setAccessible(true);
+			}
+			plan.readers[i] = getColumnValueReader(propertyType);
+			if (plan.readers[i] == OBJECT_READER && !Object.class.equals(propertyType)) {
+				// Generic value, to be converted to the property type if necessary.
+				plan.convertedTypes[i] = (propertyType.isPrimitive() ?
+						(Class) primitiveWrapperTypes.get(propertyType) : propertyType);
+			}
+			plan.primitive[i] = propertyType.isPrimitive();
+		}
+		return plan;
+	}
+
+	/**
+	 * Determine the ColumnValueReader for the given property type.
+	 */
+	private ColumnValueReader getColumnValueReader(Class propertyType) {
+		Class type = (propertyType.isPrimitive() ? (Class) primitiveWrapperTypes.get(propertyType) : propertyType);
+		if (String.class.equals(type)) {
+			return STRING_READER;
+		}
+		else if (Integer.class.equals(type)) {
+			return INT_READER;
+		}
+		else if (Long.class.equals(type)) {
+			return LONG_READER;
+		}
+		else if (Double.class.equals(type)) {
+			return DOUBLE_READER;
+		}
+		else if (Boolean.class.equals(type)) {
+			return BOOLEAN_READER;
+		}
+		else if (Short.class.equals(type)) {
+			return SHORT_READER;
+		}
+		else if (Byte.class.equals(type)) {
+			return BYTE_READER;
+		}
+		else if (Float.class.equals(type)) {
+			return FLOAT_READER;
+		}
+		else if (BigDecimal.class.equals(type)) {
+			return BIG_DECIMAL_READER;
+		}
+		else if (BigInteger.class.equals(type)) {
+			return BIG_INTEGER_READER;
+		}
+		else if (java.sql.Date.class.equals(type)) {
+			return DATE_READER;
+		}
+		else if (Time.class.equals(type)) {
+			return TIME_READER;
+		}
+		else if (Timestamp.class.equals(type) || java.util.Date.class.equals(type)) {
+			return TIMESTAMP_READER;
+		}
+		else if (byte[].class.equals(type)) {
+			return BYTES_READER;
+		}
+		else {
+			return OBJECT_READER;
+		}
+	}
+
+
+	/**
+	 * Mapping plan for a specific set of columns: for each mapped column,
+	 * the ResultSet getter to use, the type to convert the value to (if any)
+	 * and the setter to call.
+	 */
+	private static class MappingPlan {
+
+		public final int[] columnIndexes;
+
+		public final String[] propertyNames;
+
+		public final Method[] writeMethods;
+
+		public final ColumnValueReader[] readers;
+
+		public final Class[] convertedTypes;
+
+		public final boolean[] primitive;
+
+		public MappingPlan(int mappedCount) {
+			this.columnIndexes = new int[mappedCount];
+			this.propertyNames = new String[mappedCount];
+			this.writeMethods = new Method[mappedCount];
+			this.readers = new ColumnValueReader[mappedCount];
+			this.convertedTypes = new Class[mappedCount];
+			this.primitive = new boolean[mappedCount];
+		}
+	}
+
+
+	/**
+	 * Holder for the ResultSet currently being mapped by a thread,
+	 * along with its MappingPlan. Does not keep the ResultSet itself
+	 * from being garbage-collected.
+	 */
+	private static class CurrentPlan {
+
+		public final WeakReference resultSet;
+
+		public final MappingPlan plan;
+
+		public CurrentPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference(resultSet);
+			this.plan = plan;
+		}
+	}
+
+
+	/**
+	 * Strategy for reading a column value with a specific ResultSet getter.
+	 */
+	private interface ColumnValueReader {
+
+		/**
+		 * Read the value of the given column in the current row.
+		 * @return the value, or <code>null</code> for SQL NULL
+		 */
+		Object read(ResultSet rs, int index) throws SQLException;
+	}
+
+
+	private static final ColumnValueReader STRING_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getString(index);
+		}
+	};
+
+	private static final ColumnValueReader INT_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			int value = rs.getInt(index);
+			return (rs.wasNull() ? null : new Integer(value));
+		}
+	};
+
+	private static final ColumnValueReader LONG_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			long value = rs.getLong(index);
+			return (rs.wasNull() ? null : new Long(value));
+		}
+	};
+
+	private static final ColumnValueReader DOUBLE_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			double value = rs.getDouble(index);
+			return (rs.wasNull() ? null : new Double(value));
+		}
+	};
+
+	private static final ColumnValueReader BOOLEAN_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			boolean value = rs.getBoolean(index);
+			return (rs.wasNull() ? null : (value ? Boolean.TRUE : Boolean.FALSE));
+		}
+	};
+
+	private static final ColumnValueReader SHORT_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			short value = rs.getShort(index);
+			return (rs.wasNull() ? null : new Short(value));
+		}
+	};
+
+	private static final ColumnValueReader BYTE_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			byte value = rs.getByte(index);
+			return (rs.wasNull() ? null : new Byte(value));
+		}
+	};
+
+	private static final ColumnValueReader FLOAT_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			float value = rs.getFloat(index);
+			return (rs.wasNull() ? null : new Float(value));
+		}
+	};
+
+	private static final ColumnValueReader BIG_DECIMAL_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getBigDecimal(index);
+		}
+	};
+
+	private static final ColumnValueReader BIG_INTEGER_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			BigDecimal value = rs.getBigDecimal(index);
+			return (value != null ? value.toBigInteger() : null);
+		}
+	};
+
+	private static final ColumnValueReader DATE_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getDate(index);
+		}
+	};
+
+	private static final ColumnValueReader TIME_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getTime(index);
+		}
+	};
+
+	private static final ColumnValueReader TIMESTAMP_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getTimestamp(index);
+		}
+	};
+
+	private static final ColumnValueReader BYTES_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return rs.getBytes(index);
+		}
+	};
+
+	private static final ColumnValueReader OBJECT_READER = new ColumnValueReader() {
+		public Object read(ResultSet rs, int index) throws SQLException {
+			return JdbcUtils.getResultSetValue(rs, index);
+		}
+	};
+
+}
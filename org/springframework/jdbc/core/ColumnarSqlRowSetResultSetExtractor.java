@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.support.rowset.ColumnarSqlRowSet;
+
+/**
+ * ResultSetExtractor implementation that returns a Spring ColumnarSqlRowSet
+ * for each given ResultSet: a compact, column-oriented SqlRowSet representation
+ * that does not require JDBC RowSet support at runtime.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see org.springframework.jdbc.support.rowset.ColumnarSqlRowSet
+ * @see SqlRowSetResultSetExtractor
+ * @see JdbcTemplate#setColumnarRowSets
+ */
+public class ColumnarSqlRowSetResultSetExtractor implements ResultSetExtractor {
+
+	public Object extractData(ResultSet rs) throws SQLException {
+		return new ColumnarSqlRowSet(rs);
+	}
+
+}
@@ -16,9 +16,11 @@
 
 package org.springframework.jdbc.core;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.support.KeyHolder;
@@ -787,6 +789,75 @@ public interface JdbcOperations {
 	 */
 	SqlRowSet queryForRowSet(String sql, Object[] args) throws DataAccessException;
 
+	/**
+	 * Query using a prepared statement, mapping each row to a Java object
+	 * via a RowMapper on demand while iterating over the result.
+	 * <p>The returned RowIterator holds on to the JDBC resources until it has
+	 * been exhausted or closed; it must always be closed in a finally block.
+	 * @param psc object that provides SQL and any necessary parameters
+	 * @param rowMapper object that will map one object per row
+	 * @return the RowIterator over the mapped objects
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see PreparedStatementCreatorFactory
+	 * @see RowIterator#close()
+	 */
+	RowIterator queryForIterator(PreparedStatementCreator psc, RowMapper rowMapper)
+			throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values
+	 * to the query, mapping each row to a Java object via a RowMapper
+	 * on demand while iterating over the result.
+	 * <p>The returned RowIterator holds on to the JDBC resources until it has
+	 * been exhausted or closed; it must always be closed in a finally block.
+	 * @param sql SQL query to execute
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return the RowIterator over the mapped objects
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see RowIterator#close()
+	 */
+	RowIterator queryForIterator(String sql, PreparedStatementSetter pss, RowMapper rowMapper)
+			throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, mapping each row to a Java object
+	 * via a RowMapper on demand while iterating over the result.
+	 * <p>The returned RowIterator holds on to the JDBC resources until it has
+	 * been exhausted or closed; it must always be closed in a finally block.
+	 * @param sql SQL query to execute
+	 * @param args arguments to bind to the query
+	 * @param argTypes SQL types of the arguments
+	 * (constants from <code>java.sql.Types</code>)
+	 * @param rowMapper object that will map one object per row
+	 * @return the RowIterator over the mapped objects
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see RowIterator#close()
+	 * @see java.sql.Types
+	 */
+	RowIterator queryForIterator(String sql, Object[] args, int[] argTypes, RowMapper rowMapper)
+			throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, mapping each row to a Java object
+	 * via a RowMapper on demand while iterating over the result.
+	 * <p>The returned RowIterator holds on to the JDBC resources until it has
+	 * been exhausted or closed; it must always be closed in a finally block.
+	 * @param sql SQL query to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type)
+	 * @param rowMapper object that will map one object per row
+	 * @return the RowIterator over the mapped objects
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see RowIterator#close()
+	 */
+	RowIterator queryForIterator(String sql, Object[] args, RowMapper rowMapper)
+			throws DataAccessException;
+
 	/**
 	 * Issue an update using a PreparedStatementCreator to provide SQL and any
 	 * required parameters.
@@ -863,6 +934,65 @@ public interface JdbcOperations {
 	 */
 	int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException;
 
+	/**
+	 * Issue a potentially very large number of updates on a single PreparedStatement,
+	 * reading the statement arguments from the given Iterator and sending them to
+	 * the database in JDBC batches of the given chunk size. Row counts will be
+	 * aggregated rather than kept per statement.
+	 * <p>All chunks will be executed on the same Connection: within a transaction,
+	 * this will be the transactional Connection.
+	 * <p>Will fall back to separate updates on a single PreparedStatement
+	 * if the JDBC driver does not support batch updates.
+	 * @param sql defining PreparedStatement that will be reused.
+	 * All statements in the batch will use the same SQL.
+	 * @param batchArgs Iterator over the arguments for each statement: either
+	 * an Object array of arguments to bind to the statement (leaving it to the
+	 * PreparedStatement to guess the corresponding SQL type) or a
+	 * PreparedStatementSetter. Elements will only be read when needed for the
+	 * current chunk, so the Iterator may stream them from any source.
+	 * @param chunkSize the number of statements to send in each JDBC batch
+	 * @return a summary of the batch update, with aggregated row counts
+	 * and throughput
+	 * @throws DataAccessException if there is any problem issuing the update
+	 * (in which case the chunks executed before will not be rolled back,
+	 * unless running within a transaction)
+	 */
+	BatchUpdateSummary batchUpdate(String sql, Iterator batchArgs, int chunkSize) throws DataAccessException;
+
+	/**
+	 * Issue a potentially very large number of updates on a single PreparedStatement,
+	 * reading the statement arguments from the given Iterator and sending them to
+	 * the database in JDBC batches of the given chunk size, executing multiple
+	 * chunks concurrently via the given TaskExecutor. Row counts will be
+	 * aggregated rather than kept per statement.
+	 * <p>Each chunk will be executed on its own Connection, which requires the
+	 * chunks to be independent of each other. Hence, this is only supported
+	 * outside of a transaction: If transaction synchronization is active,
+	 * all chunks will be executed sequentially on the transactional Connection.
+	 * <p>The calling thread reads the statement arguments from the Iterator,
+	 * holding at most the specified number of concurrent chunks plus one in
+	 * memory. If a chunk fails, no further chunks will be started; the first
+	 * exception will be rethrown once all chunks in progress have finished.
+	 * @param sql defining PreparedStatement that will be reused.
+	 * All statements in the batch will use the same SQL.
+	 * @param batchArgs Iterator over the arguments for each statement: either
+	 * an Object array of arguments to bind to the statement (leaving it to the
+	 * PreparedStatement to guess the corresponding SQL type) or a
+	 * PreparedStatementSetter
+	 * @param chunkSize the number of statements to send in each JDBC batch
+	 * @param taskExecutor the TaskExecutor to execute the chunks with
+	 * (typically a thread pool)
+	 * @param maxConcurrentChunks the maximal number of chunks to execute
+	 * concurrently (and hence the maximal number of Connections to use)
+	 * @return a summary of the batch update, with aggregated row counts
+	 * and throughput
+	 * @throws DataAccessException if there is any problem issuing the update
+	 * (in which case the chunks executed before will not be rolled back)
+	 */
+	BatchUpdateSummary batchUpdate(
+			String sql, Iterator batchArgs, int chunkSize, TaskExecutor taskExecutor, int maxConcurrentChunks)
+			throws DataAccessException;
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with callable statements
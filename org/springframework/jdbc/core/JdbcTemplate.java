@@ -20,6 +20,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -27,16 +28,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.sql.DataSource;
 
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.SQLWarningException;
+import org.springframework.jdbc.datasource.ConnectionHolder;
 import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcAccessor;
@@ -44,6 +51,8 @@ import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
 /**
@@ -89,6 +98,12 @@ import org.springframework.util.Assert;
  */
 public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
+	/**
+	 * Key for binding the OpenRowIterators of the current transaction
+	 * as transactional resource.
+	 */
+	private static final Object OPEN_ROW_ITERATORS_KEY = new Object();
+
 	/** Custom NativeJdbcExtractor */
 	private NativeJdbcExtractor nativeJdbcExtractor;
 
@@ -120,6 +135,26 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private boolean skipResultsProcessing = false;
 
+	/**
+	 * If this variable is set to a non-zero value, PreparedStatements will be
+	 * cached per transactional Connection, up to the specified number.
+	 */
+	private int statementCacheSize = 0;
+
+	/**
+	 * If this variable is set to true, <code>queryForRowSet</code> will return
+	 * a Spring ColumnarSqlRowSet instead of a CachedRowSet-based SqlRowSet.
+	 */
+	private boolean columnarRowSets = false;
+
+	/**
+	 * Statement cache statistics. Updated without synchronization:
+	 * counts may occasionally miss an update under concurrent access.
+	 */
+	private volatile long statementCacheHitCount = 0;
+
+	private volatile long statementCacheMissCount = 0;
+
 
 	/**
 	 * Construct a new JdbcTemplate for bean usage.
@@ -262,6 +297,84 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return skipResultsProcessing;
 	}
 
+	/**
+	 * Set the maximal number of PreparedStatements to cache per transactional
+	 * Connection. Default is 0, not caching any PreparedStatements.
+	 * <p>If specified, PreparedStatements will be reused within a transaction
+	 * (more specifically, within a transaction synchronization scope) when
+	 * executing the same SQL with the same result set type again, saving the
+	 * cost of preparing the statement in the JDBC driver and the database.
+	 * This is particularly worthwhile for executing the same SQL many times
+	 * within the same transaction.
+	 * <p>The cache is bound to the transactional ConnectionHolder and shared by
+	 * all JdbcTemplates that operate on the same DataSource; the first JdbcTemplate
+	 * to cache a statement within a transaction determines its size. Cached
+	 * statements will be cleared between uses and closed on transaction completion.
+	 * Outside of a transaction, statements will not be cached; neither will they
+	 * with a NativeJdbcExtractor that requires the native Connection for
+	 * preparing native statements.
+	 * <p>Only applies to the <code>execute(PreparedStatementCreator, ...)</code>
+	 * family of methods (including <code>query</code>, <code>update</code> and
+	 * <code>batchUpdate</code> with a PreparedStatementCreator or SQL plus
+	 * arguments); statements for returning generated keys will not be cached.
+	 * @see #execute(PreparedStatementCreator, PreparedStatementCallback)
+	 * @see org.springframework.jdbc.datasource.ConnectionHolder
+	 * @see #getStatementCacheHitCount()
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Return the maximal number of PreparedStatements to cache per transactional
+	 * Connection.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Set whether <code>queryForRowSet</code> should return a Spring
+	 * {@link org.springframework.jdbc.support.rowset.ColumnarSqlRowSet},
+	 * which holds the data in compact, column-oriented primitive arrays and
+	 * does not require JDBC RowSet support at runtime.
+	 * <p>Default is "false", returning a ResultSetWrappingSqlRowSet on top of
+	 * a standard JDBC CachedRowSet. Switch this to "true" for a significantly
+	 * smaller memory footprint with large row sets, in particular with mostly
+	 * numeric data or repeating String values.
+	 * @see #queryForRowSet(String)
+	 * @see ColumnarSqlRowSetResultSetExtractor
+	 * @see SqlRowSetResultSetExtractor
+	 */
+	public void setColumnarRowSets(boolean columnarRowSets) {
+		this.columnarRowSets = columnarRowSets;
+	}
+
+	/**
+	 * Return whether <code>queryForRowSet</code> returns a ColumnarSqlRowSet.
+	 */
+	public boolean isColumnarRowSets() {
+		return columnarRowSets;
+	}
+
+	/**
+	 * Return the number of times that this JdbcTemplate has reused a cached
+	 * PreparedStatement.
+	 * @see #setStatementCacheSize
+	 */
+	public long getStatementCacheHitCount() {
+		return statementCacheHitCount;
+	}
+
+	/**
+	 * Return the number of times that this JdbcTemplate had to prepare a new
+	 * PreparedStatement for the statement cache.
+	 * @see #setStatementCacheSize
+	 */
+	public long getStatementCacheMissCount() {
+		return statementCacheMissCount;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with a plain java.sql.Connection
@@ -440,7 +553,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 	public SqlRowSet queryForRowSet(String sql) throws DataAccessException {
-		return (SqlRowSet) query(sql, new SqlRowSetResultSetExtractor());
+		return (SqlRowSet) query(sql, getSqlRowSetResultSetExtractor());
 	}
 
 	public int update(final String sql) throws DataAccessException {
@@ -512,19 +625,36 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		Connection con = DataSourceUtils.getConnection(getDataSource());
 		PreparedStatement ps = null;
+		PreparedStatementCache statementCache = null;
+		boolean reusable = false;
 		try {
 			Connection conToUse = con;
 			if (this.nativeJdbcExtractor != null &&
 					this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
 				conToUse = this.nativeJdbcExtractor.getNativeConnection(con);
 			}
-			ps = psc.createPreparedStatement(conToUse);
+			statementCache = getPreparedStatementCache(con, conToUse);
+			if (statementCache != null) {
+				ps = statementCache.prepareStatement(psc);
+				int useCount = statementCache.getUseCount(ps);
+				if (useCount > 1) {
+					this.statementCacheHitCount++;
+				}
+				else if (useCount == 1) {
+					this.statementCacheMissCount++;
+				}
+			}
+			else {
+				ps = psc.createPreparedStatement(conToUse);
+			}
 			applyStatementSettings(ps);
 			PreparedStatement psToUse = ps;
 			if (this.nativeJdbcExtractor != null) {
-				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(ps);
+				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(
+						statementCache != null ? statementCache.getTargetStatement(ps) : ps);
 			}
 			Object result = action.doInPreparedStatement(psToUse);
+			reusable = true;
 			SQLWarning warning = ps.getWarnings();
 			throwExceptionOnWarningIfNotIgnoringWarnings(warning);
 			return result;
@@ -537,7 +667,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 			String sql = getSql(psc);
 			psc = null;
-			JdbcUtils.closeStatement(ps);
+			releaseStatement(ps, statementCache, false);
 			ps = null;
 			DataSourceUtils.releaseConnection(con, getDataSource());
 			con = null;
@@ -547,7 +677,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			if (psc instanceof ParameterDisposer) {
 				((ParameterDisposer) psc).cleanupParameters();
 			}
-			JdbcUtils.closeStatement(ps);
+			releaseStatement(ps, statementCache, reusable);
 			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
@@ -717,11 +847,131 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 	public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) throws DataAccessException {
-		return (SqlRowSet) query(sql, args, argTypes, new SqlRowSetResultSetExtractor());
+		return (SqlRowSet) query(sql, args, argTypes, getSqlRowSetResultSetExtractor());
 	}
 
 	public SqlRowSet queryForRowSet(String sql, Object[] args) throws DataAccessException {
-		return (SqlRowSet) query(sql, args, new SqlRowSetResultSetExtractor());
+		return (SqlRowSet) query(sql, args, getSqlRowSetResultSetExtractor());
+	}
+
+	/**
+	 * Query using a prepared statement, returning an iterator that maps
+	 * the rows of the still connected ResultSet one at a time.
+	 * <p>In contrast to the <code>query</code> methods, the JDBC resources are
+	 * not released before this method returns: They are held by the returned
+	 * RowIterator until it has been exhausted or explicitly closed. Within a
+	 * transaction, the iterator will be closed on transaction completion at
+	 * the latest. Consider specifying a {@link #setFetchSize "fetchSize"}
+	 * to let the JDBC driver stream rows instead of reading the entire result.
+	 * @param psc Callback handler that can create a PreparedStatement given a
+	 * Connection
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return the RowIterator over the mapped objects (to be closed by the caller)
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @since 2.0.3
+	 * @see RowIterator#close()
+	 */
+	public RowIterator queryForIterator(
+			PreparedStatementCreator psc, PreparedStatementSetter pss, RowMapper rowMapper)
+			throws DataAccessException {
+
+		Assert.notNull(psc, "PreparedStatementCreator must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+
+		if (logger.isDebugEnabled()) {
+			String sql = getSql(psc);
+			logger.debug("Executing SQL query for iterator" + (sql != null ? " [" + sql  + "]" : ""));
+		}
+
+		Connection con = DataSourceUtils.getConnection(getDataSource());
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		boolean success = false;
+		try {
+			Connection conToUse = con;
+			if (this.nativeJdbcExtractor != null &&
+					this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
+				conToUse = this.nativeJdbcExtractor.getNativeConnection(con);
+			}
+			ps = psc.createPreparedStatement(conToUse);
+			applyStatementSettings(ps);
+			PreparedStatement psToUse = ps;
+			if (this.nativeJdbcExtractor != null) {
+				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(ps);
+			}
+			if (pss != null) {
+				pss.setValues(psToUse);
+			}
+			rs = psToUse.executeQuery();
+			ResultSet rsToUse = rs;
+			if (this.nativeJdbcExtractor != null) {
+				rsToUse = this.nativeJdbcExtractor.getNativeResultSet(rs);
+			}
+			SQLWarning warning = ps.getWarnings();
+			throwExceptionOnWarningIfNotIgnoringWarnings(warning);
+			ResultSetRowIterator iterator =
+					new ResultSetRowIterator(con, ps, rs, rsToUse, rowMapper, getSql(psc));
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				OpenRowIterators openRowIterators =
+						(OpenRowIterators) TransactionSynchronizationManager.getResource(OPEN_ROW_ITERATORS_KEY);
+				if (openRowIterators == null) {
+					openRowIterators = new OpenRowIterators();
+					TransactionSynchronizationManager.bindResource(OPEN_ROW_ITERATORS_KEY, openRowIterators);
+					TransactionSynchronizationManager.registerSynchronization(
+							new RowIteratorSynchronization(openRowIterators));
+				}
+				openRowIterators.add(iterator);
+			}
+			success = true;
+			return iterator;
+		}
+		catch (SQLException ex) {
+			// Release Connection early, to avoid potential connection pool deadlock
+			// in the case when the exception translator hasn't been initialized yet.
+			String sql = getSql(psc);
+			JdbcUtils.closeResultSet(rs);
+			rs = null;
+			JdbcUtils.closeStatement(ps);
+			ps = null;
+			DataSourceUtils.releaseConnection(con, getDataSource());
+			con = null;
+			throw getExceptionTranslator().translate("RowIterator", sql, ex);
+		}
+		finally {
+			if (psc instanceof ParameterDisposer) {
+				((ParameterDisposer) psc).cleanupParameters();
+			}
+			if (pss instanceof ParameterDisposer) {
+				((ParameterDisposer) pss).cleanupParameters();
+			}
+			if (!success) {
+				JdbcUtils.closeResultSet(rs);
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
+		}
+	}
+
+	public RowIterator queryForIterator(PreparedStatementCreator psc, RowMapper rowMapper)
+			throws DataAccessException {
+		return queryForIterator(psc, null, rowMapper);
+	}
+
+	public RowIterator queryForIterator(String sql, PreparedStatementSetter pss, RowMapper rowMapper)
+			throws DataAccessException {
+		return queryForIterator(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
+	public RowIterator queryForIterator(String sql, Object[] args, int[] argTypes, RowMapper rowMapper)
+			throws DataAccessException {
+		return queryForIterator(sql, new ArgTypePreparedStatementSetter(args, argTypes), rowMapper);
+	}
+
+	public RowIterator queryForIterator(String sql, Object[] args, RowMapper rowMapper)
+			throws DataAccessException {
+		return queryForIterator(sql, new ArgPreparedStatementSetter(args), rowMapper);
 	}
 
 	protected int update(final PreparedStatementCreator psc, final PreparedStatementSetter pss)
@@ -842,6 +1092,72 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		});
 	}
 
+	public BatchUpdateSummary batchUpdate(String sql, Iterator batchArgs, int chunkSize)
+			throws DataAccessException {
+
+		Assert.notNull(batchArgs, "Batch argument Iterator must not be null");
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing chunked SQL batch update [" + sql + "] with chunk size " + chunkSize);
+		}
+		BatchUpdateSummary summary = new BatchUpdateSummary();
+		execute(sql, new ChunkedBatchUpdateCallback(batchArgs, chunkSize, summary));
+		summary.finish();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Finished chunked SQL batch update [" + sql + "]: " + summary);
+		}
+		return summary;
+	}
+
+	public BatchUpdateSummary batchUpdate(
+			String sql, Iterator batchArgs, int chunkSize, TaskExecutor taskExecutor, int maxConcurrentChunks)
+			throws DataAccessException {
+
+		Assert.notNull(batchArgs, "Batch argument Iterator must not be null");
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		Assert.notNull(taskExecutor, "TaskExecutor must not be null");
+		Assert.isTrue(maxConcurrentChunks > 0, "Maximum number of concurrent chunks must be greater than 0");
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			// Within a transaction: all chunks need to run on the transactional Connection.
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executing chunked SQL batch update [" + sql +
+						"] sequentially since transaction synchronization is active");
+			}
+			return batchUpdate(sql, batchArgs, chunkSize);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing chunked SQL batch update [" + sql + "] with chunk size " + chunkSize +
+					" and up to " + maxConcurrentChunks + " concurrent chunks");
+		}
+		BatchUpdateSummary summary = new BatchUpdateSummary();
+		ConcurrentChunkTracker tracker = new ConcurrentChunkTracker(maxConcurrentChunks);
+		try {
+			while (batchArgs.hasNext() && tracker.acquireSlot()) {
+				List chunk = new ArrayList(chunkSize);
+				while (chunk.size() < chunkSize && batchArgs.hasNext()) {
+					chunk.add(batchArgs.next());
+				}
+				try {
+					taskExecutor.execute(new ChunkedBatchUpdateTask(sql, chunk, summary, tracker));
+				}
+				catch (Throwable ex) {
+					tracker.releaseSlot(ex);
+				}
+			}
+		}
+		finally {
+			tracker.awaitCompletion();
+		}
+		summary.finish();
+		tracker.rethrowFailureIfAny();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Finished chunked SQL batch update [" + sql + "]: " + summary);
+		}
+		return summary;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with callable statements
@@ -1059,6 +1375,18 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return new SingleColumnRowMapper(requiredType);
 	}
 
+	/**
+	 * Create a new ResultSetExtractor for building SqlRowSets.
+	 * @return the ResultSetExtractor to use
+	 * @see #setColumnarRowSets
+	 * @see ColumnarSqlRowSetResultSetExtractor
+	 * @see SqlRowSetResultSetExtractor
+	 */
+	protected ResultSetExtractor getSqlRowSetResultSetExtractor() {
+		return (this.columnarRowSets ? (ResultSetExtractor) new ColumnarSqlRowSetResultSetExtractor() :
+				new SqlRowSetResultSetExtractor());
+	}
+
 	/**
 	 * Prepare the given JDBC Statement (or PreparedStatement or CallableStatement),
 	 * applying statement settings such as fetch size, max rows, and query timeout.
@@ -1080,6 +1408,57 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		DataSourceUtils.applyTimeout(stmt, getDataSource(), getQueryTimeout());
 	}
 
+	/**
+	 * Determine the PreparedStatementCache for the given transactional Connection,
+	 * creating and binding a new one if necessary.
+	 * @param con the Connection obtained from DataSourceUtils
+	 * @param conToUse the Connection to prepare statements on
+	 * (potentially the native Connection)
+	 * @return the PreparedStatementCache, or <code>null</code> if statements
+	 * are not supposed to be cached (no statement cache size specified, not
+	 * within a transaction, or native Connection necessary for native statements)
+	 * @see #setStatementCacheSize
+	 */
+	private PreparedStatementCache getPreparedStatementCache(Connection con, Connection conToUse) {
+		if (this.statementCacheSize <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		if (this.nativeJdbcExtractor != null &&
+				this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
+			// Statements prepared on the native Connection bypass the connection pool:
+			// do not keep them beyond the scope of a single operation.
+			return null;
+		}
+		ConnectionHolder conHolder =
+				(ConnectionHolder) TransactionSynchronizationManager.getResource(getDataSource());
+		if (conHolder == null || conHolder.getConnectionHandle() == null || conHolder.getConnection() != con) {
+			return null;
+		}
+		PreparedStatementCache statementCache =
+				(PreparedStatementCache) TransactionSynchronizationManager.getResource(conHolder);
+		if (statementCache == null) {
+			statementCache = new PreparedStatementCache(conToUse, this.statementCacheSize);
+			TransactionSynchronizationManager.bindResource(conHolder, statementCache);
+			TransactionSynchronizationManager.registerSynchronization(
+					new PreparedStatementCacheSynchronization(conHolder, statementCache));
+		}
+		return (statementCache.getConnection() == conToUse ? statementCache : null);
+	}
+
+	/**
+	 * Release the given PreparedStatement: returning it to the given statement
+	 * cache if it is a cached one, or closing it else.
+	 * @param ps the PreparedStatement to release (may be <code>null</code>)
+	 * @param statementCache the statement cache used (may be <code>null</code>)
+	 * @param reusable whether the statement has been used successfully
+	 */
+	private void releaseStatement(PreparedStatement ps, PreparedStatementCache statementCache, boolean reusable) {
+		if (ps != null && statementCache != null && statementCache.release(ps, reusable)) {
+			return;
+		}
+		JdbcUtils.closeStatement(ps);
+	}
+
 	/**
 	 * Throw an SQLWarningException if we're not ignoring warnings.
 	 * @param warning warning from current statement. May be <code>null</code>,
@@ -1217,6 +1596,443 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * RowIterator implementation that maps the rows of a connected ResultSet
+	 * on demand, releasing all JDBC resources once closed.
+	 */
+	private class ResultSetRowIterator implements RowIterator {
+
+		private final Connection connection;
+
+		private final Statement statement;
+
+		private final ResultSet resultSet;
+
+		private final ResultSet resultSetToUse;
+
+		private final RowMapper rowMapper;
+
+		private final String sql;
+
+		private int rowNum = 0;
+
+		private boolean advanced = false;
+
+		private boolean rowAvailable = false;
+
+		private boolean closed = false;
+
+		/** The OpenRowIterators this iterator has been added to, if any */
+		private OpenRowIterators openRowIterators;
+
+		public ResultSetRowIterator(Connection connection, Statement statement, ResultSet resultSet,
+				ResultSet resultSetToUse, RowMapper rowMapper, String sql) {
+
+			this.connection = connection;
+			this.statement = statement;
+			this.resultSet = resultSet;
+			this.resultSetToUse = resultSetToUse;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		public boolean hasNext() throws DataAccessException {
+			if (this.closed) {
+				return false;
+			}
+			if (!this.advanced) {
+				try {
+					this.rowAvailable = this.resultSetToUse.next();
+				}
+				catch (SQLException ex) {
+					close();
+					throw getExceptionTranslator().translate("RowIterator", this.sql, ex);
+				}
+				this.advanced = true;
+				if (!this.rowAvailable) {
+					close();
+				}
+			}
+			return this.rowAvailable;
+		}
+
+		public Object next() throws DataAccessException {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No further rows in result");
+			}
+			this.advanced = false;
+			try {
+				return this.rowMapper.mapRow(this.resultSetToUse, this.rowNum++);
+			}
+			catch (SQLException ex) {
+				close();
+				throw getExceptionTranslator().translate("RowIterator", this.sql, ex);
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("RowIterator does not support remove");
+		}
+
+		public int getRowCount() {
+			return this.rowNum;
+		}
+
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				this.rowAvailable = false;
+				if (this.openRowIterators != null) {
+					this.openRowIterators.remove(this);
+				}
+				JdbcUtils.closeResultSet(this.resultSet);
+				JdbcUtils.closeStatement(this.statement);
+				DataSourceUtils.releaseConnection(this.connection, getDataSource());
+			}
+		}
+
+	}
+
+
+	/**
+	 * Holder for the RowIterators that are still open within the current
+	 * transaction. Iterators remove themselves on close.
+	 */
+	private static class OpenRowIterators {
+
+		private final List iterators = new ArrayList();
+
+		public synchronized void add(ResultSetRowIterator iterator) {
+			this.iterators.add(iterator);
+			iterator.openRowIterators = this;
+		}
+
+		public synchronized void remove(ResultSetRowIterator iterator) {
+			this.iterators.remove(iterator);
+		}
+
+		public void closeAll() {
+			ResultSetRowIterator[] toClose = null;
+			synchronized (this) {
+				toClose = (ResultSetRowIterator[])
+						this.iterators.toArray(new ResultSetRowIterator[this.iterators.size()]);
+				this.iterators.clear();
+			}
+			for (int i = 0; i < toClose.length; i++) {
+				toClose[i].close();
+			}
+		}
+	}
+
+
+	/**
+	 * Callback for closing the RowIterators that are still open on transaction
+	 * completion, before the transactional Connection gets committed and released.
+	 * Registered once per transaction, along with the OpenRowIterators bound
+	 * for it; the binding is removed on suspension and restored on resumption.
+	 */
+	private static class RowIteratorSynchronization extends TransactionSynchronizationAdapter {
+
+		private final OpenRowIterators openRowIterators;
+
+		public RowIteratorSynchronization(OpenRowIterators openRowIterators) {
+			this.openRowIterators = openRowIterators;
+		}
+
+		public int getOrder() {
+			return DataSourceUtils.CONNECTION_SYNCHRONIZATION_ORDER - 1;
+		}
+
+		public void suspend() {
+			unbindOpenRowIterators();
+		}
+
+		public void resume() {
+			TransactionSynchronizationManager.bindResource(OPEN_ROW_ITERATORS_KEY, this.openRowIterators);
+		}
+
+		public void beforeCompletion() {
+			unbindOpenRowIterators();
+			this.openRowIterators.closeAll();
+		}
+
+		public void afterCompletion(int status) {
+			unbindOpenRowIterators();
+		}
+
+		private void unbindOpenRowIterators() {
+			if (TransactionSynchronizationManager.getResource(OPEN_ROW_ITERATORS_KEY) == this.openRowIterators) {
+				TransactionSynchronizationManager.unbindResource(OPEN_ROW_ITERATORS_KEY);
+			}
+		}
+	}
+
+
+	/**
+	 * PreparedStatementCallback that executes the statement arguments from the
+	 * given Iterator in JDBC batches of the given chunk size, adding the row
+	 * counts of each chunk to the given BatchUpdateSummary.
+	 * Falls back to separate updates if the JDBC driver does not support
+	 * batch updates.
+	 */
+	private class ChunkedBatchUpdateCallback implements PreparedStatementCallback {
+
+		private final Iterator batchArgs;
+
+		private final int chunkSize;
+
+		private final BatchUpdateSummary summary;
+
+		public ChunkedBatchUpdateCallback(Iterator batchArgs, int chunkSize, BatchUpdateSummary summary) {
+			this.batchArgs = batchArgs;
+			this.chunkSize = chunkSize;
+			this.summary = summary;
+		}
+
+		public Object doInPreparedStatement(PreparedStatement ps) throws SQLException {
+			boolean batchSupported = JdbcUtils.supportsBatchUpdates(ps.getConnection());
+			List setters = new ArrayList(this.chunkSize);
+			while (this.batchArgs.hasNext()) {
+				try {
+					int[] rowCounts = new int[this.chunkSize];
+					while (setters.size() < this.chunkSize && this.batchArgs.hasNext()) {
+						PreparedStatementSetter pss = createBatchPreparedStatementSetter(this.batchArgs.next());
+						setters.add(pss);
+						pss.setValues(ps);
+						if (batchSupported) {
+							ps.addBatch();
+						}
+						else {
+							rowCounts[setters.size() - 1] = ps.executeUpdate();
+						}
+					}
+					if (batchSupported) {
+						rowCounts = ps.executeBatch();
+					}
+					else if (setters.size() < rowCounts.length) {
+						int[] actualRowCounts = new int[setters.size()];
+						System.arraycopy(rowCounts, 0, actualRowCounts, 0, actualRowCounts.length);
+						rowCounts = actualRowCounts;
+					}
+					this.summary.addChunk(rowCounts);
+					if (logger.isDebugEnabled()) {
+						logger.debug("Executed batch chunk of " + rowCounts.length + " statements - " + this.summary);
+					}
+				}
+				finally {
+					for (Iterator it = setters.iterator(); it.hasNext();) {
+						Object pss = it.next();
+						if (pss instanceof ParameterDisposer) {
+							((ParameterDisposer) pss).cleanupParameters();
+						}
+					}
+					setters.clear();
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Create a PreparedStatementSetter for the given batch element:
+		 * either an Object array of arguments or a PreparedStatementSetter.
+		 */
+		private PreparedStatementSetter createBatchPreparedStatementSetter(Object batchArg) {
+			if (batchArg instanceof Object[]) {
+				return new ArgPreparedStatementSetter((Object[]) batchArg);
+			}
+			else if (batchArg instanceof PreparedStatementSetter) {
+				return (PreparedStatementSetter) batchArg;
+			}
+			else {
+				throw new InvalidDataAccessApiUsageException(
+						"Batch argument must be an Object array or a PreparedStatementSetter, not [" + batchArg + "]");
+			}
+		}
+	}
+
+
+	/**
+	 * Runnable that executes a single chunk of a concurrent batch update
+	 * on its own Connection.
+	 */
+	private class ChunkedBatchUpdateTask implements Runnable {
+
+		private final String sql;
+
+		private final List chunk;
+
+		private final BatchUpdateSummary summary;
+
+		private final ConcurrentChunkTracker tracker;
+
+		public ChunkedBatchUpdateTask(
+				String sql, List chunk, BatchUpdateSummary summary, ConcurrentChunkTracker tracker) {
+
+			this.sql = sql;
+			this.chunk = chunk;
+			this.summary = summary;
+			this.tracker = tracker;
+		}
+
+		public void run() {
+			Throwable failure = null;
+			try {
+				execute(this.sql, new ChunkedBatchUpdateCallback(this.chunk.iterator(), this.chunk.size(), this.summary));
+			}
+			catch (Throwable ex) {
+				// Recorded for the submitting thread, which will rethrow it
+				// once all chunks in progress have finished.
+				failure = ex;
+			}
+			finally {
+				this.tracker.releaseSlot(failure);
+			}
+		}
+	}
+
+
+	/**
+	 * Tracks the chunks of a concurrent batch update that are in progress,
+	 * limiting their number and recording the first failure.
+	 * <p>An interrupt of the submitting thread counts as failure as well,
+	 * but the chunks in progress will still be waited for, since they
+	 * share the batch arguments and the summary with the submitting thread.
+	 */
+	private static class ConcurrentChunkTracker {
+
+		private final int maxConcurrentChunks;
+
+		private int chunksInProgress = 0;
+
+		private Throwable failure;
+
+		private boolean interrupted = false;
+
+		public ConcurrentChunkTracker(int maxConcurrentChunks) {
+			this.maxConcurrentChunks = maxConcurrentChunks;
+		}
+
+		/**
+		 * Wait until another chunk may be started.
+		 * @return <code>true</code> if a chunk may be started, or <code>false</code>
+		 * if a previous chunk has failed and no further chunks should be started
+		 */
+		public synchronized boolean acquireSlot() {
+			while (this.failure == null && this.chunksInProgress >= this.maxConcurrentChunks) {
+				waitForChunk();
+			}
+			if (this.failure != null) {
+				return false;
+			}
+			this.chunksInProgress++;
+			return true;
+		}
+
+		/**
+		 * Mark a chunk as finished.
+		 * @param ex the exception that the chunk failed with, if any
+		 */
+		public synchronized void releaseSlot(Throwable ex) {
+			this.chunksInProgress--;
+			if (ex != null && this.failure == null) {
+				this.failure = ex;
+			}
+			notifyAll();
+		}
+
+		/**
+		 * Wait until all chunks in progress have finished, even if interrupted.
+		 * Restores the interrupt status of the current thread afterwards.
+		 */
+		public synchronized void awaitCompletion() {
+			while (this.chunksInProgress > 0) {
+				waitForChunk();
+			}
+			if (this.interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/**
+		 * Rethrow the exception that the first failed chunk failed with, if any.
+		 * Checked exceptions will be wrapped in an UndeclaredThrowableException.
+		 */
+		public synchronized void rethrowFailureIfAny() {
+			if (this.failure instanceof RuntimeException) {
+				throw (RuntimeException) this.failure;
+			}
+			if (this.failure instanceof Error) {
+				throw (Error) this.failure;
+			}
+			if (this.failure != null) {
+				throw new UndeclaredThrowableException(this.failure);
+			}
+		}
+
+		/**
+		 * Wait for a chunk to finish. An interrupt will be recorded as failure,
+		 * preventing further chunks from being started, with the interrupt
+		 * status to be restored in {@link #awaitCompletion()}.
+		 */
+		private void waitForChunk() {
+			try {
+				wait();
+			}
+			catch (InterruptedException ex) {
+				this.interrupted = true;
+				if (this.failure == null) {
+					this.failure = new DataAccessResourceFailureException(
+							"Interrupted while waiting for concurrent batch update chunks to finish", ex);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Callback for closing a PreparedStatementCache on transaction completion,
+	 * before the transactional Connection gets committed and released.
+	 * Also closes the cache on suspension of the transaction, since the
+	 * Connection might get released during suspension.
+	 */
+	private static class PreparedStatementCacheSynchronization extends TransactionSynchronizationAdapter {
+
+		private final ConnectionHolder connectionHolder;
+
+		private final PreparedStatementCache statementCache;
+
+		public PreparedStatementCacheSynchronization(
+				ConnectionHolder connectionHolder, PreparedStatementCache statementCache) {
+
+			this.connectionHolder = connectionHolder;
+			this.statementCache = statementCache;
+		}
+
+		public int getOrder() {
+			return DataSourceUtils.CONNECTION_SYNCHRONIZATION_ORDER - 1;
+		}
+
+		public void suspend() {
+			closeStatementCache();
+		}
+
+		public void beforeCompletion() {
+			closeStatementCache();
+		}
+
+		public void afterCompletion(int status) {
+			closeStatementCache();
+		}
+
+		private void closeStatementCache() {
+			if (TransactionSynchronizationManager.getResource(this.connectionHolder) == this.statementCache) {
+				TransactionSynchronizationManager.unbindResource(this.connectionHolder);
+				this.statementCache.close();
+			}
+		}
+	}
+
+
 	/**
 	 * Adapter to enable use of a RowCallbackHandler inside a ResultSetExtractor.
 	 * <p>Uses a regular ResultSet, so we have to be careful when using it:
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.CollectionFactory;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * Cache of PreparedStatements for a single JDBC Connection, keyed by SQL
+ * statement and result set type and concurrency. Used by JdbcTemplate
+ * for reusing PreparedStatements within a transaction, bound to the
+ * transaction's ConnectionHolder.
+ *
+ * <p>Statements are obtained through a PreparedStatementCreator, which
+ * receives a Connection proxy that serves <code>prepareStatement</code>
+ * calls from the cache. Statements prepared with other options (for
+ * example, for returning generated keys) will not be cached.
+ *
+ * <p>Cached statements are handed out through a handle that returns the
+ * statement to the cache when closed, so that callers closing the statement
+ * themselves do not close the underlying cached statement. A handle cannot
+ * be used anymore once it has been closed or released.
+ *
+ * <p>Not thread-safe: to be used by the transaction's thread only.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see JdbcTemplate#setStatementCacheSize
+ */
+class PreparedStatementCache {
+
+	private static final Log logger = LogFactory.getLog(PreparedStatementCache.class);
+
+
+	private final Connection connection;
+
+	private final int cacheLimit;
+
+	/** Map from statement key String to CachedStatement, in LRU order */
+	private final Map statementsByKey = CollectionFactory.createLinkedMapIfPossible(16);
+
+	/** Map from PreparedStatement handle to CachedStatement, for statements in use */
+	private final Map statementsInUse = CollectionFactory.createIdentityMapIfPossible(4);
+
+
+	/**
+	 * Create a new PreparedStatementCache for the given Connection.
+	 * @param connection the JDBC Connection to prepare statements on
+	 * @param cacheLimit the maximal number of statements to cache
+	 */
+	public PreparedStatementCache(Connection connection, int cacheLimit) {
+		this.connection = connection;
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the JDBC Connection that this cache prepares statements on.
+	 */
+	public Connection getConnection() {
+		return this.connection;
+	}
+
+
+	/**
+	 * Obtain a PreparedStatement from the given PreparedStatementCreator,
+	 * serving its <code>prepareStatement</code> call from the cache if possible.
+	 * @param psc the PreparedStatementCreator to use
+	 * @return the PreparedStatement (either cached or newly prepared)
+	 * @throws SQLException if thrown by the PreparedStatementCreator
+	 */
+	public PreparedStatement prepareStatement(PreparedStatementCreator psc) throws SQLException {
+		Connection cachingConnection = (Connection) Proxy.newProxyInstance(
+				Connection.class.getClassLoader(), new Class[] {Connection.class},
+				new CachingConnectionInvocationHandler());
+		return psc.createPreparedStatement(cachingConnection);
+	}
+
+	/**
+	 * Return the underlying statement for the given statement handle,
+	 * for example for extracting the native JDBC statement.
+	 * @param ps the PreparedStatement currently in use
+	 * @return the cached target statement, or the given statement
+	 * itself if it is not a cached one
+	 */
+	public PreparedStatement getTargetStatement(PreparedStatement ps) {
+		CachedStatement cachedStatement = (CachedStatement) this.statementsInUse.get(ps);
+		return (cachedStatement != null ? cachedStatement.target : ps);
+	}
+
+	/**
+	 * Return the number of times that the given statement has been handed out,
+	 * including the current use.
+	 * @param ps the PreparedStatement currently in use
+	 * @return the use count, or 0 if the given statement is not a cached one
+	 */
+	public int getUseCount(PreparedStatement ps) {
+		CachedStatement cachedStatement = (CachedStatement) this.statementsInUse.get(ps);
+		return (cachedStatement != null ? cachedStatement.useCount : 0);
+	}
+
+	/**
+	 * Release the given statement after use. A cached statement will either be
+	 * cleared for reuse or, if not reusable, removed from the cache and closed.
+	 * @param ps the PreparedStatement to release
+	 * @param reusable whether the statement has been used successfully,
+	 * and can hence be reused
+	 * @return whether the given statement was a cached one (<code>false</code>
+	 * indicating that the caller is responsible for closing the statement)
+	 */
+	public boolean release(PreparedStatement ps, boolean reusable) {
+		CachedStatement cachedStatement = (CachedStatement) this.statementsInUse.remove(ps);
+		if (cachedStatement == null) {
+			return false;
+		}
+		releaseCachedStatement(cachedStatement, reusable);
+		return true;
+	}
+
+	/**
+	 * Close all cached statements. Statements that are still in use will be
+	 * closed as well, since this is only supposed to happen on transaction completion.
+	 */
+	public void close() {
+		for (Iterator it = this.statementsByKey.values().iterator(); it.hasNext();) {
+			CachedStatement cachedStatement = (CachedStatement) it.next();
+			cachedStatement.currentHandle = null;
+			JdbcUtils.closeStatement(cachedStatement.target);
+		}
+		this.statementsByKey.clear();
+		this.statementsInUse.clear();
+	}
+
+
+	/**
+	 * Obtain a statement for the given key: either an idle cached statement,
+	 * or a newly prepared statement (which will be cached if possible).
+	 */
+	private PreparedStatement obtainStatement(String key, Method method, Object[] args) throws Throwable {
+		CachedStatement cachedStatement = (CachedStatement) this.statementsByKey.remove(key);
+		if (cachedStatement != null) {
+			// Re-add to mark as most recently used.
+			this.statementsByKey.put(key, cachedStatement);
+			if (cachedStatement.isInUse()) {
+				// Nested use of the same statement: prepare an uncached one.
+				return invokeOnConnection(method, args);
+			}
+		}
+		else {
+			if (this.statementsByKey.size() >= this.cacheLimit && !evictStatement()) {
+				// All cached statements in use: do not cache the new one.
+				return invokeOnConnection(method, args);
+			}
+			cachedStatement = new CachedStatement(key, invokeOnConnection(method, args));
+			this.statementsByKey.put(key, cachedStatement);
+		}
+		cachedStatement.useCount++;
+		PreparedStatement handle = cachedStatement.createHandle();
+		this.statementsInUse.put(handle, cachedStatement);
+		return handle;
+	}
+
+	/**
+	 * Release the given cached statement, which is not in use anymore.
+	 * @param cachedStatement the cached statement to release
+	 * @param reusable whether the statement can be reused: if not,
+	 * or if it could not be reset, it will be removed and closed
+	 */
+	private void releaseCachedStatement(CachedStatement cachedStatement, boolean reusable) {
+		cachedStatement.currentHandle = null;
+		if (reusable) {
+			try {
+				cachedStatement.reset();
+				return;
+			}
+			catch (SQLException ex) {
+				logger.debug("Could not reset cached JDBC PreparedStatement - discarding it", ex);
+			}
+		}
+		this.statementsByKey.remove(cachedStatement.key);
+		JdbcUtils.closeStatement(cachedStatement.target);
+	}
+
+	/**
+	 * Close and remove the least recently used statement that is not in use.
+	 * @return whether a statement has been evicted
+	 */
+	private boolean evictStatement() {
+		for (Iterator it = this.statementsByKey.values().iterator(); it.hasNext();) {
+			CachedStatement cachedStatement = (CachedStatement) it.next();
+			if (!cachedStatement.isInUse()) {
+				it.remove();
+				JdbcUtils.closeStatement(cachedStatement.target);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private PreparedStatement invokeOnConnection(Method method, Object[] args) throws Throwable {
+		try {
+			return (PreparedStatement) method.invoke(this.connection, args);
+		}
+		catch (InvocationTargetException ex) {
+			throw ex.getTargetException();
+		}
+	}
+
+
+	/**
+	 * Invocation handler that serves <code>prepareStatement</code> calls
+	 * for the default options or for a specific result set type and
+	 * concurrency from the cache, delegating all other calls.
+	 */
+	private class CachingConnectionInvocationHandler implements InvocationHandler {
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("equals")) {
+				// Only consider equal when proxies are identical.
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (method.getName().equals("hashCode")) {
+				// Use hashCode of Connection proxy.
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (method.getName().equals("prepareStatement") && args[0] instanceof String) {
+				if (args.length == 1) {
+					return obtainStatement(
+							createKey((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY),
+							method, args);
+				}
+				else if (args.length == 3 && args[1] instanceof Integer && args[2] instanceof Integer) {
+					return obtainStatement(
+							createKey((String) args[0], ((Integer) args[1]).intValue(), ((Integer) args[2]).intValue()),
+							method, args);
+				}
+			}
+			try {
+				return method.invoke(connection, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		private String createKey(String sql, int resultSetType, int resultSetConcurrency) {
+			return resultSetType + ":" + resultSetConcurrency + ":" + sql;
+		}
+	}
+
+
+	/**
+	 * A PreparedStatement held in the cache, along with its original settings.
+	 * Handed out through a proxy that returns the statement to the cache when closed.
+	 */
+	private class CachedStatement implements InvocationHandler {
+
+		public final String key;
+
+		public final PreparedStatement target;
+
+		private final int defaultFetchSize;
+
+		private final int defaultMaxRows;
+
+		private final int defaultQueryTimeout;
+
+		/** The handle that this statement is currently in use through, if any */
+		public Object currentHandle;
+
+		public int useCount;
+
+		public CachedStatement(String key, PreparedStatement target) throws SQLException {
+			this.key = key;
+			this.target = target;
+			this.defaultFetchSize = target.getFetchSize();
+			this.defaultMaxRows = target.getMaxRows();
+			this.defaultQueryTimeout = target.getQueryTimeout();
+		}
+
+		public boolean isInUse() {
+			return (this.currentHandle != null);
+		}
+
+		/**
+		 * Hand out this statement through a new handle.
+		 */
+		public PreparedStatement createHandle() {
+			this.currentHandle = Proxy.newProxyInstance(
+					PreparedStatement.class.getClassLoader(), new Class[] {PreparedStatement.class}, this);
+			return (PreparedStatement) this.currentHandle;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("equals")) {
+				// Only consider equal when proxies are identical.
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (method.getName().equals("hashCode")) {
+				// Use hashCode of PreparedStatement proxy.
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (method.getName().equals("close")) {
+				// Return the statement to the cache instead of closing it.
+				// Only the current handle may do so; closing a stale handle is a no-op.
+				if (proxy == this.currentHandle) {
+					statementsInUse.remove(proxy);
+					releaseCachedStatement(this, true);
+				}
+				return null;
+			}
+			if (proxy != this.currentHandle) {
+				throw new SQLException("PreparedStatement handle already closed");
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		/**
+		 * Clear the statement's parameters and warnings, and restore
+		 * the settings that JdbcTemplate might have applied.
+		 */
+		public void reset() throws SQLException {
+			this.target.clearParameters();
+			this.target.clearWarnings();
+			if (this.target.getFetchSize() != this.defaultFetchSize) {
+				this.target.setFetchSize(this.defaultFetchSize);
+			}
+			if (this.target.getMaxRows() != this.defaultMaxRows) {
+				this.target.setMaxRows(this.defaultMaxRows);
+			}
+			if (this.target.getQueryTimeout() != this.defaultQueryTimeout) {
+				this.target.setQueryTimeout(this.defaultQueryTimeout);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.util.Iterator;
+
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Iterator over the rows of a query result that is still connected
+ * to the database, as returned by JdbcTemplate's <code>queryForIterator</code>
+ * methods. Each call to <code>next()</code> maps the next row via the
+ * given RowMapper, without ever holding the entire result in memory.
+ *
+ * <p>The iterator holds on to the JDBC Connection, Statement and ResultSet
+ * until the last row has been read or {@link #close()} has been called.
+ * Callers should always close the iterator in a finally block:
+ *
+ * <pre class="code">RowIterator it = jdbcTemplate.queryForIterator(sql, args, rowMapper);
+ * try {
+ *   while (it.hasNext()) {
+ *     Object row = it.next();
+ *     ...
+ *   }
+ * }
+ * finally {
+ *   it.close();
+ * }</pre>
+ *
+ * When obtained within a transaction, the iterator works on the transactional
+ * Connection and will be closed automatically on transaction completion
+ * at the latest. It must not be used after the transaction has ended.
+ *
+ * <p>SQLExceptions thrown while reading the ResultSet will be translated
+ * into unchecked DataAccessExceptions, with the iterator getting closed.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see JdbcTemplate#queryForIterator(String, Object[], RowMapper)
+ * @see RowMapper
+ */
+public interface RowIterator extends Iterator {
+
+	/**
+	 * Return whether there is another row in the result.
+	 * Closes the iterator once the end of the result has been reached.
+	 * @throws DataAccessException if the ResultSet could not be advanced
+	 */
+	boolean hasNext() throws DataAccessException;
+
+	/**
+	 * Map the next row in the result via the RowMapper.
+	 * @return the mapped object for the current row
+	 * @throws java.util.NoSuchElementException if there is no further row
+	 * @throws DataAccessException if the ResultSet could not be read
+	 */
+	Object next() throws DataAccessException;
+
+	/**
+	 * Return the number of rows returned by <code>next()</code> so far.
+	 */
+	int getRowCount();
+
+	/**
+	 * Close the underlying ResultSet and Statement, and release the Connection.
+	 * Can be called multiple times; subsequent calls will simply be ignored.
+	 */
+	void close();
+
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.springframework.core.CollectionFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
@@ -49,6 +50,11 @@ import org.springframework.util.Assert;
  * exposed to allow for convenient access to the traditional
  * {@link org.springframework.jdbc.core.JdbcTemplate} methods.
  *
+ * <p>Parsed SQL statements are kept in a size-limited cache, keyed by SQL String,
+ * to avoid re-parsing the same statement on every execution. The substituted
+ * SQL is cached along with it, per number of elements in expanded collection
+ * values. See {@link #setCacheLimit "cacheLimit"}.
+ *
  * @author Thomas Risberg
  * @author Juergen Hoeller
  * @since 2.0
@@ -57,11 +63,20 @@ import org.springframework.util.Assert;
  */
 public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations {
 
+	/** Default maximum number of entries for this template's SQL cache: 256 */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
 	/**
 	 * The JdbcTemplate we are wrapping
 	 */
 	private final JdbcOperations classicJdbcTemplate;
 
+	private int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Cache of ParsedSql instances, keyed by original SQL String */
+	private volatile Map parsedSqlCache = CollectionFactory.createLruMapIfPossible(DEFAULT_CACHE_LIMIT);
+
 
 	/**
 	 * Create a new NamedParameterJdbcTemplate for the given {@link DataSource}.
@@ -92,6 +107,38 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return this.classicJdbcTemplate;
 	}
 
+	/**
+	 * Specify the maximum number of entries for this template's SQL cache.
+	 * Default is 256. The least recently used statement will be evicted
+	 * once the limit has been reached.
+	 * <p>A limit of 0 turns caching off, parsing every statement on execution.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		Assert.isTrue(cacheLimit >= 0, "Cache limit must not be negative");
+		this.cacheLimit = cacheLimit;
+		this.parsedSqlCache = (cacheLimit > 0 ? CollectionFactory.createLruMapIfPossible(cacheLimit) : null);
+	}
+
+	/**
+	 * Return the maximum number of entries for this template's SQL cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the number of SQL statements currently held in this template's cache.
+	 */
+	public int getCacheSize() {
+		Map cache = this.parsedSqlCache;
+		if (cache == null) {
+			return 0;
+		}
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Query operations
@@ -100,10 +147,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	public void query(String sql, SqlParameterSource paramSource, RowCallbackHandler rch)
 			throws DataAccessException {
 
-		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		ParsedSql parsedSql = getParsedSql(sql);
 		Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource);
 		int[] argTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(sql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		getJdbcOperations().query(sqlToUse, args, argTypes, rch);
 	}
 
@@ -114,10 +161,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	public List query(String sql, SqlParameterSource paramSource, RowMapper rowMapper)
 			throws DataAccessException {
 
-		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		ParsedSql parsedSql = getParsedSql(sql);
 		Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource);
 		int[] argTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(sql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		return (List) getJdbcOperations().query(
 				sqlToUse, args, argTypes, new RowMapperResultSetExtractor(rowMapper));
 	}
@@ -129,10 +176,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	public Object queryForObject(String sql, SqlParameterSource paramSource, RowMapper rowMapper)
 			throws DataAccessException {
 
-		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		ParsedSql parsedSql = getParsedSql(sql);
 		Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource);
 		int[] argTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(sql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		List results = (List) getJdbcOperations().query(
 				sqlToUse, args, argTypes, new RowMapperResultSetExtractor(rowMapper, 1));
 		return DataAccessUtils.requiredUniqueResult(results);
@@ -195,10 +242,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	}
 
 	public SqlRowSet queryForRowSet(String sql, SqlParameterSource paramSource) throws DataAccessException {
-		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		ParsedSql parsedSql = getParsedSql(sql);
 		Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource);
 		int[] argTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(sql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		return (SqlRowSet) getJdbcOperations().query(sqlToUse, args, argTypes, new SqlRowSetResultSetExtractor());
 	}
 
@@ -212,10 +259,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	//-------------------------------------------------------------------------
 
 	public int update(String sql, SqlParameterSource paramSource) throws DataAccessException {
-		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		ParsedSql parsedSql = getParsedSql(sql);
 		Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource);
 		int[] argTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(sql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		return getJdbcOperations().update(sqlToUse, args, argTypes);
 	}
 
@@ -233,10 +280,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 			String sql, SqlParameterSource paramSource, KeyHolder generatedKeyHolder, String[] keyColumnNames)
 			throws DataAccessException {
 
-		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		ParsedSql parsedSql = getParsedSql(sql);
 		Object[] args = NamedParameterUtils.buildValueArray(parsedSql, paramSource);
 		int[] argTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(sql, paramSource);
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		PreparedStatementCreatorFactory pscf = new PreparedStatementCreatorFactory(sqlToUse, argTypes);
 		if (keyColumnNames != null) {
 			pscf.setGeneratedKeysColumnNames(keyColumnNames);
@@ -247,4 +294,25 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return getJdbcOperations().update(pscf.newPreparedStatementCreator(args), generatedKeyHolder);
 	}
 
+	/**
+	 * Obtain a parsed representation of the given SQL statement,
+	 * from this template's cache if possible.
+	 * @param sql the original SQL
+	 * @return the parsed SQL statement
+	 */
+	private ParsedSql getParsedSql(String sql) {
+		Map cache = this.parsedSqlCache;
+		if (cache == null) {
+			return NamedParameterUtils.parseSqlStatement(sql);
+		}
+		synchronized (cache) {
+			ParsedSql parsedSql = (ParsedSql) cache.get(sql);
+			if (parsedSql == null) {
+				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+				cache.put(sql, parsedSql);
+			}
+			return parsedSql;
+		}
+	}
+
 }
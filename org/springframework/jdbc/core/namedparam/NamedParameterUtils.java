@@ -62,6 +62,7 @@ public abstract class NamedParameterUtils {
 		Assert.notNull(sql, "SQL must not be null");
 
 		List parameters = new ArrayList();
+		List parameterIndexes = new ArrayList();
 		Map namedParameters = new HashMap();
 		ParsedSql parsedSql = new ParsedSql(sql);
 
@@ -103,6 +104,7 @@ public abstract class NamedParameterUtils {
 							}
 							newSql.append("?");
 							parameters.add(parameter);
+							parameterIndexes.add(new int[] {i, j});
 							totalParameterCount++;
 						} else {
 							newSql.append(c);
@@ -122,6 +124,14 @@ public abstract class NamedParameterUtils {
 		}
 		parsedSql.setNewSql(newSql.toString());
 		parsedSql.setParameterNames((String[]) parameters.toArray(new String[parameters.size()]));
+		int[] startIndexes = new int[parameterIndexes.size()];
+		int[] endIndexes = new int[parameterIndexes.size()];
+		for (int k = 0; k < startIndexes.length; k++) {
+			int[] indexes = (int[]) parameterIndexes.get(k);
+			startIndexes[k] = indexes[0];
+			endIndexes[k] = indexes[1];
+		}
+		parsedSql.setParameterIndexes(startIndexes, endIndexes);
 		parsedSql.setNamedParameterCount(namedParameterCount);
 		parsedSql.setUnnamedParameterCount(unnamedParameterCount);
 		parsedSql.setTotalParameterCount(totalParameterCount);
@@ -206,6 +216,68 @@ public abstract class NamedParameterUtils {
 		return newSql.toString();
 	}
 
+	/**
+	 * Substitute named parameters in the given pre-parsed SQL statement,
+	 * with the same semantics as {@link #substituteNamedParameters(String, SqlParameterSource)}.
+	 * <p>Works from the parameter positions recorded during parsing instead of
+	 * re-scanning the statement. The outcome is cached per distinct parameter arity
+	 * in the given ParsedSql instance, so that repeated expansions of collection
+	 * values with the same number of elements can be reused.
+	 * @param parsedSql the parsed SQL statement
+	 * @param paramSource the source for named parameters
+	 * @return the SQL statement with substituted parameters
+	 */
+	static String substituteNamedParameters(ParsedSql parsedSql, SqlParameterSource paramSource) {
+		String[] paramNames = parsedSql.getParameterNames();
+		int[] arity = new int[paramNames.length];
+		boolean expanded = false;
+		for (int i = 0; i < paramNames.length; i++) {
+			arity[i] = 1;
+			if (paramSource != null && paramSource.hasValue(paramNames[i])) {
+				Object value = paramSource.getValue(paramNames[i]);
+				if (value instanceof Collection) {
+					arity[i] = ((Collection) value).size();
+					expanded = true;
+				}
+			}
+		}
+		if (!expanded) {
+			// A single placeholder per parameter: equivalent to the parsed SQL.
+			return parsedSql.getNewSql();
+		}
+
+		StringBuffer arityKey = new StringBuffer();
+		for (int i = 0; i < arity.length; i++) {
+			if (i > 0) {
+				arityKey.append(',');
+			}
+			arityKey.append(arity[i]);
+		}
+		String cacheKey = arityKey.toString();
+		String substitutedSql = parsedSql.getSubstitutedSql(cacheKey);
+		if (substitutedSql == null) {
+			String sql = parsedSql.getSql();
+			int[] startIndexes = parsedSql.getParameterStartIndexes();
+			int[] endIndexes = parsedSql.getParameterEndIndexes();
+			StringBuffer newSql = new StringBuffer(sql.length() + arity.length * 3);
+			int lastIndex = 0;
+			for (int i = 0; i < arity.length; i++) {
+				newSql.append(sql.substring(lastIndex, startIndexes[i]));
+				for (int k = 0; k < arity[i]; k++) {
+					if (k > 0) {
+						newSql.append(", ");
+					}
+					newSql.append("?");
+				}
+				lastIndex = endIndexes[i];
+			}
+			newSql.append(sql.substring(lastIndex));
+			substitutedSql = newSql.toString();
+			parsedSql.addSubstitutedSql(cacheKey, substitutedSql);
+		}
+		return substitutedSql;
+	}
+
 	/**
 	 * Convert a Map of named parameter values to a corresponding array.
 	 * <p>This is necessary in order to reuse existing methods on JdbcTemplate.
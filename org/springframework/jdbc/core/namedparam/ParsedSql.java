@@ -16,6 +16,10 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.util.Map;
+
+import org.springframework.core.CollectionFactory;
+
 /**
  * Holds information for parsed SQL statements.
  *
@@ -36,6 +40,19 @@ class ParsedSql {
 
 	private int totalParameterCount;
 
+	private int[] parameterStartIndexes;
+
+	private int[] parameterEndIndexes;
+
+	/**
+	 * Maximum number of substituted SQL variants to cache for this statement.
+	 * Each distinct combination of collection sizes yields its own variant.
+	 */
+	private static final int SUBSTITUTED_SQL_CACHE_LIMIT = 64;
+
+	/** Substituted SQL Strings, keyed by parameter arity */
+	private final Map substitutedSqlCache = CollectionFactory.createConcurrentMapIfPossible(4);
+
 
 	/**
 	 * Creates a new instance of the {@link ParsedSql} class.
@@ -142,4 +159,50 @@ class ParsedSql {
 		return totalParameterCount;
 	}
 
+	/**
+	 * Set the positions of the parameters (bind variables) in the original
+	 * SQL statement: the index of each parameter's prefix character ('<code>:</code>'
+	 * or '<code>&amp;</code>') and the index right after its name, respectively.
+	 * Repeated occurences of the same parameter name are included here.
+	 */
+	public void setParameterIndexes(int[] parameterStartIndexes, int[] parameterEndIndexes) {
+		this.parameterStartIndexes = parameterStartIndexes;
+		this.parameterEndIndexes = parameterEndIndexes;
+	}
+
+	/**
+	 * Get the start index of each parameter (bind variable) in the original SQL statement.
+	 */
+	public int[] getParameterStartIndexes() {
+		return parameterStartIndexes;
+	}
+
+	/**
+	 * Get the end index (exclusive) of each parameter (bind variable) in the original SQL statement.
+	 */
+	public int[] getParameterEndIndexes() {
+		return parameterEndIndexes;
+	}
+
+	/**
+	 * Return the substituted SQL previously built for the given parameter arity.
+	 * @param arityKey the key describing the number of placeholders per parameter
+	 * @return the substituted SQL, or <code>null</code> if none cached
+	 */
+	public String getSubstitutedSql(String arityKey) {
+		return (String) this.substitutedSqlCache.get(arityKey);
+	}
+
+	/**
+	 * Cache the substituted SQL for the given parameter arity,
+	 * as long as the per-statement cache limit has not been reached yet.
+	 * @param arityKey the key describing the number of placeholders per parameter
+	 * @param substitutedSql the substituted SQL
+	 */
+	public void addSubstitutedSql(String arityKey, String substitutedSql) {
+		if (this.substitutedSqlCache.size() < SUBSTITUTED_SQL_CACHE_LIMIT) {
+			this.substitutedSqlCache.put(arityKey, substitutedSql);
+		}
+	}
+
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.simple;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+
+/**
+ * Generic ParameterizedRowMapper implementation that converts a row into
+ * a new instance of the specified mapped target class, for use with
+ * SimpleJdbcTemplate. See {@link BeanPropertyRowMapper} for details on
+ * the mapping of columns to bean properties.
+ *
+ * <p>Uses Java 5 covariant return types to override the return type of the
+ * {@link #mapRow} method to be the type parameter <code>T</code>.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see SimpleJdbcOperations#query(String, ParameterizedRowMapper, Object[])
+ */
+public class ParameterizedBeanPropertyRowMapper<T> extends BeanPropertyRowMapper
+		implements ParameterizedRowMapper<T> {
+
+	/**
+	 * Create a new ParameterizedBeanPropertyRowMapper for bean-style configuration.
+	 * @see #setMappedClass
+	 */
+	public ParameterizedBeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new ParameterizedBeanPropertyRowMapper.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public ParameterizedBeanPropertyRowMapper(Class<T> mappedClass) {
+		super(mappedClass);
+	}
+
+
+	@SuppressWarnings("unchecked")
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		return (T) super.mapRow(rs, rowNumber);
+	}
+
+
+	/**
+	 * Static factory method to create a new ParameterizedBeanPropertyRowMapper
+	 * (with the mapped class specified only once).
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> ParameterizedBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new ParameterizedBeanPropertyRowMapper<T>(mappedClass);
+	}
+
+}
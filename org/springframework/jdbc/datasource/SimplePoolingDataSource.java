@@ -0,0 +1,1184 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.JdkVersion;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Simple connection pool, obtaining its physical Connections via the
+ * DriverManager. Configured via the same bean properties as its superclass
+ * {@link DriverManagerDataSource}, plus pool settings such as minimal and
+ * maximal pool size.
+ *
+ * <p>Hands out Connection proxies that return the underlying Connection to
+ * the pool on <code>close()</code>: Hence this DataSource can be used with
+ * any DataSource-aware code, including DataSourceUtils, JdbcTemplate and
+ * DataSourceTransactionManager. The proxies implement the {@link ConnectionProxy}
+ * interface, for access to the underlying native Connection.
+ *
+ * <p>Connections are borrowed from and returned to the pool without locking
+ * on JDK 1.5+, using a <code>java.util.concurrent.ConcurrentLinkedQueue</code>
+ * for the idle Connections. On older JDKs, a synchronized list is used instead.
+ * A lock only needs to be acquired for creating and destroying physical
+ * Connections, and for waiting for a Connection if the pool is exhausted.
+ *
+ * <p>Further features:
+ * <ul>
+ * <li>validation of idle Connections on borrow, either through a validation
+ * query or simply by checking whether the Connection has been closed;
+ * <li>eviction of Connections that have been idle for a specified time,
+ * through a background timer thread;
+ * <li>caching of PreparedStatements per Connection, if a
+ * {@link #setMaxStatementsPerConnection "maxStatementsPerConnection"}
+ * limit has been specified;
+ * <li>pool metrics, exposed as bean properties: for example, through
+ * Spring's {@link org.springframework.jmx.export.MBeanExporter}, which
+ * exposes all bean properties as read-only JMX attributes by default.
+ * </ul>
+ *
+ * <p>This is primarily intended for testing and embedded deployments. For a
+ * full-blown connection pool, consider a JNDI DataSource provided by a J2EE
+ * container, or a standalone connection pool such as Jakarta Commons DBCP or
+ * C3P0. This class should be defined with destroy-method="destroy" (which a
+ * bean factory will detect automatically, since it implements DisposableBean),
+ * for immediate shutdown of the pool when the ApplicationContext shuts down.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see #setMinIdle
+ * @see #setMaxSize
+ * @see #setValidationQuery
+ * @see #setMinEvictableIdleTimeMillis
+ * @see #setMaxStatementsPerConnection
+ * @see DataSourceUtils#releaseConnection
+ * @see DataSourceTransactionManager
+ */
+public class SimplePoolingDataSource extends DriverManagerDataSource implements SmartDataSource, DisposableBean {
+
+	/** Default maximal number of Connections: 8 */
+	public static final int DEFAULT_MAX_SIZE = 8;
+
+	/** Default time to wait for a Connection if the pool is exhausted: 30 seconds */
+	public static final long DEFAULT_MAX_WAIT = 30000;
+
+	/** Default interval between eviction runs: 1 minute */
+	public static final long DEFAULT_TIME_BETWEEN_EVICTION_RUNS = 60000;
+
+	/** Default time that a Connection may be idle before being evicted: 5 minutes */
+	public static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME = 300000;
+
+
+	private int minIdle = 0;
+
+	private int maxSize = DEFAULT_MAX_SIZE;
+
+	private long maxWait = DEFAULT_MAX_WAIT;
+
+	private boolean testOnBorrow = true;
+
+	private String validationQuery;
+
+	private long timeBetweenEvictionRunsMillis = DEFAULT_TIME_BETWEEN_EVICTION_RUNS;
+
+	private long minEvictableIdleTimeMillis = DEFAULT_MIN_EVICTABLE_IDLE_TIME;
+
+	private boolean defaultAutoCommit = true;
+
+	private int maxStatementsPerConnection = 0;
+
+	/** Idle Connections, as PooledConnection objects */
+	private final ConnectionQueue idleConnections = createConnectionQueue();
+
+	/** Monitor for the total Connection count and for waiting threads */
+	private final Object poolMonitor = new Object();
+
+	/** Number of physical Connections, guarded by the pool monitor */
+	private volatile int totalCount = 0;
+
+	/** Number of threads waiting for a Connection, guarded by the pool monitor */
+	private volatile int waitingCount = 0;
+
+	private volatile boolean initialized = false;
+
+	private volatile boolean closed = false;
+
+	private Timer evictionTimer;
+
+	/**
+	 * Pool statistics. Updated without synchronization in order to be free
+	 * of locks: counts may occasionally miss an update under concurrent access.
+	 */
+	private volatile long borrowCount = 0;
+
+	private volatile long createCount = 0;
+
+	private volatile long destroyCount = 0;
+
+	private volatile long waitCount = 0;
+
+	private volatile long validationFailureCount = 0;
+
+	private volatile long evictionCount = 0;
+
+	private volatile long statementCacheHitCount = 0;
+
+	private volatile long statementCacheMissCount = 0;
+
+
+	/**
+	 * Constructor for bean-style configuration.
+	 */
+	public SimplePoolingDataSource() {
+	}
+
+	/**
+	 * Create a new SimplePoolingDataSource with the given standard
+	 * DriverManager parameters.
+	 * @param driverClassName the JDBC driver class name
+	 * @param url the JDBC URL to use for accessing the DriverManager
+	 * @param username the JDBC username to use for accessing the DriverManager
+	 * @param password the JDBC password to use for accessing the DriverManager
+	 * @see java.sql.DriverManager#getConnection(String, String, String)
+	 */
+	public SimplePoolingDataSource(String driverClassName, String url, String username, String password) {
+		super(driverClassName, url, username, password);
+	}
+
+	/**
+	 * Create a new SimplePoolingDataSource with the given standard
+	 * DriverManager parameters.
+	 * @param url the JDBC URL to use for accessing the DriverManager
+	 * @param username the JDBC username to use for accessing the DriverManager
+	 * @param password the JDBC password to use for accessing the DriverManager
+	 * @see java.sql.DriverManager#getConnection(String, String, String)
+	 */
+	public SimplePoolingDataSource(String url, String username, String password) {
+		super(url, username, password);
+	}
+
+
+	/**
+	 * Set the minimal number of idle Connections to keep in the pool.
+	 * Default is 0.
+	 * <p>The pool will be filled up to this number on first access
+	 * and after each eviction run.
+	 */
+	public void setMinIdle(int minIdle) {
+		Assert.isTrue(minIdle >= 0, "minIdle must not be negative");
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Return the minimal number of idle Connections to keep in the pool.
+	 */
+	public int getMinIdle() {
+		return this.minIdle;
+	}
+
+	/**
+	 * Set the maximal number of physical Connections, active or idle.
+	 * Default is 8.
+	 */
+	public void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be at least 1");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the maximal number of physical Connections, active or idle.
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Set the maximal time to wait for a Connection to be returned if the pool
+	 * is exhausted, in milliseconds. Default is 30000 (30 seconds).
+	 * <p>Specify 0 to fail immediately, or -1 to wait indefinitely.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Return the maximal time to wait for a Connection if the pool is exhausted.
+	 */
+	public long getMaxWait() {
+		return this.maxWait;
+	}
+
+	/**
+	 * Set whether to validate idle Connections before handing them out.
+	 * Default is "true".
+	 * <p>Connections that fail validation will be closed and replaced.
+	 * @see #setValidationQuery
+	 */
+	public void setTestOnBorrow(boolean testOnBorrow) {
+		this.testOnBorrow = testOnBorrow;
+	}
+
+	/**
+	 * Return whether to validate idle Connections before handing them out.
+	 */
+	public boolean isTestOnBorrow() {
+		return this.testOnBorrow;
+	}
+
+	/**
+	 * Set the SQL query to execute for validating a Connection,
+	 * for example "SELECT 1" (depending on the database).
+	 * <p>Default is none, simply checking whether the Connection has been closed.
+	 * @see #setTestOnBorrow
+	 */
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	/**
+	 * Return the SQL query to execute for validating a Connection, if any.
+	 */
+	public String getValidationQuery() {
+		return this.validationQuery;
+	}
+
+	/**
+	 * Set the interval between runs of the idle Connection evictor,
+	 * in milliseconds. Default is 60000 (1 minute).
+	 * <p>Specify 0 to not evict idle Connections at all.
+	 * @see #setMinEvictableIdleTimeMillis
+	 */
+	public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+		this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Return the interval between runs of the idle Connection evictor.
+	 */
+	public long getTimeBetweenEvictionRunsMillis() {
+		return this.timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Set the time that a Connection may be idle before being evicted,
+	 * in milliseconds. Default is 300000 (5 minutes).
+	 * <p>The pool will not evict Connections below its minimal number
+	 * of idle Connections.
+	 * @see #setMinIdle
+	 */
+	public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+		this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+	}
+
+	/**
+	 * Return the time that a Connection may be idle before being evicted.
+	 */
+	public long getMinEvictableIdleTimeMillis() {
+		return this.minEvictableIdleTimeMillis;
+	}
+
+	/**
+	 * Set the auto-commit state for Connections handed out by this pool.
+	 * Default is "true".
+	 * <p>A Connection will be reset to this state when returned to the pool,
+	 * rolling back any uncommitted work if it is in manual commit mode.
+	 */
+	public void setDefaultAutoCommit(boolean defaultAutoCommit) {
+		this.defaultAutoCommit = defaultAutoCommit;
+	}
+
+	/**
+	 * Return the auto-commit state for Connections handed out by this pool.
+	 */
+	public boolean isDefaultAutoCommit() {
+		return this.defaultAutoCommit;
+	}
+
+	/**
+	 * Set the maximal number of PreparedStatements to cache per Connection.
+	 * Default is 0, not caching any PreparedStatements.
+	 * <p>If specified, <code>prepareStatement</code> calls will return a cached
+	 * statement for the same SQL (and result set type and concurrency, if
+	 * specified), as long as that statement is not in use already. Closing the
+	 * statement will simply return it to the cache, clearing its parameters
+	 * and resetting its settings. Cached statements will be closed along with
+	 * the physical Connection.
+	 */
+	public void setMaxStatementsPerConnection(int maxStatementsPerConnection) {
+		this.maxStatementsPerConnection = maxStatementsPerConnection;
+	}
+
+	/**
+	 * Return the maximal number of PreparedStatements to cache per Connection.
+	 */
+	public int getMaxStatementsPerConnection() {
+		return this.maxStatementsPerConnection;
+	}
+
+
+	/**
+	 * Return a Connection from the pool, creating a new physical Connection
+	 * if no idle Connection is available and the pool is not exhausted yet.
+	 * Waits for a Connection to be returned if the pool is exhausted.
+	 * @return a Connection proxy that returns the physical Connection
+	 * to the pool when closed
+	 * @see #setMaxWait
+	 */
+	public Connection getConnection() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("SimplePoolingDataSource has been closed already");
+		}
+		if (!this.initialized) {
+			initializePool();
+		}
+		PooledConnection pooledConnection = borrowConnection();
+		this.borrowCount++;
+		return pooledConnection.createHandle();
+	}
+
+	/**
+	 * Connections for a custom username and password are not pooled:
+	 * This implementation returns a new physical Connection from the
+	 * DriverManager if the given credentials differ from the default ones.
+	 */
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (ObjectUtils.nullSafeEquals(username, getUsername()) &&
+				ObjectUtils.nullSafeEquals(password, getPassword())) {
+			return getConnection();
+		}
+		return super.getConnection(username, password);
+	}
+
+	/**
+	 * Connections from this pool should always be closed,
+	 * which returns them to the pool.
+	 */
+	public boolean shouldClose(Connection con) {
+		return true;
+	}
+
+	/**
+	 * Close all idle Connections and shut down the pool.
+	 * Active Connections will be closed when they are returned.
+	 * <p>As this bean implements DisposableBean, a bean factory will
+	 * automatically invoke this on destruction of its cached singletons.
+	 */
+	public void destroy() {
+		synchronized (this.poolMonitor) {
+			this.closed = true;
+			if (this.evictionTimer != null) {
+				this.evictionTimer.cancel();
+				this.evictionTimer = null;
+			}
+			// Wake up waiting threads, letting them fail.
+			this.poolMonitor.notifyAll();
+		}
+		closeIdleConnections();
+		if (logger.isInfoEnabled()) {
+			logger.info("Shut down JDBC connection pool for [" + getUrl() + "]");
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Pool metrics
+	//---------------------------------------------------------------------
+
+	/**
+	 * Return the current number of physical Connections, active or idle.
+	 */
+	public int getTotalCount() {
+		return this.totalCount;
+	}
+
+	/**
+	 * Return the current number of idle Connections.
+	 */
+	public int getIdleCount() {
+		return this.idleConnections.size();
+	}
+
+	/**
+	 * Return the current number of Connections in use.
+	 */
+	public int getActiveCount() {
+		return Math.max(this.totalCount - this.idleConnections.size(), 0);
+	}
+
+	/**
+	 * Return the current number of threads waiting for a Connection.
+	 */
+	public int getWaitingCount() {
+		return this.waitingCount;
+	}
+
+	/**
+	 * Return the number of Connections handed out so far.
+	 */
+	public long getBorrowCount() {
+		return this.borrowCount;
+	}
+
+	/**
+	 * Return the number of physical Connections created so far.
+	 */
+	public long getCreateCount() {
+		return this.createCount;
+	}
+
+	/**
+	 * Return the number of physical Connections closed so far.
+	 */
+	public long getDestroyCount() {
+		return this.destroyCount;
+	}
+
+	/**
+	 * Return the number of <code>getConnection</code> calls
+	 * that had to wait because the pool was exhausted.
+	 */
+	public long getWaitCount() {
+		return this.waitCount;
+	}
+
+	/**
+	 * Return the number of idle Connections that failed validation.
+	 */
+	public long getValidationFailureCount() {
+		return this.validationFailureCount;
+	}
+
+	/**
+	 * Return the number of idle Connections that have been evicted.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Return the number of <code>prepareStatement</code> calls
+	 * that could be served from a statement cache.
+	 */
+	public long getStatementCacheHitCount() {
+		return this.statementCacheHitCount;
+	}
+
+	/**
+	 * Return the number of <code>prepareStatement</code> calls
+	 * that required preparing a new statement.
+	 */
+	public long getStatementCacheMissCount() {
+		return this.statementCacheMissCount;
+	}
+
+
+	//---------------------------------------------------------------------
+	// Pool management
+	//---------------------------------------------------------------------
+
+	/**
+	 * Fill the pool up to its minimal number of idle Connections,
+	 * and start the idle Connection evictor (if necessary).
+	 */
+	private void initializePool() throws SQLException {
+		synchronized (this.poolMonitor) {
+			if (this.initialized) {
+				return;
+			}
+			if (this.timeBetweenEvictionRunsMillis > 0) {
+				this.evictionTimer = new Timer(true);
+				this.evictionTimer.schedule(new EvictionTask(),
+						this.timeBetweenEvictionRunsMillis, this.timeBetweenEvictionRunsMillis);
+			}
+			this.initialized = true;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Initializing JDBC connection pool for [" + getUrl() + "] with minIdle " +
+					this.minIdle + " and maxSize " + this.maxSize);
+		}
+		ensureMinIdle();
+	}
+
+	/**
+	 * Obtain an idle Connection from the pool, or create a new one.
+	 */
+	private PooledConnection borrowConnection() throws SQLException {
+		long deadline = 0;
+		while (true) {
+			PooledConnection pooledConnection = this.idleConnections.poll();
+			if (pooledConnection != null) {
+				if (!this.testOnBorrow || validateConnection(pooledConnection)) {
+					return pooledConnection;
+				}
+				destroyConnection(pooledConnection);
+				continue;
+			}
+			if (reserveConnectionSlot()) {
+				return createConnection();
+			}
+			// Pool exhausted: wait for a Connection to be returned.
+			if (deadline == 0) {
+				this.waitCount++;
+				deadline = System.currentTimeMillis() + this.maxWait;
+			}
+			awaitConnection(deadline);
+		}
+	}
+
+	/**
+	 * Wait until a Connection has been returned or destroyed, or until
+	 * the given deadline has passed.
+	 * @throws SQLException if the deadline has passed or the pool has been closed
+	 */
+	private void awaitConnection(long deadline) throws SQLException {
+		synchronized (this.poolMonitor) {
+			// Register as waiting before re-checking the pool: a thread returning
+			// a Connection will check for waiting threads after returning it.
+			this.waitingCount++;
+			try {
+				if (this.closed) {
+					throw new SQLException("SimplePoolingDataSource has been closed while waiting for a Connection");
+				}
+				if (this.idleConnections.isEmpty() && this.totalCount >= this.maxSize) {
+					long timeToWait = 0;
+					if (this.maxWait >= 0) {
+						timeToWait = deadline - System.currentTimeMillis();
+						if (timeToWait <= 0) {
+							throw new SQLException("Could not obtain Connection within " + this.maxWait +
+									" ms: pool exhausted with " + this.totalCount + " active Connections");
+						}
+					}
+					this.poolMonitor.wait(timeToWait);
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for a Connection");
+			}
+			finally {
+				this.waitingCount--;
+			}
+		}
+	}
+
+	/**
+	 * Reserve a slot for a new physical Connection, if the pool is not exhausted.
+	 * @return whether a slot has been reserved
+	 */
+	private boolean reserveConnectionSlot() {
+		synchronized (this.poolMonitor) {
+			if (this.totalCount < this.maxSize) {
+				this.totalCount++;
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Release a slot for a physical Connection, waking up waiting threads.
+	 */
+	private void releaseConnectionSlot() {
+		synchronized (this.poolMonitor) {
+			this.totalCount--;
+			this.poolMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Create a new physical Connection for a slot reserved before.
+	 */
+	private PooledConnection createConnection() throws SQLException {
+		try {
+			Connection con = getConnectionFromDriverManager();
+			if (con.getAutoCommit() != this.defaultAutoCommit) {
+				con.setAutoCommit(this.defaultAutoCommit);
+			}
+			this.createCount++;
+			return new PooledConnection(con);
+		}
+		catch (SQLException ex) {
+			releaseConnectionSlot();
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			releaseConnectionSlot();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Return the given Connection to the pool, or destroy it if it
+	 * could not be reset or if the pool has been closed in the meantime.
+	 */
+	private void returnConnection(PooledConnection pooledConnection) {
+		if (this.closed || !pooledConnection.reset()) {
+			destroyConnection(pooledConnection);
+			return;
+		}
+		pooledConnection.lastReturned = System.currentTimeMillis();
+		this.idleConnections.offer(pooledConnection);
+		if (this.waitingCount > 0) {
+			synchronized (this.poolMonitor) {
+				this.poolMonitor.notifyAll();
+			}
+		}
+		if (this.closed) {
+			// Pool closed concurrently: make sure that the Connection doesn't remain idle.
+			closeIdleConnections();
+		}
+	}
+
+	/**
+	 * Close the given physical Connection, releasing its slot.
+	 */
+	private void destroyConnection(PooledConnection pooledConnection) {
+		pooledConnection.close();
+		this.destroyCount++;
+		releaseConnectionSlot();
+	}
+
+	/**
+	 * Validate the given idle Connection.
+	 * @return whether the Connection is still valid
+	 * @see #setValidationQuery
+	 */
+	private boolean validateConnection(PooledConnection pooledConnection) {
+		Connection con = pooledConnection.target;
+		try {
+			if (con.isClosed()) {
+				this.validationFailureCount++;
+				return false;
+			}
+			if (this.validationQuery != null) {
+				Statement stmt = con.createStatement();
+				try {
+					stmt.executeQuery(this.validationQuery).close();
+				}
+				finally {
+					stmt.close();
+				}
+			}
+			return true;
+		}
+		catch (SQLException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Validation of JDBC Connection failed", ex);
+			}
+			this.validationFailureCount++;
+			return false;
+		}
+	}
+
+	/**
+	 * Create new Connections until the pool holds its minimal number
+	 * of idle Connections or is exhausted.
+	 */
+	private void ensureMinIdle() throws SQLException {
+		while (!this.closed && this.idleConnections.size() < this.minIdle && reserveConnectionSlot()) {
+			PooledConnection pooledConnection = createConnection();
+			pooledConnection.lastReturned = System.currentTimeMillis();
+			this.idleConnections.offer(pooledConnection);
+		}
+	}
+
+	/**
+	 * Evict Connections that have been idle for longer than the
+	 * minimal evictable idle time, keeping the minimal number of
+	 * idle Connections.
+	 */
+	private void evictIdleConnections() {
+		long evictBefore = System.currentTimeMillis() - this.minEvictableIdleTimeMillis;
+		int idleToCheck = this.idleConnections.size();
+		for (int i = 0; i < idleToCheck && !this.closed; i++) {
+			PooledConnection pooledConnection = this.idleConnections.poll();
+			if (pooledConnection == null) {
+				break;
+			}
+			if (pooledConnection.lastReturned < evictBefore && this.idleConnections.size() >= this.minIdle) {
+				this.evictionCount++;
+				destroyConnection(pooledConnection);
+			}
+			else {
+				this.idleConnections.offer(pooledConnection);
+			}
+		}
+		try {
+			ensureMinIdle();
+		}
+		catch (SQLException ex) {
+			logger.warn("Could not create JDBC Connection for minimal number of idle Connections", ex);
+		}
+	}
+
+	/**
+	 * Close all idle Connections.
+	 */
+	private void closeIdleConnections() {
+		PooledConnection pooledConnection = this.idleConnections.poll();
+		while (pooledConnection != null) {
+			destroyConnection(pooledConnection);
+			pooledConnection = this.idleConnections.poll();
+		}
+	}
+
+	private ConnectionQueue createConnectionQueue() {
+		if (JdkVersion.isAtLeastJava15()) {
+			return Jdk15ConnectionQueueFactory.createConnectionQueue();
+		}
+		else {
+			return new SynchronizedConnectionQueue();
+		}
+	}
+
+
+	/**
+	 * A physical Connection held by the pool, along with its statement cache.
+	 * Only used by one thread at a time.
+	 */
+	private class PooledConnection {
+
+		public final Connection target;
+
+		/** Map from statement key String to CachedStatement */
+		private final Map statementCache;
+
+		public long lastReturned;
+
+		/** Connection settings as of creation, to be restored on return to the pool */
+		private final boolean initialReadOnly;
+
+		private final int initialTransactionIsolation;
+
+		private final String initialCatalog;
+
+		/** Initial holdability, or <code>null</code> if not supported by the driver (pre JDBC 3.0) */
+		private final Integer initialHoldability;
+
+		public PooledConnection(Connection target) throws SQLException {
+			this.target = target;
+			this.statementCache = (maxStatementsPerConnection > 0 ?
+					CollectionFactory.createLinkedMapIfPossible(maxStatementsPerConnection) : null);
+			this.initialReadOnly = target.isReadOnly();
+			this.initialTransactionIsolation = target.getTransactionIsolation();
+			this.initialCatalog = target.getCatalog();
+			Integer holdability = null;
+			try {
+				holdability = new Integer(target.getHoldability());
+			}
+			catch (AbstractMethodError err) {
+				// JDBC 2.0 driver: holdability not supported.
+			}
+			catch (SQLException ex) {
+				logger.debug("Could not determine holdability of JDBC Connection - not restoring it", ex);
+			}
+			this.initialHoldability = holdability;
+		}
+
+		/**
+		 * Create a new Connection handle for this physical Connection.
+		 */
+		public Connection createHandle() {
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionProxy.class.getClassLoader(),
+					new Class[] {ConnectionProxy.class},
+					new PooledConnectionInvocationHandler(this));
+		}
+
+		/**
+		 * Prepare a statement for the given prepareStatement method and arguments,
+		 * taking it from the statement cache if possible.
+		 */
+		public PreparedStatement prepareStatement(Method method, Object[] args, Connection handle)
+				throws Throwable {
+
+			String key = (args.length == 1 || args.length == 3 ? ObjectUtils.nullSafeToString(args) : null);
+			if (this.statementCache == null || key == null) {
+				return (PreparedStatement) invoke(method, args);
+			}
+			CachedStatement cachedStatement = (CachedStatement) this.statementCache.remove(key);
+			if (cachedStatement != null) {
+				// Re-add to mark as most recently used.
+				this.statementCache.put(key, cachedStatement);
+				if (!cachedStatement.inUse) {
+					statementCacheHitCount++;
+					return cachedStatement.createHandle(handle);
+				}
+				// Same statement in use already: prepare an uncached one.
+				return (PreparedStatement) invoke(method, args);
+			}
+			statementCacheMissCount++;
+			if (this.statementCache.size() >= maxStatementsPerConnection && !evictStatement()) {
+				// All cached statements in use: do not cache this one.
+				return (PreparedStatement) invoke(method, args);
+			}
+			cachedStatement = new CachedStatement((PreparedStatement) invoke(method, args));
+			this.statementCache.put(key, cachedStatement);
+			return cachedStatement.createHandle(handle);
+		}
+
+		/**
+		 * Evict the least recently used statement that is not in use.
+		 * @return whether a statement has been evicted
+		 */
+		private boolean evictStatement() {
+			for (Iterator it = this.statementCache.values().iterator(); it.hasNext();) {
+				CachedStatement cachedStatement = (CachedStatement) it.next();
+				if (!cachedStatement.inUse) {
+					it.remove();
+					cachedStatement.close();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Object invoke(Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		/**
+		 * Reset this Connection for returning it to the pool: roll back any
+		 * ongoing transaction and restore the auto-commit mode and any other
+		 * settings that the borrower changed (read-only flag, transaction
+		 * isolation, catalog, holdability).
+		 * @return whether the Connection could be reset
+		 */
+		public boolean reset() {
+			try {
+				if (this.statementCache != null) {
+					for (Iterator it = this.statementCache.values().iterator(); it.hasNext();) {
+						CachedStatement cachedStatement = (CachedStatement) it.next();
+						if (cachedStatement.inUse) {
+							cachedStatement.release();
+						}
+					}
+				}
+				if (!this.target.getAutoCommit()) {
+					this.target.rollback();
+				}
+				if (this.target.getAutoCommit() != defaultAutoCommit) {
+					this.target.setAutoCommit(defaultAutoCommit);
+				}
+				if (this.target.isReadOnly() != this.initialReadOnly) {
+					this.target.setReadOnly(this.initialReadOnly);
+				}
+				if (this.target.getTransactionIsolation() != this.initialTransactionIsolation) {
+					this.target.setTransactionIsolation(this.initialTransactionIsolation);
+				}
+				if (this.initialCatalog != null && !this.initialCatalog.equals(this.target.getCatalog())) {
+					this.target.setCatalog(this.initialCatalog);
+				}
+				if (this.initialHoldability != null &&
+						this.target.getHoldability() != this.initialHoldability.intValue()) {
+					this.target.setHoldability(this.initialHoldability.intValue());
+				}
+				this.target.clearWarnings();
+				return true;
+			}
+			catch (SQLException ex) {
+				logger.debug("Could not reset JDBC Connection - discarding it", ex);
+				return false;
+			}
+		}
+
+		/**
+		 * Close the physical Connection, along with its cached statements.
+		 */
+		public void close() {
+			if (this.statementCache != null) {
+				for (Iterator it = this.statementCache.values().iterator(); it.hasNext();) {
+					((CachedStatement) it.next()).close();
+				}
+				this.statementCache.clear();
+			}
+			try {
+				this.target.close();
+			}
+			catch (Throwable ex) {
+				logger.debug("Could not close pooled JDBC Connection", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler for a Connection handle, returning the
+	 * physical Connection to the pool when closed.
+	 */
+	private class PooledConnectionInvocationHandler implements InvocationHandler {
+
+		private final PooledConnection pooledConnection;
+
+		private boolean closed = false;
+
+		public PooledConnectionInvocationHandler(PooledConnection pooledConnection) {
+			this.pooledConnection = pooledConnection;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			if (method.getName().equals("equals")) {
+				// Only consider equal when proxies are identical.
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (method.getName().equals("hashCode")) {
+				// Use hashCode of Connection proxy.
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (method.getName().equals("toString")) {
+				return "Pooled Connection handle for [" + this.pooledConnection.target + "]";
+			}
+			else if (method.getName().equals("isClosed")) {
+				return (this.closed ? Boolean.TRUE : this.pooledConnection.invoke(method, args));
+			}
+			else if (method.getName().equals("close")) {
+				// Handle close method: return the physical Connection to the pool.
+				if (!this.closed) {
+					this.closed = true;
+					returnConnection(this.pooledConnection);
+				}
+				return null;
+			}
+
+			if (this.closed) {
+				throw new SQLException("Connection handle already closed");
+			}
+
+			if (method.getName().equals("getTargetConnection")) {
+				// Handle getTargetConnection method: return underlying Connection.
+				return this.pooledConnection.target;
+			}
+			else if (method.getName().equals("prepareStatement")) {
+				return this.pooledConnection.prepareStatement(method, args, (Connection) proxy);
+			}
+
+			// Invoke method on target Connection.
+			return this.pooledConnection.invoke(method, args);
+		}
+	}
+
+
+	/**
+	 * A PreparedStatement held in the statement cache of a PooledConnection.
+	 */
+	private class CachedStatement implements InvocationHandler {
+
+		private final PreparedStatement target;
+
+		private final int defaultMaxRows;
+
+		private final int defaultFetchSize;
+
+		private final int defaultQueryTimeout;
+
+		private final int defaultMaxFieldSize;
+
+		private Connection connectionHandle;
+
+		private Object currentHandle;
+
+		public boolean inUse = false;
+
+		public CachedStatement(PreparedStatement target) throws SQLException {
+			this.target = target;
+			this.defaultMaxRows = target.getMaxRows();
+			this.defaultFetchSize = target.getFetchSize();
+			this.defaultQueryTimeout = target.getQueryTimeout();
+			this.defaultMaxFieldSize = target.getMaxFieldSize();
+		}
+
+		/**
+		 * Hand out this statement through a proxy that returns it to the cache when closed.
+		 */
+		public PreparedStatement createHandle(Connection connectionHandle) {
+			this.connectionHandle = connectionHandle;
+			this.inUse = true;
+			this.currentHandle = Proxy.newProxyInstance(
+					PreparedStatement.class.getClassLoader(), new Class[] {PreparedStatement.class}, this);
+			return (PreparedStatement) this.currentHandle;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (method.getName().equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (method.getName().equals("close")) {
+				// Only the current handle may return the statement to the cache.
+				if (proxy == this.currentHandle) {
+					release();
+				}
+				return null;
+			}
+			if (proxy != this.currentHandle) {
+				throw new SQLException("PreparedStatement handle already closed");
+			}
+			if (method.getName().equals("getConnection")) {
+				return this.connectionHandle;
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+
+		/**
+		 * Return this statement to the cache, clearing its parameters
+		 * and resetting its settings.
+		 */
+		public void release() throws SQLException {
+			this.inUse = false;
+			this.connectionHandle = null;
+			this.currentHandle = null;
+			this.target.clearParameters();
+			this.target.clearWarnings();
+			if (this.target.getMaxRows() != this.defaultMaxRows) {
+				this.target.setMaxRows(this.defaultMaxRows);
+			}
+			if (this.target.getFetchSize() != this.defaultFetchSize) {
+				this.target.setFetchSize(this.defaultFetchSize);
+			}
+			if (this.target.getQueryTimeout() != this.defaultQueryTimeout) {
+				this.target.setQueryTimeout(this.defaultQueryTimeout);
+			}
+			if (this.target.getMaxFieldSize() != this.defaultMaxFieldSize) {
+				this.target.setMaxFieldSize(this.defaultMaxFieldSize);
+			}
+		}
+
+		public void close() {
+			try {
+				this.target.close();
+			}
+			catch (Throwable ex) {
+				logger.debug("Could not close cached JDBC PreparedStatement", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Timer task that evicts idle Connections.
+	 */
+	private class EvictionTask extends TimerTask {
+
+		public void run() {
+			try {
+				evictIdleConnections();
+			}
+			catch (Throwable ex) {
+				logger.warn("Eviction of idle JDBC Connections failed", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Queue of idle Connections.
+	 */
+	private interface ConnectionQueue {
+
+		PooledConnection poll();
+
+		void offer(PooledConnection pooledConnection);
+
+		int size();
+
+		boolean isEmpty();
+	}
+
+
+	/**
+	 * ConnectionQueue implementation based on a synchronized LinkedList.
+	 */
+	private static class SynchronizedConnectionQueue implements ConnectionQueue {
+
+		private final LinkedList queue = new LinkedList();
+
+		public synchronized PooledConnection poll() {
+			return (!this.queue.isEmpty() ? (PooledConnection) this.queue.removeFirst() : null);
+		}
+
+		public synchronized void offer(PooledConnection pooledConnection) {
+			this.queue.addLast(pooledConnection);
+		}
+
+		public synchronized int size() {
+			return this.queue.size();
+		}
+
+		public synchronized boolean isEmpty() {
+			return this.queue.isEmpty();
+		}
+	}
+
+
+	/**
+	 * Actual creation of a JDK 1.5+ lock-free ConnectionQueue.
+	 * In separate inner class to avoid runtime dependency on JDK 1.5+.
+	 */
+	private static abstract class Jdk15ConnectionQueueFactory {
+
+		private static ConnectionQueue createConnectionQueue() {
+			final ConcurrentLinkedQueue queue = new ConcurrentLinkedQueue();
+			return new ConnectionQueue() {
+				public PooledConnection poll() {
+					return (PooledConnection) queue.poll();
+				}
+				public void offer(PooledConnection pooledConnection) {
+					queue.offer(pooledConnection);
+				}
+				public int size() {
+					return queue.size();
+				}
+				public boolean isEmpty() {
+					return queue.isEmpty();
+				}
+			};
+		}
+	}
+
+}
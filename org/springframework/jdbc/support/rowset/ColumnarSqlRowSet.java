@@ -0,0 +1,1148 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support.rowset;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.InvalidResultSetAccessException;
+
+/**
+ * Disconnected implementation of Spring's SqlRowSet interface that holds
+ * the data of a ResultSet in a compact, column-oriented form, without
+ * depending on <code>javax.sql.rowset</code>.
+ *
+ * <p>The data is read from the ResultSet on construction, storing each
+ * column in an array of the appropriate primitive type rather than as
+ * a boxed object per cell:
+ * <ul>
+ * <li>integer types in <code>int[]</code> or <code>long[]</code> arrays,
+ * floating-point types in <code>double[]</code> arrays;
+ * <li>decimal types as unscaled <code>long</code> values plus scale
+ * (with an overflow area for values that do not fit into a long);
+ * <li>date, time and timestamp types as <code>long</code> milliseconds
+ * (plus nanoseconds for timestamps);
+ * <li>booleans as bitmaps;
+ * <li>character types dictionary-encoded, with each distinct String stored
+ * only once, which saves a lot of memory for repeating values;
+ * <li>any other types (binary data, for example) as plain objects.
+ * </ul>
+ * SQL NULL values of primitive columns are tracked in separate bitmaps.
+ *
+ * <p>Values are converted on access according to the usual JDBC conversion
+ * rules: For example, <code>getString</code> works on any column, and
+ * <code>getInt</code> works on any numeric or numeric String column.
+ * <code>getObject</code> returns the standard Java type for the column's
+ * SQL type, as defined by the JDBC specification.
+ *
+ * <p>Large objects will be fully read into memory: CLOBs as Strings,
+ * BLOBs as byte arrays.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see org.springframework.jdbc.core.ColumnarSqlRowSetResultSetExtractor
+ * @see org.springframework.jdbc.core.JdbcTemplate#setColumnarRowSets
+ */
+public class ColumnarSqlRowSet implements SqlRowSet {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+
+	private final ColumnarSqlRowSetMetaData metaData;
+
+	private final Column[] columns;
+
+	/** Map from upper-case column label or name to Integer column index */
+	private final Map columnIndexes = new HashMap();
+
+	private int rowCount;
+
+	/** Cursor position: 0 = before first row, rowCount + 1 = after last row */
+	private int cursor = 0;
+
+	private boolean wasNull = false;
+
+
+	/**
+	 * Create a new ColumnarSqlRowSet, reading all rows from the given ResultSet.
+	 * <p>The ResultSet will be read from its current position to its end;
+	 * it will not be closed.
+	 * @param resultSet the ResultSet to read
+	 * @throws InvalidResultSetAccessException if reading the ResultSet failed
+	 */
+	public ColumnarSqlRowSet(ResultSet resultSet) throws InvalidResultSetAccessException {
+		try {
+			ResultSetMetaData rsmd = resultSet.getMetaData();
+			this.metaData = new ColumnarSqlRowSetMetaData(rsmd);
+			int columnCount = rsmd.getColumnCount();
+			this.columns = new Column[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				this.columns[i] = createColumn(rsmd.getColumnType(i + 1));
+			}
+			for (int i = 1; i <= columnCount; i++) {
+				registerColumnIndex(rsmd.getColumnLabel(i), i);
+			}
+			for (int i = 1; i <= columnCount; i++) {
+				registerColumnIndex(rsmd.getColumnName(i), i);
+			}
+			int row = 0;
+			while (resultSet.next()) {
+				for (int i = 0; i < columnCount; i++) {
+					this.columns[i].read(resultSet, i + 1, row);
+				}
+				row++;
+			}
+			this.rowCount = row;
+			for (int i = 0; i < columnCount; i++) {
+				this.columns[i].trimToSize(row);
+			}
+		}
+		catch (SQLException ex) {
+			throw new InvalidResultSetAccessException(ex);
+		}
+	}
+
+	/**
+	 * Create a Column holder for the given SQL type.
+	 * @param sqlType the SQL type, as defined in <code>java.sql.Types</code>
+	 * @return the Column holder
+	 */
+	private Column createColumn(int sqlType) {
+		switch (sqlType) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+				return new BooleanColumn();
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return new IntColumn();
+			case Types.BIGINT:
+				return new LongColumn();
+			case Types.REAL:
+				return new DoubleColumn(true);
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return new DoubleColumn(false);
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				return new DecimalColumn();
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.CLOB:
+				return new StringColumn();
+			case Types.DATE:
+			case Types.TIME:
+				return new DateColumn(sqlType);
+			case Types.TIMESTAMP:
+				return new TimestampColumn();
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				return new ObjectColumn(true);
+			default:
+				return new ObjectColumn(false);
+		}
+	}
+
+	private void registerColumnIndex(String columnName, int columnIndex) {
+		if (columnName != null) {
+			String key = columnName.toUpperCase();
+			if (!this.columnIndexes.containsKey(key)) {
+				this.columnIndexes.put(key, new Integer(columnIndex));
+			}
+		}
+	}
+
+
+	public SqlRowSetMetaData getMetaData() {
+		return this.metaData;
+	}
+
+	public int findColumn(String columnName) throws InvalidResultSetAccessException {
+		Integer columnIndex = (columnName != null ? (Integer) this.columnIndexes.get(columnName.toUpperCase()) : null);
+		if (columnIndex == null) {
+			throw new InvalidResultSetAccessException(new SQLException("Invalid column name: " + columnName));
+		}
+		return columnIndex.intValue();
+	}
+
+	/**
+	 * Return the number of rows in this row set.
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+
+	// RowSet methods for extracting data values
+
+	public BigDecimal getBigDecimal(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return null;
+		}
+		return column.getBigDecimal(row);
+	}
+
+	public BigDecimal getBigDecimal(String columnName) throws InvalidResultSetAccessException {
+		return getBigDecimal(findColumn(columnName));
+	}
+
+	public boolean getBoolean(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return false;
+		}
+		return column.getBoolean(row);
+	}
+
+	public boolean getBoolean(String columnName) throws InvalidResultSetAccessException {
+		return getBoolean(findColumn(columnName));
+	}
+
+	public byte getByte(int columnIndex) throws InvalidResultSetAccessException {
+		return (byte) getLong(columnIndex);
+	}
+
+	public byte getByte(String columnName) throws InvalidResultSetAccessException {
+		return getByte(findColumn(columnName));
+	}
+
+	public Date getDate(int columnIndex, Calendar cal) throws InvalidResultSetAccessException {
+		Date date = getDate(columnIndex);
+		return (date != null ? new Date(convertToCalendar(date, cal)) : null);
+	}
+
+	public Date getDate(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return null;
+		}
+		Object value = column.getObject(row);
+		if (value instanceof Date) {
+			return (Date) value;
+		}
+		else if (value instanceof java.util.Date) {
+			return new Date(((java.util.Date) value).getTime());
+		}
+		else if (value instanceof String) {
+			try {
+				return Date.valueOf(((String) value).trim());
+			}
+			catch (IllegalArgumentException ex) {
+				throw conversionFailure(value, "java.sql.Date");
+			}
+		}
+		throw conversionFailure(value, "java.sql.Date");
+	}
+
+	public Date getDate(String columnName, Calendar cal) throws InvalidResultSetAccessException {
+		return getDate(findColumn(columnName), cal);
+	}
+
+	public Date getDate(String columnName) throws InvalidResultSetAccessException {
+		return getDate(findColumn(columnName));
+	}
+
+	public double getDouble(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return 0;
+		}
+		return column.getDouble(row);
+	}
+
+	public double getDouble(String columnName) throws InvalidResultSetAccessException {
+		return getDouble(findColumn(columnName));
+	}
+
+	public float getFloat(int columnIndex) throws InvalidResultSetAccessException {
+		return (float) getDouble(columnIndex);
+	}
+
+	public float getFloat(String columnName) throws InvalidResultSetAccessException {
+		return getFloat(findColumn(columnName));
+	}
+
+	public int getInt(int columnIndex) throws InvalidResultSetAccessException {
+		return (int) getLong(columnIndex);
+	}
+
+	public int getInt(String columnName) throws InvalidResultSetAccessException {
+		return getInt(findColumn(columnName));
+	}
+
+	public long getLong(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return 0;
+		}
+		return column.getLong(row);
+	}
+
+	public long getLong(String columnName) throws InvalidResultSetAccessException {
+		return getLong(findColumn(columnName));
+	}
+
+	/**
+	 * This implementation ignores the given type map, since user-defined
+	 * types are stored as the objects returned by the JDBC driver.
+	 */
+	public Object getObject(int columnIndex, Map map) throws InvalidResultSetAccessException {
+		return getObject(columnIndex);
+	}
+
+	public Object getObject(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return null;
+		}
+		return column.getObject(row);
+	}
+
+	public Object getObject(String columnName, Map map) throws InvalidResultSetAccessException {
+		return getObject(findColumn(columnName), map);
+	}
+
+	public Object getObject(String columnName) throws InvalidResultSetAccessException {
+		return getObject(findColumn(columnName));
+	}
+
+	public short getShort(int columnIndex) throws InvalidResultSetAccessException {
+		return (short) getLong(columnIndex);
+	}
+
+	public short getShort(String columnName) throws InvalidResultSetAccessException {
+		return getShort(findColumn(columnName));
+	}
+
+	public String getString(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return null;
+		}
+		return column.getString(row);
+	}
+
+	public String getString(String columnName) throws InvalidResultSetAccessException {
+		return getString(findColumn(columnName));
+	}
+
+	public Time getTime(int columnIndex, Calendar cal) throws InvalidResultSetAccessException {
+		Time time = getTime(columnIndex);
+		return (time != null ? new Time(convertToCalendar(time, cal)) : null);
+	}
+
+	public Time getTime(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return null;
+		}
+		Object value = column.getObject(row);
+		if (value instanceof Time) {
+			return (Time) value;
+		}
+		else if (value instanceof java.util.Date) {
+			return new Time(((java.util.Date) value).getTime());
+		}
+		else if (value instanceof String) {
+			try {
+				return Time.valueOf(((String) value).trim());
+			}
+			catch (IllegalArgumentException ex) {
+				throw conversionFailure(value, "java.sql.Time");
+			}
+		}
+		throw conversionFailure(value, "java.sql.Time");
+	}
+
+	public Time getTime(String columnName, Calendar cal) throws InvalidResultSetAccessException {
+		return getTime(findColumn(columnName), cal);
+	}
+
+	public Time getTime(String columnName) throws InvalidResultSetAccessException {
+		return getTime(findColumn(columnName));
+	}
+
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws InvalidResultSetAccessException {
+		Timestamp timestamp = getTimestamp(columnIndex);
+		if (timestamp == null) {
+			return null;
+		}
+		Timestamp result = new Timestamp(convertToCalendar(timestamp, cal));
+		result.setNanos(timestamp.getNanos());
+		return result;
+	}
+
+	public Timestamp getTimestamp(int columnIndex) throws InvalidResultSetAccessException {
+		Column column = getColumn(columnIndex);
+		int row = getCurrentRowIndex();
+		if (isNull(column, row)) {
+			return null;
+		}
+		Object value = column.getObject(row);
+		if (value instanceof Timestamp) {
+			return (Timestamp) value;
+		}
+		else if (value instanceof java.util.Date) {
+			return new Timestamp(((java.util.Date) value).getTime());
+		}
+		else if (value instanceof String) {
+			try {
+				return Timestamp.valueOf(((String) value).trim());
+			}
+			catch (IllegalArgumentException ex) {
+				throw conversionFailure(value, "java.sql.Timestamp");
+			}
+		}
+		throw conversionFailure(value, "java.sql.Timestamp");
+	}
+
+	public Timestamp getTimestamp(String columnName, Calendar cal) throws InvalidResultSetAccessException {
+		return getTimestamp(findColumn(columnName), cal);
+	}
+
+	public Timestamp getTimestamp(String columnName) throws InvalidResultSetAccessException {
+		return getTimestamp(findColumn(columnName));
+	}
+
+
+	// RowSet navigation methods
+
+	public boolean absolute(int row) throws InvalidResultSetAccessException {
+		if (row > 0) {
+			this.cursor = Math.min(row, this.rowCount + 1);
+		}
+		else if (row < 0) {
+			this.cursor = Math.max(this.rowCount + 1 + row, 0);
+		}
+		else {
+			this.cursor = 0;
+		}
+		return isOnRow();
+	}
+
+	public void afterLast() throws InvalidResultSetAccessException {
+		this.cursor = this.rowCount + 1;
+	}
+
+	public void beforeFirst() throws InvalidResultSetAccessException {
+		this.cursor = 0;
+	}
+
+	public boolean first() throws InvalidResultSetAccessException {
+		return absolute(1);
+	}
+
+	public int getRow() throws InvalidResultSetAccessException {
+		return (isOnRow() ? this.cursor : 0);
+	}
+
+	public boolean isAfterLast() throws InvalidResultSetAccessException {
+		return (this.rowCount > 0 && this.cursor > this.rowCount);
+	}
+
+	public boolean isBeforeFirst() throws InvalidResultSetAccessException {
+		return (this.rowCount > 0 && this.cursor == 0);
+	}
+
+	public boolean isFirst() throws InvalidResultSetAccessException {
+		return (this.rowCount > 0 && this.cursor == 1);
+	}
+
+	public boolean isLast() throws InvalidResultSetAccessException {
+		return (this.rowCount > 0 && this.cursor == this.rowCount);
+	}
+
+	public boolean last() throws InvalidResultSetAccessException {
+		return absolute(-1);
+	}
+
+	public boolean next() throws InvalidResultSetAccessException {
+		if (this.cursor <= this.rowCount) {
+			this.cursor++;
+		}
+		return isOnRow();
+	}
+
+	public boolean previous() throws InvalidResultSetAccessException {
+		if (this.cursor > 0) {
+			this.cursor--;
+		}
+		return isOnRow();
+	}
+
+	public boolean relative(int rows) throws InvalidResultSetAccessException {
+		long target = (long) this.cursor + rows;
+		this.cursor = (int) Math.max(Math.min(target, this.rowCount + 1), 0);
+		return isOnRow();
+	}
+
+	public boolean wasNull() throws InvalidResultSetAccessException {
+		return this.wasNull;
+	}
+
+
+	private boolean isOnRow() {
+		return (this.cursor > 0 && this.cursor <= this.rowCount);
+	}
+
+	/**
+	 * Return the Column holder for the given 1-based column index.
+	 * @throws InvalidResultSetAccessException if the column index is invalid
+	 */
+	private Column getColumn(int columnIndex) throws InvalidResultSetAccessException {
+		if (columnIndex < 1 || columnIndex > this.columns.length) {
+			throw new InvalidResultSetAccessException(new SQLException("Invalid column index: " + columnIndex));
+		}
+		return this.columns[columnIndex - 1];
+	}
+
+	/**
+	 * Return the 0-based index of the current row.
+	 * @throws InvalidResultSetAccessException if the cursor is not on a row
+	 */
+	private int getCurrentRowIndex() throws InvalidResultSetAccessException {
+		if (!isOnRow()) {
+			throw new InvalidResultSetAccessException(new SQLException("Cursor is not on a valid row"));
+		}
+		return this.cursor - 1;
+	}
+
+	/**
+	 * Check whether the given column has an SQL NULL value in the given row,
+	 * remembering the result for <code>wasNull</code>.
+	 */
+	private boolean isNull(Column column, int row) {
+		this.wasNull = column.isNull(row);
+		return this.wasNull;
+	}
+
+	/**
+	 * Reinterpret the local date and time fields of the given date
+	 * in the time zone of the given Calendar.
+	 * @return the resulting time in milliseconds
+	 */
+	private long convertToCalendar(java.util.Date date, Calendar cal) {
+		if (cal == null) {
+			return date.getTime();
+		}
+		Calendar defaultCal = Calendar.getInstance();
+		defaultCal.setTime(date);
+		Calendar targetCal = (Calendar) cal.clone();
+		targetCal.clear();
+		targetCal.set(defaultCal.get(Calendar.YEAR), defaultCal.get(Calendar.MONTH),
+				defaultCal.get(Calendar.DAY_OF_MONTH), defaultCal.get(Calendar.HOUR_OF_DAY),
+				defaultCal.get(Calendar.MINUTE), defaultCal.get(Calendar.SECOND));
+		targetCal.set(Calendar.MILLISECOND, defaultCal.get(Calendar.MILLISECOND));
+		return targetCal.getTime().getTime();
+	}
+
+	private static InvalidResultSetAccessException conversionFailure(Object value, String targetType) {
+		return new InvalidResultSetAccessException(
+				new SQLException("Cannot convert value [" + value + "] to " + targetType));
+	}
+
+
+	/**
+	 * Holder for the values of a single column, for all rows.
+	 * <p>The conversion methods are only called for non-null values.
+	 * Default implementations convert the value returned by
+	 * <code>getObject</code>; subclasses override them where
+	 * they can avoid creating an object.
+	 */
+	private static abstract class Column implements Serializable {
+
+		/**
+		 * Read the value of the given column in the current row of the
+		 * given ResultSet, storing it at the given row index.
+		 */
+		public abstract void read(ResultSet rs, int columnIndex, int row) throws SQLException;
+
+		/**
+		 * Release any capacity beyond the given number of rows,
+		 * and any state that was only needed for reading.
+		 */
+		public abstract void trimToSize(int rowCount);
+
+		public abstract boolean isNull(int row);
+
+		public abstract Object getObject(int row);
+
+		public String getString(int row) {
+			return getObject(row).toString();
+		}
+
+		public long getLong(int row) {
+			Object value = getObject(row);
+			if (value instanceof Number) {
+				return ((Number) value).longValue();
+			}
+			else if (value instanceof Boolean) {
+				return (((Boolean) value).booleanValue() ? 1 : 0);
+			}
+			return getBigDecimal(row).longValue();
+		}
+
+		public double getDouble(int row) {
+			Object value = getObject(row);
+			if (value instanceof Number) {
+				return ((Number) value).doubleValue();
+			}
+			else if (value instanceof Boolean) {
+				return (((Boolean) value).booleanValue() ? 1 : 0);
+			}
+			return getBigDecimal(row).doubleValue();
+		}
+
+		public BigDecimal getBigDecimal(int row) {
+			Object value = getObject(row);
+			if (value instanceof BigDecimal) {
+				return (BigDecimal) value;
+			}
+			else if (value instanceof Long || value instanceof Integer ||
+					value instanceof Short || value instanceof Byte) {
+				return BigDecimal.valueOf(((Number) value).longValue());
+			}
+			else if (value instanceof Number || value instanceof String) {
+				try {
+					return new BigDecimal(value.toString().trim());
+				}
+				catch (NumberFormatException ex) {
+					throw conversionFailure(value, "java.math.BigDecimal");
+				}
+			}
+			else if (value instanceof Boolean) {
+				return BigDecimal.valueOf(((Boolean) value).booleanValue() ? 1 : 0);
+			}
+			throw conversionFailure(value, "java.math.BigDecimal");
+		}
+
+		public boolean getBoolean(int row) {
+			Object value = getObject(row);
+			if (value instanceof Boolean) {
+				return ((Boolean) value).booleanValue();
+			}
+			else if (value instanceof String) {
+				String str = ((String) value).trim();
+				return ("true".equalsIgnoreCase(str) || "1".equals(str));
+			}
+			else if (value instanceof Number) {
+				return (((Number) value).doubleValue() != 0);
+			}
+			throw conversionFailure(value, "boolean");
+		}
+	}
+
+
+	/**
+	 * Base class for columns that store their values in primitive arrays,
+	 * tracking SQL NULL values in a bitmap.
+	 */
+	private static abstract class PrimitiveColumn extends Column {
+
+		private long[] nullBits = new long[INITIAL_CAPACITY / 64];
+
+		protected int capacity = INITIAL_CAPACITY;
+
+		/**
+		 * Ensure that the given row index can be stored,
+		 * growing the value arrays if necessary.
+		 */
+		protected void ensureCapacity(int row) {
+			if (row >= this.capacity) {
+				int newCapacity = Math.max(this.capacity * 2, row + 1);
+				resize(newCapacity);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			long[] newNullBits = new long[(newCapacity + 63) / 64];
+			System.arraycopy(this.nullBits, 0, newNullBits, 0, Math.min(this.nullBits.length, newNullBits.length));
+			this.nullBits = newNullBits;
+			this.capacity = newCapacity;
+		}
+
+		public void trimToSize(int rowCount) {
+			if (rowCount < this.capacity) {
+				resize(rowCount);
+			}
+		}
+
+		protected void setNull(int row) {
+			this.nullBits[row >> 6] |= (1L << row);
+		}
+
+		public boolean isNull(int row) {
+			return ((this.nullBits[row >> 6] & (1L << row)) != 0);
+		}
+
+		protected static int[] copyOf(int[] array, int newLength) {
+			int[] newArray = new int[newLength];
+			System.arraycopy(array, 0, newArray, 0, Math.min(array.length, newLength));
+			return newArray;
+		}
+
+		protected static long[] copyOf(long[] array, int newLength) {
+			long[] newArray = new long[newLength];
+			System.arraycopy(array, 0, newArray, 0, Math.min(array.length, newLength));
+			return newArray;
+		}
+	}
+
+
+	/**
+	 * Column for BIT and BOOLEAN values, stored as bitmap.
+	 */
+	private static class BooleanColumn extends PrimitiveColumn {
+
+		private long[] valueBits = new long[INITIAL_CAPACITY / 64];
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			if (rs.getBoolean(columnIndex)) {
+				this.valueBits[row >> 6] |= (1L << row);
+			}
+			else if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			this.valueBits = copyOf(this.valueBits, (newCapacity + 63) / 64);
+		}
+
+		public boolean getBoolean(int row) {
+			return ((this.valueBits[row >> 6] & (1L << row)) != 0);
+		}
+
+		public Object getObject(int row) {
+			return (getBoolean(row) ? Boolean.TRUE : Boolean.FALSE);
+		}
+	}
+
+
+	/**
+	 * Column for TINYINT, SMALLINT and INTEGER values, stored as int array.
+	 */
+	private static class IntColumn extends PrimitiveColumn {
+
+		private int[] values = new int[INITIAL_CAPACITY];
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			this.values[row] = rs.getInt(columnIndex);
+			if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			this.values = copyOf(this.values, newCapacity);
+		}
+
+		public Object getObject(int row) {
+			return new Integer(this.values[row]);
+		}
+
+		public String getString(int row) {
+			return Integer.toString(this.values[row]);
+		}
+
+		public long getLong(int row) {
+			return this.values[row];
+		}
+
+		public double getDouble(int row) {
+			return this.values[row];
+		}
+
+		public BigDecimal getBigDecimal(int row) {
+			return BigDecimal.valueOf(this.values[row]);
+		}
+
+		public boolean getBoolean(int row) {
+			return (this.values[row] != 0);
+		}
+	}
+
+
+	/**
+	 * Column for BIGINT values, stored as long array.
+	 */
+	private static class LongColumn extends PrimitiveColumn {
+
+		private long[] values = new long[INITIAL_CAPACITY];
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			this.values[row] = rs.getLong(columnIndex);
+			if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			this.values = copyOf(this.values, newCapacity);
+		}
+
+		public Object getObject(int row) {
+			return new Long(this.values[row]);
+		}
+
+		public String getString(int row) {
+			return Long.toString(this.values[row]);
+		}
+
+		public long getLong(int row) {
+			return this.values[row];
+		}
+
+		public double getDouble(int row) {
+			return this.values[row];
+		}
+
+		public BigDecimal getBigDecimal(int row) {
+			return BigDecimal.valueOf(this.values[row]);
+		}
+
+		public boolean getBoolean(int row) {
+			return (this.values[row] != 0);
+		}
+	}
+
+
+	/**
+	 * Column for REAL, FLOAT and DOUBLE values, stored as double array.
+	 */
+	private static class DoubleColumn extends PrimitiveColumn {
+
+		private final boolean real;
+
+		private double[] values = new double[INITIAL_CAPACITY];
+
+		public DoubleColumn(boolean real) {
+			this.real = real;
+		}
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			this.values[row] = (this.real ? rs.getFloat(columnIndex) : rs.getDouble(columnIndex));
+			if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			double[] newValues = new double[newCapacity];
+			System.arraycopy(this.values, 0, newValues, 0, Math.min(this.values.length, newCapacity));
+			this.values = newValues;
+		}
+
+		public Object getObject(int row) {
+			return (this.real ? (Object) new Float((float) this.values[row]) : new Double(this.values[row]));
+		}
+
+		public String getString(int row) {
+			return (this.real ? Float.toString((float) this.values[row]) : Double.toString(this.values[row]));
+		}
+
+		public long getLong(int row) {
+			return (long) this.values[row];
+		}
+
+		public double getDouble(int row) {
+			return this.values[row];
+		}
+
+		public boolean getBoolean(int row) {
+			return (this.values[row] != 0);
+		}
+	}
+
+
+	/**
+	 * Column for NUMERIC and DECIMAL values, stored as unscaled long values
+	 * plus scale. Values with an unscaled value beyond the range of a long
+	 * are kept as BigDecimal objects in an overflow map.
+	 */
+	private static class DecimalColumn extends PrimitiveColumn {
+
+		private long[] unscaledValues = new long[INITIAL_CAPACITY];
+
+		private int[] scales = new int[INITIAL_CAPACITY];
+
+		/** Map from Integer row index to BigDecimal, for values that do not fit into a long */
+		private Map overflowValues;
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			BigDecimal value = rs.getBigDecimal(columnIndex);
+			if (value == null) {
+				setNull(row);
+				return;
+			}
+			BigInteger unscaledValue = value.unscaledValue();
+			if (unscaledValue.bitLength() < 64) {
+				this.unscaledValues[row] = unscaledValue.longValue();
+				this.scales[row] = value.scale();
+			}
+			else {
+				if (this.overflowValues == null) {
+					this.overflowValues = new HashMap();
+				}
+				this.overflowValues.put(new Integer(row), value);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			this.unscaledValues = copyOf(this.unscaledValues, newCapacity);
+			this.scales = copyOf(this.scales, newCapacity);
+		}
+
+		public Object getObject(int row) {
+			return getBigDecimal(row);
+		}
+
+		public BigDecimal getBigDecimal(int row) {
+			if (isOverflow(row)) {
+				return (BigDecimal) this.overflowValues.get(new Integer(row));
+			}
+			return new BigDecimal(BigInteger.valueOf(this.unscaledValues[row]), this.scales[row]);
+		}
+
+		public long getLong(int row) {
+			if (this.scales[row] == 0 && !isOverflow(row)) {
+				return this.unscaledValues[row];
+			}
+			return getBigDecimal(row).longValue();
+		}
+
+		private boolean isOverflow(int row) {
+			return (this.overflowValues != null && this.overflowValues.containsKey(new Integer(row)));
+		}
+
+		public boolean getBoolean(int row) {
+			return (getBigDecimal(row).signum() != 0);
+		}
+	}
+
+
+	/**
+	 * Column for DATE and TIME values, stored as milliseconds.
+	 */
+	private static class DateColumn extends PrimitiveColumn {
+
+		private final int sqlType;
+
+		protected long[] millis = new long[INITIAL_CAPACITY];
+
+		public DateColumn(int sqlType) {
+			this.sqlType = sqlType;
+		}
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			java.util.Date value = (this.sqlType == Types.TIME ? (java.util.Date) rs.getTime(columnIndex) :
+					(java.util.Date) rs.getDate(columnIndex));
+			if (value != null) {
+				this.millis[row] = value.getTime();
+			}
+			else {
+				setNull(row);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			this.millis = copyOf(this.millis, newCapacity);
+		}
+
+		public Object getObject(int row) {
+			return (this.sqlType == Types.TIME ? (Object) new Time(this.millis[row]) : new Date(this.millis[row]));
+		}
+
+		public long getLong(int row) {
+			throw conversionFailure(getObject(row), "long");
+		}
+
+		public double getDouble(int row) {
+			throw conversionFailure(getObject(row), "double");
+		}
+	}
+
+
+	/**
+	 * Column for TIMESTAMP values, stored as milliseconds plus nanoseconds.
+	 */
+	private static class TimestampColumn extends DateColumn {
+
+		private int[] nanos = new int[INITIAL_CAPACITY];
+
+		public TimestampColumn() {
+			super(Types.TIMESTAMP);
+		}
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			ensureCapacity(row);
+			Timestamp value = rs.getTimestamp(columnIndex);
+			if (value != null) {
+				this.millis[row] = value.getTime();
+				this.nanos[row] = value.getNanos();
+			}
+			else {
+				setNull(row);
+			}
+		}
+
+		protected void resize(int newCapacity) {
+			super.resize(newCapacity);
+			this.nanos = copyOf(this.nanos, newCapacity);
+		}
+
+		public Object getObject(int row) {
+			Timestamp value = new Timestamp(this.millis[row]);
+			value.setNanos(this.nanos[row]);
+			return value;
+		}
+	}
+
+
+	/**
+	 * Column for character values, stored dictionary-encoded: as index into
+	 * an array of the distinct values, with -1 indicating SQL NULL.
+	 */
+	private static class StringColumn extends Column {
+
+		private int[] codes = new int[INITIAL_CAPACITY];
+
+		private String[] dictionary;
+
+		/** Map from String value to Integer code, only used while reading */
+		private transient Map codesByValue = new HashMap();
+
+		/** Distinct values in code order, only used while reading */
+		private transient List values = new ArrayList();
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			if (row >= this.codes.length) {
+				this.codes = PrimitiveColumn.copyOf(this.codes, Math.max(this.codes.length * 2, row + 1));
+			}
+			String value = rs.getString(columnIndex);
+			if (value == null) {
+				this.codes[row] = -1;
+				return;
+			}
+			Integer code = (Integer) this.codesByValue.get(value);
+			if (code == null) {
+				code = new Integer(this.values.size());
+				this.codesByValue.put(value, code);
+				this.values.add(value);
+			}
+			this.codes[row] = code.intValue();
+		}
+
+		public void trimToSize(int rowCount) {
+			if (rowCount < this.codes.length) {
+				this.codes = PrimitiveColumn.copyOf(this.codes, rowCount);
+			}
+			this.dictionary = (String[]) this.values.toArray(new String[this.values.size()]);
+			this.codesByValue = null;
+			this.values = null;
+		}
+
+		public boolean isNull(int row) {
+			return (this.codes[row] == -1);
+		}
+
+		public Object getObject(int row) {
+			return this.dictionary[this.codes[row]];
+		}
+	}
+
+
+	/**
+	 * Column for values of any other type, stored as objects.
+	 * Binary values will be stored as byte arrays.
+	 */
+	private static class ObjectColumn extends Column {
+
+		private final boolean binary;
+
+		private Object[] values = new Object[INITIAL_CAPACITY];
+
+		public ObjectColumn(boolean binary) {
+			this.binary = binary;
+		}
+
+		public void read(ResultSet rs, int columnIndex, int row) throws SQLException {
+			if (row >= this.values.length) {
+				resize(Math.max(this.values.length * 2, row + 1));
+			}
+			this.values[row] = (this.binary ? rs.getBytes(columnIndex) : rs.getObject(columnIndex));
+		}
+
+		public void trimToSize(int rowCount) {
+			if (rowCount < this.values.length) {
+				resize(rowCount);
+			}
+		}
+
+		private void resize(int newCapacity) {
+			Object[] newValues = new Object[newCapacity];
+			System.arraycopy(this.values, 0, newValues, 0, Math.min(this.values.length, newCapacity));
+			this.values = newValues;
+		}
+
+		public boolean isNull(int row) {
+			return (this.values[row] == null);
+		}
+
+		public Object getObject(int row) {
+			return this.values[row];
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support.rowset;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.InvalidResultSetAccessException;
+
+/**
+ * Disconnected implementation of Spring's SqlRowSetMetaData interface.
+ * Used by ColumnarSqlRowSet.
+ *
+ * <p>Copies all column meta data from the given ResultSetMetaData on
+ * construction, not holding on to the ResultSetMetaData itself.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see ColumnarSqlRowSet#getMetaData
+ */
+public class ColumnarSqlRowSetMetaData implements SqlRowSetMetaData, Serializable {
+
+	private final int columnCount;
+
+	private final String[] catalogNames;
+
+	private final String[] columnClassNames;
+
+	private final int[] columnDisplaySizes;
+
+	private final String[] columnLabels;
+
+	private final String[] columnNames;
+
+	private final int[] columnTypes;
+
+	private final String[] columnTypeNames;
+
+	private final int[] precisions;
+
+	private final int[] scales;
+
+	private final String[] schemaNames;
+
+	private final String[] tableNames;
+
+	private final boolean[] caseSensitive;
+
+	private final boolean[] currency;
+
+	private final boolean[] signed;
+
+
+	/**
+	 * Create a new ColumnarSqlRowSetMetaData object,
+	 * copying the column meta data from the given ResultSetMetaData.
+	 * @param resultSetMetaData the ResultSetMetaData to copy
+	 * @throws SQLException if thrown by the ResultSetMetaData
+	 */
+	public ColumnarSqlRowSetMetaData(ResultSetMetaData resultSetMetaData) throws SQLException {
+		this.columnCount = resultSetMetaData.getColumnCount();
+		this.catalogNames = new String[this.columnCount];
+		this.columnClassNames = new String[this.columnCount];
+		this.columnDisplaySizes = new int[this.columnCount];
+		this.columnLabels = new String[this.columnCount];
+		this.columnNames = new String[this.columnCount];
+		this.columnTypes = new int[this.columnCount];
+		this.columnTypeNames = new String[this.columnCount];
+		this.precisions = new int[this.columnCount];
+		this.scales = new int[this.columnCount];
+		this.schemaNames = new String[this.columnCount];
+		this.tableNames = new String[this.columnCount];
+		this.caseSensitive = new boolean[this.columnCount];
+		this.currency = new boolean[this.columnCount];
+		this.signed = new boolean[this.columnCount];
+		for (int i = 0; i < this.columnCount; i++) {
+			int column = i + 1;
+			this.catalogNames[i] = resultSetMetaData.getCatalogName(column);
+			this.columnClassNames[i] = resultSetMetaData.getColumnClassName(column);
+			this.columnDisplaySizes[i] = resultSetMetaData.getColumnDisplaySize(column);
+			this.columnLabels[i] = resultSetMetaData.getColumnLabel(column);
+			this.columnNames[i] = resultSetMetaData.getColumnName(column);
+			this.columnTypes[i] = resultSetMetaData.getColumnType(column);
+			this.columnTypeNames[i] = resultSetMetaData.getColumnTypeName(column);
+			this.precisions[i] = resultSetMetaData.getPrecision(column);
+			this.scales[i] = resultSetMetaData.getScale(column);
+			this.schemaNames[i] = resultSetMetaData.getSchemaName(column);
+			this.tableNames[i] = resultSetMetaData.getTableName(column);
+			this.caseSensitive[i] = resultSetMetaData.isCaseSensitive(column);
+			this.currency[i] = resultSetMetaData.isCurrency(column);
+			this.signed[i] = resultSetMetaData.isSigned(column);
+		}
+	}
+
+
+	public String getCatalogName(int column) throws InvalidResultSetAccessException {
+		return this.catalogNames[index(column)];
+	}
+
+	public String getColumnClassName(int column) throws InvalidResultSetAccessException {
+		return this.columnClassNames[index(column)];
+	}
+
+	public int getColumnCount() throws InvalidResultSetAccessException {
+		return this.columnCount;
+	}
+
+	public String[] getColumnNames() throws InvalidResultSetAccessException {
+		return (String[]) this.columnNames.clone();
+	}
+
+	public int getColumnDisplaySize(int column) throws InvalidResultSetAccessException {
+		return this.columnDisplaySizes[index(column)];
+	}
+
+	public String getColumnLabel(int column) throws InvalidResultSetAccessException {
+		return this.columnLabels[index(column)];
+	}
+
+	public String getColumnName(int column) throws InvalidResultSetAccessException {
+		return this.columnNames[index(column)];
+	}
+
+	public int getColumnType(int column) throws InvalidResultSetAccessException {
+		return this.columnTypes[index(column)];
+	}
+
+	public String getColumnTypeName(int column) throws InvalidResultSetAccessException {
+		return this.columnTypeNames[index(column)];
+	}
+
+	public int getPrecision(int column) throws InvalidResultSetAccessException {
+		return this.precisions[index(column)];
+	}
+
+	public int getScale(int column) throws InvalidResultSetAccessException {
+		return this.scales[index(column)];
+	}
+
+	public String getSchemaName(int column) throws InvalidResultSetAccessException {
+		return this.schemaNames[index(column)];
+	}
+
+	public String getTableName(int column) throws InvalidResultSetAccessException {
+		return this.tableNames[index(column)];
+	}
+
+	public boolean isCaseSensitive(int column) throws InvalidResultSetAccessException {
+		return this.caseSensitive[index(column)];
+	}
+
+	public boolean isCurrency(int column) throws InvalidResultSetAccessException {
+		return this.currency[index(column)];
+	}
+
+	public boolean isSigned(int column) throws InvalidResultSetAccessException {
+		return this.signed[index(column)];
+	}
+
+
+	/**
+	 * Convert the given 1-based column index into an array index.
+	 * @throws InvalidResultSetAccessException if the column index is invalid
+	 */
+	private int index(int column) throws InvalidResultSetAccessException {
+		if (column < 1 || column > this.columnCount) {
+			throw new InvalidResultSetAccessException(new SQLException("Invalid column index: " + column));
+		}
+		return column - 1;
+	}
+
+}
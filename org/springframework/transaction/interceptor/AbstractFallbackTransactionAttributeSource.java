@@ -18,17 +18,19 @@ package org.springframework.transaction.interceptor;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.aop.support.AopUtils;
+import org.springframework.core.CollectionFactory;
 import org.springframework.util.ObjectUtils;
 
 /**
@@ -47,6 +49,14 @@ import org.springframework.util.ObjectUtils;
  * (which is very unlikely), caching could be made configurable. Caching is
  * desirable because of the cost of evaluating rollback rules.
  *
+ * <p>The cache is safe for concurrent access and allows for lock-free lookups
+ * on JDK 1.5+. Methods without transaction attribute are cached as well,
+ * through an explicit marker. The number of cached entries is bounded
+ * (see {@link #setCacheLimit}), which matters for applications that
+ * generate many target classes dynamically. Cache statistics are available
+ * through bean properties, for example for export via Spring's
+ * {@link org.springframework.jmx.export.MBeanExporter}.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 1.1
@@ -59,6 +69,11 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 	 */
 	private final static Object NULL_TRANSACTION_ATTRIBUTE = new Object();
 
+	/**
+	 * Default maximum number of entries for the TransactionAttribute cache: 4096.
+	 */
+	public static final int DEFAULT_CACHE_LIMIT = 4096;
+
 
 	/**
 	 * Logger available to subclasses.
@@ -72,7 +87,89 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 	 * <p>As this base class is not marked Serializable, the cache will be recreated
 	 * after serialization - provided that the concrete subclass is Serializable.
 	 */
-	private final Map cache = new HashMap();
+	private final Map cache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/**
+	 * Keys of all cached entries, for picking an entry to evict.
+	 * Guarded by the cache monitor, just like all cache modifications.
+	 */
+	private final List cacheKeys = new ArrayList();
+
+	private final Random evictionRandom = new Random();
+
+	private int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/*
+	 * Cache statistics. Deliberately neither synchronized nor volatile, keeping
+	 * cache hits free of locks and memory barriers: counts are approximate,
+	 * occasionally missing an update under concurrent access.
+	 */
+	private long cacheHitCount = 0;
+
+	private long cacheMissCount = 0;
+
+
+	/**
+	 * Specify the maximum number of entries for the TransactionAttribute cache.
+	 * Default is 4096.
+	 * <p>Once the limit is reached, a randomly chosen entry will be evicted for
+	 * every newly cached entry. Evicted attributes will simply be computed again.
+	 * A limit of 0 turns off caching; a limit of -1 indicates an unbounded cache.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the TransactionAttribute cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the current number of entries in the TransactionAttribute cache,
+	 * including the entries for methods without transaction attribute.
+	 */
+	public int getCacheSize() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the (approximate) number of lookups that have been served from the cache.
+	 */
+	public long getCacheHitCount() {
+		return this.cacheHitCount;
+	}
+
+	/**
+	 * Return the (approximate) number of lookups that required computing the attribute.
+	 */
+	public long getCacheMissCount() {
+		return this.cacheMissCount;
+	}
+
+	/**
+	 * Return the ratio of cache hits to total lookups, between 0.0 and 1.0.
+	 */
+	public double getCacheHitRate() {
+		long hits = this.cacheHitCount;
+		long total = hits + this.cacheMissCount;
+		return (total > 0 ? (double) hits / total : 0.0);
+	}
+
+	/**
+	 * Remove all entries from the TransactionAttribute cache and reset
+	 * the cache statistics.
+	 */
+	public void clearCache() {
+		synchronized (this.cache) {
+			this.cache.clear();
+			this.cacheKeys.clear();
+		}
+		this.cacheHitCount = 0;
+		this.cacheMissCount = 0;
+	}
 
 
 	/**
@@ -87,6 +184,7 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 		Object cacheKey = getCacheKey(method, targetClass);
 		Object cached = this.cache.get(cacheKey);
 		if (cached != null) {
+			this.cacheHitCount++;
 			// Value will either be canonical value indicating there is no transaction attribute,
 			// or an actual transaction attribute.
 			if (cached == NULL_TRANSACTION_ATTRIBUTE) {
@@ -97,22 +195,53 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 			}
 		}
 		else {
+			this.cacheMissCount++;
 			// We need to work it out.
 			TransactionAttribute txAtt = computeTransactionAttribute(method, targetClass);
 			// Put it in the cache.
 			if (txAtt == null) {
-				this.cache.put(cacheKey, NULL_TRANSACTION_ATTRIBUTE);
+				addToCache(cacheKey, NULL_TRANSACTION_ATTRIBUTE);
 			}
 			else {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Adding transactional method [" + method.getName() + "] with attribute [" + txAtt + "]");
 				}
-				this.cache.put(cacheKey, txAtt);
+				addToCache(cacheKey, txAtt);
 			}
 			return txAtt;
 		}
 	}
 
+	/**
+	 * Add the given value to the cache, evicting a randomly chosen entry
+	 * if the cache limit has been reached. Random eviction degrades gracefully
+	 * when the working set exceeds the limit, and does not require any
+	 * bookkeeping on cache hits.
+	 * <p>Only cache modifications are synchronized; lookups are not.
+	 * @param cacheKey the cache key
+	 * @param value the TransactionAttribute or the canonical null marker
+	 */
+	private void addToCache(Object cacheKey, Object value) {
+		int limit = this.cacheLimit;
+		if (limit == 0) {
+			return;
+		}
+		synchronized (this.cache) {
+			if (this.cache.put(cacheKey, value) == null) {
+				while (limit > 0 && this.cacheKeys.size() >= limit) {
+					// Remove random key, filling its slot with the last key.
+					int index = this.evictionRandom.nextInt(this.cacheKeys.size());
+					Object evictedKey = this.cacheKeys.remove(this.cacheKeys.size() - 1);
+					if (index < this.cacheKeys.size()) {
+						evictedKey = this.cacheKeys.set(index, evictedKey);
+					}
+					this.cache.remove(evictedKey);
+				}
+				this.cacheKeys.add(cacheKey);
+			}
+		}
+	}
+
 	/**
 	 * Determine a cache key for the given method and target class.
 	 * <p>Must not produce same key for overloaded methods.
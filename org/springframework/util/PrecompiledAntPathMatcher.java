@@ -0,0 +1,436 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Map;
+
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Variant of {@link AntPathMatcher} that compiles each pattern once
+ * into a reusable form, applying exactly the same matching rules.
+ *
+ * <p>Compiled patterns are cached per matcher instance, up to a configurable
+ * limit. Paths to match are not tokenized into Strings: path segments are
+ * matched in place, determined by a per-thread buffer of segment offsets,
+ * so matching a path does not allocate any objects.
+ * This makes a noticeable difference for code that matches the same set
+ * of patterns over and over again, such as URL handler mappings.
+ *
+ * <p>Like AntPathMatcher, this class is thread-safe once configured.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see #setPatternCacheLimit
+ */
+public class PrecompiledAntPathMatcher extends AntPathMatcher {
+
+	/**
+	 * Default maximum number of compiled patterns to cache: 1024.
+	 */
+	public static final int DEFAULT_PATTERN_CACHE_LIMIT = 1024;
+
+	/**
+	 * Maximum size of segment offset buffers to keep for reuse.
+	 * Longer paths get a one-off buffer instead.
+	 */
+	private static final int MAX_REUSABLE_OFFSETS_LENGTH = 1024;
+
+
+	private String pathSeparator = DEFAULT_PATH_SEPARATOR;
+
+	private int patternCacheLimit = DEFAULT_PATTERN_CACHE_LIMIT;
+
+	/** Cache of compiled patterns: pattern String --> CompiledPattern */
+	private final Map compiledPatterns = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Per-thread scratch buffer for segment offsets, reused across match calls */
+	private final ThreadLocal offsetsBuffer = new ThreadLocal();
+
+
+	public void setPathSeparator(String pathSeparator) {
+		super.setPathSeparator(pathSeparator);
+		this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
+		this.compiledPatterns.clear();
+	}
+
+	/**
+	 * Specify the maximum number of compiled patterns to cache.
+	 * Default is 1024.
+	 * <p>Once the limit is reached, further patterns will still be compiled,
+	 * but not cached anymore. A limit of 0 turns off pattern caching.
+	 */
+	public void setPatternCacheLimit(int patternCacheLimit) {
+		this.patternCacheLimit = patternCacheLimit;
+	}
+
+
+	public boolean match(String pattern, String str) {
+		CompiledPattern compiledPattern = getCompiledPattern(pattern);
+		if (str.startsWith(this.pathSeparator) != compiledPattern.absolute) {
+			return false;
+		}
+		int[] offsets = getOffsetsBuffer(str.length() + 2);
+		int segmentCount = tokenize(str, offsets);
+		return compiledPattern.matches(str, offsets, segmentCount);
+	}
+
+	/**
+	 * Return the compiled form of the given pattern,
+	 * compiling and caching it if necessary.
+	 * @param pattern the pattern to compile
+	 * @return the compiled pattern
+	 */
+	private CompiledPattern getCompiledPattern(String pattern) {
+		CompiledPattern compiledPattern = (CompiledPattern) this.compiledPatterns.get(pattern);
+		if (compiledPattern == null) {
+			compiledPattern = new CompiledPattern(pattern, this.pathSeparator);
+			if (this.compiledPatterns.size() < this.patternCacheLimit) {
+				this.compiledPatterns.put(pattern, compiledPattern);
+			}
+		}
+		return compiledPattern;
+	}
+
+	/**
+	 * Return a segment offsets buffer of at least the given length:
+	 * the current thread's scratch buffer, unless the path is very long.
+	 * Only holds on to an <code>int</code> array, so the ThreadLocal
+	 * does not keep any application classes alive.
+	 * @param minLength the minimum length of the buffer
+	 */
+	private int[] getOffsetsBuffer(int minLength) {
+		if (minLength > MAX_REUSABLE_OFFSETS_LENGTH) {
+			return new int[minLength];
+		}
+		int[] buffer = (int[]) this.offsetsBuffer.get();
+		if (buffer == null || buffer.length < minLength) {
+			buffer = new int[Math.max(minLength, 64)];
+			this.offsetsBuffer.set(buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Determine the segments of the given path, applying the same rules as
+	 * <code>StringUtils.tokenizeToStringArray(str, pathSeparator)</code>:
+	 * every path separator character delimits segments, segments get trimmed,
+	 * and empty segments are ignored.
+	 * @param str the path to tokenize
+	 * @param offsets the buffer to write the segment offsets to: start (inclusive)
+	 * and end (exclusive) index of each segment, in turn. Non-empty segments are
+	 * separated by at least one character, so a length of <code>str.length() + 2</code>
+	 * is always sufficient.
+	 * @return the number of segments
+	 * @see StringUtils#tokenizeToStringArray(String, String)
+	 */
+	private int tokenize(String str, int[] offsets) {
+		int length = str.length();
+		int count = 0;
+		int pos = 0;
+		while (pos < length) {
+			while (pos < length && isSeparator(str.charAt(pos))) {
+				pos++;
+			}
+			int start = pos;
+			while (pos < length && !isSeparator(str.charAt(pos))) {
+				pos++;
+			}
+			int end = pos;
+			while (start < end && str.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && str.charAt(end - 1) <= ' ') {
+				end--;
+			}
+			if (start < end) {
+				offsets[count * 2] = start;
+				offsets[count * 2 + 1] = end;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean isSeparator(char ch) {
+		return (this.pathSeparator.length() == 1 ? this.pathSeparator.charAt(0) == ch :
+				this.pathSeparator.indexOf(ch) != -1);
+	}
+
+
+	/**
+	 * Compiled form of an Ant-style pattern: the tokenized pattern segments,
+	 * with the wildcard characteristics of each segment determined upfront.
+	 * Immutable, so instances can be shared between threads.
+	 */
+	private static class CompiledPattern {
+
+		private final boolean absolute;
+
+		private final char[][] segments;
+
+		/** Whether the segment is "**" */
+		private final boolean[] doubleStar;
+
+		/** Whether the segment is "*" */
+		private final boolean[] singleStar;
+
+		/** Whether the segment contains a '*' at all */
+		private final boolean[] containsStar;
+
+		private final String pathSeparator;
+
+		public CompiledPattern(String pattern, String pathSeparator) {
+			this.absolute = pattern.startsWith(pathSeparator);
+			this.pathSeparator = pathSeparator;
+			String[] patDirs = StringUtils.tokenizeToStringArray(pattern, pathSeparator);
+			this.segments = new char[patDirs.length][];
+			this.doubleStar = new boolean[patDirs.length];
+			this.singleStar = new boolean[patDirs.length];
+			this.containsStar = new boolean[patDirs.length];
+			for (int i = 0; i < patDirs.length; i++) {
+				this.segments[i] = patDirs[i].toCharArray();
+				this.doubleStar[i] = patDirs[i].equals("**");
+				this.singleStar[i] = patDirs[i].equals("*");
+				this.containsStar[i] = (patDirs[i].indexOf('*') != -1);
+			}
+		}
+
+		/**
+		 * Match the given path against this pattern.
+		 * Follows the algorithm in {@link AntPathMatcher#match}.
+		 * @param str the path
+		 * @param offsets the segment offsets of the path
+		 * @param segmentCount the number of segments in the path
+		 */
+		public boolean matches(String str, int[] offsets, int segmentCount) {
+			int patIdxStart = 0;
+			int patIdxEnd = this.segments.length - 1;
+			int strIdxStart = 0;
+			int strIdxEnd = segmentCount - 1;
+
+			// Match all elements up to the first **
+			while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
+				if (this.doubleStar[patIdxStart]) {
+					break;
+				}
+				if (!matchSegment(patIdxStart, str, offsets, strIdxStart)) {
+					return false;
+				}
+				patIdxStart++;
+				strIdxStart++;
+			}
+
+			if (strIdxStart > strIdxEnd) {
+				// String is exhausted, only match if rest of pattern is * or **'s
+				if (patIdxStart == patIdxEnd && this.singleStar[patIdxStart] &&
+						str.endsWith(this.pathSeparator)) {
+					return true;
+				}
+				return onlyDoubleStars(patIdxStart, patIdxEnd);
+			}
+			else {
+				if (patIdxStart > patIdxEnd) {
+					// String not exhausted, but pattern is. Failure.
+					return false;
+				}
+			}
+
+			// up to last '**'
+			while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
+				if (this.doubleStar[patIdxEnd]) {
+					break;
+				}
+				if (!matchSegment(patIdxEnd, str, offsets, strIdxEnd)) {
+					return false;
+				}
+				patIdxEnd--;
+				strIdxEnd--;
+			}
+			if (strIdxStart > strIdxEnd) {
+				// String is exhausted
+				return onlyDoubleStars(patIdxStart, patIdxEnd);
+			}
+
+			while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
+					if (this.doubleStar[i]) {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == patIdxStart + 1) {
+					// '**/**' situation, so skip one
+					patIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - patIdxStart - 1);
+				int strLength = (strIdxEnd - strIdxStart + 1);
+				int foundIdx = -1;
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						if (!matchSegment(patIdxStart + j + 1, str, offsets, strIdxStart + i + j)) {
+							continue strLoop;
+						}
+					}
+					foundIdx = strIdxStart + i;
+					break;
+				}
+
+				if (foundIdx == -1) {
+					return false;
+				}
+
+				patIdxStart = patIdxTmp;
+				strIdxStart = foundIdx + patLength;
+			}
+
+			return onlyDoubleStars(patIdxStart, patIdxEnd);
+		}
+
+		private boolean onlyDoubleStars(int patIdxStart, int patIdxEnd) {
+			for (int i = patIdxStart; i <= patIdxEnd; i++) {
+				if (!this.doubleStar[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Match the given pattern segment against the given path segment,
+		 * in place. Follows the algorithm in AntPathMatcher's
+		 * <code>matchStrings</code> method.
+		 * @param segmentIndex the index of the pattern segment
+		 * @param str the path
+		 * @param offsets the segment offsets of the path
+		 * @param strSegmentIndex the index of the path segment
+		 */
+		private boolean matchSegment(int segmentIndex, String str, int[] offsets, int strSegmentIndex) {
+			char[] patArr = this.segments[segmentIndex];
+			int patIdxStart = 0;
+			int patIdxEnd = patArr.length - 1;
+			int strIdxStart = offsets[strSegmentIndex * 2];
+			int strIdxEnd = offsets[strSegmentIndex * 2 + 1] - 1;
+			char ch;
+
+			if (!this.containsStar[segmentIndex]) {
+				// No '*'s, so we make a shortcut
+				if (patIdxEnd != strIdxEnd - strIdxStart) {
+					return false; // Pattern and string do not have the same size
+				}
+				for (int i = 0; i <= patIdxEnd; i++) {
+					ch = patArr[i];
+					if (ch != '?' && ch != str.charAt(strIdxStart + i)) {
+						return false; // Character mismatch
+					}
+				}
+				return true; // String matches against pattern
+			}
+
+			if (patIdxEnd == 0) {
+				return true; // Pattern contains only '*', which matches anything
+			}
+
+			// Process characters before first star
+			while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
+				if (ch != '?' && ch != str.charAt(strIdxStart)) {
+					return false; // Character mismatch
+				}
+				patIdxStart++;
+				strIdxStart++;
+			}
+			if (strIdxStart > strIdxEnd) {
+				// All characters in the string are used. Check if only '*'s are
+				// left in the pattern. If so, we succeeded. Otherwise failure.
+				return onlyStars(patArr, patIdxStart, patIdxEnd);
+			}
+
+			// Process characters after last star
+			while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
+				if (ch != '?' && ch != str.charAt(strIdxEnd)) {
+					return false; // Character mismatch
+				}
+				patIdxEnd--;
+				strIdxEnd--;
+			}
+			if (strIdxStart > strIdxEnd) {
+				// All characters in the string are used. Check if only '*'s are
+				// left in the pattern. If so, we succeeded. Otherwise failure.
+				return onlyStars(patArr, patIdxStart, patIdxEnd);
+			}
+
+			// process pattern between stars. padIdxStart and patIdxEnd point
+			// always to a '*'.
+			while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
+					if (patArr[i] == '*') {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == patIdxStart + 1) {
+					// Two stars next to each other, skip the first one.
+					patIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - patIdxStart - 1);
+				int strLength = (strIdxEnd - strIdxStart + 1);
+				int foundIdx = -1;
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						ch = patArr[patIdxStart + j + 1];
+						if (ch != '?' && ch != str.charAt(strIdxStart + i + j)) {
+							continue strLoop;
+						}
+					}
+					foundIdx = strIdxStart + i;
+					break;
+				}
+
+				if (foundIdx == -1) {
+					return false;
+				}
+
+				patIdxStart = patIdxTmp;
+				strIdxStart = foundIdx + patLength;
+			}
+
+			// All characters in the string are used. Check if only '*'s are left
+			// in the pattern. If so, we succeeded. Otherwise failure.
+			return onlyStars(patArr, patIdxStart, patIdxEnd);
+		}
+
+		private boolean onlyStars(char[] patArr, int patIdxStart, int patIdxEnd) {
+			for (int i = patIdxStart; i <= patIdxEnd; i++) {
+				if (patArr[i] != '*') {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
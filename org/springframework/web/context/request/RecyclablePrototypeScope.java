@@ -0,0 +1,460 @@
+/*
+ * Copyright 2002-2006 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.context.request;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.core.CollectionFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link org.springframework.beans.factory.config.Scope} implementation that
+ * behaves like a prototype within a request, but recycles the handed-out
+ * objects once the request has been completed: Each <code>getBean</code> call
+ * returns an object that is not in use by anyone else, taken from a pool
+ * that is held per thread and bean name, or newly created if the pool is empty.
+ *
+ * <p>All objects handed out during a request are returned to the pool of the
+ * current thread on request completion. Each object is reset through its
+ * reset method (see {@link #setResetMethodName "resetMethodName"}) before it
+ * is returned to the pool, hence before it may be handed out again. Objects
+ * that do not declare a reset method will never be recycled.
+ *
+ * <p>This is intended for large objects that are expensive to create and
+ * populate for every request, such as form command objects (see
+ * {@link org.springframework.web.servlet.mvc.BaseCommandController#setCommandBeanName}).
+ * Note that recycled objects must not be referenced anymore after request
+ * completion: in particular, they must not be kept in the HTTP session,
+ * as with a form controller's "sessionForm" mode.
+ *
+ * <p>Relies on a thread-bound {@link RequestAttributes} instance, just like
+ * {@link RequestScope}. To be registered with a bean factory through
+ * {@link org.springframework.beans.factory.config.CustomScopeConfigurer}.
+ *
+ * <p>Destruction callbacks for recycled objects will be executed when
+ * an object gets discarded instead of returned to the pool, that is,
+ * if it does not declare a reset method, if its reset method failed,
+ * or if the pool is full already, as well as for all idle objects when
+ * this scope gets destroyed (see {@link #destroy()}). Objects that are
+ * still held in the pool of a thread that dies will simply be garbage-collected.
+ *
+ * <p>The pools are not held in a ThreadLocal but in a map with weak keys for
+ * the threads, owned by this scope: They do not outlive this scope, even
+ * if the threads (for example, pooled server threads) do.
+ *
+ * @author agent
+ * @since 2.0.3
+ * @see #setResetMethodName
+ * @see #setMaxIdlePerBean
+ * @see RequestContextHolder#currentRequestAttributes()
+ * @see org.springframework.beans.factory.config.CustomScopeConfigurer
+ */
+public class RecyclablePrototypeScope implements Scope, DisposableBean {
+
+	/** Default name of the reset method: "reset" */
+	public static final String DEFAULT_RESET_METHOD_NAME = "reset";
+
+	/** Default maximum number of idle objects per bean name and thread: 8 */
+	public static final int DEFAULT_MAX_IDLE_PER_BEAN = 8;
+
+	private static final Object NO_RESET_METHOD = new Object();
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private String resetMethodName = DEFAULT_RESET_METHOD_NAME;
+
+	private int maxIdlePerBean = DEFAULT_MAX_IDLE_PER_BEAN;
+
+	/** Cache of reset methods: Class --> Method, or NO_RESET_METHOD marker */
+	private final Map resetMethodCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/** Map from Thread (weakly referenced) to ThreadState */
+	private final Map threadStates = Collections.synchronizedMap(new WeakHashMap());
+
+	private volatile boolean destroyed = false;
+
+	/** Name of the request destruction callback that releases all objects of a request */
+	private final String releaseCallbackName =
+			getClass().getName() + ".RELEASE@" + Integer.toHexString(System.identityHashCode(this));
+
+
+	/**
+	 * Set the name of the no-arg method to call on an object in order to reset
+	 * its state before it gets reused. Default is "reset".
+	 * <p>Objects that do not declare a method with this name will not be recycled.
+	 */
+	public void setResetMethodName(String resetMethodName) {
+		Assert.hasText(resetMethodName, "resetMethodName must not be empty");
+		this.resetMethodName = resetMethodName;
+	}
+
+	/**
+	 * Return the name of the method to call in order to reset an object.
+	 */
+	public String getResetMethodName() {
+		return this.resetMethodName;
+	}
+
+	/**
+	 * Set the maximum number of idle objects to keep per bean name and thread.
+	 * Default is 8.
+	 * <p>Objects that are released beyond this limit will be discarded.
+	 */
+	public void setMaxIdlePerBean(int maxIdlePerBean) {
+		this.maxIdlePerBean = maxIdlePerBean;
+	}
+
+	/**
+	 * Return the maximum number of idle objects to keep per bean name and thread.
+	 */
+	public int getMaxIdlePerBean() {
+		return this.maxIdlePerBean;
+	}
+
+
+	public Object get(String name, ObjectFactory objectFactory) {
+		RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+		ThreadState state = getThreadState();
+		PooledObject pooledObject = state.takeIdleObject(name);
+		if (pooledObject == null) {
+			pooledObject = createObject(name, objectFactory, state);
+		}
+		else if (logger.isDebugEnabled()) {
+			logger.debug("Recycling object [" + pooledObject.object + "] for bean '" + name + "'");
+		}
+		if (state.addBorrowedObject(pooledObject)) {
+			attributes.registerDestructionCallback(this.releaseCallbackName,
+					new ReleaseCallback(Thread.currentThread(), state), RequestAttributes.SCOPE_REQUEST);
+		}
+		return pooledObject.object;
+	}
+
+	/**
+	 * Removes the object of the given name that has been handed out most
+	 * recently within the current request, if any. The removed object
+	 * will not be recycled.
+	 */
+	public Object remove(String name) {
+		PooledObject pooledObject = getThreadState().removeBorrowedObject(name);
+		return (pooledObject != null ? pooledObject.object : null);
+	}
+
+	/**
+	 * Associates the given callback with the object that is currently
+	 * being created, to be executed when that object gets discarded.
+	 */
+	public void registerDestructionCallback(String name, Runnable callback) {
+		getThreadState().pendingDestructionCallback = callback;
+	}
+
+	/**
+	 * There is no conversation id concept for recycled objects,
+	 * so this method returns <code>null</code>.
+	 * @return <code>null</code>
+	 */
+	public String getConversationId() {
+		return null;
+	}
+
+
+	/**
+	 * Discard the idle objects of all threads, executing their destruction
+	 * callbacks. Objects that are still in use will be discarded on
+	 * request completion instead of being returned to the pool.
+	 */
+	public void destroy() {
+		this.destroyed = true;
+		List states = null;
+		synchronized (this.threadStates) {
+			states = new ArrayList(this.threadStates.values());
+			this.threadStates.clear();
+		}
+		for (Iterator it = states.iterator(); it.hasNext();) {
+			List idle = ((ThreadState) it.next()).takeIdleObjects();
+			for (Iterator it2 = idle.iterator(); it2.hasNext();) {
+				discardObject((PooledObject) it2.next());
+			}
+		}
+	}
+
+
+	/**
+	 * Return the ThreadState for the current thread, creating it if necessary.
+	 */
+	private ThreadState getThreadState() {
+		Thread currentThread = Thread.currentThread();
+		synchronized (this.threadStates) {
+			ThreadState state = (ThreadState) this.threadStates.get(currentThread);
+			if (state == null) {
+				state = new ThreadState();
+				this.threadStates.put(currentThread, state);
+			}
+			return state;
+		}
+	}
+
+	/**
+	 * Remove the given ThreadState for the given thread if it does not hold any
+	 * idle or borrowed objects, in order to not keep empty state per thread.
+	 */
+	private void removeThreadStateIfEmpty(Thread thread, ThreadState state) {
+		synchronized (this.threadStates) {
+			if (this.threadStates.get(thread) == state && state.isEmpty()) {
+				this.threadStates.remove(thread);
+			}
+		}
+	}
+
+	/**
+	 * Create a new object through the given ObjectFactory, capturing the
+	 * destruction callback that the bean factory registers for it (if any).
+	 */
+	private PooledObject createObject(String name, ObjectFactory objectFactory, ThreadState state) {
+		// Save the pending callback of an outer creation, in case of nested creation.
+		Runnable outerCallback = state.pendingDestructionCallback;
+		state.pendingDestructionCallback = null;
+		try {
+			Object object = objectFactory.getObject();
+			return new PooledObject(name, object, state.pendingDestructionCallback);
+		}
+		finally {
+			state.pendingDestructionCallback = outerCallback;
+		}
+	}
+
+	/**
+	 * Reset the given object, returning it to the pool, or discard it if
+	 * it cannot be reset or if the pool for its bean name is full already.
+	 */
+	private void releaseObject(PooledObject pooledObject, ThreadState state) {
+		Method resetMethod = (!this.destroyed ? getResetMethod(pooledObject.object.getClass()) : null);
+		if (resetMethod != null) {
+			try {
+				ReflectionUtils.invokeMethod(resetMethod, pooledObject.object);
+				if (state.addIdleObject(pooledObject, this.maxIdlePerBean)) {
+					return;
+				}
+			}
+			catch (Throwable ex) {
+				logger.warn("Reset method of object [" + pooledObject.object + "] for bean '" +
+						pooledObject.name + "' threw exception - discarding object", ex);
+			}
+		}
+		discardObject(pooledObject);
+	}
+
+	/**
+	 * Discard the given object, executing its destruction callback (if any).
+	 */
+	private void discardObject(PooledObject pooledObject) {
+		if (pooledObject.destructionCallback != null) {
+			try {
+				pooledObject.destructionCallback.run();
+			}
+			catch (Throwable ex) {
+				logger.error("Destruction callback for object [" + pooledObject.object + "] for bean '" +
+						pooledObject.name + "' threw exception", ex);
+			}
+		}
+	}
+
+	/**
+	 * Determine the reset method for the given class.
+	 * @return the reset method, or <code>null</code> if none found
+	 */
+	private Method getResetMethod(Class clazz) {
+		Object resetMethod = this.resetMethodCache.get(clazz);
+		if (resetMethod == null) {
+			resetMethod = ClassUtils.getMethodIfAvailable(clazz, this.resetMethodName, new Class[0]);
+			if (resetMethod == null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Class [" + clazz.getName() + "] does not declare a reset method named '" +
+							this.resetMethodName + "' - its objects will not be recycled");
+				}
+				resetMethod = NO_RESET_METHOD;
+			}
+			this.resetMethodCache.put(clazz, resetMethod);
+		}
+		return (resetMethod != NO_RESET_METHOD ? (Method) resetMethod : null);
+	}
+
+
+	/**
+	 * An object handed out by this scope, along with its bean name
+	 * and its destruction callback (if any).
+	 */
+	private static class PooledObject {
+
+		public final String name;
+
+		public final Object object;
+
+		public final Runnable destructionCallback;
+
+		public PooledObject(String name, Object object, Runnable destructionCallback) {
+			this.name = name;
+			this.object = object;
+			this.destructionCallback = destructionCallback;
+		}
+	}
+
+
+	/**
+	 * Pool of idle objects and list of borrowed objects for a single thread.
+	 * Synchronized in case of request completion callbacks being executed
+	 * by a different thread.
+	 */
+	private static class ThreadState {
+
+		/** Map from bean name to LinkedList of idle PooledObjects */
+		private final Map idleObjects = new HashMap();
+
+		/** PooledObjects handed out during the current request */
+		private List borrowedObjects = new ArrayList();
+
+		/** Destruction callback registered for the object currently being created */
+		public Runnable pendingDestructionCallback;
+
+		public synchronized PooledObject takeIdleObject(String name) {
+			LinkedList idle = (LinkedList) this.idleObjects.get(name);
+			return (idle != null && !idle.isEmpty() ? (PooledObject) idle.removeLast() : null);
+		}
+
+		/**
+		 * Add the given object to the idle pool, if not full already.
+		 * @return whether the object has been added
+		 */
+		public synchronized boolean addIdleObject(PooledObject pooledObject, int maxIdle) {
+			LinkedList idle = (LinkedList) this.idleObjects.get(pooledObject.name);
+			if (idle == null) {
+				idle = new LinkedList();
+				this.idleObjects.put(pooledObject.name, idle);
+			}
+			if (idle.size() >= maxIdle) {
+				return false;
+			}
+			idle.addLast(pooledObject);
+			return true;
+		}
+
+		/**
+		 * Remove all idle objects.
+		 * @return the List of idle PooledObjects
+		 */
+		public synchronized List takeIdleObjects() {
+			List idle = new ArrayList();
+			for (Iterator it = this.idleObjects.values().iterator(); it.hasNext();) {
+				idle.addAll((LinkedList) it.next());
+			}
+			this.idleObjects.clear();
+			return idle;
+		}
+
+		/**
+		 * Return whether this state holds neither idle nor borrowed objects.
+		 */
+		public synchronized boolean isEmpty() {
+			if (!this.borrowedObjects.isEmpty()) {
+				return false;
+			}
+			for (Iterator it = this.idleObjects.values().iterator(); it.hasNext();) {
+				if (!((LinkedList) it.next()).isEmpty()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Add the given object to the borrowed objects of the current request.
+		 * @return whether this is the first borrowed object of the request
+		 */
+		public synchronized boolean addBorrowedObject(PooledObject pooledObject) {
+			this.borrowedObjects.add(pooledObject);
+			return (this.borrowedObjects.size() == 1);
+		}
+
+		public synchronized PooledObject removeBorrowedObject(String name) {
+			for (ListIterator it = this.borrowedObjects.listIterator(this.borrowedObjects.size()); it.hasPrevious();) {
+				PooledObject pooledObject = (PooledObject) it.previous();
+				if (pooledObject.name.equals(name)) {
+					it.remove();
+					return pooledObject;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Remove all borrowed objects of the current request.
+		 * @return the List of borrowed PooledObjects
+		 */
+		public synchronized List takeBorrowedObjects() {
+			List borrowed = this.borrowedObjects;
+			this.borrowedObjects = new ArrayList();
+			return borrowed;
+		}
+	}
+
+
+	/**
+	 * Request destruction callback that releases all objects
+	 * handed out during a request.
+	 */
+	private class ReleaseCallback implements Runnable {
+
+		private final Thread thread;
+
+		private final ThreadState state;
+
+		public ReleaseCallback(Thread thread, ThreadState state) {
+			this.thread = thread;
+			this.state = state;
+		}
+
+		public void run() {
+			List borrowed = this.state.takeBorrowedObjects();
+			for (int i = 0; i < borrowed.size(); i++) {
+				releaseObject((PooledObject) borrowed.get(i), this.state);
+			}
+			// Only remove the state when running in its own thread: Else,
+			// that thread might have started to use it for another request.
+			if (Thread.currentThread() == this.thread) {
+				removeThreadStateIfEmpty(this.thread, this.state);
+			}
+		}
+	}
+
+}
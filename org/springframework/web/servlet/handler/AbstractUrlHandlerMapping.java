@@ -16,17 +16,22 @@
 
 package org.springframework.web.servlet.handler;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.BeansException;
+import org.springframework.core.CollectionFactory;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.PathMatcher;
+import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.UrlPathHelper;
 
@@ -45,22 +50,55 @@ import org.springframework.web.util.UrlPathHelper;
  * current request path. The most exact match is defined as the longest
  * path pattern that matches the current request path.
  *
+ * <p>For large numbers of mappings, consider switching on "indexedLookup":
+ * Only patterns whose leading path segments match the corresponding segments
+ * of the request path will be matched then, and pattern lookup results will
+ * be cached.
+ *
  * @author Juergen Hoeller
  * @since 16.04.2003
  * @see #setAlwaysUseFullPath
  * @see #setUrlDecode
+ * @see #setIndexedLookup
  * @see org.springframework.util.AntPathMatcher
  */
 public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
+	/**
+	 * Default maximum number of lookup paths to cache pattern matches for: 1024.
+	 */
+	public static final int DEFAULT_LOOKUP_CACHE_LIMIT = 1024;
+
+	/** Path separator for indexing registered paths */
+	private static final String PATH_SEPARATOR = "/";
+
+
 	private UrlPathHelper urlPathHelper = new UrlPathHelper();
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
 	private boolean lazyInitHandlers = false;
 
+	private boolean indexedLookup = false;
+
+	private int lookupCacheLimit = DEFAULT_LOOKUP_CACHE_LIMIT;
+
 	private final Map handlerMap = new HashMap();
 
+	/** Registered paths, indexed by their leading path segments up to the first "**" */
+	private final PathIndexNode pathIndex = new PathIndexNode();
+
+	/** Cache for pattern lookups: lookup path --> best matching pattern */
+	private final Map lookupCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/**
+	 * Keys of all cached pattern lookups, for picking an entry to evict.
+	 * Guarded by the lookup cache monitor, just like all cache modifications.
+	 */
+	private final List lookupCacheKeys = new ArrayList();
+
+	private final Random evictionRandom = new Random();
+
 
 	/**
 	 * Set if URL lookup should always use the full path within the current servlet
@@ -122,6 +160,38 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		this.lazyInitHandlers = lazyInitHandlers;
 	}
 
+	/**
+	 * Set whether to use an index of the registered URL paths for pattern lookups.
+	 * Default is "false", matching the lookup path against every registered pattern.
+	 * <p>If switched on, registered paths are organized in a tree of their leading
+	 * path segments, and only the paths along the segments of the lookup path are
+	 * actually matched: literal segments are looked up by equality, pattern segments
+	 * such as "*.do" are matched against the corresponding lookup path segment.
+	 * The best matching pattern for each lookup path will be cached
+	 * (see {@link #setLookupCacheLimit}); lookup paths that do not match any
+	 * pattern will not be cached. The "longest match wins" rule applies as usual.
+	 * <p>A "**" segment may match any number of path segments, so the tree ends
+	 * there: Paths such as "/test/**&#47;*.do" are matched against all lookup paths
+	 * below "/test", and paths starting with "**" against all lookup paths.
+	 * <p>This assumes that the PathMatcher matches path segments independently,
+	 * with "/" as path separator, as the default AntPathMatcher does.
+	 * @see #setPathMatcher
+	 */
+	public void setIndexedLookup(boolean indexedLookup) {
+		this.indexedLookup = indexedLookup;
+	}
+
+	/**
+	 * Specify the maximum number of lookup paths to cache pattern matches for,
+	 * in case of "indexedLookup". Default is 1024.
+	 * <p>Once the limit is reached, a randomly chosen entry will be evicted for
+	 * every newly cached entry. A limit of 0 turns off caching of pattern matches.
+	 * @see #setIndexedLookup
+	 */
+	public void setLookupCacheLimit(int lookupCacheLimit) {
+		this.lookupCacheLimit = lookupCacheLimit;
+	}
+
 
 	/**
 	 * Look up a handler for the URL path of the given request.
@@ -155,12 +225,11 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		if (handler == null) {
 			// pattern match?
 			String bestPathMatch = null;
-			for (Iterator it = this.handlerMap.keySet().iterator(); it.hasNext();) {
-				String registeredPath = (String) it.next();
-				if (this.pathMatcher.match(registeredPath, urlPath) &&
-						(bestPathMatch == null || bestPathMatch.length() <= registeredPath.length())) {
-					bestPathMatch = registeredPath;
-				}
+			if (this.indexedLookup) {
+				bestPathMatch = lookupIndexedPathMatch(urlPath);
+			}
+			else {
+				bestPathMatch = findBestPathMatch(urlPath, this.handlerMap.keySet().iterator());
 			}
 			if (bestPathMatch != null) {
 				handler = this.handlerMap.get(bestPathMatch);
@@ -173,6 +242,75 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		return handler;
 	}
 
+	/**
+	 * Find the best matching registered path for the given lookup path,
+	 * using the path index and the lookup cache.
+	 * <p>Misses are not cached, so that a stream of unmatched lookup paths
+	 * (for example, random 404 requests) cannot displace the cached matches.
+	 * @param urlPath URL the bean is mapped to
+	 * @return the best matching registered path, or <code>null</code> if none
+	 */
+	private String lookupIndexedPathMatch(String urlPath) {
+		String cached = (String) this.lookupCache.get(urlPath);
+		if (cached != null) {
+			return cached;
+		}
+		List candidates = new ArrayList();
+		this.pathIndex.collectCandidates(
+				StringUtils.tokenizeToStringArray(urlPath, PATH_SEPARATOR), 0, this.pathMatcher, candidates);
+		String bestPathMatch = findBestPathMatch(urlPath, candidates.iterator());
+		if (bestPathMatch != null) {
+			addToLookupCache(urlPath, bestPathMatch);
+		}
+		return bestPathMatch;
+	}
+
+	/**
+	 * Add the given pattern match to the lookup cache, evicting a randomly
+	 * chosen entry if the cache limit has been reached.
+	 * <p>Only cache modifications are synchronized; lookups are not.
+	 * @param urlPath the lookup path
+	 * @param bestPathMatch the best matching registered path
+	 */
+	private void addToLookupCache(String urlPath, String bestPathMatch) {
+		int limit = this.lookupCacheLimit;
+		if (limit <= 0) {
+			return;
+		}
+		synchronized (this.lookupCache) {
+			if (this.lookupCache.put(urlPath, bestPathMatch) == null) {
+				while (this.lookupCacheKeys.size() >= limit) {
+					// Remove random key, filling its slot with the last key.
+					int index = this.evictionRandom.nextInt(this.lookupCacheKeys.size());
+					Object evictedKey = this.lookupCacheKeys.remove(this.lookupCacheKeys.size() - 1);
+					if (index < this.lookupCacheKeys.size()) {
+						evictedKey = this.lookupCacheKeys.set(index, evictedKey);
+					}
+					this.lookupCache.remove(evictedKey);
+				}
+				this.lookupCacheKeys.add(urlPath);
+			}
+		}
+	}
+
+	/**
+	 * Find the longest of the given registered paths that matches the lookup path.
+	 * @param urlPath URL the bean is mapped to
+	 * @param registeredPaths the registered paths to match against (Strings)
+	 * @return the best matching registered path, or <code>null</code> if none
+	 */
+	private String findBestPathMatch(String urlPath, Iterator registeredPaths) {
+		String bestPathMatch = null;
+		while (registeredPaths.hasNext()) {
+			String registeredPath = (String) registeredPaths.next();
+			if (this.pathMatcher.match(registeredPath, urlPath) &&
+					(bestPathMatch == null || bestPathMatch.length() <= registeredPath.length())) {
+				bestPathMatch = registeredPath;
+			}
+		}
+		return bestPathMatch;
+	}
+
 	/**
 	 * Expose the path within the current mapping as request attribute.
 	 * @param pathWithinMapping the path within the current mapping
@@ -230,6 +368,11 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		}
 		else {
 			this.handlerMap.put(urlPath, handler);
+			this.pathIndex.addPath(urlPath, this.pathMatcher);
+			synchronized (this.lookupCache) {
+				this.lookupCache.clear();
+				this.lookupCacheKeys.clear();
+			}
 			if (logger.isDebugEnabled()) {
 				logger.debug("Mapped URL path [" + urlPath + "] onto handler [" + handler + "]");
 			}
@@ -247,4 +390,68 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		return Collections.unmodifiableMap(this.handlerMap);
 	}
 
+
+	/**
+	 * Node in the tree of registered paths, keyed by path segments.
+	 * Each node holds the registered paths that end at this node,
+	 * or that continue with a "**" segment here.
+	 */
+	private static class PathIndexNode {
+
+		/** Child nodes for literal segments: path segment String --> PathIndexNode */
+		private final Map literalChildren = new HashMap();
+
+		/** Child nodes for pattern segments: segment pattern String --> PathIndexNode */
+		private final Map patternChildren = new HashMap();
+
+		/** Registered paths (Strings) ending their indexed segments here */
+		private final List paths = new ArrayList(1);
+
+		public void addPath(String path, PathMatcher pathMatcher) {
+			String[] segments = StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR);
+			PathIndexNode node = this;
+			for (int i = 0; i < segments.length && !segments[i].equals("**"); i++) {
+				Map children = (pathMatcher.isPattern(segments[i]) ? node.patternChildren : node.literalChildren);
+				PathIndexNode child = (PathIndexNode) children.get(segments[i]);
+				if (child == null) {
+					child = new PathIndexNode();
+					children.put(segments[i], child);
+				}
+				node = child;
+			}
+			node.paths.add(path);
+		}
+
+		public void collectCandidates(String[] segments, int index, PathMatcher pathMatcher, List candidates) {
+			candidates.addAll(this.paths);
+			if (index == segments.length) {
+				// Lookup path exhausted: a trailing "*" may still match a trailing separator.
+				for (Iterator it = this.patternChildren.values().iterator(); it.hasNext();) {
+					((PathIndexNode) it.next()).collectAll(candidates);
+				}
+				return;
+			}
+			PathIndexNode literalChild = (PathIndexNode) this.literalChildren.get(segments[index]);
+			if (literalChild != null) {
+				literalChild.collectCandidates(segments, index + 1, pathMatcher, candidates);
+			}
+			for (Iterator it = this.patternChildren.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				if (pathMatcher.match((String) entry.getKey(), segments[index])) {
+					((PathIndexNode) entry.getValue()).collectCandidates(segments, index + 1, pathMatcher, candidates);
+				}
+			}
+		}
+
+		private void collectAll(List candidates) {
+			candidates.addAll(this.paths);
+			for (Iterator it = this.literalChildren.values().iterator(); it.hasNext();) {
+				((PathIndexNode) it.next()).collectAll(candidates);
+			}
+			for (Iterator it = this.patternChildren.values().iterator(); it.hasNext();) {
+				((PathIndexNode) it.next()).collectAll(candidates);
+			}
+		}
+	}
+
 }
@@ -228,6 +228,22 @@ public abstract class AbstractFormController extends BaseCommandController {
 	}
 
 
+	/**
+	 * Checks that session form mode is not combined with a command bean name:
+	 * Command objects obtained from a bean (for example, recyclable prototypes)
+	 * must not be kept in the session beyond the request that obtained them.
+	 * @see #setSessionForm
+	 * @see #setCommandBeanName
+	 */
+	protected void initApplicationContext() {
+		super.initApplicationContext();
+		if (isSessionForm() && getCommandBeanName() != null) {
+			throw new IllegalArgumentException("Cannot combine sessionForm mode with commandBeanName '" +
+					getCommandBeanName() + "': command objects obtained from a bean must not be kept in the session");
+		}
+	}
+
+
 	/**
 	 * Handles two cases: form submissions and showing a new form.
 	 * Delegates the decision between the two to {@link #isFormSubmission},
@@ -106,6 +106,15 @@ import org.springframework.web.bind.ServletRequestDataBinder;
  *          and their configuration properties and methods.</td>
  *  </tr>
  *  <tr>
+ *      <td>commandBeanName</td>
+ *      <td><i>null</i></td>
+ *      <td>the name of a bean in the application context to obtain command
+ *          objects from, as alternative to instantiating the command class.
+ *          Allows for prototype beans or beans in a custom scope, such as
+ *          {@link org.springframework.web.context.request.RecyclablePrototypeScope
+ *          recyclable prototypes}.</td>
+ *  </tr>
+ *  <tr>
  *      <td>validators</td>
  *      <td><i>null</i></td>
  *      <td>Array of Validator beans. The validator will be called at appropriate
@@ -140,6 +149,8 @@ public abstract class BaseCommandController extends AbstractController {
 
 	private Class commandClass;
 
+	private String commandBeanName;
+
 	private Validator[] validators;
 
 	private boolean validateOnBinding = true;
@@ -181,6 +192,30 @@ public abstract class BaseCommandController extends AbstractController {
 		return this.commandClass;
 	}
 
+	/**
+	 * Set the name of a bean in the application context to obtain command
+	 * objects from, as alternative to instantiating the command class.
+	 * <p>The bean will usually be a prototype, or a bean in a custom scope such as
+	 * {@link org.springframework.web.context.request.RecyclablePrototypeScope},
+	 * which recycles command objects after request completion instead of creating
+	 * and populating new objects for every request. A command class may still be
+	 * specified in addition, for checking the obtained command objects and the
+	 * validators.
+	 * <p>Not to be combined with a form controller's "sessionForm" mode, which
+	 * keeps command objects in the session beyond the current request.
+	 * @see #createCommand()
+	 */
+	public final void setCommandBeanName(String commandBeanName) {
+		this.commandBeanName = commandBeanName;
+	}
+
+	/**
+	 * Return the name of the bean to obtain command objects from, if any.
+	 */
+	public final String getCommandBeanName() {
+		return this.commandBeanName;
+	}
+
 	/**
 	 * Set the primary Validator for this controller. The Validator
 	 * must support the specified command class. If there are one
@@ -326,15 +361,23 @@ public abstract class BaseCommandController extends AbstractController {
 	 * Create a new command instance for the command class of this controller.
 	 * <p>This implementation uses <code>BeanUtils.instantiateClass</code>,
 	 * so the command needs to have a no-arg constructor (supposed to be
-	 * public, but not required to).
+	 * public, but not required to). If a command bean name has been specified,
+	 * the command will be obtained from the application context instead.
 	 * @return the new command instance
 	 * @throws Exception if the command object could not be instantiated
 	 * @see org.springframework.beans.BeanUtils#instantiateClass(Class)
+	 * @see #setCommandBeanName
 	 */
 	protected final Object createCommand() throws Exception {
+		if (this.commandBeanName != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Obtaining command from bean '" + this.commandBeanName + "'");
+			}
+			return getApplicationContext().getBean(this.commandBeanName, this.commandClass);
+		}
 		if (this.commandClass == null) {
 			throw new IllegalStateException("Cannot create command without commandClass being set - " +
-					"either set commandClass or (in a form controller) override formBackingObject");
+					"either set commandClass or commandBeanName or (in a form controller) override formBackingObject");
 		}
 		if (logger.isDebugEnabled()) {
 			logger.debug("Creating new command of class [" + this.commandClass.getName() + "]");
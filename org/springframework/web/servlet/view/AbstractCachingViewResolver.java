@@ -17,9 +17,11 @@
 package org.springframework.web.servlet.view;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 
+import org.springframework.core.CollectionFactory;
 import org.springframework.web.context.support.WebApplicationObjectSupport;
 import org.springframework.web.servlet.View;
 import org.springframework.web.servlet.ViewResolver;
@@ -29,6 +31,13 @@ import org.springframework.web.servlet.ViewResolver;
  * Caches views once resolved: This means that view resolution won't be a
  * performance problem, no matter how costly initial view retrieval is.
  *
+ * <p>Cached views are looked up without locking. Creation of a view only
+ * blocks threads that ask for the same view, not threads that ask for other
+ * views. The cache can be bounded through the "cacheLimit" property, evicting
+ * the least recently used views. View names that could not be resolved are
+ * not cached by default, so that their resolution is re-attempted on every
+ * request; see the "cacheUnresolved" property.
+ *
  * <p>View retrieval is deferred to subclasses via the <code>loadView</code>
  * template method.
  *
@@ -41,8 +50,25 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 	/** Whether we should cache views, once resolved */
 	private boolean cache = true;
 
-	/** View name --> View instance */
-	private final Map viewCache = new HashMap();
+	/** Whether we should cache the absence of a view for a given name */
+	private boolean cacheUnresolved = false;
+
+	/** Maximum number of views to cache, or 0 for unbounded */
+	private int cacheLimit = 0;
+
+	/** View name --> CachedView instance */
+	private final Map viewCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** View name --> lock for the creation of the View instance */
+	private final Map viewCreationLocks = new HashMap();
+
+	/*
+	 * Cache statistics. Deliberately not synchronized, to keep the cache lookup
+	 * free of locks: counts may occasionally miss an update under concurrent access.
+	 */
+	private volatile long cacheHitCount = 0;
+
+	private volatile long cacheMissCount = 0;
 
 
 	/**
@@ -63,6 +89,75 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 		return cache;
 	}
 
+	/**
+	 * Set whether a view name that could not be resolved (that is, for which
+	 * <code>createView</code> returned <code>null</code>) should be cached,
+	 * avoiding repeated resolution attempts for the same view name.
+	 * Default is "false", re-attempting the resolution on every request
+	 * for such a view name.
+	 * <p>Switch this on if unresolvable view names occur frequently, for example
+	 * with chained view resolvers, and views do not become available at runtime
+	 * (such as templates that get added without a restart).
+	 */
+	public void setCacheUnresolved(boolean cacheUnresolved) {
+		this.cacheUnresolved = cacheUnresolved;
+	}
+
+	/**
+	 * Return if caching of unresolved views is enabled.
+	 */
+	public boolean isCacheUnresolved() {
+		return this.cacheUnresolved;
+	}
+
+	/**
+	 * Specify the maximum number of entries for the view cache.
+	 * Default is 0, indicating an unbounded cache.
+	 * <p>Once the limit is reached, the least recently used view
+	 * will be evicted for every newly cached view.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the view cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Return the current number of entries in the view cache, including
+	 * the entries for unresolved view names if "cacheUnresolved" is on.
+	 */
+	public int getCacheSize() {
+		return this.viewCache.size();
+	}
+
+	/**
+	 * Return the number of view resolutions that have been served from the cache.
+	 */
+	public long getCacheHitCount() {
+		return this.cacheHitCount;
+	}
+
+	/**
+	 * Return the number of view resolutions that required creating the view.
+	 */
+	public long getCacheMissCount() {
+		return this.cacheMissCount;
+	}
+
+	/**
+	 * Return the ratio of cache hits to total view resolutions, between 0.0 and 1.0.
+	 */
+	public double getCacheHitRate() {
+		long hits = this.cacheHitCount;
+		long total = hits + this.cacheMissCount;
+		return (total > 0 ? (double) hits / total : 0.0);
+	}
+
 
 	public View resolveViewName(String viewName, Locale locale) throws Exception {
 		if (!isCache()) {
@@ -71,22 +166,97 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 		}
 		else {
 			Object cacheKey = getCacheKey(viewName, locale);
-			// No synchronization, as we can live with occasional double caching.
-			synchronized (this.viewCache) {
-				View view = (View) this.viewCache.get(cacheKey);
-				if (view == null) {
-					// Ask the subclass to create the View object.
-					view = createView(viewName, locale);
-					this.viewCache.put(cacheKey, view);
+			CachedView cachedView = (CachedView) this.viewCache.get(cacheKey);
+			if (cachedView != null) {
+				this.cacheHitCount++;
+			}
+			else {
+				cachedView = createCachedView(cacheKey, viewName, locale);
+			}
+			if (this.cacheLimit > 0) {
+				cachedView.lastAccess = System.currentTimeMillis();
+			}
+			return cachedView.view;
+		}
+	}
+
+	/**
+	 * Create the View for the given cache key, holding a lock for that key
+	 * only: Threads asking for other views are not affected.
+	 * @param cacheKey the cache key for the view
+	 * @param viewName the name of the view to retrieve
+	 * @param locale the Locale to retrieve the view for
+	 * @return the CachedView holder (never <code>null</code>)
+	 * @throws Exception if the view couldn't be resolved
+	 */
+	private CachedView createCachedView(Object cacheKey, String viewName, Locale locale) throws Exception {
+		Object creationLock = null;
+		synchronized (this.viewCreationLocks) {
+			creationLock = this.viewCreationLocks.get(cacheKey);
+			if (creationLock == null) {
+				creationLock = new Object();
+				this.viewCreationLocks.put(cacheKey, creationLock);
+			}
+		}
+		try {
+			synchronized (creationLock) {
+				// Re-check cache: another thread might have created the view meanwhile.
+				CachedView cachedView = (CachedView) this.viewCache.get(cacheKey);
+				if (cachedView != null) {
+					this.cacheHitCount++;
+					return cachedView;
+				}
+				this.cacheMissCount++;
+				// Ask the subclass to create the View object.
+				View view = createView(viewName, locale);
+				cachedView = new CachedView(view);
+				if (view != null || this.cacheUnresolved) {
+					addToCache(cacheKey, cachedView);
 					if (logger.isDebugEnabled()) {
 						logger.debug("Cached view [" + cacheKey + "]");
 					}
 				}
-				return view;
+				return cachedView;
+			}
+		}
+		finally {
+			synchronized (this.viewCreationLocks) {
+				if (this.viewCreationLocks.get(cacheKey) == creationLock) {
+					this.viewCreationLocks.remove(cacheKey);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Add the given view to the cache, evicting the least recently used view
+	 * if the cache limit has been reached.
+	 * <p>Only cache modifications are synchronized; lookups are not.
+	 */
+	private void addToCache(Object cacheKey, CachedView cachedView) {
+		synchronized (this.viewCache) {
+			if (this.cacheLimit > 0 && this.viewCache.size() >= this.cacheLimit) {
+				Object eldestKey = null;
+				long eldestAccess = Long.MAX_VALUE;
+				for (Iterator it = this.viewCache.entrySet().iterator(); it.hasNext();) {
+					Map.Entry entry = (Map.Entry) it.next();
+					long lastAccess = ((CachedView) entry.getValue()).lastAccess;
+					if (lastAccess < eldestAccess) {
+						eldestKey = entry.getKey();
+						eldestAccess = lastAccess;
+					}
+				}
+				if (eldestKey != null) {
+					this.viewCache.remove(eldestKey);
+					if (logger.isDebugEnabled()) {
+						logger.debug("Evicted least recently used view [" + eldestKey + "] from cache");
+					}
+				}
+			}
+			this.viewCache.put(cacheKey, cachedView);
+		}
+	}
+
 	/**
 	 * Return the cache key for the given view name and the given locale.
 	 * Default is a String consisting of view name and locale suffix.
@@ -176,4 +346,23 @@ public abstract class AbstractCachingViewResolver extends WebApplicationObjectSu
 	 */
 	protected abstract View loadView(String viewName, Locale locale) throws Exception;
 
+
+	/**
+	 * Holder for a cached View, or for the absence of a View for a given name.
+	 */
+	private static class CachedView {
+
+		/** The View instance, or <code>null</code> if unresolvable */
+		private final View view;
+
+		/** Timestamp of the last access to this view, for LRU eviction */
+		private volatile long lastAccess;
+
+		public CachedView(View view) {
+			this.view = view;
+			// Count creation as access, so that a new view is not the eldest one.
+			this.lastAccess = System.currentTimeMillis();
+		}
+	}
+
 }